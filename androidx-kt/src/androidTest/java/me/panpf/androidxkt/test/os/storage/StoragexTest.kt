@@ -278,6 +278,16 @@ class StoragexTest {
          */
         assertTrue(context.lengthAppCacheDirs() >= 0)
         assertTrue(context.lengthAppCacheDirs(context.packageName) >= 0)
+        val cacheResult = context.lengthAppCacheDirsParallel()
+        assertFalse(cacheResult.isCanceled)
+        assertEquals(context.lengthAppCacheDirs(), cacheResult.length)
+        assertEquals(context.lengthAppCacheDirs(), context.lengthAppCacheDirsIndexed())
+
+        /*
+         * trimAppCacheDirsTo
+         */
+        assertTrue(context.trimAppCacheDirsTo(Long.MAX_VALUE).remainingLength >= 0)
+        assertTrue(context.trimAppCacheDirsTo(0).remainingLength >= 0)
 
         /*
          * cleanAppCacheDirs
@@ -344,6 +354,10 @@ class StoragexTest {
          */
         assertTrue(context.lengthAppFilesDirs() >= 0)
         assertTrue(context.lengthAppFilesDirs(context.packageName) >= 0)
+        val filesResult = context.lengthAppFilesDirsParallel()
+        assertFalse(filesResult.isCanceled)
+        assertEquals(context.lengthAppFilesDirs(), filesResult.length)
+        assertEquals(context.lengthAppFilesDirs(), context.lengthAppFilesDirsIndexed())
 
         /*
          * cleanAppFilesDirs
@@ -385,6 +399,10 @@ class StoragexTest {
          */
         assertTrue(context.lengthAppObbDirs() >= 0)
         assertTrue(context.lengthAppObbDirs(context.packageName) >= 0)
+        val obbResult = context.lengthAppObbDirsParallel()
+        assertFalse(obbResult.isCanceled)
+        assertEquals(context.lengthAppObbDirs(), obbResult.length)
+        assertEquals(context.lengthAppObbDirs(), context.lengthAppObbDirsIndexed())
 
         /*
          * cleanAppObbDirs
@@ -406,4 +424,14 @@ class StoragexTest {
         assertNotNull(context.getAppExternalCacheDirs().getFileIn("test.jpeg", 1024 * 1024 * 8, true))
         assertNotNull(context.getAppExternalCacheDirs().getFileIn("test.jpeg", 1024 * 1024 * 8))
     }
+
+    @Test
+    fun testReserveFileIn() {
+        val context = InstrumentationRegistry.getContext()
+        val reservation = context.reserveFileIn(context.getAppExternalCacheDirs(), "test.jpeg", 1024 * 1024 * 8, true)
+        assertNotNull(reservation)
+        reservation!!.abandon()
+        assertTrue(reservation.isReleased)
+        assertNull(context.reserveFileIn(context.getAppExternalCacheDirs(), "test.jpeg", java.lang.Long.MAX_VALUE))
+    }
 }
@@ -25,6 +25,9 @@ import android.graphics.Rect
 import android.graphics.drawable.BitmapDrawable
 import android.support.annotation.ColorInt
 import android.util.TypedValue
+import android.widget.ImageView
+import me.panpf.androidx.graphics.BitmapPool
+import me.panpf.androidx.graphics.BitmapTransform
 import me.panpf.androidx.graphics.Bitmapx
 import java.io.File
 import java.io.FileDescriptor
@@ -61,6 +64,76 @@ inline fun Resources.readBitmap(resId: Int): Bitmap? = Bitmapx.readBitmap(this,
 inline fun Resources.readBitmap(value: TypedValue?, inputStream: InputStream?, pad: Rect?, options: BitmapFactory.Options?): Bitmap? =
         Bitmapx.readBitmap(this, value, inputStream, pad, options)
 
+inline fun File.readBitmap(options: BitmapFactory.Options?, bitmapPool: BitmapPool): Bitmap? = Bitmapx.readBitmap(this, options, bitmapPool)
+
+/**
+ * The bounds are decoded first, so the stream is wrapped with BufferedInputStream if it does not support mark
+ */
+inline fun InputStream.readBitmap(outPadding: Rect?, options: BitmapFactory.Options?, bitmapPool: BitmapPool): Bitmap? =
+        Bitmapx.readBitmap(this, outPadding, options, bitmapPool)
+
+inline fun ByteArray.readBitmap(offset: Int, length: Int, options: BitmapFactory.Options?, bitmapPool: BitmapPool): Bitmap? =
+        Bitmapx.readBitmap(this, offset, length, options, bitmapPool)
+
+inline fun ByteArray.readBitmap(options: BitmapFactory.Options?, bitmapPool: BitmapPool): Bitmap? = Bitmapx.readBitmap(this, options, bitmapPool)
+
+inline fun FileDescriptor.readBitmap(outPadding: Rect?, options: BitmapFactory.Options?, bitmapPool: BitmapPool): Bitmap? =
+        Bitmapx.readBitmap(this, outPadding, options, bitmapPool)
+
+inline fun Resources.readBitmap(resId: Int, options: BitmapFactory.Options?, bitmapPool: BitmapPool): Bitmap? =
+        Bitmapx.readBitmap(this, resId, options, bitmapPool)
+
+/**
+ * Decode with the largest power of two inSampleSize that keeps the image not smaller than the target size
+ *
+ * @param config  Preferred config, null means ARGB_8888
+ * @param exactly If true, the sampled bitmap is cropped and scaled to exactly [targetWidth] x [targetHeight] according to [scaleType]
+ */
+inline fun File.readBitmap(targetWidth: Int, targetHeight: Int, scaleType: ImageView.ScaleType,
+                           config: Bitmap.Config? = null, exactly: Boolean = false): Bitmap? =
+        Bitmapx.readBitmap(this, targetWidth, targetHeight, scaleType, config, exactly)
+
+/**
+ * Decode with the largest power of two inSampleSize that keeps the image not smaller than the target size.
+ * Only the bytes read while decoding the bounds are buffered
+ *
+ * @param config  Preferred config, null means ARGB_8888
+ * @param exactly If true, the sampled bitmap is cropped and scaled to exactly [targetWidth] x [targetHeight] according to [scaleType]
+ */
+inline fun InputStream.readBitmap(targetWidth: Int, targetHeight: Int, scaleType: ImageView.ScaleType,
+                                  config: Bitmap.Config? = null, exactly: Boolean = false): Bitmap? =
+        Bitmapx.readBitmap(this, targetWidth, targetHeight, scaleType, config, exactly)
+
+/**
+ * Decode with the largest power of two inSampleSize that keeps the image not smaller than the target size
+ *
+ * @param config  Preferred config, null means ARGB_8888
+ * @param exactly If true, the sampled bitmap is cropped and scaled to exactly [targetWidth] x [targetHeight] according to [scaleType]
+ */
+inline fun ByteArray.readBitmap(targetWidth: Int, targetHeight: Int, scaleType: ImageView.ScaleType,
+                                config: Bitmap.Config? = null, exactly: Boolean = false): Bitmap? =
+        Bitmapx.readBitmap(this, targetWidth, targetHeight, scaleType, config, exactly)
+
+/**
+ * Decode with the largest power of two inSampleSize that keeps the image not smaller than the target size
+ *
+ * @param config  Preferred config, null means ARGB_8888
+ * @param exactly If true, the sampled bitmap is cropped and scaled to exactly [targetWidth] x [targetHeight] according to [scaleType]
+ */
+inline fun FileDescriptor.readBitmap(targetWidth: Int, targetHeight: Int, scaleType: ImageView.ScaleType,
+                                     config: Bitmap.Config? = null, exactly: Boolean = false): Bitmap? =
+        Bitmapx.readBitmap(this, targetWidth, targetHeight, scaleType, config, exactly)
+
+/**
+ * Decode with the largest power of two inSampleSize that keeps the image not smaller than the target size
+ *
+ * @param config  Preferred config, null means ARGB_8888
+ * @param exactly If true, the sampled bitmap is cropped and scaled to exactly [targetWidth] x [targetHeight] according to [scaleType]
+ */
+inline fun Resources.readBitmap(resId: Int, targetWidth: Int, targetHeight: Int, scaleType: ImageView.ScaleType,
+                                config: Bitmap.Config? = null, exactly: Boolean = false): Bitmap? =
+        Bitmapx.readBitmap(this, resId, targetWidth, targetHeight, scaleType, config, exactly)
+
 
 /* ************************************** save ******************************************  */
 
@@ -95,6 +168,11 @@ inline fun Bitmap.circular(config: Bitmap.Config): Bitmap = Bitmapx.circular(thi
 
 inline fun Bitmap.circular(): Bitmap = Bitmapx.circular(this)
 
+/**
+ * The new bitmap is taken from [bitmapPool]
+ */
+inline fun Bitmap.circular(newSize: Int, config: Bitmap.Config, bitmapPool: BitmapPool): Bitmap = Bitmapx.circular(this, newSize, config, bitmapPool)
+
 
 inline fun Bitmap.centerCropTo(dstBitmap: Bitmap): Bitmap = Bitmapx.centerCropTo(this, dstBitmap)
 
@@ -102,9 +180,48 @@ inline fun Bitmap.centerCrop(newWidth: Int, newHeight: Int, config: Bitmap.Confi
 
 inline fun Bitmap.centerCrop(newWidth: Int, newHeight: Int): Bitmap = Bitmapx.centerCrop(this, newWidth, newHeight)
 
+/**
+ * The new bitmap is taken from [bitmapPool]
+ */
+inline fun Bitmap.centerCrop(newWidth: Int, newHeight: Int, config: Bitmap.Config, bitmapPool: BitmapPool): Bitmap =
+        Bitmapx.centerCrop(this, newWidth, newHeight, config, bitmapPool)
+
 
 inline fun Bitmap.tint(@ColorInt color: Int): Bitmap = Bitmapx.tint(this, color)
 
+/**
+ * The new bitmap is taken from [bitmapPool]
+ */
+inline fun Bitmap.tint(@ColorInt color: Int, bitmapPool: BitmapPool): Bitmap = Bitmapx.tint(this, color, bitmapPool)
+
+
+/**
+ * Draw the bitmap through all steps of [transform] into a new bitmap at once
+ */
+inline fun Bitmap.transform(transform: BitmapTransform): Bitmap = Bitmapx.transform(this, transform)
+
+/**
+ * Draw the bitmap through all steps of [transform] into a new bitmap at once, the new bitmap is taken from [bitmapPool]
+ */
+inline fun Bitmap.transform(transform: BitmapTransform, bitmapPool: BitmapPool): Bitmap = Bitmapx.transform(this, transform, bitmapPool)
+
+
+/**
+ * Approximate gaussian blur whose cost does not depend on [radius], blur a copy shrunk by [downsample] times and enlarge it back
+ */
+inline fun Bitmap.blur(radius: Int, downsample: Int): Bitmap = Bitmapx.blur(this, radius, downsample)
+
+/**
+ * Approximate gaussian blur whose cost does not depend on [radius]
+ */
+inline fun Bitmap.blur(radius: Int): Bitmap = Bitmapx.blur(this, radius)
+
+
+/**
+ * Return the bitmap to [bitmapPool] for reuse, it is recycled if the pool does not accept it
+ */
+inline fun Bitmap.recycleToPool(bitmapPool: BitmapPool) = Bitmapx.recycleToPool(this, bitmapPool)
+
 
 /* ************************************** use ******************************************  */
 
@@ -119,6 +119,62 @@ inline fun Int.setColorHSVValue(@FloatRange(from = 0.0, to = 1.0) newValue: Floa
 @ColorInt
 inline fun Int.addColorHSVValue(@FloatRange(from = 0.0, to = 1.0) addRate: Float): Int = Colorx.addHSVValue(this, addRate)
 
+/**
+ * Modify the alpha value of all pixels in place
+ *
+ * @receiver ARGB pixels
+ * @param newAlpha New alpha value (0...255)
+ */
+inline fun IntArray.setColorAlpha(@IntRange(from = 0, to = 255) newAlpha: Int) = Colorx.setAlpha(this, newAlpha)
+
+/**
+ * Multiply [addRate] based on the alpha value of all pixels in place
+ *
+ * @receiver ARGB pixels
+ * @param addRate Add the ratio (0...1)
+ */
+inline fun IntArray.addColorAlpha(@FloatRange(from = 0.0, to = 1.0) addRate: Float) = Colorx.addAlpha(this, addRate)
+
+/**
+ * Modify the HSV hue value of all pixels in place
+ *
+ * @receiver ARGB pixels
+ * @param newHue New HSV hue value (0...360)
+ */
+inline fun IntArray.setColorHSVHue(@FloatRange(from = 0.0, to = 360.0) newHue: Float) = Colorx.setHSVHue(this, newHue)
+
+/**
+ * Modify the HSV saturation value of all pixels in place
+ *
+ * @receiver ARGB pixels
+ * @param newSaturation New HSV saturation value (0...1)
+ */
+inline fun IntArray.setColorHSVSaturation(@FloatRange(from = 0.0, to = 1.0) newSaturation: Float) = Colorx.setHSVSaturation(this, newSaturation)
+
+/**
+ * Multiply [addRate] based on the HSV saturation value of all pixels in place
+ *
+ * @receiver ARGB pixels
+ * @param addRate Add the ratio (0...1)
+ */
+inline fun IntArray.addColorHSVSaturation(@FloatRange(from = 0.0, to = 1.0) addRate: Float) = Colorx.addHSVSaturation(this, addRate)
+
+/**
+ * Modify the HSV 'value' value of all pixels in place
+ *
+ * @receiver ARGB pixels
+ * @param newValue New HSV 'value' value (0...1)
+ */
+inline fun IntArray.setColorHSVValue(@FloatRange(from = 0.0, to = 1.0) newValue: Float) = Colorx.setHSVValue(this, newValue)
+
+/**
+ * Multiply [addRate] based on the HSV 'value' value of all pixels in place
+ *
+ * @receiver ARGB pixels
+ * @param addRate Add the ratio (0...1)
+ */
+inline fun IntArray.addColorHSVValue(@FloatRange(from = 0.0, to = 1.0) addRate: Float) = Colorx.addHSVValue(this, addRate)
+
 /**
  * Returns true if the color is a bright color, used to prevent the background color from being close to the text color, causing the text to be invisible
  *
@@ -22,6 +22,7 @@ import android.content.res.Resources
 import android.graphics.Rect
 import android.support.annotation.DrawableRes
 import android.util.TypedValue
+import me.panpf.androidx.graphics.ImageInfo
 import me.panpf.androidx.graphics.Imagex
 import java.io.File
 import java.io.FileDescriptor
@@ -101,4 +102,44 @@ inline fun Resources?.getImageMimeSubType(@DrawableRes resId: Int): String? = Im
 /**
  * Get the MimeType sub type of the image, for example 'jpeg'
  */
-inline fun Resources?.getImageMimeSubType(value: TypedValue?, `is`: InputStream?, pad: Rect?): String? = Imagex.getMimeSubType(this, value, `is`, pad)
\ No newline at end of file
+inline fun Resources?.getImageMimeSubType(value: TypedValue?, `is`: InputStream?, pad: Rect?): String? = Imagex.getMimeSubType(this, value, `is`, pad)
+
+
+/* ************************************** probe ******************************************  */
+
+/**
+ * Identify the format and read the size and EXIF orientation from the header of the image without decoding,
+ * BitmapFactory is used only when the format is unknown or the size is not found in the header
+ */
+inline fun File?.probeImage(): ImageInfo? = Imagex.probe(this)
+
+/**
+ * Identify the format and read the size and EXIF orientation from the header of the image without decoding,
+ * BitmapFactory is used only when the format is unknown or the size is not found in the header.
+ * If the stream supports mark, it is reset to the current position after probing, otherwise it is consumed
+ */
+inline fun InputStream?.probeImage(): ImageInfo? = Imagex.probe(this)
+
+/**
+ * Identify the format and read the size and EXIF orientation from the header of the image without decoding,
+ * BitmapFactory is used only when the format is unknown or the size is not found in the header
+ */
+inline fun ByteArray?.probeImage(offset: Int, length: Int): ImageInfo? = Imagex.probe(this, offset, length)
+
+/**
+ * Identify the format and read the size and EXIF orientation from the header of the image without decoding,
+ * BitmapFactory is used only when the format is unknown or the size is not found in the header
+ */
+inline fun ByteArray?.probeImage(): ImageInfo? = Imagex.probe(this)
+
+/**
+ * Probe the files in parallel, the results are in the same order as the files, null for the files that are not images
+ *
+ * @param threadCount Max number of files probed at the same time
+ */
+inline fun List<File>.probeImages(threadCount: Int): Array<ImageInfo?> = Imagex.probeAll(this, threadCount)
+
+/**
+ * Probe the files in parallel with up to 4 threads, the results are in the same order as the files, null for the files that are not images
+ */
+inline fun List<File>.probeImages(): Array<ImageInfo?> = Imagex.probeAll(this)
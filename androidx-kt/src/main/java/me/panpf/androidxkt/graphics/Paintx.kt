@@ -68,6 +68,14 @@ inline fun String.getTextWidthByBounds(textSize: Float): Int = Paintx.getTextWid
  */
 inline fun String.getTextHeightByBounds(textSize: Float): Int = Paintx.getTextHeightByBounds(this, textSize)
 
+/**
+ * 一次获取多个文字的宽度
+ *
+ * @param textSize 文字大小
+ * @return 每个文字的宽度
+ */
+inline fun List<String>.getTextWidths(textSize: Float): FloatArray = Paintx.getTextWidths(this, textSize)
+
 /**
  * 获取指定画笔的文字离顶部的基准距离
  *
@@ -23,6 +23,7 @@ import android.graphics.Bitmap
 import android.graphics.drawable.Drawable
 import android.support.annotation.ColorInt
 import android.support.annotation.DrawableRes
+import me.panpf.androidx.graphics.BitmapPool
 import me.panpf.androidx.graphics.drawable.Drawablex
 
 /*
@@ -39,6 +40,16 @@ import me.panpf.androidx.graphics.drawable.Drawablex
 inline fun Drawable.toBitmapWithIntrinsicSize(config: Bitmap.Config = Bitmap.Config.ARGB_8888, reuseBitmap: Bitmap? = null): Bitmap =
         Drawablex.toBitmapWithIntrinsicSize(this, config, reuseBitmap)
 
+/**
+ * Convert Drawable to bitmap, use intrinsic size as the size of the new bitmap
+ *
+ * @receiver Source Drawable
+ * @param config     Bitmap configuration, default value Bitmap.Config.ARGB_8888
+ * @param bitmapPool The new bitmap is taken from it
+ */
+inline fun Drawable.toBitmapWithIntrinsicSize(config: Bitmap.Config = Bitmap.Config.ARGB_8888, bitmapPool: BitmapPool): Bitmap =
+        Drawablex.toBitmapWithIntrinsicSize(this, config, bitmapPool)
+
 /**
  * Convert Drawable to bitmap, use bounds size as the size of the new bitmap
  *
@@ -49,6 +60,16 @@ inline fun Drawable.toBitmapWithIntrinsicSize(config: Bitmap.Config = Bitmap.Con
 inline fun Drawable.toBitmapWithBoundsSize(config: Bitmap.Config = Bitmap.Config.ARGB_8888, reuseBitmap: Bitmap? = null): Bitmap =
         Drawablex.toBitmapWithBoundsSize(this, config, reuseBitmap)
 
+/**
+ * Convert Drawable to bitmap, use bounds size as the size of the new bitmap
+ *
+ * @receiver Source Drawable
+ * @param config     Bitmap configuration, default value Bitmap.Config.ARGB_8888
+ * @param bitmapPool The new bitmap is taken from it
+ */
+inline fun Drawable.toBitmapWithBoundsSize(config: Bitmap.Config = Bitmap.Config.ARGB_8888, bitmapPool: BitmapPool): Bitmap =
+        Drawablex.toBitmapWithBoundsSize(this, config, bitmapPool)
+
 
 /**
  * Change the color of the drawable
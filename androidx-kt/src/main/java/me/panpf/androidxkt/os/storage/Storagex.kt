@@ -21,6 +21,10 @@ package me.panpf.androidxkt.os.storage
 import android.content.Context
 import android.os.Environment
 import android.support.annotation.WorkerThread
+import me.panpf.androidx.os.storage.DirLengthCounter
+import me.panpf.androidx.os.storage.DirLengthIndex
+import me.panpf.androidx.os.storage.DirTrimmer
+import me.panpf.androidx.os.storage.SpaceAllocator
 import me.panpf.androidx.os.storage.StorageVolumeCompat
 import me.panpf.androidx.os.storage.Storagex
 import java.io.File
@@ -357,6 +361,22 @@ inline fun Context.lengthAppCacheDirs(): Long = Storagex.lengthAppCacheDirs(this
 @WorkerThread
 inline fun Context.lengthAppCacheDirs(packageName: String): Long = Storagex.lengthAppCacheDirs(this, packageName)
 
+/**
+ * Count the size of all APP cache directories in parallel, each volume is counted on its own thread.
+ * Interrupting the calling thread cancels the counting and returns the results counted so far
+ *
+ * @param listener Receive progress, the size of each top-level child and the size of each volume, all methods are called on the worker thread
+ */
+@WorkerThread
+inline fun Context.lengthAppCacheDirsParallel(listener: DirLengthCounter.Listener? = null): DirLengthCounter.Result = Storagex.lengthAppCacheDirsParallel(this, listener)
+
+/**
+ * Count the size of all APP cache directories with the persistent [DirLengthIndex],
+ * only the directories that have changed since the last count are listed again
+ */
+@WorkerThread
+inline fun Context.lengthAppCacheDirsIndexed(): Long = Storagex.lengthAppCacheDirsIndexed(this)
+
 /**
  * Clean up all app cache directories
  */
@@ -371,6 +391,16 @@ inline fun Context.cleanAppCacheDirs() = Storagex.cleanAppCacheDirs(this)
 @WorkerThread
 inline fun Context.cleanAppCacheDirs(packageName: String) = Storagex.cleanAppCacheDirs(this, packageName)
 
+/**
+ * Delete the least recently used files in all app cache directories until their total size is not greater than [targetBytes].
+ * Interrupting the calling thread stops trimming after the current batch
+ *
+ * @param targetBytes The total size of all app cache directories after trimming
+ * @param listener    Called on the calling thread after each batch of deletions
+ */
+@WorkerThread
+inline fun Context.trimAppCacheDirsTo(targetBytes: Long, listener: DirTrimmer.Listener? = null): DirTrimmer.Result = Storagex.trimAppCacheDirsTo(this, targetBytes, listener)
+
 
 /* ******************************************* App Files Dir *******************************************/
 
@@ -440,6 +470,22 @@ inline fun Context.lengthAppFilesDirs(): Long = Storagex.lengthAppFilesDirs(this
 @WorkerThread
 inline fun Context.lengthAppFilesDirs(packageName: String): Long = Storagex.lengthAppFilesDirs(this, packageName)
 
+/**
+ * Count the size of all APP files directories in parallel, each volume is counted on its own thread.
+ * Interrupting the calling thread cancels the counting and returns the results counted so far
+ *
+ * @param listener Receive progress, the size of each top-level child and the size of each volume, all methods are called on the worker thread
+ */
+@WorkerThread
+inline fun Context.lengthAppFilesDirsParallel(listener: DirLengthCounter.Listener? = null): DirLengthCounter.Result = Storagex.lengthAppFilesDirsParallel(this, listener)
+
+/**
+ * Count the size of all APP files directories with the persistent [DirLengthIndex],
+ * only the directories that have changed since the last count are listed again
+ */
+@WorkerThread
+inline fun Context.lengthAppFilesDirsIndexed(): Long = Storagex.lengthAppFilesDirsIndexed(this)
+
 /**
  * Clean up all app files directories
  */
@@ -497,6 +543,22 @@ inline fun Context.lengthAppObbDirs(): Long = Storagex.lengthAppObbDirs(this)
 @WorkerThread
 inline fun Context.lengthAppObbDirs(packageName: String): Long = Storagex.lengthAppObbDirs(this, packageName)
 
+/**
+ * Count the size of all APP obb directories in parallel, each volume is counted on its own thread.
+ * Interrupting the calling thread cancels the counting and returns the results counted so far
+ *
+ * @param listener Receive progress, the size of each top-level child and the size of each volume, all methods are called on the worker thread
+ */
+@WorkerThread
+inline fun Context.lengthAppObbDirsParallel(listener: DirLengthCounter.Listener? = null): DirLengthCounter.Result = Storagex.lengthAppObbDirsParallel(this, listener)
+
+/**
+ * Count the size of all APP obb directories with the persistent [DirLengthIndex],
+ * only the directories that have changed since the last count are listed again
+ */
+@WorkerThread
+inline fun Context.lengthAppObbDirsIndexed(): Long = Storagex.lengthAppObbDirsIndexed(this)
+
 /**
  * Clean up all app obb directories
  */
@@ -539,3 +601,15 @@ inline fun Array<File>?.getFileIn(fileName: String, minBytes: Long, cleanOldFile
  * @param minBytes Minimum available bytes
  */
 inline fun Array<File>?.getFileIn(fileName: String, minBytes: Long): File? = Storagex.getFileIn(this, fileName, minBytes)
+
+/**
+ * Traverse the specified directory list, choose the directory with the most available bytes after subtracting the bytes reserved by other writers,
+ * and reserve [minBytes] for the file (not created) with [SpaceAllocator.getDefault].
+ * The reservation must be released by [SpaceAllocator.Reservation.commit] or [SpaceAllocator.Reservation.abandon] after writing
+ *
+ * @param fileName     file name
+ * @param minBytes     The number of bytes to reserve
+ * @param cleanOldFile Whether to delete old files before judging the space
+ */
+inline fun Context.reserveFileIn(dirs: Array<File>?, fileName: String, minBytes: Long, cleanOldFile: Boolean = false): SpaceAllocator.Reservation? =
+        Storagex.reserveFileIn(this, dirs, fileName, minBytes, cleanOldFile)
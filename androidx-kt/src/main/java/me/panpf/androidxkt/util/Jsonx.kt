@@ -22,6 +22,9 @@ import me.panpf.androidx.util.Jsonx
 import org.json.JSONArray
 import org.json.JSONException
 import org.json.JSONObject
+import java.io.IOException
+import java.io.InputStream
+import java.io.Reader
 import java.util.*
 
 /*
@@ -42,6 +45,27 @@ inline fun List<String>?.toJson(): String = Jsonx.toJson(this)
 
 inline fun IntArray?.toJson(): String = Jsonx.toJson(this)
 
+inline fun LongArray?.toJson(): String = Jsonx.toJson(this)
+
+inline fun DoubleArray?.toJson(): String = Jsonx.toJson(this)
+
+inline fun BooleanArray?.toJson(): String = Jsonx.toJson(this)
+
+inline fun Array<out String?>?.toJson(): String = Jsonx.toJson(this)
+
+/**
+ * Append [ints] to the builder as a json array without boxing
+ */
+inline fun StringBuilder.appendJson(ints: IntArray?): StringBuilder = Jsonx.appendJson(this, ints)
+
+inline fun StringBuilder.appendJson(longs: LongArray?): StringBuilder = Jsonx.appendJson(this, longs)
+
+inline fun StringBuilder.appendJson(doubles: DoubleArray?): StringBuilder = Jsonx.appendJson(this, doubles)
+
+inline fun StringBuilder.appendJson(booleans: BooleanArray?): StringBuilder = Jsonx.appendJson(this, booleans)
+
+inline fun StringBuilder.appendJson(strings: Array<out String?>?): StringBuilder = Jsonx.appendJson(this, strings)
+
 
 inline fun JSONArray.toStringList(): List<String> = Jsonx.toStringList(this)
 
@@ -59,6 +83,24 @@ inline fun JSONArray.toIntArray(): IntArray = Jsonx.toIntArray(this)
 @Throws(JSONException::class)
 inline fun String?.jsonToIntArray(): IntArray = Jsonx.toIntArray(this)
 
+/**
+ * Parse the json array straight from the text without JSONArray and boxing
+ */
+@Throws(JSONException::class)
+inline fun CharSequence?.jsonToIntArray(): IntArray = Jsonx.toIntArray(this)
+
+@Throws(JSONException::class)
+inline fun CharSequence?.jsonToLongArray(): LongArray = Jsonx.toLongArray(this)
+
+@Throws(JSONException::class)
+inline fun CharSequence?.jsonToDoubleArray(): DoubleArray = Jsonx.toDoubleArray(this)
+
+@Throws(JSONException::class)
+inline fun CharSequence?.jsonToBooleanArray(): BooleanArray = Jsonx.toBooleanArray(this)
+
+@Throws(JSONException::class)
+inline fun CharSequence?.jsonToStringArray(): Array<String> = Jsonx.toStringArray(this)
+
 
 @Throws(JSONException::class)
 inline fun <Bean> JSONArray.toBeanList(parser: Jsonx.BeanParser<Bean>): ArrayList<Bean> = Jsonx.toBeanList(this, parser)
@@ -72,6 +114,39 @@ inline fun <Bean> String?.jsonToBeanList(parser: Jsonx.BeanParser<Bean>): ArrayL
 @Throws(JSONException::class)
 inline fun <Bean> String?.jsonToBeanList(noinline parser: (JSONObject) -> Bean): ArrayList<Bean> = Jsonx.toBeanList(this, parser)
 
+/**
+ * Read the json array from the reader and parse its items one by one, only the current item is converted to a JSONObject
+ */
+@Throws(IOException::class, JSONException::class)
+inline fun <Bean> Reader.jsonToBeanList(noinline parser: (JSONObject) -> Bean): ArrayList<Bean> = Jsonx.toBeanList(this, parser)
+
+/**
+ * Read the json array from the reader and parse at most [maxCount] items one by one
+ */
+@Throws(IOException::class, JSONException::class)
+inline fun <Bean> Reader.jsonToBeanList(maxCount: Int, noinline parser: (JSONObject) -> Bean): ArrayList<Bean> = Jsonx.toBeanList(this, parser, maxCount)
+
+/**
+ * Read the UTF-8 json array from the stream and parse its items one by one, only the current item is converted to a JSONObject
+ */
+@Throws(IOException::class, JSONException::class)
+inline fun <Bean> InputStream.jsonToBeanList(noinline parser: (JSONObject) -> Bean): ArrayList<Bean> = Jsonx.toBeanList(this, parser)
+
+/**
+ * Read the UTF-8 json array from the stream and parse at most [maxCount] items one by one
+ */
+@Throws(IOException::class, JSONException::class)
+inline fun <Bean> InputStream.jsonToBeanList(maxCount: Int, noinline parser: (JSONObject) -> Bean): ArrayList<Bean> = Jsonx.toBeanList(this, parser, maxCount)
+
+/**
+ * Read the json array from the reader and deliver its items to [callback] one by one, return false from [callback] to stop reading
+ *
+ * @return The number of beans delivered
+ */
+@Throws(IOException::class, JSONException::class)
+inline fun <Bean> Reader.readJsonBeans(maxCount: Int, noinline parser: (JSONObject) -> Bean?, noinline callback: (Bean, Int) -> Boolean): Int =
+        Jsonx.readBeans(this, parser, maxCount, callback)
+
 @Throws(JSONException::class)
 inline fun <Bean> JSONObject.toBean(parser: Jsonx.BeanParser<Bean>): Bean? = Jsonx.toBean(this, parser)
 
@@ -102,4 +177,24 @@ inline fun JSONObject?.formatJson(): String = Jsonx.format(this)
 
 inline fun JSONArray?.formatJson(): String = Jsonx.format(this)
 
-inline fun String?.formatJson(): String = Jsonx.format(this)
\ No newline at end of file
+inline fun String?.formatJson(): String = Jsonx.format(this)
+
+/**
+ * Format the json object and write it to [out] directly
+ */
+inline fun JSONObject.formatJsonTo(out: Appendable) = Jsonx.format(this, out)
+
+/**
+ * Format the json array and write it to [out] directly
+ */
+inline fun JSONArray.formatJsonTo(out: Appendable) = Jsonx.format(this, out)
+
+/**
+ * Format the json read from the reader token by token and write it to [out], the memory used does not depend on the length of the json
+ */
+inline fun Reader.formatJsonTo(out: Appendable) = Jsonx.format(this, out)
+
+/**
+ * Format the json token by token and write it to [out]
+ */
+inline fun String.formatJsonTo(out: Appendable) = Jsonx.format(this, out)
\ No newline at end of file
@@ -53,6 +53,15 @@ inline fun String.toHtmlRedFlag(): String = Textx.toHtmlRedFlag(this)
  */
 inline fun String.keywordMadeColorByHtml(keyword: String, color: String): String = Textx.keywordMadeColorByHtml(this, keyword, color)
 
+/**
+ * 使用 Html 的方式将字符串中所有关键字标记颜色，多个关键字只扫描一遍字符串
+ *
+ * @receiver 字符串
+ * @param keywords     关键字
+ * @param color        html 支持的颜色
+ */
+inline fun String.keywordsMadeColorByHtml(keywords: Array<String>, color: String): String = Textx.keywordsMadeColorByHtml(this, keywords, color)
+
 /**
  * 使用 Html 的方式将字符串中所有关键字标记成红色
  *
@@ -77,4 +86,14 @@ inline fun String.keywordMadeColorBySpannable(keyword: String, color: Int): Span
  * @receiver 字符串
  * @param keyword      关键字
  */
-inline fun String.keywordMadeRedBySpannable(keyword: String): SpannableStringBuilder = Textx.keywordMadeRedBySpannable(this, keyword)
\ No newline at end of file
+inline fun String.keywordMadeRedBySpannable(keyword: String): SpannableStringBuilder = Textx.keywordMadeRedBySpannable(this, keyword)
+
+/**
+ * 使用 Spannable 的方式将字符串中所有的关键字标记颜色，多个关键字只扫描一遍字符串
+ *
+ * @receiver 字符串
+ * @param keywords     关键字
+ * @param color        颜色
+ */
+inline fun String.keywordsMadeColorBySpannable(keywords: Array<String>, color: Int): SpannableStringBuilder =
+        Textx.keywordsMadeColorBySpannable(this, keywords, color)
\ No newline at end of file
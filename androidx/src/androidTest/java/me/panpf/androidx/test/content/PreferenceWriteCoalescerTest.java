@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.content;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import me.panpf.androidx.content.PreferenceWriteCoalescer;
+import me.panpf.androidx.content.Preferencex;
+
+@RunWith(AndroidJUnit4.class)
+public class PreferenceWriteCoalescerTest {
+
+    private static final String NAME = "PreferenceWriteCoalescerTest";
+
+    @Before
+    public void setUp() {
+        Preferencex.clear(InstrumentationRegistry.getContext(), NAME);
+    }
+
+    @After
+    public void tearDown() {
+        Preferencex.setWriteCoalescer(null);
+        Preferencex.clear(InstrumentationRegistry.getContext(), NAME);
+    }
+
+    @Test
+    public void testCoalesce() {
+        Context context = InstrumentationRegistry.getContext();
+        // A long delay, so that only flush() writes the edits
+        PreferenceWriteCoalescer coalescer = new PreferenceWriteCoalescer(60 * 1000);
+        Preferencex.setWriteCoalescer(coalescer);
+
+        for (int i = 0; i < 200; i++) {
+            Preferencex.putInt(context, "key" + i, i, NAME);
+        }
+        Preferencex.remove(context, "key0", NAME);
+        Assert.assertTrue(coalescer.hasPending());
+        Assert.assertFalse(Preferencex.getPreference(context, NAME).contains("key1"));
+
+        Assert.assertTrue(Preferencex.flush());
+        Assert.assertFalse(coalescer.hasPending());
+        SharedPreferences preferences = Preferencex.getPreference(context, NAME);
+        Assert.assertFalse(preferences.contains("key0"));
+        Assert.assertEquals(199, preferences.getInt("key199", -1));
+        Assert.assertEquals(199, preferences.getAll().size());
+        Assert.assertEquals(201, coalescer.getWriteCount());
+        Assert.assertEquals(1, coalescer.getApplyCount());
+        Assert.assertEquals(200, coalescer.getSavedWriteCount());
+    }
+
+    @Test
+    public void testReadPending() {
+        Context context = InstrumentationRegistry.getContext();
+        PreferenceWriteCoalescer coalescer = new PreferenceWriteCoalescer(60 * 1000);
+        Preferencex.setWriteCoalescer(coalescer);
+
+        Preferencex.putString(context, "string", "value", NAME);
+        Preferencex.putInt(context, "int", 1, NAME);
+        Preferencex.getPreference(context, NAME).edit().putLong("long", 2L).commit();
+        Assert.assertEquals("value", Preferencex.getString(context, "string", null, NAME));
+        Assert.assertEquals(1, Preferencex.getInt(context, "int", 0, NAME));
+        Assert.assertEquals(2L, Preferencex.getLong(context, "long", 0L, NAME));
+        Assert.assertEquals(3, Preferencex.getAll(context, NAME).size());
+        Preferencex.remove(context, "int", NAME);
+        Assert.assertEquals(-1, Preferencex.getInt(context, "int", -1, NAME));
+        Preferencex.clear(context, NAME);
+        Assert.assertEquals(0L, Preferencex.getLong(context, "long", 0L, NAME));
+        Assert.assertEquals(0, Preferencex.getAll(context, NAME).size());
+
+        // Reads do not write the pending edits
+        Assert.assertTrue(coalescer.hasPending());
+        Assert.assertEquals(0, coalescer.getApplyCount());
+        Assert.assertEquals(2L, Preferencex.getPreference(context, NAME).getLong("long", 0L));
+
+        Set<String> set = new HashSet<>();
+        set.add("a");
+        Preferencex.putStringSet(context, "set", set, NAME);
+        set.add("b");
+        Assert.assertEquals(1, Preferencex.getStringSet(context, "set", null, NAME).size());
+    }
+
+    @Test
+    public void testReadModifyWrite() {
+        Context context = InstrumentationRegistry.getContext();
+        PreferenceWriteCoalescer coalescer = new PreferenceWriteCoalescer(60 * 1000);
+        Preferencex.setWriteCoalescer(coalescer);
+
+        for (int i = 0; i < 100; i++) {
+            Preferencex.putInt(context, "count", Preferencex.getInt(context, "count", 0, NAME) + 1, NAME);
+        }
+        Assert.assertEquals(100, Preferencex.getInt(context, "count", 0, NAME));
+        Assert.assertEquals(0, coalescer.getApplyCount());
+
+        Assert.assertTrue(Preferencex.flush());
+        Assert.assertEquals(1, coalescer.getApplyCount());
+        Assert.assertEquals(100, Preferencex.getPreference(context, NAME).getInt("count", 0));
+    }
+
+    @Test
+    public void testMainLooper() {
+        final Context context = InstrumentationRegistry.getContext();
+        final PreferenceWriteCoalescer coalescer = new PreferenceWriteCoalescer();
+        Preferencex.setWriteCoalescer(coalescer);
+
+        final boolean[] writtenInMessage = new boolean[1];
+        final int[] readInMessage = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 50; i++) {
+                    Preferencex.putInt(context, "key" + i, i, NAME);
+                }
+                writtenInMessage[0] = Preferencex.getPreference(context, NAME).contains("key0");
+                readInMessage[0] = Preferencex.getInt(context, "key49", -1, NAME);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        // Written at the end of the current message, not during it
+        Assert.assertFalse(writtenInMessage[0]);
+        Assert.assertEquals(49, readInMessage[0]);
+        Assert.assertFalse(coalescer.hasPending());
+        Assert.assertEquals(50, coalescer.getWriteCount());
+        Assert.assertEquals(1, coalescer.getApplyCount());
+        Assert.assertEquals(49, Preferencex.getPreference(context, NAME).getInt("key49", -1));
+    }
+
+    @Test
+    public void testClear() {
+        Context context = InstrumentationRegistry.getContext();
+        Preferencex.setWriteCoalescer(new PreferenceWriteCoalescer(60 * 1000));
+
+        Preferencex.putBoolean(context, "before", true, NAME);
+        Preferencex.clear(context, NAME);
+        Preferencex.putLong(context, "after", 1L, NAME);
+        Assert.assertTrue(Preferencex.flush());
+
+        SharedPreferences preferences = Preferencex.getPreference(context, NAME);
+        Assert.assertFalse(preferences.contains("before"));
+        Assert.assertEquals(1L, preferences.getLong("after", 0L));
+    }
+
+    @Test
+    public void testEditorCommit() {
+        Context context = InstrumentationRegistry.getContext();
+        PreferenceWriteCoalescer coalescer = new PreferenceWriteCoalescer(60 * 1000);
+        SharedPreferences preferences = Preferencex.getPreference(context, NAME);
+
+        coalescer.edit(preferences).putFloat("float", 1.5f).apply();
+        Assert.assertTrue(coalescer.edit(preferences).putInt("int", 2).commit());
+        Assert.assertEquals(1.5f, preferences.getFloat("float", 0f), 0f);
+        Assert.assertEquals(2, preferences.getInt("int", 0));
+        Assert.assertEquals(1, coalescer.getSavedWriteCount());
+    }
+
+    @Test
+    public void testSetWriteCoalescerApplyPending() {
+        Context context = InstrumentationRegistry.getContext();
+        Preferencex.setWriteCoalescer(new PreferenceWriteCoalescer(60 * 1000));
+        Preferencex.putInt(context, "int", 3, NAME);
+
+        Preferencex.setWriteCoalescer(null);
+        Assert.assertEquals(3, Preferencex.getPreference(context, NAME).getInt("int", 0));
+    }
+}
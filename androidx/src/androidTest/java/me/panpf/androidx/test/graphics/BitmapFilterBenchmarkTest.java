@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import me.panpf.androidx.graphics.BitmapFilter;
+
+/**
+ * Compare the throughput of {@link BitmapFilter#blur(Bitmap)} with the old implementation that reads every pixel with {@link Bitmap#getPixel(int, int)}.
+ * The pixels must be equal, the timings vary with the device and are only logged
+ */
+@RunWith(AndroidJUnit4.class)
+public class BitmapFilterBenchmarkTest {
+
+    private static final String TAG = "BitmapFilterBenchmark";
+
+    /**
+     * The old blur of backup/ImageProcessor, the output config is changed to ARGB_8888 so that the results can be compared
+     */
+    @NonNull
+    private static Bitmap oldBlur(@NonNull Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        Bitmap newBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        for (int i = 1; i < width - 1; i++) {
+            for (int k = 1; k < height - 1; k++) {
+                int newR = 0;
+                int newG = 0;
+                int newB = 0;
+                for (int m = -1; m <= 1; m++) {
+                    for (int n = -1; n <= 1; n++) {
+                        int pixColor = bitmap.getPixel(i + m, k + n);
+                        newR += Color.red(pixColor);
+                        newG += Color.green(pixColor);
+                        newB += Color.blue(pixColor);
+                    }
+                }
+                newBitmap.setPixel(i, k, Color.argb(255, newR / 9, newG / 9, newB / 9));
+            }
+        }
+        return newBitmap;
+    }
+
+    @Test
+    public void testBlur() {
+        Bitmap srcBitmap = BitmapFilterTest.createGradientBitmap(800, 600);
+        BitmapFilter filter = new BitmapFilter();
+        // Warm up the worker threads
+        filter.blur(srcBitmap).recycle();
+
+        long oldStartTime = SystemClock.elapsedRealtime();
+        Bitmap oldBitmap = oldBlur(srcBitmap);
+        long oldTime = Math.max(SystemClock.elapsedRealtime() - oldStartTime, 1);
+
+        long newStartTime = SystemClock.elapsedRealtime();
+        Bitmap newBitmap = filter.blur(srcBitmap);
+        long newTime = Math.max(SystemClock.elapsedRealtime() - newStartTime, 1);
+
+        double megaPixels = srcBitmap.getWidth() * srcBitmap.getHeight() / 1000000d;
+        Log.i(TAG, String.format("blur %dx%d, old: %dms (%.2f MP/s), new: %dms (%.2f MP/s) on %d threads, %.1fx",
+                srcBitmap.getWidth(), srcBitmap.getHeight(), oldTime, megaPixels * 1000 / oldTime,
+                newTime, megaPixels * 1000 / newTime, filter.getThreadCount(), (double) oldTime / newTime));
+
+        // The old implementation does not process the edges
+        for (int y = 1; y < srcBitmap.getHeight() - 1; y += 37) {
+            for (int x = 1; x < srcBitmap.getWidth() - 1; x += 41) {
+                Assert.assertEquals(oldBitmap.getPixel(x, y), newBitmap.getPixel(x, y));
+            }
+        }
+
+        oldBitmap.recycle();
+        newBitmap.recycle();
+        srcBitmap.recycle();
+    }
+}
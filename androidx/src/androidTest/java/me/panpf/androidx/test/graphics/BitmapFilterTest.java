@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import me.panpf.androidx.graphics.BitmapFilter;
+
+@RunWith(AndroidJUnit4.class)
+public class BitmapFilterTest {
+
+    @NonNull
+    static Bitmap createGradientBitmap(int width, int height) {
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixels[y * width + x] = Color.argb(255, x * 255 / width, y * 255 / height, (x + y) % 256);
+            }
+        }
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+        return bitmap;
+    }
+
+    @Test
+    public void testFlatColor() {
+        BitmapFilter filter = new BitmapFilter(4);
+        Bitmap srcBitmap = Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888);
+        srcBitmap.eraseColor(Color.rgb(100, 150, 200));
+
+        Bitmap blurBitmap = filter.blur(srcBitmap);
+        Assert.assertEquals(100, blurBitmap.getWidth());
+        Assert.assertEquals(200, blurBitmap.getHeight());
+        Assert.assertEquals(Color.rgb(100, 150, 200), blurBitmap.getPixel(0, 0));
+        Assert.assertEquals(Color.rgb(100, 150, 200), blurBitmap.getPixel(50, 199));
+        Assert.assertEquals(Color.rgb(100, 150, 200), filter.soften(srcBitmap).getPixel(99, 100));
+        Assert.assertEquals(Color.rgb(100, 150, 200), filter.sharpen(srcBitmap).getPixel(50, 100));
+        Assert.assertEquals(Color.rgb(127, 127, 127), filter.emboss(srcBitmap).getPixel(50, 100));
+        Assert.assertEquals(Color.rgb(155, 105, 55), filter.film(srcBitmap).getPixel(50, 100));
+
+        Bitmap sunshineBitmap = filter.sunshine(srcBitmap, 50, 50, 40, 150);
+        Assert.assertEquals(Color.rgb(250, 255, 255), sunshineBitmap.getPixel(50, 50));
+        Assert.assertEquals(Color.rgb(100, 150, 200), sunshineBitmap.getPixel(50, 150));
+    }
+
+    @Test
+    public void testBandsMatchSingleThread() {
+        Bitmap srcBitmap = createGradientBitmap(300, 257);
+        Bitmap singleBitmap = new BitmapFilter(1).soften(srcBitmap);
+        Bitmap multiBitmap = new BitmapFilter(4).soften(srcBitmap);
+        Assert.assertTrue(singleBitmap.sameAs(multiBitmap));
+
+        // The 3x3 mean of a pixel whose neighbours are known
+        Bitmap blurBitmap = new BitmapFilter(4).blur(srcBitmap);
+        int sumR = 0;
+        for (int y = 99; y <= 101; y++) {
+            for (int x = 99; x <= 101; x++) {
+                sumR += Color.red(srcBitmap.getPixel(x, y));
+            }
+        }
+        Assert.assertEquals(sumR / 9, Color.red(blurBitmap.getPixel(100, 100)));
+    }
+
+    @Test
+    public void testKeepAlpha() {
+        Bitmap srcBitmap = Bitmap.createBitmap(50, 50, Bitmap.Config.ARGB_8888);
+        srcBitmap.eraseColor(Color.argb(128, 255, 255, 255));
+        Assert.assertEquals(128, Color.alpha(BitmapFilter.getDefault().film(srcBitmap).getPixel(25, 25)));
+    }
+
+    @Test
+    public void testIllegalArgument() {
+        Bitmap srcBitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        try {
+            BitmapFilter.getDefault().convolve(srcBitmap, new int[]{1, 1, 1}, 3, 0);
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        try {
+            BitmapFilter.getDefault().convolve(srcBitmap, new int[9], 0, 0);
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+}
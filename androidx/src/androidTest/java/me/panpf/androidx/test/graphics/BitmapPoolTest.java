@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.graphics;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import me.panpf.androidx.graphics.BitmapPool;
+
+@RunWith(AndroidJUnit4.class)
+public class BitmapPoolTest {
+
+    @Test
+    public void testGetAndPut() {
+        BitmapPool bitmapPool = new BitmapPool(1024 * 1024);
+
+        Assert.assertNull(bitmapPool.get(100, 100, Bitmap.Config.ARGB_8888));
+        Assert.assertEquals(1, bitmapPool.getMissCount());
+
+        Bitmap bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        Assert.assertTrue(bitmapPool.put(bitmap));
+        Assert.assertFalse(bitmapPool.put(bitmap));
+        Assert.assertEquals(100 * 100 * 4, bitmapPool.getSize());
+
+        Assert.assertSame(bitmap, bitmapPool.get(100, 100, Bitmap.Config.ARGB_8888));
+        Assert.assertEquals(1, bitmapPool.getHitCount());
+        Assert.assertEquals(0, bitmapPool.getSize());
+
+        Assert.assertTrue(bitmapPool.put(bitmap));
+        Assert.assertNull(bitmapPool.get(100, 100, Bitmap.Config.RGB_565));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            Bitmap reusedBitmap = bitmapPool.get(80, 50, Bitmap.Config.ARGB_8888);
+            Assert.assertSame(bitmap, reusedBitmap);
+            Assert.assertEquals(80, reusedBitmap.getWidth());
+            Assert.assertEquals(50, reusedBitmap.getHeight());
+        } else {
+            Assert.assertNull(bitmapPool.get(80, 50, Bitmap.Config.ARGB_8888));
+        }
+        bitmapPool.clear();
+    }
+
+    @Test
+    public void testReject() {
+        BitmapPool bitmapPool = new BitmapPool(1024 * 1024);
+
+        Bitmap immutableBitmap = Bitmap.createBitmap(new int[100 * 100], 100, 100, Bitmap.Config.ARGB_8888);
+        Assert.assertFalse(bitmapPool.put(immutableBitmap));
+        immutableBitmap.recycle();
+
+        Bitmap recycledBitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        recycledBitmap.recycle();
+        Assert.assertFalse(bitmapPool.put(recycledBitmap));
+
+        Bitmap largeBitmap = Bitmap.createBitmap(1000, 1000, Bitmap.Config.ARGB_8888);
+        Assert.assertFalse(bitmapPool.put(largeBitmap));
+        largeBitmap.recycle();
+
+        Assert.assertEquals(0, bitmapPool.getPutCount());
+    }
+
+    @Test
+    public void testEviction() {
+        BitmapPool bitmapPool = new BitmapPool(100 * 100 * 4 * 2);
+
+        Bitmap bitmap1 = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        Bitmap bitmap2 = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        Bitmap bitmap3 = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+        bitmapPool.put(bitmap1);
+        bitmapPool.put(bitmap2);
+        bitmapPool.put(bitmap3);
+
+        Assert.assertEquals(1, bitmapPool.getEvictionCount());
+        Assert.assertTrue(bitmap1.isRecycled());
+        Assert.assertFalse(bitmap2.isRecycled());
+        Assert.assertFalse(bitmap3.isRecycled());
+
+        bitmapPool.setMaxSize(100 * 100 * 4);
+        Assert.assertEquals(2, bitmapPool.getEvictionCount());
+        Assert.assertTrue(bitmap2.isRecycled());
+        Assert.assertEquals(100 * 100 * 4, bitmapPool.getSize());
+
+        bitmapPool.clear();
+        Assert.assertTrue(bitmap3.isRecycled());
+        Assert.assertEquals(0, bitmapPool.getSize());
+    }
+}
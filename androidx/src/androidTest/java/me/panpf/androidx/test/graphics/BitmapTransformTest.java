@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.support.test.runner.AndroidJUnit4;
+import android.widget.ImageView;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import me.panpf.androidx.graphics.BitmapPool;
+import me.panpf.androidx.graphics.BitmapTransform;
+import me.panpf.androidx.graphics.Bitmapx;
+import me.panpf.androidx.graphics.ColorPipeline;
+
+@RunWith(AndroidJUnit4.class)
+public class BitmapTransformTest {
+
+    /**
+     * 100x50, the left half is red and the right half is blue
+     */
+    private static Bitmap createHalfBitmap() {
+        Bitmap bitmap = Bitmap.createBitmap(100, 50, Bitmap.Config.ARGB_8888);
+        int[] pixels = new int[100 * 50];
+        for (int y = 0; y < 50; y++) {
+            for (int x = 0; x < 100; x++) {
+                pixels[y * 100 + x] = x < 50 ? Color.RED : Color.BLUE;
+            }
+        }
+        bitmap.setPixels(pixels, 0, 100, 0, 0, 100, 50);
+        return bitmap;
+    }
+
+    @Test
+    public void testKey() {
+        BitmapTransform transform1 = new BitmapTransform.Builder().resize(200, 100).circular().tint(Color.RED).build();
+        BitmapTransform transform2 = new BitmapTransform.Builder().tint(Color.RED).circular().resize(200, 100).build();
+        BitmapTransform transform3 = new BitmapTransform.Builder().resize(200, 100).roundedCorners(8).tint(Color.RED).build();
+        Assert.assertEquals(transform1.getKey(), transform2.getKey());
+        Assert.assertEquals(transform1, transform2);
+        Assert.assertNotEquals(transform1.getKey(), transform3.getKey());
+        Assert.assertEquals("BitmapTransform(resize(200x100,CENTER_CROP)|circular|color(tint(ff0000))|ARGB_8888)", transform1.getKey());
+        Assert.assertEquals("BitmapTransform(crop(1,2,30,40)|rotate(270)|ARGB_8888)",
+                new BitmapTransform.Builder().crop(new Rect(1, 2, 30, 40)).rotate(-90).build().getKey());
+    }
+
+    @Test
+    public void testOutputSize() {
+        Assert.assertEquals(new Point(100, 50), new BitmapTransform.Builder().build().getOutputSize(100, 50));
+        Assert.assertEquals(new Point(50, 100), new BitmapTransform.Builder().rotate(90).build().getOutputSize(100, 50));
+        Assert.assertEquals(new Point(50, 50), new BitmapTransform.Builder().circular().build().getOutputSize(100, 50));
+        Assert.assertEquals(new Point(20, 10), new BitmapTransform.Builder().crop(new Rect(80, 40, 200, 200)).build().getOutputSize(100, 50));
+        Assert.assertEquals(new Point(30, 40), new BitmapTransform.Builder().resize(30, 40).circular().build().getOutputSize(100, 50));
+
+        Bitmap result = new BitmapTransform.Builder().rotate(90).build().apply(createHalfBitmap());
+        Assert.assertEquals(50, result.getWidth());
+        Assert.assertEquals(100, result.getHeight());
+    }
+
+    @Test
+    public void testCropAndRotate() {
+        Bitmap srcBitmap = createHalfBitmap();
+
+        Bitmap cropped = new BitmapTransform.Builder().crop(new Rect(50, 0, 100, 50)).build().apply(srcBitmap);
+        Assert.assertEquals(Color.BLUE, cropped.getPixel(2, 2));
+        Assert.assertEquals(Color.BLUE, cropped.getPixel(47, 47));
+
+        // Clockwise, the red left half becomes the top half
+        Bitmap rotated = new BitmapTransform.Builder().rotate(90).build().apply(srcBitmap);
+        Assert.assertEquals(Color.RED, rotated.getPixel(25, 10));
+        Assert.assertEquals(Color.BLUE, rotated.getPixel(25, 90));
+
+        Bitmap rotated270 = new BitmapTransform.Builder().rotate(270).build().apply(srcBitmap);
+        Assert.assertEquals(Color.BLUE, rotated270.getPixel(25, 10));
+        Assert.assertEquals(Color.RED, rotated270.getPixel(25, 90));
+
+        Bitmap scaled = new BitmapTransform.Builder().resize(20, 10, ImageView.ScaleType.FIT_XY).build().apply(srcBitmap);
+        Assert.assertEquals(Color.RED, scaled.getPixel(2, 5));
+        Assert.assertEquals(Color.BLUE, scaled.getPixel(17, 5));
+    }
+
+    @Test
+    public void testMaskAndColor() {
+        Bitmap srcBitmap = createHalfBitmap();
+
+        Bitmap circular = new BitmapTransform.Builder().crop(new Rect(50, 0, 100, 50)).circular().tint(Color.GREEN).build().apply(srcBitmap);
+        Assert.assertEquals(50, circular.getWidth());
+        Assert.assertEquals(Color.TRANSPARENT, circular.getPixel(0, 0));
+        Assert.assertEquals(Color.TRANSPARENT, circular.getPixel(49, 49));
+        Assert.assertEquals(Color.GREEN, circular.getPixel(25, 25));
+
+        Bitmap rounded = new BitmapTransform.Builder().roundedCorners(10).build().apply(srcBitmap);
+        Assert.assertEquals(Color.TRANSPARENT, rounded.getPixel(0, 0));
+        Assert.assertEquals(Color.RED, rounded.getPixel(10, 0));
+        Assert.assertEquals(Color.BLUE, rounded.getPixel(85, 49));
+
+        Bitmap inverted = new BitmapTransform.Builder().color(new ColorPipeline.Builder().invert().build()).build().apply(srcBitmap);
+        Assert.assertEquals(Color.CYAN, inverted.getPixel(10, 10));
+    }
+
+    @Test
+    public void testSameAsChain() {
+        Bitmap srcBitmap = BitmapFilterTest.createGradientBitmap(300, 200);
+        Bitmap chained = Bitmapx.tint(Bitmapx.circular(Bitmapx.centerCrop(srcBitmap, 120, 120), 120), Color.MAGENTA);
+        BitmapPool bitmapPool = new BitmapPool(1024 * 1024);
+        Bitmap compiled = Bitmapx.transform(srcBitmap, new BitmapTransform.Builder().resize(120, 120).circular().tint(Color.MAGENTA).build(), bitmapPool);
+
+        Assert.assertEquals(chained.getWidth(), compiled.getWidth());
+        Assert.assertEquals(chained.getHeight(), compiled.getHeight());
+        for (int[] point : new int[][]{{60, 60}, {2, 2}, {117, 117}, {60, 5}, {30, 90}}) {
+            int expected = chained.getPixel(point[0], point[1]);
+            int actual = compiled.getPixel(point[0], point[1]);
+            Assert.assertEquals(Color.alpha(expected), Color.alpha(actual), 40);
+            if (Color.alpha(expected) == 255) {
+                Assert.assertEquals(expected, actual);
+            }
+        }
+    }
+}
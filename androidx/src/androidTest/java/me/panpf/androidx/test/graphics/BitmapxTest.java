@@ -25,14 +25,21 @@ import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
+import android.widget.ImageView;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+import me.panpf.androidx.graphics.BitmapPool;
 import me.panpf.androidx.graphics.Bitmapx;
 import me.panpf.androidx.graphics.Colorx;
 import me.panpf.androidx.graphics.drawable.Drawablex;
@@ -107,6 +114,135 @@ public class BitmapxTest {
         operaBitmap.recycle();
     }
 
+    @Test
+    public void testBitmapPool() {
+        Context context = InstrumentationRegistry.getContext();
+        BitmapPool bitmapPool = new BitmapPool(10 * 1024 * 1024);
+
+        Bitmap rectBitmap = Premisex.requireNotNull(Bitmapx.readBitmap(context.getResources(), me.panpf.androidx.test.R.drawable.rect, null, bitmapPool));
+        final int size = rectBitmap.getHeight() / 2;
+
+        Bitmap circularBitmap = Bitmapx.circular(rectBitmap, size, Bitmap.Config.ARGB_8888, bitmapPool);
+        Bitmapx.recycleToPool(circularBitmap, bitmapPool);
+        Bitmap centerCropBitmap = Bitmapx.centerCrop(rectBitmap, size, size, Bitmap.Config.ARGB_8888, bitmapPool);
+        Assert.assertSame(circularBitmap, centerCropBitmap);
+        Bitmapx.recycleToPool(centerCropBitmap, bitmapPool);
+
+        Bitmap colorBitmap = Bitmapx.createByColor(size, size, Colorx.RED, Bitmap.Config.ARGB_8888, bitmapPool);
+        Assert.assertSame(circularBitmap, colorBitmap);
+        Assert.assertEquals(Colorx.RED, colorBitmap.getPixel(0, 0));
+        Bitmapx.recycleToPool(colorBitmap, bitmapPool);
+
+        Bitmapx.recycleToPool(rectBitmap, bitmapPool);
+        Bitmap rectBitmap2 = Premisex.requireNotNull(Bitmapx.readBitmap(context.getResources(), me.panpf.androidx.test.R.drawable.rect, null, bitmapPool));
+        Assert.assertTrue(bitmapPool.getHitCount() >= 2);
+        rectBitmap2.recycle();
+
+        bitmapPool.clear();
+    }
+
+    @Test
+    public void testBitmapPoolReuseOptions() throws IOException {
+        Context context = InstrumentationRegistry.getContext();
+        BitmapPool bitmapPool = new BitmapPool(10 * 1024 * 1024);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+
+        Bitmap rectBitmap = Premisex.requireNotNull(Bitmapx.readBitmap(context.getResources(), me.panpf.androidx.test.R.drawable.rect, options, bitmapPool));
+        Bitmapx.recycleToPool(Bitmapx.createByColor(rectBitmap.getWidth(), rectBitmap.getHeight(), Colorx.RED), bitmapPool);
+
+        // The options are restored, the next decoding must not overwrite the bitmap the caller still holds
+        Bitmap rectBitmap2 = Premisex.requireNotNull(Bitmapx.readBitmap(context.getResources(), me.panpf.androidx.test.R.drawable.rect, options, bitmapPool));
+        Assert.assertNull(options.inBitmap);
+        Assert.assertFalse(options.inMutable);
+        Assert.assertFalse(options.inJustDecodeBounds);
+        Assert.assertNotSame(rectBitmap, rectBitmap2);
+
+        // Streams that can not be read again are decoded without the pool
+        byte[] data = Bitmapx.toByteArray(rectBitmap, Bitmap.CompressFormat.PNG, 100);
+        InputStream inputStream = new BufferedInputStream(new ByteArrayInputStream(data));
+        long hitCount = bitmapPool.getHitCount();
+        Bitmap streamBitmap = Premisex.requireNotNull(Bitmapx.readBitmap(inputStream, null, options, bitmapPool));
+        Assert.assertEquals(hitCount, bitmapPool.getHitCount());
+        Assert.assertEquals(rectBitmap.getWidth(), streamBitmap.getWidth());
+
+        rectBitmap.recycle();
+        rectBitmap2.recycle();
+        streamBitmap.recycle();
+        bitmapPool.clear();
+    }
+
+    @Test
+    public void testReadBitmapToSize() {
+        Context context = InstrumentationRegistry.getContext();
+        Bitmap sourceBitmap = Bitmapx.createByColor(400, 300, Colorx.RED);
+        byte[] bytes = Bitmapx.toByteArray(sourceBitmap, Bitmap.CompressFormat.PNG, 100);
+        sourceBitmap.recycle();
+
+        Assert.assertEquals(1, Bitmapx.calculateInSampleSize(400, 300, 300, 300));
+        Assert.assertEquals(2, Bitmapx.calculateInSampleSize(400, 300, 150, 100));
+        Assert.assertEquals(4, Bitmapx.calculateInSampleSize(400, 300, 100, 75));
+
+        Bitmap sampledBitmap = Premisex.requireNotNull(Bitmapx.readBitmap(bytes, 100, 50, ImageView.ScaleType.CENTER_CROP));
+        Assert.assertEquals(100, sampledBitmap.getWidth());
+        Assert.assertEquals(75, sampledBitmap.getHeight());
+        sampledBitmap.recycle();
+
+        Bitmap exactlyBitmap = Premisex.requireNotNull(Bitmapx.readBitmap(bytes, 100, 50, ImageView.ScaleType.CENTER_CROP, Bitmap.Config.RGB_565, true));
+        Assert.assertEquals(100, exactlyBitmap.getWidth());
+        Assert.assertEquals(50, exactlyBitmap.getHeight());
+        exactlyBitmap.recycle();
+
+        InputStream inputStream = new ByteArrayInputStream(bytes);
+        Bitmap streamBitmap = Premisex.requireNotNull(Bitmapx.readBitmap(inputStream, 100, 50, ImageView.ScaleType.CENTER_CROP));
+        Assert.assertEquals(100, streamBitmap.getWidth());
+        streamBitmap.recycle();
+
+        Bitmap resBitmap = Premisex.requireNotNull(Bitmapx.readBitmap(context.getResources(), me.panpf.androidx.test.R.drawable.rect,
+                50, 50, ImageView.ScaleType.CENTER_CROP, null, true));
+        Assert.assertEquals(50, resBitmap.getWidth());
+        Assert.assertEquals(50, resBitmap.getHeight());
+        resBitmap.recycle();
+    }
+
+    @Test
+    public void testReadBitmapToSizeFromFileStream() throws IOException {
+        Context context = InstrumentationRegistry.getContext();
+        Bitmap sourceBitmap = Bitmapx.createByColor(400, 300, Colorx.RED);
+        byte[] jpeg = Bitmapx.toByteArray(sourceBitmap, Bitmap.CompressFormat.JPEG, 90);
+        sourceBitmap.recycle();
+
+        // A 20 KB comment segment after SOI, like a large EXIF block, so decoding the bounds reads past the 8 KB buffer
+        int segmentLength = 20 * 1024;
+        byte[] data = new byte[jpeg.length + 2 + segmentLength];
+        data[0] = (byte) 0xFF;
+        data[1] = (byte) 0xD8;
+        data[2] = (byte) 0xFF;
+        data[3] = (byte) 0xFE;
+        data[4] = (byte) (segmentLength >> 8);
+        data[5] = (byte) segmentLength;
+        System.arraycopy(jpeg, 2, data, 4 + segmentLength, jpeg.length - 2);
+
+        File file = new File(context.getCacheDir(), "testReadBitmapToSizeFromFileStream.jpg");
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(data);
+        } finally {
+            outputStream.close();
+        }
+
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            Bitmap streamBitmap = Premisex.requireNotNull(Bitmapx.readBitmap(inputStream, 100, 50, ImageView.ScaleType.CENTER_CROP));
+            Assert.assertEquals(100, streamBitmap.getWidth());
+            Assert.assertEquals(75, streamBitmap.getHeight());
+            streamBitmap.recycle();
+        } finally {
+            inputStream.close();
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
     @Test
     public void testInSampleSize() {
         Context context = InstrumentationRegistry.getContext();
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import me.panpf.androidx.graphics.Bitmapx;
+import me.panpf.androidx.graphics.BoxBlur;
+
+@RunWith(AndroidJUnit4.class)
+public class BoxBlurTest {
+
+    @Test
+    public void testBlurPixels() {
+        int width = 64;
+        int height = 48;
+        int[] pixels = new int[width * height];
+        pixels[24 * width + 32] = Color.WHITE;
+        for (int i = 0; i < pixels.length; i++) {
+            if (pixels[i] == 0) pixels[i] = Color.BLACK;
+        }
+
+        BoxBlur boxBlur = new BoxBlur();
+        boxBlur.blur(pixels, width, height, 0);
+        Assert.assertEquals(Color.WHITE, pixels[24 * width + 32]);
+
+        boxBlur.blur(pixels, width, height, 6);
+        int center = Color.red(pixels[24 * width + 32]);
+        int near = Color.red(pixels[24 * width + 34]);
+        int far = Color.red(pixels[24 * width + 40]);
+        Assert.assertTrue(center < 255);
+        Assert.assertTrue(center >= near);
+        Assert.assertTrue(near >= far);
+        Assert.assertEquals(Color.BLACK, pixels[0]);
+        Assert.assertEquals(255, Color.alpha(pixels[24 * width + 32]));
+
+        // The buffer is reused by the next call
+        int[] flatPixels = new int[width * height];
+        Arrays.fill(flatPixels, Color.rgb(10, 200, 30));
+        boxBlur.blur(flatPixels, width, height, 50);
+        for (int pixel : flatPixels) {
+            Assert.assertEquals(Color.rgb(10, 200, 30), pixel);
+        }
+
+        try {
+            boxBlur.blur(new int[10], width, height, 5);
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testBlurBitmap() {
+        Bitmap srcBitmap = BitmapFilterTest.createGradientBitmap(200, 150);
+        BoxBlur boxBlur = new BoxBlur();
+
+        Bitmap blurBitmap = boxBlur.blur(srcBitmap, 25, 1);
+        Assert.assertNotSame(srcBitmap, blurBitmap);
+        Assert.assertEquals(200, blurBitmap.getWidth());
+        Assert.assertEquals(150, blurBitmap.getHeight());
+        Assert.assertFalse(srcBitmap.sameAs(blurBitmap));
+
+        Bitmap downsampleBitmap = boxBlur.blur(srcBitmap, 25, 4);
+        Assert.assertEquals(200, downsampleBitmap.getWidth());
+        Assert.assertEquals(150, downsampleBitmap.getHeight());
+        Assert.assertEquals(Color.red(blurBitmap.getPixel(100, 75)), Color.red(downsampleBitmap.getPixel(100, 75)), 16);
+
+        Bitmap mutableBitmap = srcBitmap.copy(Bitmap.Config.ARGB_8888, true);
+        boxBlur.blurInPlace(mutableBitmap, 25);
+        Assert.assertTrue(blurBitmap.sameAs(mutableBitmap));
+        Assert.assertTrue(blurBitmap.sameAs(Bitmapx.blur(srcBitmap, 25)));
+
+        try {
+            boxBlur.blurInPlace(Bitmap.createBitmap(srcBitmap), 25);
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.graphics;
+
+import android.animation.ValueAnimator;
+import android.graphics.Color;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import me.panpf.androidx.graphics.ColorGradient;
+
+@RunWith(AndroidJUnit4.class)
+public class ColorGradientTest {
+
+    @Test
+    public void testGetColor() {
+        ColorGradient gradient = new ColorGradient(Color.BLACK, Color.WHITE);
+        Assert.assertEquals(256, gradient.getResolution());
+        Assert.assertEquals(Color.BLACK, gradient.getColor(0f));
+        Assert.assertEquals(Color.WHITE, gradient.getColor(1f));
+        Assert.assertEquals(Color.BLACK, gradient.getColor(-1f));
+        Assert.assertEquals(Color.WHITE, gradient.getColor(2f));
+        Assert.assertEquals(128, Color.red(gradient.getColor(0.5f)), 1);
+        Assert.assertEquals(255, Color.alpha(gradient.getColor(0.5f)));
+
+        // Linear space keeps the middle brighter
+        ColorGradient linearGradient = new ColorGradient(new int[]{Color.BLACK, Color.WHITE}, null, 256, true);
+        Assert.assertTrue(linearGradient.isLinearSpace());
+        Assert.assertEquals(188, Color.red(linearGradient.getColor(0.5f)), 2);
+    }
+
+    @Test
+    public void testStops() {
+        ColorGradient gradient = new ColorGradient(new int[]{Color.RED, Color.GREEN, Color.BLUE}, new float[]{0f, 0.25f, 1f}, 101, false);
+        Assert.assertEquals(Color.RED, gradient.getColor(0f));
+        Assert.assertEquals(Color.GREEN, gradient.getColor(0.25f));
+        Assert.assertEquals(Color.BLUE, gradient.getColor(1f));
+        int color = gradient.getColor(0.625f);
+        Assert.assertEquals(0, Color.red(color));
+        Assert.assertEquals(128, Color.green(color), 2);
+        Assert.assertEquals(128, Color.blue(color), 2);
+
+        ColorGradient singleGradient = new ColorGradient(Color.RED);
+        Assert.assertEquals(Color.RED, singleGradient.getColor(0.5f));
+
+        ColorGradient alphaGradient = new ColorGradient(Color.TRANSPARENT, Color.BLACK);
+        Assert.assertEquals(128, Color.alpha(alphaGradient.getColor(0.5f)), 1);
+
+        try {
+            new ColorGradient(new int[]{Color.RED, Color.GREEN}, new float[]{0.5f, 0.2f}, 10, false);
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        try {
+            new ColorGradient(new int[]{Color.RED}, null, 1, false);
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testEvaluator() {
+        ColorGradient gradient = new ColorGradient(Color.BLACK, Color.WHITE);
+        Assert.assertEquals(Color.WHITE, (int) gradient.evaluate(1f, 0, 0));
+        Assert.assertEquals(gradient.getColor(0.3f), (int) gradient.evaluate(0.3f, null, null));
+
+        ValueAnimator animator = ValueAnimator.ofInt(0, 1);
+        animator.setEvaluator(gradient);
+        Assert.assertEquals(Color.BLACK, gradient.getColor(animator));
+    }
+}
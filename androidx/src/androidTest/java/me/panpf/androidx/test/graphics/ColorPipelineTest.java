@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import me.panpf.androidx.graphics.ColorPipeline;
+
+@RunWith(AndroidJUnit4.class)
+public class ColorPipelineTest {
+
+    @Test
+    public void testCache() {
+        ColorPipeline pipeline1 = new ColorPipeline.Builder().saturation(0.5f).luminance(1.2f).build();
+        ColorPipeline pipeline2 = new ColorPipeline.Builder().saturation(0.5f).luminance(1.2f).build();
+        ColorPipeline pipeline3 = new ColorPipeline.Builder().luminance(1.2f).saturation(0.5f).build();
+        Assert.assertSame(pipeline1, pipeline2);
+        Assert.assertNotSame(pipeline1, pipeline3);
+        Assert.assertSame(pipeline1.getColorFilter(), pipeline2.getColorFilter());
+        Assert.assertEquals("saturation(0.5000)|luminance(1.2000)", pipeline1.getKey());
+        Assert.assertEquals("identity", new ColorPipeline.Builder().build().getKey());
+    }
+
+    @Test
+    public void testApplyColor() {
+        Assert.assertEquals(Color.argb(200, 10, 20, 30), new ColorPipeline.Builder().build().apply(Color.argb(200, 10, 20, 30)));
+        Assert.assertEquals(Color.argb(200, 245, 235, 225), new ColorPipeline.Builder().invert().build().apply(Color.argb(200, 10, 20, 30)));
+        Assert.assertEquals(Color.argb(100, 10, 20, 30), new ColorPipeline.Builder().alpha(0.5f).build().apply(Color.argb(200, 10, 20, 30)));
+        Assert.assertEquals(Color.argb(200, 255, 0, 0), new ColorPipeline.Builder().tint(Color.RED).build().apply(Color.argb(200, 10, 20, 30)));
+        Assert.assertEquals(Color.argb(255, 20, 40, 60), new ColorPipeline.Builder().luminance(2f).build().apply(Color.argb(255, 10, 20, 30)));
+
+        int gray = new ColorPipeline.Builder().saturation(0f).build().apply(Color.RED);
+        Assert.assertEquals(Color.red(gray), Color.green(gray), 1);
+        Assert.assertEquals(Color.green(gray), Color.blue(gray), 1);
+
+        int rotated = new ColorPipeline.Builder().hue(120).build().apply(Color.RED);
+        Assert.assertTrue(Color.green(rotated) > Color.red(rotated));
+        Assert.assertTrue(Color.green(rotated) > Color.blue(rotated));
+
+        // Fused steps are applied in order: tint then invert
+        Assert.assertEquals(Color.argb(200, 0, 255, 255), new ColorPipeline.Builder().tint(Color.RED).invert().build().apply(Color.argb(200, 10, 20, 30)));
+    }
+
+    @Test
+    public void testApplyPixelsAndBitmap() {
+        ColorPipeline pipeline = new ColorPipeline.Builder().luminance(0.5f).invert().build();
+        int[] pixels = new int[]{Color.BLACK, Color.WHITE, Color.rgb(100, 100, 100)};
+        pipeline.apply(pixels, 1, 2);
+        Assert.assertEquals(Color.BLACK, pixels[0]);
+        Assert.assertEquals(pipeline.apply(Color.WHITE), pixels[1]);
+        Assert.assertEquals(Color.rgb(205, 205, 205), pixels[2]);
+
+        Bitmap srcBitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        srcBitmap.eraseColor(Color.rgb(100, 100, 100));
+        Bitmap newBitmap = pipeline.apply(srcBitmap);
+        int pixel = newBitmap.getPixel(5, 5);
+        Assert.assertEquals(205, Color.red(pixel), 1);
+        Assert.assertEquals(255, Color.alpha(pixel));
+
+        try {
+            pipeline.apply(pixels, 2, 2);
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+}
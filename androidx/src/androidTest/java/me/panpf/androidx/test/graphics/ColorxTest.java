@@ -60,6 +60,106 @@ public class ColorxTest {
         Assert.assertEquals(Mathx.scale(Colorx.getHSVValue(Colorx.addHSVValue(COLOR, 0.21f)), 2), 0.15f, 0.1f);
     }
 
+    @Test
+    public void testBulk() {
+        // Large enough to be split across cores
+        int[] srcPixels = new int[512 * 512];
+        for (int i = 0; i < srcPixels.length; i++) {
+            srcPixels[i] = Color.argb(i % 256, (i * 7) % 256, (i * 13) % 256, (i / 512) % 256);
+        }
+        srcPixels[0] = COLOR;
+        srcPixels[1] = Color.BLACK;
+        srcPixels[2] = Color.GRAY;
+
+        int[] pixels = srcPixels.clone();
+        Colorx.setAlpha(pixels, 211);
+        assertPixels(srcPixels, pixels, true, new ColorOp() {
+            @Override
+            public int apply(int color) {
+                return Colorx.setAlpha(color, 211);
+            }
+        });
+
+        pixels = srcPixels.clone();
+        Colorx.addAlpha(pixels, 0.56f);
+        assertPixels(srcPixels, pixels, true, new ColorOp() {
+            @Override
+            public int apply(int color) {
+                return Colorx.addAlpha(color, 0.56f);
+            }
+        });
+
+        pixels = srcPixels.clone();
+        Colorx.setHSVHue(pixels, 111f);
+        assertPixels(srcPixels, pixels, false, new ColorOp() {
+            @Override
+            public int apply(int color) {
+                return Colorx.setHSVHue(color, 111f);
+            }
+        });
+
+        pixels = srcPixels.clone();
+        Colorx.setHSVSaturation(pixels, 0.34f);
+        assertPixels(srcPixels, pixels, false, new ColorOp() {
+            @Override
+            public int apply(int color) {
+                return Colorx.setHSVSaturation(color, 0.34f);
+            }
+        });
+
+        pixels = srcPixels.clone();
+        Colorx.addHSVSaturation(pixels, 0.34f);
+        assertPixels(srcPixels, pixels, false, new ColorOp() {
+            @Override
+            public int apply(int color) {
+                return Colorx.addHSVSaturation(color, 0.34f);
+            }
+        });
+
+        pixels = srcPixels.clone();
+        Colorx.setHSVValue(pixels, 0.21f);
+        assertPixels(srcPixels, pixels, false, new ColorOp() {
+            @Override
+            public int apply(int color) {
+                return Colorx.setHSVValue(color, 0.21f);
+            }
+        });
+
+        pixels = srcPixels.clone();
+        Colorx.addHSVValue(pixels, 0.21f);
+        assertPixels(srcPixels, pixels, false, new ColorOp() {
+            @Override
+            public int apply(int color) {
+                return Colorx.addHSVValue(color, 0.21f);
+            }
+        });
+    }
+
+    /**
+     * The single color methods convert through float HSV, so the channels may differ by rounding,
+     * and the single color HSV methods always return opaque colors while the bulk methods keep the alpha
+     */
+    private static void assertPixels(int[] srcPixels, int[] pixels, boolean compareAlpha, ColorOp op) {
+        for (int i = 0; i < srcPixels.length; i += i < 3 ? 1 : 97) {
+            int expected = op.apply(srcPixels[i]);
+            int actual = pixels[i];
+            String message = "index=" + i + ", src=" + Integer.toHexString(srcPixels[i])
+                    + ", expected=" + Integer.toHexString(expected) + ", actual=" + Integer.toHexString(actual);
+            if (compareAlpha) {
+                Assert.assertEquals(message, Color.alpha(expected), Color.alpha(actual));
+            } else {
+                Assert.assertEquals(message, Color.alpha(srcPixels[i]), Color.alpha(actual));
+            }
+            Assert.assertEquals(message, Color.red(expected), Color.red(actual), 2);
+            Assert.assertEquals(message, Color.green(expected), Color.green(actual), 2);
+            Assert.assertEquals(message, Color.blue(expected), Color.blue(actual), 2);
+        }
+    }
+
+    private interface ColorOp {
+        int apply(int color);
+    }
+
     @Test
     public void testLight() {
         Assert.assertTrue(Colorx.isLight(Color.parseColor("#FFFFFF")));
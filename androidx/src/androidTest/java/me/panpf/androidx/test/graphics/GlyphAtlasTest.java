@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import me.panpf.androidx.graphics.GlyphAtlas;
+import me.panpf.androidx.graphics.Paintx;
+import me.panpf.androidx.util.Textx;
+
+@RunWith(AndroidJUnit4.class)
+public class GlyphAtlasTest {
+
+    @Test
+    public void testDigits() {
+        GlyphAtlas atlas = GlyphAtlas.digits(Color.RED, 40);
+        try {
+            Assert.assertTrue(atlas.canDraw("12,345.6%"));
+            Assert.assertFalse(atlas.canDraw("12a"));
+            Assert.assertEquals(0f, atlas.measureText(""), 0f);
+            Assert.assertEquals(atlas.measureText("1") + atlas.measureText("2"), atlas.measureText("12"), 0.001f);
+            Assert.assertEquals(atlas.measureText("12"), atlas.measureText("1a2"), 0f);
+
+            Bitmap bitmap = atlas.toBitmap("128");
+            Bitmap textBitmap = Textx.textToBitmap("128", Color.RED, 40);
+            Assert.assertEquals(textBitmap.getHeight(), bitmap.getHeight());
+            Assert.assertEquals(textBitmap.getWidth(), bitmap.getWidth(), 2);
+            Assert.assertEquals(atlas.getLineHeight(), bitmap.getHeight());
+
+            // Some pixels of the glyphs are drawn in the text color
+            boolean hasRed = false;
+            for (int y = 0; y < bitmap.getHeight() && !hasRed; y++) {
+                for (int x = 0; x < bitmap.getWidth() && !hasRed; x++) {
+                    int pixel = bitmap.getPixel(x, y);
+                    hasRed = Color.alpha(pixel) == 255 && Color.red(pixel) == 255;
+                }
+            }
+            Assert.assertTrue(hasRed);
+        } finally {
+            atlas.recycle();
+        }
+    }
+
+    @Test
+    public void testRows() {
+        StringBuilder builder = new StringBuilder();
+        for (char c = 'A'; c <= 'Z'; c++) {
+            builder.append(c).append(Character.toLowerCase(c));
+        }
+        GlyphAtlas atlas = new GlyphAtlas(builder.toString() + builder.toString(), Color.BLACK, 200);
+        try {
+            Assert.assertTrue(atlas.getAtlasBitmap().getWidth() <= 2048);
+            Assert.assertTrue(atlas.getAtlasBitmap().getHeight() > atlas.getLineHeight());
+            Assert.assertEquals(Paintx.getTextHeight(200), atlas.getLineHeight(), 1f);
+        } finally {
+            atlas.recycle();
+        }
+    }
+}
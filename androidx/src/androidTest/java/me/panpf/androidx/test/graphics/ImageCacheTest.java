@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.graphics;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import me.panpf.androidx.graphics.Bitmapx;
+import me.panpf.androidx.graphics.ImageCache;
+import me.panpf.javax.io.Filex;
+
+@RunWith(AndroidJUnit4.class)
+public class ImageCacheTest {
+
+    @NonNull
+    private static File getDiskDir(@NonNull String name) {
+        Context context = InstrumentationRegistry.getContext();
+        File dir = new File(context.getCacheDir(), name);
+        Filex.deleteRecursively(dir);
+        return dir;
+    }
+
+    @NonNull
+    private static ImageCache.Loader colorLoader(@NonNull final AtomicInteger loadCount, final long sleepMillis) {
+        return new ImageCache.Loader() {
+            @Nullable
+            @Override
+            public Bitmap load() throws Exception {
+                loadCount.incrementAndGet();
+                if (sleepMillis > 0) {
+                    Thread.sleep(sleepMillis);
+                }
+                return Bitmapx.createByColor(100, 100, Color.RED);
+            }
+        };
+    }
+
+    @Test
+    public void testGetSync() {
+        File diskDir = getDiskDir("testImageCacheGetSync");
+        ImageCache imageCache = new ImageCache(1024 * 1024, diskDir, 1024 * 1024);
+        AtomicInteger loadCount = new AtomicInteger();
+        String key = ImageCache.createKey("red", "centerCrop(100x100)");
+        try {
+            Assert.assertEquals("red|centerCrop(100x100)", key);
+            Assert.assertNull(imageCache.getFromMemory(key));
+
+            Bitmap bitmap = imageCache.getSync(key, colorLoader(loadCount, 0));
+            Assert.assertNotNull(bitmap);
+            Assert.assertEquals(1, loadCount.get());
+            Assert.assertSame(bitmap, imageCache.getFromMemory(key));
+            Assert.assertSame(bitmap, imageCache.getSync(key, colorLoader(loadCount, 0)));
+            Assert.assertEquals(1, loadCount.get());
+            Assert.assertEquals(1, imageCache.getMemoryHitCount());
+            Assert.assertTrue(imageCache.getDiskSize() > 0);
+
+            // Disk tier
+            imageCache.clearMemory();
+            Assert.assertNull(imageCache.getFromMemory(key));
+            Bitmap diskBitmap = imageCache.getSync(key, colorLoader(loadCount, 0));
+            Assert.assertNotNull(diskBitmap);
+            Assert.assertEquals(Color.RED, diskBitmap.getPixel(50, 50));
+            Assert.assertEquals(1, loadCount.get());
+            Assert.assertEquals(1, imageCache.getDiskHitCount());
+            Assert.assertEquals(1, imageCache.getLoadCount());
+            Assert.assertEquals(2f / 3, imageCache.getHitRate(), 0.001f);
+
+            // The journal is replayed by a new instance
+            imageCache.close();
+            ImageCache newImageCache = new ImageCache(1024 * 1024, diskDir, 1024 * 1024);
+            Assert.assertNotNull(newImageCache.getSync(key, colorLoader(loadCount, 0)));
+            Assert.assertEquals(1, loadCount.get());
+            Assert.assertEquals(1, newImageCache.getDiskHitCount());
+
+            newImageCache.remove(key);
+            Assert.assertNotNull(newImageCache.getSync(key, colorLoader(loadCount, 0)));
+            Assert.assertEquals(2, loadCount.get());
+            newImageCache.clear();
+            Assert.assertEquals(0, newImageCache.getDiskSize());
+            Assert.assertEquals(0, newImageCache.getMemorySize());
+            newImageCache.close();
+        } finally {
+            Filex.deleteRecursively(diskDir);
+        }
+    }
+
+    @Test
+    public void testCoalesce() throws InterruptedException {
+        final ImageCache imageCache = new ImageCache(1024 * 1024, null, 0);
+        final AtomicInteger loadCount = new AtomicInteger();
+        final AtomicReference<Bitmap> bitmap1 = new AtomicReference<>();
+        final AtomicReference<Bitmap> bitmap2 = new AtomicReference<>();
+
+        Thread thread1 = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                bitmap1.set(imageCache.getSync("red", colorLoader(loadCount, 500)));
+            }
+        });
+        Thread thread2 = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                bitmap2.set(imageCache.getSync("red", colorLoader(loadCount, 500)));
+            }
+        });
+        thread1.start();
+        Thread.sleep(100);
+        thread2.start();
+        thread1.join();
+        thread2.join();
+
+        Assert.assertEquals(1, loadCount.get());
+        Assert.assertNotNull(bitmap1.get());
+        Assert.assertSame(bitmap1.get(), bitmap2.get());
+    }
+
+    @Test
+    public void testGetAsync() throws InterruptedException {
+        ImageCache imageCache = new ImageCache(1024 * 1024, null, 0);
+        AtomicInteger loadCount = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(3);
+        final AtomicInteger loaderResultCount = new AtomicInteger();
+        final AtomicInteger nullResultCount = new AtomicInteger();
+        ImageCache.Callback callback = new ImageCache.Callback() {
+            @Override
+            public void onResult(@NonNull String key, @Nullable Bitmap bitmap, int from) {
+                if (bitmap == null) {
+                    nullResultCount.incrementAndGet();
+                } else if (from == ImageCache.FROM_LOADER) {
+                    loaderResultCount.incrementAndGet();
+                }
+                latch.countDown();
+            }
+        };
+
+        imageCache.get("red", colorLoader(loadCount, 300), callback);
+        imageCache.get("red", colorLoader(loadCount, 300), callback);
+        imageCache.get("null", new ImageCache.Loader() {
+            @Nullable
+            @Override
+            public Bitmap load() throws Exception {
+                throw new Exception("test");
+            }
+        }, callback);
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(1, loadCount.get());
+        Assert.assertEquals(2, loaderResultCount.get());
+        Assert.assertEquals(1, nullResultCount.get());
+        Assert.assertNotNull(imageCache.getFromMemory("red"));
+    }
+}
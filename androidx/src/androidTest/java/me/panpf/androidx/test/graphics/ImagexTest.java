@@ -17,6 +17,10 @@
 package me.panpf.androidx.test.graphics;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 
@@ -24,7 +28,23 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import me.panpf.androidx.graphics.Bitmapx;
+import me.panpf.androidx.graphics.Colorx;
+import me.panpf.androidx.graphics.ImageInfo;
 import me.panpf.androidx.graphics.Imagex;
+import me.panpf.javax.io.Filex;
+import me.panpf.javax.io.IOStreamx;
+import me.panpf.javax.util.Premisex;
 
 @RunWith(AndroidJUnit4.class)
 public class ImagexTest {
@@ -44,4 +64,189 @@ public class ImagexTest {
         Assert.assertEquals(Imagex.getMimeSubType(context.getResources(), me.panpf.androidx.test.R.drawable.ic_opera), "png");
         Assert.assertEquals(Imagex.getMimeSubType(context.getResources(), me.panpf.androidx.test.R.drawable.rect), "jpeg");
     }
+
+    @Test
+    public void testProbe() throws IOException {
+        Context context = InstrumentationRegistry.getContext();
+
+        InputStream pngInputStream = new BufferedInputStream(context.getResources().openRawResource(me.panpf.androidx.test.R.drawable.ic_opera));
+        try {
+            ImageInfo pngInfo = Premisex.requireNotNull(Imagex.probe(pngInputStream));
+            Assert.assertEquals("image/png", pngInfo.getMimeType());
+            Bitmap pngBitmap = Premisex.requireNotNull(BitmapFactory.decodeStream(pngInputStream));
+            Assert.assertEquals(pngBitmap.getWidth(), pngInfo.getWidth());
+            Assert.assertEquals(pngBitmap.getHeight(), pngInfo.getHeight());
+            pngBitmap.recycle();
+        } finally {
+            IOStreamx.safeClose(pngInputStream);
+        }
+
+        Bitmap bitmap = Bitmapx.createByColor(123, 45, Colorx.RED);
+        try {
+            assertInfo(Imagex.probe(Bitmapx.toByteArray(bitmap, Bitmap.CompressFormat.JPEG, 90)), "image/jpeg", 123, 45);
+            assertInfo(Imagex.probe(Bitmapx.toByteArray(bitmap, Bitmap.CompressFormat.PNG, 100)), "image/png", 123, 45);
+            assertInfo(Imagex.probe(Bitmapx.toByteArray(bitmap, Bitmap.CompressFormat.WEBP, 90)), "image/webp", 123, 45);
+            assertInfo(Imagex.probe(Bitmapx.toByteArray(bitmap, Bitmap.CompressFormat.WEBP, 100)), "image/webp", 123, 45);
+        } finally {
+            bitmap.recycle();
+        }
+
+        assertInfo(Imagex.probe(new byte[]{'G', 'I', 'F', '8', '9', 'a', 123, 0, 45, 0, 0, 0, 0}), "image/gif", 123, 45);
+        byte[] bmp = new byte[30];
+        bmp[0] = 'B';
+        bmp[1] = 'M';
+        bmp[14] = 40;
+        bmp[18] = 123;
+        bmp[22] = 45;
+        assertInfo(Imagex.probe(bmp), "image/bmp", 123, 45);
+
+        Assert.assertNull(Imagex.probe(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12}));
+    }
+
+    @Test
+    public void testProbeExifOrientation() {
+        byte[] jpeg = new byte[]{
+                (byte) 0xFF, (byte) 0xD8,
+                // APP1, big endian TIFF, IFD0 with only the orientation tag (6, rotate 90)
+                (byte) 0xFF, (byte) 0xE1, 0, 34, 'E', 'x', 'i', 'f', 0, 0,
+                'M', 'M', 0, 42, 0, 0, 0, 8,
+                0, 1, 0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, 6, 0, 0, 0, 0, 0, 0,
+                // SOF0, precision 8, height 45, width 123
+                (byte) 0xFF, (byte) 0xC0, 0, 17, 8, 0, 45, 0, 123, 3, 1, 0x22, 0, 2, 0x11, 1, 3, 0x11, 1,
+                (byte) 0xFF, (byte) 0xD9};
+        ImageInfo imageInfo = Premisex.requireNotNull(Imagex.probe(jpeg));
+        assertInfo(imageInfo, "image/jpeg", 123, 45);
+        Assert.assertEquals(6, imageInfo.getExifOrientation());
+        Assert.assertTrue(imageInfo.isSwapWidthHeight());
+    }
+
+    @Test
+    public void testProbeHeif() throws IOException {
+        ImageInfo imageInfo = Premisex.requireNotNull(Imagex.probe(heif(box("pitm", 0, 0, 0, 0, 0, 1))));
+        assertInfo(imageInfo, "image/heif", 123, 45);
+        Assert.assertEquals(8, imageInfo.getExifOrientation());
+    }
+
+    @Test
+    public void testProbeMalformed() throws IOException {
+        List<byte[]> samples = new ArrayList<>();
+        samples.add(heif(box("pitm", 0, 0, 0, 0, 0, 1)));
+        // Header-only and truncated 'pitm' at the end of 'meta'
+        samples.add(heif(box("pitm")));
+        samples.add(heif(box("pitm", 1, 0, 0, 0)));
+        // Box size close to 2^31
+        samples.add(heif(new byte[]{0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xF0, 'f', 'r', 'e', 'e'}));
+        samples.add(exifJpeg(0, 0, 0, 8));
+        // IFD offset of 2^31 or more
+        samples.add(exifJpeg(0x80, 0, 0, 0));
+        samples.add(exifJpeg(0xFF, 0xFF, 0xFF, 0xF0));
+
+        Random random = new Random(1);
+        for (byte[] sample : samples) {
+            // Every truncation
+            for (int length = 0; length <= sample.length; length++) {
+                Imagex.probe(sample, 0, length);
+            }
+            // Random bytes in the boxes
+            for (int i = 0; i < 500; i++) {
+                byte[] fuzzed = sample.clone();
+                for (int j = random.nextInt(4); j >= 0; j--) {
+                    fuzzed[random.nextInt(fuzzed.length)] = (byte) random.nextInt(256);
+                }
+                Imagex.probe(fuzzed);
+            }
+        }
+    }
+
+    @Test
+    public void testProbeAll() throws IOException {
+        Context context = InstrumentationRegistry.getContext();
+        File dir = new File(context.getCacheDir(), "ImagexTest");
+        Filex.mkdirsOrThrow(dir);
+        List<File> files = new ArrayList<>();
+        Bitmap bitmap = Bitmapx.createByColor(123, 45, Colorx.RED);
+        try {
+            for (int i = 0; i < 10; i++) {
+                File file = new File(dir, i + ".jpg");
+                Bitmapx.writeToFile(bitmap, file, Bitmap.CompressFormat.JPEG, 90);
+                files.add(file);
+            }
+            File notImageFile = new File(dir, "notImage.txt");
+            FileOutputStream outputStream = new FileOutputStream(notImageFile);
+            try {
+                outputStream.write("not image".getBytes());
+            } finally {
+                outputStream.close();
+            }
+            files.add(notImageFile);
+
+            ImageInfo[] imageInfos = Imagex.probeAll(files, 4);
+            Assert.assertEquals(files.size(), imageInfos.length);
+            for (int i = 0; i < 10; i++) {
+                assertInfo(imageInfos[i], "image/jpeg", 123, 45);
+            }
+            Assert.assertNull(imageInfos[10]);
+        } finally {
+            bitmap.recycle();
+            Filex.deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * HEIF with the given 'meta' child box, the primary item 1 is associated with 'ispe' 123x45 and 'irot' 90 degrees
+     */
+    @NonNull
+    private static byte[] heif(@NonNull byte[] metaChild) throws IOException {
+        byte[] ispe = box("ispe", 0, 0, 0, 0, 0, 0, 0, 123, 0, 0, 0, 45);
+        byte[] irot = box("irot", 1);
+        byte[] ipma = box("ipma", 0, 0, 0, 0, 0, 0, 0, 1, 0, 1, 2, 0x81, 0x02);
+        byte[] iprp = box("iprp", concat(box("ipco", concat(ispe, irot)), ipma));
+        byte[] meta = box("meta", concat(new byte[4], metaChild, iprp));
+        byte[] ftyp = box("ftyp", 'h', 'e', 'i', 'c', 0, 0, 0, 0, 'm', 'i', 'f', '1', 'h', 'e', 'i', 'c');
+        return concat(ftyp, meta);
+    }
+
+    @NonNull
+    private static byte[] exifJpeg(int offset0, int offset1, int offset2, int offset3) {
+        return new byte[]{
+                (byte) 0xFF, (byte) 0xD8,
+                (byte) 0xFF, (byte) 0xE1, 0, 34, 'E', 'x', 'i', 'f', 0, 0,
+                'M', 'M', 0, 42, (byte) offset0, (byte) offset1, (byte) offset2, (byte) offset3,
+                0, 1, 0x01, 0x12, 0, 3, 0, 0, 0, 1, 0, 6, 0, 0, 0, 0, 0, 0,
+                (byte) 0xFF, (byte) 0xC0, 0, 17, 8, 0, 45, 0, 123, 3, 1, 0x22, 0, 2, 0x11, 1, 3, 0x11, 1,
+                (byte) 0xFF, (byte) 0xD9};
+    }
+
+    @NonNull
+    private static byte[] box(@NonNull String type, int... content) throws IOException {
+        byte[] bytes = new byte[content.length];
+        for (int i = 0; i < content.length; i++) {
+            bytes[i] = (byte) content[i];
+        }
+        return box(type, bytes);
+    }
+
+    @NonNull
+    private static byte[] box(@NonNull String type, @NonNull byte[] content) throws IOException {
+        int size = content.length + 8;
+        byte[] header = new byte[]{(byte) (size >>> 24), (byte) (size >>> 16), (byte) (size >>> 8), (byte) size,
+                (byte) type.charAt(0), (byte) type.charAt(1), (byte) type.charAt(2), (byte) type.charAt(3)};
+        return concat(header, content);
+    }
+
+    @NonNull
+    private static byte[] concat(@NonNull byte[]... arrays) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (byte[] array : arrays) {
+            outputStream.write(array);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static void assertInfo(@Nullable ImageInfo imageInfo, @NonNull String mimeType, int width, int height) {
+        Assert.assertNotNull(imageInfo);
+        Assert.assertEquals(mimeType, imageInfo.getMimeType());
+        Assert.assertEquals(width, imageInfo.getWidth());
+        Assert.assertEquals(height, imageInfo.getHeight());
+    }
 }
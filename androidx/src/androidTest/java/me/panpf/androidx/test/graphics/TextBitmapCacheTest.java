@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import me.panpf.androidx.graphics.BitmapPool;
+import me.panpf.androidx.graphics.TextBitmapCache;
+import me.panpf.androidx.util.Textx;
+
+@RunWith(AndroidJUnit4.class)
+public class TextBitmapCacheTest {
+
+    @Test
+    public void testGet() {
+        TextBitmapCache cache = new TextBitmapCache(1024 * 1024);
+        Assert.assertNull(cache.getIfPresent("99+", Color.RED, 30));
+
+        Bitmap bitmap = cache.get("99+", Color.RED, 30);
+        Bitmap expectedBitmap = Textx.textToBitmap("99+", Color.RED, 30);
+        Assert.assertTrue(expectedBitmap.sameAs(bitmap));
+        Assert.assertSame(bitmap, cache.get("99+", Color.RED, 30));
+        Assert.assertSame(bitmap, cache.getIfPresent("99+", Color.RED, 30));
+        Assert.assertNotSame(bitmap, cache.get("99+", Color.BLUE, 30));
+        Assert.assertNotSame(bitmap, cache.get("99+", Color.RED, 31));
+        Assert.assertEquals(BitmapPool.getByteCount(bitmap) * 3, cache.getSize(), BitmapPool.getByteCount(bitmap));
+
+        cache.remove("99+", Color.RED, 30);
+        Assert.assertNull(cache.getIfPresent("99+", Color.RED, 30));
+        cache.clear();
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testByteBudget() {
+        int byteCount = BitmapPool.getByteCount(Textx.textToBitmap("1", Color.RED, 30));
+        TextBitmapCache cache = new TextBitmapCache(byteCount * 2);
+        cache.get("1", Color.RED, 30);
+        cache.get("2", Color.RED, 30);
+        cache.get("3", Color.RED, 30);
+        Assert.assertTrue(cache.getSize() <= byteCount * 2);
+        Assert.assertNull(cache.getIfPresent("1", Color.RED, 30));
+    }
+}
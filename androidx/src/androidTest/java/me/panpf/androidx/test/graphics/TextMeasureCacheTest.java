@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.graphics;
+
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import me.panpf.androidx.graphics.Paintx;
+import me.panpf.androidx.graphics.TextMeasureCache;
+
+@RunWith(AndroidJUnit4.class)
+public class TextMeasureCacheTest {
+
+    @Test
+    public void testMeasure() {
+        TextMeasureCache measureCache = new TextMeasureCache(16);
+        Paint paint = new Paint();
+        paint.setTextSize(30);
+
+        Assert.assertEquals(paint.measureText("Hello"), measureCache.getTextWidth("Hello", 30), 0f);
+        Assert.assertEquals(1, measureCache.getMissCount());
+        Assert.assertEquals(paint.measureText("Hello"), measureCache.getTextWidth("Hello", 30), 0f);
+        Assert.assertEquals(1, measureCache.getHitCount());
+
+        Paint.FontMetrics fm = paint.getFontMetrics();
+        Assert.assertEquals(fm.descent - fm.ascent, measureCache.getTextHeight(30), 0f);
+        Assert.assertEquals(fm.leading - fm.ascent, measureCache.getTextLeading(30, null, TextMeasureCache.DEFAULT_FLAGS), 0f);
+
+        Rect bounds = new Rect();
+        paint.getTextBounds("Hello", 0, 5, bounds);
+        Assert.assertEquals(bounds.width(), measureCache.getTextWidthByBounds("Hello", 30, null, TextMeasureCache.DEFAULT_FLAGS));
+        Assert.assertEquals(bounds.height(), measureCache.getTextHeightByBounds("Hello", 30, null, TextMeasureCache.DEFAULT_FLAGS));
+
+        // Typeface and size are part of the key
+        Paint boldPaint = new Paint();
+        boldPaint.setTextSize(30);
+        boldPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        Assert.assertEquals(boldPaint.measureText("Hello"), measureCache.getTextWidth("Hello", boldPaint), 0f);
+        Assert.assertEquals(paint.measureText("Hello") * 2, measureCache.getTextWidth("Hello", 60), 1f);
+
+        measureCache.clear();
+        Assert.assertEquals(0, measureCache.size());
+    }
+
+    @Test
+    public void testLru() {
+        TextMeasureCache measureCache = new TextMeasureCache(2);
+        measureCache.getTextWidth("a", 20);
+        measureCache.getTextWidth("b", 20);
+        measureCache.getTextWidth("c", 20);
+        Assert.assertEquals(2, measureCache.size());
+        measureCache.getTextWidth("a", 20);
+        Assert.assertEquals(4, measureCache.getMissCount());
+    }
+
+    @Test
+    public void testBatch() {
+        TextMeasureCache measureCache = new TextMeasureCache(16);
+        List<String> texts = Arrays.asList("1", "22", "333", "22");
+        float[] widths = measureCache.getTextWidths(texts, 24);
+        Assert.assertEquals(4, widths.length);
+        Assert.assertEquals(measureCache.getTextWidth("333", 24), widths[2], 0f);
+        Assert.assertEquals(widths[1], widths[3], 0f);
+        Assert.assertEquals(3, measureCache.size());
+
+        float[] outWidths = new float[5];
+        Assert.assertSame(outWidths, measureCache.getTextWidths(texts, 24, null, TextMeasureCache.DEFAULT_FLAGS, outWidths));
+        try {
+            measureCache.getTextWidths(texts, 24, null, TextMeasureCache.DEFAULT_FLAGS, new float[2]);
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+
+        Assert.assertArrayEquals(widths, Paintx.getTextWidths(texts, 24), 0f);
+    }
+}
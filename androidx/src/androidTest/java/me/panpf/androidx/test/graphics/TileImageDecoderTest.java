@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.graphics;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import me.panpf.androidx.Androidx;
+import me.panpf.androidx.graphics.BitmapPool;
+import me.panpf.androidx.graphics.Bitmapx;
+import me.panpf.androidx.graphics.Colorx;
+import me.panpf.androidx.graphics.TileImageDecoder;
+import me.panpf.androidx.util.ResultRunnable;
+
+@RunWith(AndroidJUnit4.class)
+public class TileImageDecoderTest {
+
+    @Test
+    public void testCalculateInSampleSize() {
+        Assert.assertEquals(1, TileImageDecoder.calculateInSampleSize(1f));
+        Assert.assertEquals(1, TileImageDecoder.calculateInSampleSize(0.6f));
+        Assert.assertEquals(2, TileImageDecoder.calculateInSampleSize(0.5f));
+        Assert.assertEquals(2, TileImageDecoder.calculateInSampleSize(0.3f));
+        Assert.assertEquals(8, TileImageDecoder.calculateInSampleSize(0.1f));
+    }
+
+    @Test
+    public void testDecodeVisibleTiles() throws IOException, InterruptedException {
+        Context context = InstrumentationRegistry.getContext();
+        File file = new File(context.getCacheDir(), "TileImageDecoderTest.png");
+        Bitmap bitmap = Bitmapx.createByColor(1000, 800, Colorx.RED);
+        Bitmapx.writeToFile(bitmap, file, Bitmap.CompressFormat.PNG, 100);
+        bitmap.recycle();
+
+        final BitmapPool bitmapPool = new BitmapPool(4 * 1024 * 1024);
+        final TileImageDecoder decoder = new TileImageDecoder(file, bitmapPool, 10 * 1024 * 1024);
+        try {
+            Assert.assertEquals(1000, decoder.getImageWidth());
+            Assert.assertEquals(800, decoder.getImageHeight());
+
+            // 300x300 at scale 1 intersects 2x2 tiles of 256 pixels
+            final CountDownLatch latch = new CountDownLatch(4);
+            Androidx.waitRunInUI(new Runnable() {
+                @Override
+                public void run() {
+                    decoder.setListener(new TileImageDecoder.Listener() {
+                        @Override
+                        public void onTileDecoded(@NonNull TileImageDecoder.Tile tile) {
+                            latch.countDown();
+                        }
+                    });
+                    decoder.update(new Rect(100, 100, 400, 400), 1f);
+                }
+            });
+            Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+            List<TileImageDecoder.Tile> tiles = Androidx.waitRunInUIResult(new ResultRunnable<List<TileImageDecoder.Tile>>() {
+                @NonNull
+                @Override
+                public List<TileImageDecoder.Tile> run() {
+                    return decoder.getVisibleTiles();
+                }
+            });
+            Assert.assertEquals(4, tiles.size());
+            for (TileImageDecoder.Tile tile : tiles) {
+                Assert.assertEquals(1, tile.getInSampleSize());
+                Assert.assertEquals(256, tile.getBitmap().getWidth());
+                Assert.assertEquals(Colorx.RED, tile.getBitmap().getPixel(0, 0));
+            }
+
+            // Scroll away, the cached tiles are kept until the cache is cleaned
+            long[] cacheBytes = Androidx.waitRunInUIResult(new ResultRunnable<long[]>() {
+                @NonNull
+                @Override
+                public long[] run() {
+                    decoder.update(new Rect(600, 500, 700, 600), 0.25f);
+                    long cacheBytesBeforeClean = decoder.getCacheBytes();
+                    decoder.clean();
+                    return new long[]{cacheBytesBeforeClean, decoder.getCacheBytes()};
+                }
+            });
+            Assert.assertTrue(cacheBytes[0] > 0);
+            Assert.assertEquals(0, cacheBytes[1]);
+            Assert.assertTrue(bitmapPool.getSize() > 0);
+        } finally {
+            Androidx.waitRunInUI(new Runnable() {
+                @Override
+                public void run() {
+                    decoder.recycle();
+                }
+            });
+            bitmapPool.clear();
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+}
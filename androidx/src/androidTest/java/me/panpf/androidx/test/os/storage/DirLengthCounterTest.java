@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.os.storage;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import me.panpf.androidx.os.storage.DirLengthCounter;
+import me.panpf.javax.io.Filex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class DirLengthCounterTest {
+
+    private File rootDir1;
+    private File rootDir2;
+
+    @Before
+    public void setup() throws IOException {
+        Context context = InstrumentationRegistry.getContext();
+        rootDir1 = new File(context.getCacheDir(), "DirLengthCounterTest/root1");
+        rootDir2 = new File(context.getCacheDir(), "DirLengthCounterTest/root2");
+
+        TestFiles.createFile(new File(rootDir1, "a.txt"), 100);
+        for (int i = 0; i < 20; i++) {
+            TestFiles.createFile(new File(rootDir1, "dir1/sub" + i + "/b.txt"), 10);
+        }
+        TestFiles.createFile(new File(rootDir1, "dir2/c.txt"), 1000);
+        TestFiles.createFile(new File(rootDir2, "dir3/sub/sub/d.txt"), 5);
+    }
+
+    @After
+    public void clean() {
+        Filex.deleteRecursively(rootDir1.getParentFile());
+    }
+
+    @Test
+    public void testCount() {
+        final Map<File, Long> countedChildren = new ConcurrentHashMap<>();
+        final Map<File, Long> countedRoots = new ConcurrentHashMap<>();
+
+        DirLengthCounter.Result result = new DirLengthCounter(new File[]{rootDir1, rootDir2, null}).count(new DirLengthCounter.Listener() {
+            @Override
+            public void onProgress(long countedLength, long countedFiles) {
+                assertTrue(countedLength > 0);
+            }
+
+            @Override
+            public void onChildCounted(@NonNull File root, @NonNull File child, long length) {
+                countedChildren.put(child, length);
+            }
+
+            @Override
+            public void onRootCounted(@NonNull File root, long length) {
+                countedRoots.put(root, length);
+            }
+        });
+
+        assertFalse(result.isCanceled());
+        assertEquals(1305, result.getLength());
+        assertEquals(23, result.getFileCount());
+        assertEquals(1300, (long) result.getRootLengths().get(rootDir1));
+        assertEquals(5, (long) result.getRootLengths().get(rootDir2));
+        assertEquals(100, (long) result.getChildLengths(rootDir1).get(new File(rootDir1, "a.txt")));
+        assertEquals(200, (long) result.getChildLengths(rootDir1).get(new File(rootDir1, "dir1")));
+        assertEquals(1000, (long) result.getChildLengths(rootDir1).get(new File(rootDir1, "dir2")));
+
+        assertEquals(200, (long) countedChildren.get(new File(rootDir1, "dir1")));
+        assertEquals(5, (long) countedChildren.get(new File(rootDir2, "dir3")));
+        assertEquals(1300, (long) countedRoots.get(rootDir1));
+        assertEquals(5, (long) countedRoots.get(rootDir2));
+
+        assertEquals(Filex.lengthRecursively(rootDir1), new DirLengthCounter(new File[]{rootDir1}, 1).count().getLength());
+    }
+
+    @Test
+    public void testCancel() {
+        DirLengthCounter counter = new DirLengthCounter(new File[]{rootDir1, rootDir2});
+        counter.cancel();
+        DirLengthCounter.Result result = counter.count();
+        assertTrue(result.isCanceled());
+        assertEquals(0, result.getLength());
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.os.storage;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+
+import me.panpf.androidx.os.storage.DirLengthIndex;
+import me.panpf.javax.io.Filex;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class DirLengthIndexTest {
+
+    private File testDir;
+    private File rootDir;
+    private File indexDir;
+
+    @Before
+    public void setup() throws IOException {
+        Context context = InstrumentationRegistry.getContext();
+        testDir = new File(context.getCacheDir(), "DirLengthIndexTest");
+        rootDir = new File(testDir, "root");
+        indexDir = new File(testDir, "index");
+
+        TestFiles.createFile(new File(rootDir, "a.txt"), 100);
+        TestFiles.createFile(new File(rootDir, "dir1/b.txt"), 10);
+        TestFiles.createFile(new File(rootDir, "dir1/sub/c.txt"), 1000);
+    }
+
+    @After
+    public void clean() {
+        Filex.deleteRecursively(testDir);
+    }
+
+    @Test
+    public void testLength() throws IOException {
+        DirLengthIndex index = new DirLengthIndex(indexDir);
+        assertEquals(1110, index.length(rootDir));
+        assertEquals(1110, index.length(rootDir));
+
+        TestFiles.createFile(new File(rootDir, "dir1/sub/sub2/d.txt"), 5);
+        assertEquals(1115, index.length(rootDir));
+
+        Filex.deleteRecursively(new File(rootDir, "dir1/sub"));
+        assertEquals(110, index.length(rootDir));
+
+        assertEquals(110, new DirLengthIndex(indexDir).length(rootDir));
+        assertEquals(0, index.length(new File(testDir, "notExists")));
+        assertEquals(110, index.length(new File[]{rootDir, null, new File(testDir, "notExists")}));
+
+        index.invalidate(rootDir);
+        assertEquals(110, index.length(rootDir));
+
+        index.clear();
+        assertEquals(110, index.length(rootDir));
+    }
+}
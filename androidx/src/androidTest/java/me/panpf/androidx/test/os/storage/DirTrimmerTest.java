@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.os.storage;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+
+import me.panpf.androidx.os.storage.DirTrimmer;
+import me.panpf.javax.io.Filex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class DirTrimmerTest {
+
+    private File rootDir1;
+    private File rootDir2;
+
+    @Before
+    public void setup() throws IOException {
+        Context context = InstrumentationRegistry.getContext();
+        rootDir1 = new File(context.getCacheDir(), "DirTrimmerTest/root1");
+        rootDir2 = new File(context.getCacheDir(), "DirTrimmerTest/root2");
+
+        long now = System.currentTimeMillis();
+        TestFiles.createFile(new File(rootDir1, "old/a.txt"), 100, now - 1000 * 60 * 60 * 3);
+        TestFiles.createFile(new File(rootDir2, "b.txt"), 100, now - 1000 * 60 * 60 * 2);
+        TestFiles.createFile(new File(rootDir1, "c.txt"), 100, now - 1000 * 60 * 60);
+    }
+
+    @After
+    public void clean() {
+        Filex.deleteRecursively(rootDir1.getParentFile());
+    }
+
+    @Test
+    public void testTrim() {
+        DirTrimmer.Result result = new DirTrimmer(new File[]{rootDir1, rootDir2}, 1000).trim();
+        assertEquals(0, result.getDeletedCount());
+        assertEquals(300, result.getRemainingLength());
+
+        result = new DirTrimmer(new File[]{rootDir1, rootDir2, null}, 150).setUseAccessTime(false).setBatchSize(1).trim(new DirTrimmer.Listener() {
+            @Override
+            public void onProgress(long deletedLength, int deletedCount, long remainingLength) {
+                assertEquals(300, deletedLength + remainingLength);
+            }
+        });
+        assertFalse(result.isCanceled());
+        assertEquals(2, result.getDeletedCount());
+        assertEquals(200, result.getDeletedLength());
+        assertEquals(100, result.getRemainingLength());
+        assertFalse(new File(rootDir1, "old").exists());
+        assertFalse(new File(rootDir2, "b.txt").exists());
+        assertTrue(new File(rootDir1, "c.txt").exists());
+        assertTrue(rootDir2.exists());
+    }
+
+    @Test
+    public void testCancel() {
+        DirTrimmer trimmer = new DirTrimmer(new File[]{rootDir1, rootDir2}, 0);
+        trimmer.cancel();
+        DirTrimmer.Result result = trimmer.trim();
+        assertTrue(result.isCanceled());
+        assertEquals(0, result.getDeletedCount());
+        // Canceled before collecting files, nothing is walked or deleted
+        assertEquals(0, result.getRemainingLength());
+        assertTrue(new File(rootDir1, "old/a.txt").exists());
+        assertTrue(new File(rootDir2, "b.txt").exists());
+        assertTrue(new File(rootDir1, "c.txt").exists());
+    }
+}
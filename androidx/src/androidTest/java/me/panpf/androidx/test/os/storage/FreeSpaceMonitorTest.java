@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.os.storage;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import me.panpf.androidx.os.storage.FreeSpaceMonitor;
+import me.panpf.androidx.os.storage.Storagex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class FreeSpaceMonitorTest {
+
+    @Test
+    public void testWatermark() throws InterruptedException {
+        Context context = InstrumentationRegistry.getContext();
+        final String primaryVolumePath = Storagex.getExternalStorageDirectory().getPath();
+        final long highWatermark = Long.MAX_VALUE / 2;
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        FreeSpaceMonitor monitor = new FreeSpaceMonitor(context, highWatermark, 1);
+        monitor.addListener(new FreeSpaceMonitor.Listener() {
+            @Override
+            public void onWatermarkCrossed(@NonNull String volumePath, long watermark, long availableBytes, boolean below) {
+                // Only the high watermark can be crossed
+                assertEquals(highWatermark, watermark);
+                assertTrue(below);
+                if (volumePath.equals(primaryVolumePath)) {
+                    latch.countDown();
+                }
+            }
+        });
+
+        monitor.start();
+        assertTrue(monitor.isStarted());
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertTrue(monitor.getLastAvailableBytes(primaryVolumePath) > 0);
+        } finally {
+            monitor.stop();
+        }
+        assertFalse(monitor.isStarted());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.os.storage;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import me.panpf.androidx.os.storage.SpaceAllocator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class SpaceAllocatorTest {
+
+    @Test
+    public void testReserve() {
+        Context context = InstrumentationRegistry.getContext();
+        File[] dirs = new File[]{new File(context.getCacheDir(), "SpaceAllocatorTest")};
+        SpaceAllocator allocator = new SpaceAllocator(context, 60 * 1000);
+
+        long availableBytes = allocator.getAvailableBytes(dirs[0]);
+        assertTrue(availableBytes > 0);
+        long half = availableBytes / 2 + 1;
+
+        SpaceAllocator.Reservation reservation = allocator.reserve(dirs, "test1", half);
+        assertNotNull(reservation);
+        assertEquals(new File(dirs[0], "test1"), reservation.getFile());
+        assertEquals(half, allocator.getReservedBytes(dirs[0]));
+        assertEquals(availableBytes - half, allocator.getAvailableBytes(dirs[0]));
+
+        // The second half no longer fits because the first one is still in flight
+        assertNull(allocator.reserve(dirs, "test2", half));
+
+        reservation.abandon();
+        reservation.abandon();
+        assertTrue(reservation.isReleased());
+        assertEquals(0, allocator.getReservedBytes(dirs[0]));
+
+        SpaceAllocator.Reservation reservation2 = allocator.reserve(dirs, "test2", half);
+        assertNotNull(reservation2);
+        reservation2.commit();
+        assertEquals(0, allocator.getReservedBytes(dirs[0]));
+    }
+}
@@ -28,6 +28,8 @@ import java.io.File;
 
 import me.panpf.androidx.content.Contextx;
 import me.panpf.androidx.os.storage.StorageManagerCompat;
+import me.panpf.androidx.os.storage.StorageVolumeCompat;
+import me.panpf.androidx.os.storage.StorageVolumeSnapshot;
 
 @RunWith(AndroidJUnit4.class)
 public class StorageManagerCompatTest {
@@ -63,4 +65,25 @@ public class StorageManagerCompatTest {
         StorageManagerCompat managerCompat = Contextx.storageManagerCompat(context);
         Assert.assertNotEquals(managerCompat.getVolumeState(managerCompat.getVolumePaths()[0]), "unknown");
     }
+
+    @Test
+    public void testSnapshot() {
+        Context context = InstrumentationRegistry.getContext();
+        StorageManagerCompat managerCompat = Contextx.storageManagerCompat(context);
+
+        StorageVolumeSnapshot snapshot = StorageManagerCompat.getSnapshot(context);
+        Assert.assertSame(snapshot, StorageManagerCompat.getSnapshot(context));
+        Assert.assertArrayEquals(managerCompat.getVolumePaths(), snapshot.getVolumePaths());
+
+        File volumeFile = new File(snapshot.getVolumePaths()[0]);
+        StorageVolumeCompat volume = snapshot.getVolume(new File(volumeFile, "Download/test.txt"));
+        Assert.assertNotNull(volume);
+        Assert.assertEquals(volumeFile.getPath(), volume.getPath());
+        Assert.assertEquals(managerCompat.getVolumeState(volumeFile.getPath()), snapshot.getVolumeState(volumeFile));
+        Assert.assertEquals(snapshot.getState(volume), snapshot.getVolumeState(volumeFile));
+        Assert.assertNull(snapshot.getVolume(new File("/proc/self")));
+
+        StorageManagerCompat.invalidateSnapshot();
+        Assert.assertNotSame(snapshot, StorageManagerCompat.getSnapshot(context));
+    }
 }
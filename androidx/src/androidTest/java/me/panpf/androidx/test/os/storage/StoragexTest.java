@@ -28,6 +28,8 @@ import org.junit.runner.RunWith;
 import java.io.File;
 import java.io.IOException;
 
+import me.panpf.androidx.os.storage.DirLengthCounter;
+import me.panpf.androidx.os.storage.SpaceAllocator;
 import me.panpf.androidx.os.storage.StorageVolumeCompat;
 import me.panpf.androidx.os.storage.Storagex;
 import me.panpf.javax.util.Arrayx;
@@ -333,10 +335,20 @@ public class StoragexTest {
          */
         assertTrue(Storagex.lengthAppCacheDirs(context) >= 0);
         assertTrue(Storagex.lengthAppCacheDirs(context, context.getPackageName()) >= 0);
+        DirLengthCounter.Result cacheResult = Storagex.lengthAppCacheDirsParallel(context, null);
+        assertFalse(cacheResult.isCanceled());
+        assertEquals(Storagex.lengthAppCacheDirs(context), cacheResult.getLength());
+        assertEquals(Storagex.lengthAppCacheDirs(context), Storagex.lengthAppCacheDirsIndexed(context));
 
         /*
          * cleanAppCacheDirs
          */
+        /*
+         * trimAppCacheDirsTo
+         */
+        assertTrue(Storagex.trimAppCacheDirsTo(context, Long.MAX_VALUE).getRemainingLength() >= 0);
+        assertTrue(Storagex.trimAppCacheDirsTo(context, 0).getRemainingLength() >= 0);
+
         Storagex.cleanAppCacheDirs(context);
         Storagex.cleanAppCacheDirs(context, context.getPackageName());
     }
@@ -417,6 +429,10 @@ public class StoragexTest {
          */
         assertTrue(Storagex.lengthAppFilesDirs(context) >= 0);
         assertTrue(Storagex.lengthAppFilesDirs(context, context.getPackageName()) >= 0);
+        DirLengthCounter.Result filesResult = Storagex.lengthAppFilesDirsParallel(context, null);
+        assertFalse(filesResult.isCanceled());
+        assertEquals(Storagex.lengthAppFilesDirs(context), filesResult.getLength());
+        assertEquals(Storagex.lengthAppFilesDirs(context), Storagex.lengthAppFilesDirsIndexed(context));
 
         /*
          * cleanAppFilesDirs
@@ -464,6 +480,10 @@ public class StoragexTest {
          */
         assertTrue(Storagex.lengthAppObbDirs(context) >= 0);
         assertTrue(Storagex.lengthAppObbDirs(context, context.getPackageName()) >= 0);
+        DirLengthCounter.Result obbResult = Storagex.lengthAppObbDirsParallel(context, null);
+        assertFalse(obbResult.isCanceled());
+        assertEquals(Storagex.lengthAppObbDirs(context), obbResult.getLength());
+        assertEquals(Storagex.lengthAppObbDirs(context), Storagex.lengthAppObbDirsIndexed(context));
 
         /*
          * cleanAppObbDirs
@@ -485,4 +505,16 @@ public class StoragexTest {
         assertNotNull(Storagex.getFileIn(Storagex.getAppExternalCacheDirs(context), "test.jpeg", 1024 * 1024 * 8, true));
         assertNotNull(Storagex.getFileIn(Storagex.getAppExternalCacheDirs(context), "test.jpeg", 1024 * 1024 * 8));
     }
+
+    @Test
+    public void testReserveFileIn() {
+        final Context context = InstrumentationRegistry.getContext();
+        SpaceAllocator.Reservation reservation = Storagex.reserveFileIn(context, Storagex.getAppExternalCacheDirs(context), "test.jpeg", 1024 * 1024 * 8, true);
+        assertNotNull(reservation);
+        assertEquals("test.jpeg", reservation.getFile().getName());
+        reservation.abandon();
+        assertTrue(reservation.isReleased());
+
+        assertNull(Storagex.reserveFileIn(context, Storagex.getAppExternalCacheDirs(context), "test.jpeg", Long.MAX_VALUE));
+    }
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.os.storage;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import me.panpf.javax.io.Filex;
+
+/**
+ * Create the files of the storage tests
+ */
+class TestFiles {
+
+    private TestFiles() {
+    }
+
+    /**
+     * Create [file] and its parent dirs, filled with [length] zero bytes
+     */
+    static void createFile(@NonNull File file, int length) throws IOException {
+        Filex.mkdirsOrThrow(file.getParentFile());
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(new byte[length]);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    /**
+     * Create [file] and its parent dirs, filled with [length] zero bytes and last modified at [lastModified]
+     */
+    static void createFile(@NonNull File file, int length, long lastModified) throws IOException {
+        createFile(file, length);
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(lastModified);
+    }
+}
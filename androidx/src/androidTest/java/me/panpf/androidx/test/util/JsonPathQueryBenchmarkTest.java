@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.util;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import me.panpf.androidx.util.JsonPathQuery;
+import me.panpf.androidx.util.Jsonx;
+
+/**
+ * Compare {@link JsonPathQuery} with parsing the whole document into {@link JSONObject} and reading a few fields with {@link Jsonx#optInt(JSONObject, String[])}.
+ * The results must be equal, the timings vary with the device and are only logged
+ */
+@RunWith(AndroidJUnit4.class)
+public class JsonPathQueryBenchmarkTest {
+
+    private static final String TAG = "JsonPathQueryBenchmark";
+    private static final int ROUNDS = 5;
+
+    /**
+     * A config with a large unrelated section before the fields that are read
+     */
+    private static String createConfig() {
+        StringBuilder builder = new StringBuilder("{\"resources\":[");
+        for (int i = 0; i < 5000; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("{\"key\":\"res").append(i).append("\",\"size\":").append(i * 31)
+                    .append(",\"tags\":[\"a\",\"b\",\"c\"],\"extra\":{\"w\":").append(i).append(",\"h\":").append(i).append("}}");
+        }
+        builder.append("],\"data\":{\"items\":[");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("{\"id\":").append(i).append(",\"title\":\"item").append(i).append("\"}");
+        }
+        return builder.append("]},\"meta\":{\"version\":42}}").toString();
+    }
+
+    private static long sumByDom(String json) throws JSONException {
+        JSONObject root = new JSONObject(json);
+        long sum = Jsonx.optInt(root.getJSONObject("meta"), new String[]{"version"});
+        JSONArray items = root.getJSONObject("data").getJSONArray("items");
+        for (int i = 0; i < items.length(); i++) {
+            sum += Jsonx.optLong(items.getJSONObject(i), new String[]{"id"});
+        }
+        return sum;
+    }
+
+    private static long sumByQuery(JsonPathQuery query, String json) {
+        JsonPathQuery.Result result = query.extract(json);
+        long sum = result.getInt("meta.version", 0);
+        for (long id : result.getLongs("data.items[*].id")) {
+            sum += id;
+        }
+        return sum;
+    }
+
+    @Test
+    public void testExtract() throws JSONException {
+        String json = createConfig();
+        JsonPathQuery query = JsonPathQuery.compile("meta.version", "data.items[*].id");
+        long expectedSum = sumByDom(json);
+        Assert.assertEquals(expectedSum, sumByQuery(query, json));
+
+        long domStartTime = SystemClock.elapsedRealtime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sumByDom(json);
+        }
+        long domTime = Math.max(SystemClock.elapsedRealtime() - domStartTime, 1);
+
+        long queryStartTime = SystemClock.elapsedRealtime();
+        for (int i = 0; i < ROUNDS; i++) {
+            sumByQuery(query, json);
+        }
+        long queryTime = Math.max(SystemClock.elapsedRealtime() - queryStartTime, 1);
+
+        Log.i(TAG, String.format("%d chars x %d rounds, dom: %dms, query: %dms, %.1fx",
+                json.length(), ROUNDS, domTime, queryTime, (double) domTime / queryTime));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.util;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import me.panpf.androidx.util.JsonPathQuery;
+
+@RunWith(AndroidJUnit4.class)
+public class JsonPathQueryTest {
+
+    private static final String JSON = "{\"meta\":{\"version\":3,\"name\":\"cfg\"},\"skip\":{\"deep\":[1,2,{\"x\":1}]},"
+            + "\"data\":{\"items\":[{\"id\":10,\"n\":\"a\"},{\"id\":11},{\"id\":12.5},{\"noid\":1}],\"flag\":true,\"nil\":null}}";
+
+    @Test
+    public void testExtract() {
+        JsonPathQuery query = JsonPathQuery.compile("meta.version", "data.items[*].id", "data.items[1].id", "data.flag",
+                "data.nil", "missing.x", "*.name", "meta.version");
+        Assert.assertEquals(7, query.getPaths().length);
+
+        JsonPathQuery.Result result = query.extract(JSON);
+        Assert.assertEquals(3, result.getInt("meta.version", 0));
+        Assert.assertEquals("3", result.getString("meta.version"));
+        Assert.assertEquals("[10, 11, 12]", Arrays.toString(result.getLongs("data.items[*].id")));
+        Assert.assertEquals("[10.0, 11.0, 12.5]", Arrays.toString(result.getDoubles("data.items[*].id")));
+        Assert.assertEquals(Arrays.asList("10", "11", "12.5"), result.getStrings("data.items[*].id"));
+        Assert.assertEquals(11, result.getInt("data.items[1].id", 0));
+        Assert.assertTrue(result.getBoolean("data.flag", false));
+        Assert.assertTrue(result.has("data.nil"));
+        Assert.assertEquals("def", result.getString("data.nil", "def"));
+        Assert.assertFalse(result.has("missing.x"));
+        Assert.assertEquals(-1, result.getLong("missing.x", -1));
+        Assert.assertEquals(0, result.getInts("missing.x").length);
+        Assert.assertEquals("cfg", result.getString("*.name"));
+
+        try {
+            result.getString("not.compiled");
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testArrayRootAndEarlyStop() throws IOException {
+        JsonPathQuery.Result result = JsonPathQuery.compile("[1].a", "[*][0]").extract("[{\"a\":1},{\"a\":2},[5]]");
+        Assert.assertEquals(2, result.getInt("[1].a", 0));
+        Assert.assertEquals(5, result.getInt("[*][0]", 0));
+
+        // Reading stops when all paths without wildcards are found, the invalid rest is never read
+        JsonPathQuery.Result earlyResult = JsonPathQuery.compile("meta.version").extract(new StringReader("{\"meta\":{\"version\":7}} {{{"));
+        Assert.assertEquals(7, earlyResult.getInt("meta.version", 0));
+    }
+
+    @Test
+    public void testInvalid() {
+        for (String path : new String[]{"", "a.", ".a", "a[", "a[x]", "a[-1]"}) {
+            try {
+                JsonPathQuery.compile(path);
+                Assert.fail(path);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        try {
+            JsonPathQuery.compile("a.b").extract("{\"a\":{\"b\"");
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.util;
+
+import android.support.annotation.NonNull;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import me.panpf.androidx.util.Jsonx;
+
+@RunWith(AndroidJUnit4.class)
+public class JsonxTest {
+
+    @Test
+    public void testFormat() throws JSONException {
+        String json = "{\"b\":1, \"a\":[1,2.50,{\"x\":null,\"y\":true}],\"e\":{},\"f\":[],\"s\":\"q\\\"\\n\\u0001/\"}";
+        String expected = "{\n" +
+                "    \"b\":1,\n" +
+                "    \"a\":[\n" +
+                "        1,\n" +
+                "        2.50,\n" +
+                "        {\n" +
+                "            \"x\":null,\n" +
+                "            \"y\":true\n" +
+                "        }\n" +
+                "    ],\n" +
+                "    \"e\":{},\n" +
+                "    \"f\":[],\n" +
+                "    \"s\":\"q\\\"\\n\\u0001/\"\n" +
+                "}";
+        Assert.assertEquals(expected, Jsonx.format(json));
+
+        // The formatted json is still valid and has the same values
+        JSONObject jsonObject = new JSONObject(Jsonx.format(json));
+        Assert.assertEquals("q\"\n\u0001/", jsonObject.getString("s"));
+
+        Assert.assertEquals("[\n    [],\n    [\n        1\n    ]\n]", Jsonx.format("[[],[1]]"));
+        Assert.assertEquals("{}", Jsonx.format(""));
+        Assert.assertEquals("{}", Jsonx.format((JSONObject) null));
+        Assert.assertEquals("[]", Jsonx.format(new JSONArray()));
+        Assert.assertEquals("{\n    \"a\":\"b\"\n}", Jsonx.format(new JSONObject().put("a", "b")));
+
+        // The DOM is written directly with the same layout as the text
+        Assert.assertEquals(expected.replace("2.50", "2.5"), Jsonx.format(new JSONObject(json)));
+        Assert.assertEquals("[\n    [],\n    [\n        1\n    ]\n]", Jsonx.format(new JSONArray("[[],[1]]")));
+    }
+
+    @Test
+    public void testFormatLenient() {
+        Assert.assertEquals("{\n    \"a\":1\n}", Jsonx.format("{a:1}"));
+        Assert.assertEquals("{\n    \"a\":\"b\"\n}", Jsonx.format("{'a':'b'}"));
+        Assert.assertEquals("[\n    \"a\",\n    true\n]", Jsonx.format("['a', true]"));
+    }
+
+    @Test
+    public void testFormatInvalid() {
+        for (String json : new String[]{"{\"a\":1}}", "{\"a\":1} x", "{\"a\"}", "[1,", "abc", "1", "\"a\""}) {
+            try {
+                Jsonx.format(json);
+                Assert.fail(json);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void testFormatStreaming() throws IOException {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < 10000; i++) {
+            if (i > 0) builder.append(',');
+            builder.append("{\"id\":").append(i).append(",\"name\":\"item").append(i).append("\"}");
+        }
+        String json = builder.append(']').toString();
+
+        StringWriter writer = new StringWriter();
+        Jsonx.format(new StringReader(json), writer);
+        Assert.assertEquals(Jsonx.format(json), writer.toString());
+        Assert.assertTrue(writer.toString().endsWith("\"name\":\"item9999\"\n    }\n]"));
+    }
+
+    @Test
+    public void testToBeanListStreaming() throws IOException, JSONException {
+        String json = "[{\"id\":1,\"name\":\"a\",\"tags\":[\"x\",\"y\"],\"big\":12345678901,\"rate\":0.5,\"next\":null},"
+                + "2, \"skip\", null, {\"id\":2,\"name\":\"b\"}, {\"id\":3,\"name\":\"c\"}]";
+        Jsonx.BeanParser<String> parser = new Jsonx.BeanParser<String>() {
+            @Override
+            public String parse(@NonNull JSONObject itemJsonObject) throws JSONException {
+                return itemJsonObject.getInt("id") + itemJsonObject.getString("name");
+            }
+        };
+
+        Assert.assertEquals("[1a, 2b, 3c]", Jsonx.toBeanList(json, parser).toString());
+        Assert.assertEquals("[1a, 2b, 3c]", Jsonx.toBeanList(new StringReader(json), parser).toString());
+        Assert.assertEquals("[1a, 2b]", Jsonx.toBeanList(new StringReader(json), parser, 2).toString());
+        Assert.assertEquals("[1a, 2b, 3c]", Jsonx.toBeanList(new ByteArrayInputStream(json.getBytes("UTF-8")), parser).toString());
+        Assert.assertEquals("[]", Jsonx.toBeanList(new StringReader("null"), parser).toString());
+        Assert.assertEquals("[]", Jsonx.toBeanList("[]", parser).toString());
+        // The relaxed syntax of JSONArray
+        Assert.assertEquals("[1a]", Jsonx.toBeanList("[{id:1,name:'a'}]", parser).toString());
+
+        // The values have the same types as JSONObject parses them
+        JSONObject expected = new JSONArray(json).getJSONObject(0);
+        final JSONObject[] first = new JSONObject[1];
+        Jsonx.toBeanList(json, new Jsonx.BeanParser<String>() {
+            @Override
+            public String parse(@NonNull JSONObject itemJsonObject) {
+                if (first[0] == null) first[0] = itemJsonObject;
+                return null;
+            }
+        });
+        Assert.assertEquals(expected.toString(), first[0].toString());
+        Assert.assertEquals(expected.get("big").getClass(), first[0].get("big").getClass());
+        Assert.assertEquals(expected.get("id").getClass(), first[0].get("id").getClass());
+    }
+
+    @Test
+    public void testReadBeans() throws IOException, JSONException {
+        String json = "[{\"id\":1},{\"id\":2},{\"id\":3},{\"id\":4}] this part is never read";
+        Jsonx.BeanParser<Integer> parser = new Jsonx.BeanParser<Integer>() {
+            @Override
+            public Integer parse(@NonNull JSONObject itemJsonObject) throws JSONException {
+                return itemJsonObject.getInt("id");
+            }
+        };
+        final List<Integer> ids = new ArrayList<>();
+        int count = Jsonx.readBeans(new StringReader(json), parser, 10, new Jsonx.BeanCallback<Integer>() {
+            @Override
+            public boolean onBean(@NonNull Integer bean, int index) {
+                Assert.assertEquals(ids.size(), index);
+                ids.add(bean);
+                return bean < 2;
+            }
+        });
+        Assert.assertEquals(2, count);
+        Assert.assertEquals("[1, 2]", ids.toString());
+
+        try {
+            Jsonx.toBeanList(new StringReader("{\"id\":1}"), parser);
+            Assert.fail();
+        } catch (JSONException ignored) {
+        }
+        try {
+            Jsonx.toBeanList("[{\"id\":1}", parser);
+            Assert.fail();
+        } catch (JSONException ignored) {
+        }
+    }
+
+    @Test
+    public void testPrimitiveArrayToJson() {
+        Assert.assertEquals("[1,-2,2147483647]", Jsonx.toJson(new int[]{1, -2, Integer.MAX_VALUE}));
+        Assert.assertEquals("[9223372036854775807,-9223372036854775808]", Jsonx.toJson(new long[]{Long.MAX_VALUE, Long.MIN_VALUE}));
+        Assert.assertEquals("[1,1.5,0.1]", Jsonx.toJson(new double[]{1d, 1.5d, 0.1d}));
+        Assert.assertEquals("[true,false]", Jsonx.toJson(new boolean[]{true, false}));
+        Assert.assertEquals("[\"a\\\"b\",null,\"\\n\\u2028\"]", Jsonx.toJson(new String[]{"a\"b", null, "\n\u2028"}));
+        Assert.assertEquals("[]", Jsonx.toJson((long[]) null));
+
+        StringBuilder builder = new StringBuilder();
+        Jsonx.appendJson(builder, new int[]{1, 2});
+        builder.setLength(0);
+        Assert.assertEquals("[3]", Jsonx.appendJson(builder, new int[]{3}).toString());
+
+        try {
+            Jsonx.toJson(new double[]{Double.NaN});
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+    @Test
+    public void testPrimitiveArrayRoundTrip() throws JSONException {
+        int[] ints = {0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE};
+        Assert.assertArrayEquals(ints, Jsonx.toIntArray(Jsonx.toJson(ints)));
+
+        long[] longs = {0, Long.MIN_VALUE, Long.MAX_VALUE, 1234567890123L};
+        Assert.assertArrayEquals(longs, Jsonx.toLongArray(Jsonx.toJson(longs)));
+
+        double[] doubles = {0.1, -2.5e-8, 1.7976931348623157E308, 4.9E-324, 123456789.125, 3};
+        Assert.assertArrayEquals(doubles, Jsonx.toDoubleArray(Jsonx.toJson(doubles)), 0d);
+
+        boolean[] booleans = {true, false, true};
+        Assert.assertArrayEquals(booleans, Jsonx.toBooleanArray(Jsonx.toJson(booleans)));
+
+        String[] strings = {"", "a\"\\/\b\f\n\r\t", "\u0001中文"};
+        Assert.assertArrayEquals(strings, Jsonx.toStringArray((CharSequence) Jsonx.toJson(strings)));
+        // Like JSONArray.getString(int), json null is returned as "null"
+        Assert.assertArrayEquals(new String[]{"null"}, Jsonx.toStringArray(Jsonx.toJson(new String[]{null})));
+    }
+
+    @Test
+    public void testParsePrimitiveArray() throws JSONException {
+        Assert.assertArrayEquals(new int[]{1, 2, -3, 4}, Jsonx.toIntArray((CharSequence) " [ 1 , \"2\" , -3 , 4.9 ] "));
+        Assert.assertArrayEquals(new long[]{1000, 9007199254740993L}, Jsonx.toLongArray("[1e3, 9007199254740993]"));
+        Assert.assertArrayEquals(new double[]{3.25, -0.5}, Jsonx.toDoubleArray("[\"3.25\", -5E-1]"), 0d);
+        Assert.assertArrayEquals(new boolean[]{true, false}, Jsonx.toBooleanArray("[true, \"FALSE\"]"));
+        Assert.assertArrayEquals(new String[]{"A\n", "12", "true", "null"}, Jsonx.toStringArray((CharSequence) "[\"\\u0041\\n\", 12, true, \"null\"]"));
+
+        Assert.assertEquals(0, Jsonx.toIntArray((CharSequence) null).length);
+        Assert.assertEquals(0, Jsonx.toLongArray(" ").length);
+        Assert.assertEquals(0, Jsonx.toDoubleArray("null").length);
+        Assert.assertEquals(0, Jsonx.toBooleanArray("{}").length);
+        Assert.assertEquals(0, Jsonx.toStringArray((CharSequence) "[]").length);
+
+        StringBuilder builder = new StringBuilder("[7,8]");
+        Assert.assertArrayEquals(new int[]{7, 8}, Jsonx.toIntArray(builder));
+
+        // Converted like JSONArray.getInt(int)
+        String outOfRange = "[2147483648, 1e10, \"3000000000\", -1e10]";
+        Assert.assertArrayEquals(new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE},
+                Jsonx.toIntArray((CharSequence) outOfRange));
+        Assert.assertArrayEquals(Jsonx.toIntArray(outOfRange), Jsonx.toIntArray((CharSequence) outOfRange));
+    }
+
+    @Test
+    public void testParseArrayLenient() throws JSONException {
+        // The String overloads read leniently with JSONArray like before
+        Assert.assertArrayEquals(new String[]{"a", "b"}, Jsonx.toStringArray("['a', b]"));
+        Assert.assertArrayEquals(new int[]{1, 2}, Jsonx.toIntArray("['1', 2]"));
+        Assert.assertArrayEquals(new String[]{"[\"a\"]"}, Jsonx.toStringArray("[[\"a\"]]"));
+    }
+
+    @Test
+    public void testParsePrimitiveArrayInvalid() {
+        String[] invalids = {"[1,", "[1 2]", "[a]", "[\"x\"]", "{\"a\":1}", "[1]x", "[[1]]"};
+        for (String invalid : invalids) {
+            try {
+                Jsonx.toIntArray((CharSequence) invalid);
+                Assert.fail(invalid);
+            } catch (JSONException ignored) {
+            }
+        }
+        for (String invalid : new String[]{"[[\"a\"]]", "['a']", "[a]", "[1x]", "[tru]"}) {
+            try {
+                Jsonx.toStringArray((CharSequence) invalid);
+                Assert.fail(invalid);
+            } catch (JSONException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.test.util;
+
+import android.graphics.Color;
+import android.support.test.runner.AndroidJUnit4;
+import android.text.SpannableStringBuilder;
+import android.text.style.ForegroundColorSpan;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import me.panpf.androidx.util.KeywordHighlighter;
+import me.panpf.androidx.util.Textx;
+
+@RunWith(AndroidJUnit4.class)
+public class KeywordHighlighterTest {
+
+    @Test
+    public void testFind() {
+        KeywordHighlighter highlighter = new KeywordHighlighter("he", "she", "his", "hers", "", "he");
+        Assert.assertEquals(4, highlighter.getKeywordCount());
+
+        // "she" starts before "he" and "hers" overlaps it, the leftmost match wins
+        Assert.assertEquals("[1, 4, 7, 10]", Arrays.toString(highlighter.find("ushers his")));
+        // The longest keyword at the same start wins
+        Assert.assertEquals("[0, 4]", Arrays.toString(highlighter.find("hers")));
+        Assert.assertEquals("[]", Arrays.toString(highlighter.find("nothing")));
+        Assert.assertEquals("[]", Arrays.toString(highlighter.find("")));
+        Assert.assertEquals("[]", Arrays.toString(new KeywordHighlighter().find("he")));
+
+        Assert.assertTrue(highlighter.containsAny("a shell"));
+        Assert.assertFalse(highlighter.containsAny("A SHELL"));
+        Assert.assertTrue(new KeywordHighlighter(new String[]{"Shell"}, true).containsAny("A SHELL"));
+    }
+
+    @Test
+    public void testIgnoreCase() {
+        KeywordHighlighter highlighter = new KeywordHighlighter(new String[]{"Java", "kotlin"}, true);
+        Assert.assertTrue(highlighter.isIgnoreCase());
+        Assert.assertEquals("[0, 4, 9, 15]", Arrays.toString(highlighter.find("JAVA and Kotlin")));
+        Assert.assertEquals("[9, 15]", Arrays.toString(new KeywordHighlighter("Java", "Kotlin").find("JAVA and Kotlin")));
+    }
+
+    @Test
+    public void testSameAsSingleKeyword() {
+        String source = "aaaa abab ab aab";
+        for (String keyword : new String[]{"a", "aa", "ab", "aab"}) {
+            Assert.assertEquals(keyword, Textx.keywordMadeColorByHtml(source, keyword, "red"), new KeywordHighlighter(keyword).toHtml(source, "red"));
+
+            SpannableStringBuilder expected = Textx.keywordMadeColorBySpannable(source, keyword, Color.RED);
+            SpannableStringBuilder actual = new KeywordHighlighter(keyword).toSpannable(source, Color.RED);
+            ForegroundColorSpan[] expectedSpans = expected.getSpans(0, expected.length(), ForegroundColorSpan.class);
+            ForegroundColorSpan[] actualSpans = actual.getSpans(0, actual.length(), ForegroundColorSpan.class);
+            Assert.assertEquals(keyword, expectedSpans.length, actualSpans.length);
+            for (int i = 0; i < expectedSpans.length; i++) {
+                Assert.assertEquals(keyword, expected.getSpanStart(expectedSpans[i]), actual.getSpanStart(actualSpans[i]));
+                Assert.assertEquals(keyword, expected.getSpanEnd(expectedSpans[i]), actual.getSpanEnd(actualSpans[i]));
+            }
+        }
+    }
+
+    @Test
+    public void testHtml() {
+        Assert.assertEquals("<font color=\"red\">Android</font> and <font color=\"red\">Kotlin</font>!",
+                Textx.keywordsMadeColorByHtml("Android and Kotlin!", new String[]{"Kotlin", "Android"}, "red"));
+
+        StringBuilder builder = new StringBuilder("> ");
+        new KeywordHighlighter("b").appendHtml(builder, "abc", "blue");
+        Assert.assertEquals("> a<font color=\"blue\">b</font>c", builder.toString());
+
+        SpannableStringBuilder spannable = Textx.keywordsMadeColorBySpannable("Android and Kotlin!", new String[]{"Kotlin", "Android"}, Color.RED);
+        Assert.assertEquals(2, spannable.getSpans(0, spannable.length(), ForegroundColorSpan.class).length);
+    }
+}
@@ -0,0 +1,474 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.content;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Coalesce the edits of SharedPreferences in memory and write them to each preference file as one editor apply,
+ * at the end of the current main looper message (delay 0) or after the given delay.
+ * <p>
+ * The edits are not visible to {@link SharedPreferences} until they are written. Read through the get methods of this class
+ * to see them without writing, {@link Preferencex} does this automatically. Call {@link #flush()} to commit critical edits synchronously
+ */
+@SuppressWarnings("WeakerAccess")
+public class PreferenceWriteCoalescer {
+
+    @NonNull
+    private static final Object REMOVED = new Object();
+    @NonNull
+    private static final Object NOT_PENDING = new Object();
+
+    private final long delayMillis;
+    @NonNull
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    /**
+     * SharedPreferences instances are cached by the system per file, so the instance identifies the file
+     */
+    @NonNull
+    private final Map<SharedPreferences, Batch> batches = new IdentityHashMap<>();
+    /**
+     * The batches taken but not yet handed to SharedPreferences, they are still visible to the get methods
+     */
+    @NonNull
+    private final Map<SharedPreferences, Batch> writingBatches = new IdentityHashMap<>();
+    /**
+     * Batches are taken and handed to SharedPreferences under this lock, so they are written in the order they were taken
+     */
+    @NonNull
+    private final Object writeLock = new Object();
+    private boolean scheduled;
+
+    private long writeCount;
+    private long applyCount;
+
+    /**
+     * @param delayMillis How long the edits are held before they are written, 0 means at the end of the current main looper message
+     */
+    public PreferenceWriteCoalescer(long delayMillis) {
+        if (delayMillis < 0) throw new IllegalArgumentException("delayMillis must be greater than or equal to 0: " + delayMillis);
+        this.delayMillis = delayMillis;
+    }
+
+    public PreferenceWriteCoalescer() {
+        this(0);
+    }
+
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    /**
+     * Create an editor whose {@link SharedPreferences.Editor#apply()} merges the edits into the pending batch of [preferences]
+     * and whose {@link SharedPreferences.Editor#commit()} commits the pending batch synchronously
+     */
+    @NonNull
+    public SharedPreferences.Editor edit(@NonNull SharedPreferences preferences) {
+        return new CoalescingEditor(this, preferences);
+    }
+
+    /**
+     * Apply the pending edits of [preferences] now, the disk write is still asynchronous
+     */
+    public void applyPending(@NonNull SharedPreferences preferences) {
+        write(preferences, false);
+    }
+
+    /**
+     * Apply the pending edits of all preference files now, the disk write is still asynchronous
+     */
+    public void applyPending() {
+        for (SharedPreferences preferences : takeScheduled()) {
+            write(preferences, false);
+        }
+    }
+
+    /**
+     * Commit the pending edits of all preference files synchronously, it performs disk I/O and should not be called on the main thread.
+     * Other batches wait for it to be written
+     *
+     * @return false if any file failed to be written
+     */
+    public boolean flush() {
+        boolean success = true;
+        for (SharedPreferences preferences : takeScheduled()) {
+            success &= write(preferences, true);
+        }
+        return success;
+    }
+
+    /**
+     * Commit the pending edits of [preferences] synchronously, it performs disk I/O and should not be called on the main thread.
+     * Other batches wait for it to be written
+     *
+     * @return false if the file failed to be written
+     */
+    public boolean flush(@NonNull SharedPreferences preferences) {
+        return write(preferences, true);
+    }
+
+    public synchronized boolean hasPending() {
+        return !batches.isEmpty();
+    }
+
+
+    /**
+     * Get the value of [key] with the pending edits of [preferences], nothing is written
+     */
+    public int getInt(@NonNull SharedPreferences preferences, @NonNull String key, int defValue) {
+        Object value = getPending(preferences, key);
+        return value == NOT_PENDING ? preferences.getInt(key, defValue) : value != REMOVED ? (Integer) value : defValue;
+    }
+
+    /**
+     * Get the value of [key] with the pending edits of [preferences], nothing is written
+     */
+    public long getLong(@NonNull SharedPreferences preferences, @NonNull String key, long defValue) {
+        Object value = getPending(preferences, key);
+        return value == NOT_PENDING ? preferences.getLong(key, defValue) : value != REMOVED ? (Long) value : defValue;
+    }
+
+    /**
+     * Get the value of [key] with the pending edits of [preferences], nothing is written
+     */
+    public boolean getBoolean(@NonNull SharedPreferences preferences, @NonNull String key, boolean defValue) {
+        Object value = getPending(preferences, key);
+        return value == NOT_PENDING ? preferences.getBoolean(key, defValue) : value != REMOVED ? (Boolean) value : defValue;
+    }
+
+    /**
+     * Get the value of [key] with the pending edits of [preferences], nothing is written
+     */
+    public float getFloat(@NonNull SharedPreferences preferences, @NonNull String key, float defValue) {
+        Object value = getPending(preferences, key);
+        return value == NOT_PENDING ? preferences.getFloat(key, defValue) : value != REMOVED ? (Float) value : defValue;
+    }
+
+    /**
+     * Get the value of [key] with the pending edits of [preferences], nothing is written
+     */
+    @Nullable
+    public String getString(@NonNull SharedPreferences preferences, @NonNull String key, @Nullable String defValue) {
+        Object value = getPending(preferences, key);
+        return value == NOT_PENDING ? preferences.getString(key, defValue) : value != REMOVED ? (String) value : defValue;
+    }
+
+    /**
+     * Get the value of [key] with the pending edits of [preferences], nothing is written
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(@NonNull SharedPreferences preferences, @NonNull String key, @Nullable Set<String> defValue) {
+        Object value = getPending(preferences, key);
+        return value == NOT_PENDING ? preferences.getStringSet(key, defValue) : value != REMOVED ? (Set<String>) value : defValue;
+    }
+
+    /**
+     * Get all values with the pending edits of [preferences], nothing is written
+     */
+    @NonNull
+    public Map<String, ?> getAll(@NonNull SharedPreferences preferences) {
+        synchronized (this) {
+            Batch writingBatch = writingBatches.get(preferences);
+            Batch batch = batches.get(preferences);
+            if (writingBatch == null && batch == null) {
+                return preferences.getAll();
+            }
+            // The writing batch may or may not be in SharedPreferences yet, applying it again gives the same result
+            Map<String, Object> all = new HashMap<>(preferences.getAll());
+            if (writingBatch != null) writingBatch.applyTo(all);
+            if (batch != null) batch.applyTo(all);
+            return all;
+        }
+    }
+
+    /**
+     * Get the number of apply and commit calls of the editors created by this coalescer
+     */
+    public synchronized long getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * Get the number of apply and commit calls actually performed on SharedPreferences
+     */
+    public synchronized long getApplyCount() {
+        return applyCount;
+    }
+
+    /**
+     * Get the number of writes saved by coalescing, the edits still pending are counted as saved
+     */
+    public synchronized long getSavedWriteCount() {
+        return Math.max(writeCount - applyCount, 0);
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return "PreferenceWriteCoalescer(delayMillis=" + delayMillis + ", writeCount=" + writeCount + ", applyCount=" + applyCount
+                + ", pendingFiles=" + batches.size() + ")";
+    }
+
+    private synchronized void merge(@NonNull SharedPreferences preferences, boolean clear, @NonNull Map<String, Object> changes) {
+        Batch batch = batches.get(preferences);
+        if (batch == null) {
+            batch = new Batch();
+            batches.put(preferences, batch);
+        }
+        batch.merge(clear, changes);
+        writeCount++;
+
+        if (!scheduled) {
+            scheduled = true;
+            if (delayMillis == 0) {
+                handler.postAtFrontOfQueue(applyRunnable);
+            } else {
+                handler.postDelayed(applyRunnable, delayMillis);
+            }
+        }
+    }
+
+    /**
+     * Returns the pending value of [key], {@link #REMOVED} if it is removed or cleared, {@link #NOT_PENDING} if it is not edited
+     */
+    @Nullable
+    private synchronized Object getPending(@NonNull SharedPreferences preferences, @NonNull String key) {
+        Object value = getPending(batches.get(preferences), key);
+        return value != NOT_PENDING ? value : getPending(writingBatches.get(preferences), key);
+    }
+
+    @Nullable
+    private static Object getPending(@Nullable Batch batch, @NonNull String key) {
+        if (batch == null) {
+            return NOT_PENDING;
+        } else if (batch.changes.containsKey(key)) {
+            return batch.changes.get(key);
+        } else {
+            return batch.clear ? REMOVED : NOT_PENDING;
+        }
+    }
+
+    /**
+     * Take the files that have pending edits and cancel the scheduled apply
+     */
+    @NonNull
+    private synchronized List<SharedPreferences> takeScheduled() {
+        if (scheduled) {
+            scheduled = false;
+            handler.removeCallbacks(applyRunnable);
+        }
+        return new ArrayList<>(batches.keySet());
+    }
+
+    private boolean write(@NonNull SharedPreferences preferences, boolean commit) {
+        synchronized (writeLock) {
+            Batch batch;
+            synchronized (this) {
+                batch = batches.remove(preferences);
+                if (batch == null) return true;
+                writingBatches.put(preferences, batch);
+                applyCount++;
+            }
+            try {
+                SharedPreferences.Editor editor = batch.toEditor(preferences);
+                if (commit) {
+                    return editor.commit();
+                } else {
+                    editor.apply();
+                    return true;
+                }
+            } finally {
+                synchronized (this) {
+                    writingBatches.remove(preferences);
+                }
+            }
+        }
+    }
+
+    private final Runnable applyRunnable = new Runnable() {
+        @Override
+        public void run() {
+            applyPending();
+        }
+    };
+
+    private static class Batch {
+        /**
+         * Key to value or {@link #REMOVED} in the order of the edits
+         */
+        @NonNull
+        private final Map<String, Object> changes = new LinkedHashMap<>();
+        private boolean clear;
+
+        void merge(boolean clear, @NonNull Map<String, Object> newChanges) {
+            // Editor.clear() is performed before the other edits of the same editor, the earlier edits are discarded
+            if (clear) {
+                this.clear = true;
+                changes.clear();
+            }
+            for (Map.Entry<String, Object> entry : newChanges.entrySet()) {
+                // Move the key to the end, the last edit wins
+                changes.remove(entry.getKey());
+                changes.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        void applyTo(@NonNull Map<String, Object> all) {
+            if (clear) {
+                all.clear();
+            }
+            for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                if (entry.getValue() == REMOVED) {
+                    all.remove(entry.getKey());
+                } else {
+                    all.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+
+        @NonNull
+        @SuppressWarnings("unchecked")
+        SharedPreferences.Editor toEditor(@NonNull SharedPreferences preferences) {
+            SharedPreferences.Editor editor = preferences.edit();
+            if (clear) {
+                editor.clear();
+            }
+            for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                String key = entry.getKey();
+                Object value = entry.getValue();
+                if (value == REMOVED) {
+                    editor.remove(key);
+                } else if (value instanceof Integer) {
+                    editor.putInt(key, (Integer) value);
+                } else if (value instanceof Long) {
+                    editor.putLong(key, (Long) value);
+                } else if (value instanceof Boolean) {
+                    editor.putBoolean(key, (Boolean) value);
+                } else if (value instanceof Float) {
+                    editor.putFloat(key, (Float) value);
+                } else if (value instanceof String) {
+                    editor.putString(key, (String) value);
+                } else if (value instanceof Set) {
+                    editor.putStringSet(key, (Set<String>) value);
+                }
+            }
+            return editor;
+        }
+    }
+
+    private static class CoalescingEditor implements SharedPreferences.Editor {
+        @NonNull
+        private final PreferenceWriteCoalescer coalescer;
+        @NonNull
+        private final SharedPreferences preferences;
+        @NonNull
+        private final Map<String, Object> changes = new LinkedHashMap<>();
+        private boolean clear;
+
+        CoalescingEditor(@NonNull PreferenceWriteCoalescer coalescer, @NonNull SharedPreferences preferences) {
+            this.coalescer = coalescer;
+            this.preferences = preferences;
+        }
+
+        @NonNull
+        private SharedPreferences.Editor put(@NonNull String key, @Nullable Object value) {
+            synchronized (this) {
+                changes.put(key, value != null ? value : REMOVED);
+            }
+            return this;
+        }
+
+        @Override
+        public SharedPreferences.Editor putString(String key, @Nullable String value) {
+            return put(key, value);
+        }
+
+        @Override
+        public SharedPreferences.Editor putStringSet(String key, @Nullable Set<String> values) {
+            // The edit is held for a while, copy it so that later modifications of the caller do not leak in
+            return put(key, values != null ? new HashSet<>(values) : null);
+        }
+
+        @Override
+        public SharedPreferences.Editor putInt(String key, int value) {
+            return put(key, value);
+        }
+
+        @Override
+        public SharedPreferences.Editor putLong(String key, long value) {
+            return put(key, value);
+        }
+
+        @Override
+        public SharedPreferences.Editor putFloat(String key, float value) {
+            return put(key, value);
+        }
+
+        @Override
+        public SharedPreferences.Editor putBoolean(String key, boolean value) {
+            return put(key, value);
+        }
+
+        @Override
+        public SharedPreferences.Editor remove(String key) {
+            return put(key, null);
+        }
+
+        @Override
+        public synchronized SharedPreferences.Editor clear() {
+            clear = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            mergeToCoalescer();
+            return coalescer.flush(preferences);
+        }
+
+        @Override
+        public void apply() {
+            mergeToCoalescer();
+        }
+
+        private void mergeToCoalescer() {
+            boolean clear;
+            Map<String, Object> changes;
+            synchronized (this) {
+                clear = this.clear;
+                changes = new LinkedHashMap<>(this.changes);
+                this.clear = false;
+                this.changes.clear();
+            }
+            coalescer.merge(preferences, clear, changes);
+        }
+    }
+}
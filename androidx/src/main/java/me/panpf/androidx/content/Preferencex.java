@@ -28,6 +28,9 @@ import java.util.Set;
 @SuppressWarnings("WeakerAccess")
 public class Preferencex {
 
+    @Nullable
+    private static volatile PreferenceWriteCoalescer writeCoalescer;
+
     private Preferencex() {
     }
 
@@ -39,9 +42,49 @@ public class Preferencex {
         }
     }
 
+    @NonNull
+    private static SharedPreferences.Editor edit(@NonNull Context context, @Nullable String name) {
+        SharedPreferences preferences = getPreference(context, name);
+        PreferenceWriteCoalescer coalescer = writeCoalescer;
+        return coalescer != null ? coalescer.edit(preferences) : preferences.edit();
+    }
+
+
+    /**
+     * Coalesce the writes of all put, remove and clear methods with the given coalescer, null disables coalescing.
+     * The pending edits of the previous coalescer are applied. The get methods see the pending edits,
+     * but the SharedPreferences returned by {@link #getPreference(Context, String)} does not until they are written
+     */
+    public static void setWriteCoalescer(@Nullable PreferenceWriteCoalescer coalescer) {
+        PreferenceWriteCoalescer oldCoalescer;
+        synchronized (Preferencex.class) {
+            oldCoalescer = writeCoalescer;
+            writeCoalescer = coalescer;
+        }
+        if (oldCoalescer != null && oldCoalescer != coalescer) {
+            oldCoalescer.applyPending();
+        }
+    }
+
+    @Nullable
+    public static PreferenceWriteCoalescer getWriteCoalescer() {
+        return writeCoalescer;
+    }
+
+    /**
+     * Commit the pending coalesced edits synchronously, use it as a barrier after critical writes.
+     * It performs disk I/O and should not be called on the main thread
+     *
+     * @return false if any file failed to be written
+     */
+    public static boolean flush() {
+        PreferenceWriteCoalescer coalescer = writeCoalescer;
+        return coalescer == null || coalescer.flush();
+    }
+
 
     public static void putInt(@NonNull Context context, @NonNull String key, int value, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         editor.putInt(key, value);
         editor.apply();
     }
@@ -51,7 +94,7 @@ public class Preferencex {
     }
 
     public static void putInts(@NonNull Context context, @NonNull Map<String, Integer> dataMap, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         for (String key : dataMap.keySet()) {
             Integer value = dataMap.get(key);
             if (value != null) {
@@ -68,7 +111,7 @@ public class Preferencex {
     }
 
     public static void putLong(@NonNull Context context, @NonNull String key, long value, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         editor.putLong(key, value);
         editor.apply();
     }
@@ -78,7 +121,7 @@ public class Preferencex {
     }
 
     public static void putLongs(@NonNull Context context, @NonNull Map<String, Long> dataMap, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         for (String key : dataMap.keySet()) {
             Long value = dataMap.get(key);
             if (value != null) {
@@ -95,7 +138,7 @@ public class Preferencex {
     }
 
     public static void putBoolean(@NonNull Context context, @NonNull String key, boolean value, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         editor.putBoolean(key, value);
         editor.apply();
     }
@@ -105,7 +148,7 @@ public class Preferencex {
     }
 
     public static void putBooleans(@NonNull Context context, @NonNull Map<String, Boolean> dataMap, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         for (String key : dataMap.keySet()) {
             Boolean value = dataMap.get(key);
             if (value != null) {
@@ -122,7 +165,7 @@ public class Preferencex {
     }
 
     public static void putFloat(@NonNull Context context, @NonNull String key, float value, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         editor.putFloat(key, value);
         editor.apply();
     }
@@ -132,7 +175,7 @@ public class Preferencex {
     }
 
     public static void putFloats(@NonNull Context context, @NonNull Map<String, Float> dataMap, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         for (String key : dataMap.keySet()) {
             Float value = dataMap.get(key);
             if (value != null) {
@@ -149,7 +192,7 @@ public class Preferencex {
     }
 
     public static void putString(@NonNull Context context, @NonNull String key, @Nullable String value, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         editor.putString(key, value);
         editor.apply();
     }
@@ -159,7 +202,7 @@ public class Preferencex {
     }
 
     public static void putStrings(@NonNull Context context, @NonNull Map<String, String> dataMap, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         for (String key : dataMap.keySet()) {
             String value = dataMap.get(key);
             if (value != null) {
@@ -176,7 +219,7 @@ public class Preferencex {
     }
 
     public static void putStringSet(@NonNull Context context, @NonNull String key, @Nullable Set<String> value, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         editor.putStringSet(key, value);
         editor.apply();
     }
@@ -186,7 +229,7 @@ public class Preferencex {
     }
 
     public static void putStringSets(@NonNull Context context, @NonNull Map<String, Set<String>> dataMap, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         for (String key : dataMap.keySet()) {
             Set<String> value = dataMap.get(key);
             if (value != null) {
@@ -204,7 +247,9 @@ public class Preferencex {
 
 
     public static int getInt(@NonNull Context context, @NonNull String key, int defValue, @Nullable String name) {
-        return getPreference(context, name).getInt(key, defValue);
+        SharedPreferences preferences = getPreference(context, name);
+        PreferenceWriteCoalescer coalescer = writeCoalescer;
+        return coalescer != null ? coalescer.getInt(preferences, key, defValue) : preferences.getInt(key, defValue);
     }
 
     public static int getInt(@NonNull Context context, @NonNull String key, int defValue) {
@@ -212,7 +257,9 @@ public class Preferencex {
     }
 
     public static long getLong(@NonNull Context context, @NonNull String key, long defValue, @Nullable String name) {
-        return getPreference(context, name).getLong(key, defValue);
+        SharedPreferences preferences = getPreference(context, name);
+        PreferenceWriteCoalescer coalescer = writeCoalescer;
+        return coalescer != null ? coalescer.getLong(preferences, key, defValue) : preferences.getLong(key, defValue);
     }
 
     public static long getLong(@NonNull Context context, @NonNull String key, long defValue) {
@@ -220,7 +267,9 @@ public class Preferencex {
     }
 
     public static boolean getBoolean(@NonNull Context context, @NonNull String key, boolean defValue, @Nullable String name) {
-        return getPreference(context, name).getBoolean(key, defValue);
+        SharedPreferences preferences = getPreference(context, name);
+        PreferenceWriteCoalescer coalescer = writeCoalescer;
+        return coalescer != null ? coalescer.getBoolean(preferences, key, defValue) : preferences.getBoolean(key, defValue);
     }
 
     public static boolean getBoolean(@NonNull Context context, @NonNull String key, boolean defValue) {
@@ -228,7 +277,9 @@ public class Preferencex {
     }
 
     public static float getFloat(@NonNull Context context, @NonNull String key, float defValue, @Nullable String name) {
-        return getPreference(context, name).getFloat(key, defValue);
+        SharedPreferences preferences = getPreference(context, name);
+        PreferenceWriteCoalescer coalescer = writeCoalescer;
+        return coalescer != null ? coalescer.getFloat(preferences, key, defValue) : preferences.getFloat(key, defValue);
     }
 
     public static float getFloat(@NonNull Context context, @NonNull String key, float defValue) {
@@ -236,7 +287,9 @@ public class Preferencex {
     }
 
     public static String getString(@NonNull Context context, @NonNull String key, @Nullable String defValue, @Nullable String name) {
-        return getPreference(context, name).getString(key, defValue);
+        SharedPreferences preferences = getPreference(context, name);
+        PreferenceWriteCoalescer coalescer = writeCoalescer;
+        return coalescer != null ? coalescer.getString(preferences, key, defValue) : preferences.getString(key, defValue);
     }
 
     public static String getString(@NonNull Context context, @NonNull String key, @Nullable String defValue) {
@@ -244,7 +297,9 @@ public class Preferencex {
     }
 
     public static Set<String> getStringSet(@NonNull Context context, @NonNull String key, @Nullable Set<String> defValue, @Nullable String name) {
-        return getPreference(context, name).getStringSet(key, defValue);
+        SharedPreferences preferences = getPreference(context, name);
+        PreferenceWriteCoalescer coalescer = writeCoalescer;
+        return coalescer != null ? coalescer.getStringSet(preferences, key, defValue) : preferences.getStringSet(key, defValue);
     }
 
     public static Set<String> getStringSet(@NonNull Context context, @NonNull String key, @Nullable Set<String> defValue) {
@@ -252,7 +307,9 @@ public class Preferencex {
     }
 
     public static Map<String, ?> getAll(@NonNull Context context, @Nullable String name) {
-        return getPreference(context, name).getAll();
+        SharedPreferences preferences = getPreference(context, name);
+        PreferenceWriteCoalescer coalescer = writeCoalescer;
+        return coalescer != null ? coalescer.getAll(preferences) : preferences.getAll();
     }
 
     public static Map<String, ?> getAll(@NonNull Context context) {
@@ -261,7 +318,7 @@ public class Preferencex {
 
 
     public static void remove(@NonNull Context context, @NonNull String[] keys, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         for (String key : keys) {
             editor.remove(key);
         }
@@ -273,7 +330,7 @@ public class Preferencex {
     }
 
     public static void remove(@NonNull Context context, @NonNull String key, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         editor.remove(key);
         editor.apply();
     }
@@ -283,7 +340,7 @@ public class Preferencex {
     }
 
     public static void clear(@NonNull Context context, @Nullable String name) {
-        SharedPreferences.Editor editor = getPreference(context, name).edit();
+        SharedPreferences.Editor editor = edit(context, name);
         editor.clear();
         editor.apply();
     }
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+/**
+ * Pixel filters (blur, soften, sharpen, emboss, sunshine, film) running on int arrays.
+ * <p>
+ * The pixels of the source bitmap are read with one {@link Bitmap#getPixels(int[], int, int, int, int, int, int)},
+ * the rows are split into bands processed in parallel on the shared pixel worker pool and the calling thread,
+ * and the result is written to a new ARGB_8888 bitmap with one {@link Bitmap#setPixels(int[], int, int, int, int, int, int)}.
+ * The alpha of each pixel is kept, pixels outside the edges are clamped to the nearest edge pixel
+ */
+@SuppressWarnings("WeakerAccess")
+public class BitmapFilter {
+
+    /**
+     * Bands smaller than this are not worth the cost of switching threads
+     */
+    private static final int MIN_BAND_ROWS = 32;
+
+    private static final int[] BLUR_KERNEL = {1, 1, 1, 1, 1, 1, 1, 1, 1};
+    private static final int[] SOFTEN_KERNEL = {1, 2, 1, 2, 4, 2, 1, 2, 1};
+    private static final int[] SHARPEN_KERNEL = {-1, -1, -1, -1, 9, -1, -1, -1, -1};
+
+    @Nullable
+    private static volatile BitmapFilter defaultInstance;
+
+    private final int threadCount;
+
+    /**
+     * @param threadCount Max number of threads processing one bitmap, including the calling thread
+     */
+    public BitmapFilter(int threadCount) {
+        if (threadCount <= 0) throw new IllegalArgumentException("threadCount must be greater than 0: " + threadCount);
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Use all CPU cores
+     */
+    public BitmapFilter() {
+        this(Math.max(Runtime.getRuntime().availableProcessors(), 1));
+    }
+
+    /**
+     * Get the shared instance that uses all CPU cores
+     */
+    @NonNull
+    public static BitmapFilter getDefault() {
+        BitmapFilter filter = defaultInstance;
+        if (filter == null) {
+            synchronized (BitmapFilter.class) {
+                filter = defaultInstance;
+                if (filter == null) {
+                    filter = new BitmapFilter();
+                    defaultInstance = filter;
+                }
+            }
+        }
+        return filter;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Blur with the 3x3 mean kernel
+     */
+    @WorkerThread
+    @NonNull
+    public Bitmap blur(@NonNull Bitmap srcBitmap) {
+        return convolve(srcBitmap, BLUR_KERNEL, 9, 0);
+    }
+
+    /**
+     * Soften with the 3x3 gaussian kernel
+     */
+    @WorkerThread
+    @NonNull
+    public Bitmap soften(@NonNull Bitmap srcBitmap) {
+        return convolve(srcBitmap, SOFTEN_KERNEL, 16, 0);
+    }
+
+    /**
+     * Sharpen with the 3x3 laplacian kernel
+     */
+    @WorkerThread
+    @NonNull
+    public Bitmap sharpen(@NonNull Bitmap srcBitmap) {
+        return convolve(srcBitmap, SHARPEN_KERNEL, 1, 0);
+    }
+
+    /**
+     * Emboss by the difference between each pixel and its right neighbour, flat areas become gray
+     */
+    @WorkerThread
+    @NonNull
+    public Bitmap emboss(@NonNull Bitmap srcBitmap) {
+        return process(srcBitmap, new BandOp() {
+            @Override
+            public void apply(@NonNull int[] src, @NonNull int[] dst, int width, int height, int startRow, int endRow) {
+                for (int y = startRow; y < endRow; y++) {
+                    int rowOffset = y * width;
+                    for (int x = 0; x < width; x++) {
+                        int color = src[rowOffset + x];
+                        int rightColor = src[rowOffset + (x < width - 1 ? x + 1 : x)];
+                        int r = clamp(((rightColor >> 16) & 0xFF) - ((color >> 16) & 0xFF) + 127);
+                        int g = clamp(((rightColor >> 8) & 0xFF) - ((color >> 8) & 0xFF) + 127);
+                        int b = clamp((rightColor & 0xFF) - (color & 0xFF) + 127);
+                        dst[rowOffset + x] = (color & 0xFF000000) | (r << 16) | (g << 8) | b;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Brighten the circular area around the given center, the closer to the center, the brighter
+     *
+     * @param centerX  The x coordinate of the center
+     * @param centerY  The y coordinate of the center
+     * @param radius   The radius of the lighted area
+     * @param strength The brightness added at the center, usually between 100 and 150
+     */
+    @WorkerThread
+    @NonNull
+    public Bitmap sunshine(@NonNull Bitmap srcBitmap, final int centerX, final int centerY, final int radius, final int strength) {
+        if (radius <= 0) throw new IllegalArgumentException("radius must be greater than 0: " + radius);
+        return process(srcBitmap, new BandOp() {
+            @Override
+            public void apply(@NonNull int[] src, @NonNull int[] dst, int width, int height, int startRow, int endRow) {
+                long radiusSquare = (long) radius * radius;
+                for (int y = startRow; y < endRow; y++) {
+                    int rowOffset = y * width;
+                    long dy = centerY - y;
+                    for (int x = 0; x < width; x++) {
+                        int color = src[rowOffset + x];
+                        long dx = centerX - x;
+                        long distanceSquare = dx * dx + dy * dy;
+                        if (distanceSquare < radiusSquare) {
+                            int light = (int) (strength * (1.0 - Math.sqrt(distanceSquare) / radius));
+                            int r = clamp(((color >> 16) & 0xFF) + light);
+                            int g = clamp(((color >> 8) & 0xFF) + light);
+                            int b = clamp((color & 0xFF) + light);
+                            dst[rowOffset + x] = (color & 0xFF000000) | (r << 16) | (g << 8) | b;
+                        } else {
+                            dst[rowOffset + x] = color;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Brighten the circular area around the given center, the radius is the distance from the center to the nearest top or left edge and the strength is 150
+     *
+     * @param centerX The x coordinate of the center
+     * @param centerY The y coordinate of the center
+     */
+    @WorkerThread
+    @NonNull
+    public Bitmap sunshine(@NonNull Bitmap srcBitmap, int centerX, int centerY) {
+        return sunshine(srcBitmap, centerX, centerY, Math.max(Math.min(centerX, centerY), 1), 150);
+    }
+
+    /**
+     * Invert the red, green and blue of each pixel like a photographic negative
+     */
+    @WorkerThread
+    @NonNull
+    public Bitmap film(@NonNull Bitmap srcBitmap) {
+        return process(srcBitmap, new BandOp() {
+            @Override
+            public void apply(@NonNull int[] src, @NonNull int[] dst, int width, int height, int startRow, int endRow) {
+                for (int i = startRow * width, end = endRow * width; i < end; i++) {
+                    dst[i] = src[i] ^ 0x00FFFFFF;
+                }
+            }
+        });
+    }
+
+    /**
+     * Convolve the red, green and blue of each pixel with the given 3x3 kernel
+     *
+     * @param kernel  9 weights in row-major order
+     * @param divisor The weighted sum is divided by it
+     * @param bias    Added to each channel after dividing
+     */
+    @WorkerThread
+    @NonNull
+    public Bitmap convolve(@NonNull Bitmap srcBitmap, @NonNull int[] kernel, final int divisor, final int bias) {
+        if (kernel.length != 9) throw new IllegalArgumentException("kernel length must be 9: " + kernel.length);
+        if (divisor == 0) throw new IllegalArgumentException("divisor can not be 0");
+        final int[] k = kernel.clone();
+        return process(srcBitmap, new BandOp() {
+            @Override
+            public void apply(@NonNull int[] src, @NonNull int[] dst, int width, int height, int startRow, int endRow) {
+                for (int y = startRow; y < endRow; y++) {
+                    int above = (y > 0 ? y - 1 : y) * width;
+                    int row = y * width;
+                    int below = (y < height - 1 ? y + 1 : y) * width;
+                    for (int x = 0; x < width; x++) {
+                        int left = x > 0 ? x - 1 : x;
+                        int right = x < width - 1 ? x + 1 : x;
+
+                        int c0 = src[above + left], c1 = src[above + x], c2 = src[above + right];
+                        int c3 = src[row + left], c4 = src[row + x], c5 = src[row + right];
+                        int c6 = src[below + left], c7 = src[below + x], c8 = src[below + right];
+
+                        int r = k[0] * ((c0 >> 16) & 0xFF) + k[1] * ((c1 >> 16) & 0xFF) + k[2] * ((c2 >> 16) & 0xFF)
+                                + k[3] * ((c3 >> 16) & 0xFF) + k[4] * ((c4 >> 16) & 0xFF) + k[5] * ((c5 >> 16) & 0xFF)
+                                + k[6] * ((c6 >> 16) & 0xFF) + k[7] * ((c7 >> 16) & 0xFF) + k[8] * ((c8 >> 16) & 0xFF);
+                        int g = k[0] * ((c0 >> 8) & 0xFF) + k[1] * ((c1 >> 8) & 0xFF) + k[2] * ((c2 >> 8) & 0xFF)
+                                + k[3] * ((c3 >> 8) & 0xFF) + k[4] * ((c4 >> 8) & 0xFF) + k[5] * ((c5 >> 8) & 0xFF)
+                                + k[6] * ((c6 >> 8) & 0xFF) + k[7] * ((c7 >> 8) & 0xFF) + k[8] * ((c8 >> 8) & 0xFF);
+                        int b = k[0] * (c0 & 0xFF) + k[1] * (c1 & 0xFF) + k[2] * (c2 & 0xFF)
+                                + k[3] * (c3 & 0xFF) + k[4] * (c4 & 0xFF) + k[5] * (c5 & 0xFF)
+                                + k[6] * (c6 & 0xFF) + k[7] * (c7 & 0xFF) + k[8] * (c8 & 0xFF);
+
+                        dst[row + x] = (c4 & 0xFF000000)
+                                | (clamp(r / divisor + bias) << 16) | (clamp(g / divisor + bias) << 8) | clamp(b / divisor + bias);
+                    }
+                }
+            }
+        });
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    @NonNull
+    private Bitmap process(@NonNull Bitmap srcBitmap, @NonNull final BandOp op) {
+        final int width = srcBitmap.getWidth();
+        final int height = srcBitmap.getHeight();
+        final int[] src = new int[width * height];
+        srcBitmap.getPixels(src, 0, width, 0, 0, width, height);
+        final int[] dst = new int[width * height];
+
+        PixelWorkers.run(0, height, threadCount, MIN_BAND_ROWS, new PixelWorkers.RangeOp() {
+            @Override
+            public void apply(int startRow, int endRow) {
+                op.apply(src, dst, width, height, startRow, endRow);
+            }
+        });
+
+        Bitmap newBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        newBitmap.setPixels(dst, 0, width, 0, 0, width, height);
+        return newBitmap;
+    }
+
+    /**
+     * Process the rows in [startRow, endRow) of [src] into [dst], may read any row of [src]
+     */
+    private interface BandOp {
+        void apply(@NonNull int[] src, @NonNull int[] dst, int width, int height, int startRow, int endRow);
+    }
+}
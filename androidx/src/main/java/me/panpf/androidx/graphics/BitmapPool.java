@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.annotation.SuppressLint;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bounded pool of reusable bitmaps, the least recently put bitmap is evicted first when the total byte count exceeds the max size.
+ * <p>
+ * On Android 4.4+ bitmaps are grouped by config and allocation byte count, any bitmap whose allocation is large enough (but not more than 4 times)
+ * is reconfigured to the requested size. On the lower versions bitmaps are grouped by width, height and config, only exactly the same size can be reused
+ */
+@SuppressWarnings("WeakerAccess")
+public class BitmapPool {
+
+    /**
+     * Avoid wasting a very large bitmap on a small request
+     */
+    private static final int MAX_SIZE_MULTIPLE = 4;
+
+    @NonNull
+    private final Map<Key, LinkedList<Bitmap>> groups = new HashMap<>();
+    /**
+     * Bitmap to its key in the order of put, Bitmap does not override equals and hashCode
+     */
+    @NonNull
+    private final LinkedHashMap<Bitmap, Key> lru = new LinkedHashMap<>();
+    /**
+     * Config to the number of bitmaps of each byte count, used to find the smallest large enough bitmap on Android 4.4+
+     */
+    @NonNull
+    private final Map<Bitmap.Config, TreeMap<Integer, Integer>> sizesByConfig = new HashMap<>();
+
+    private long maxSize;
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private long evictionCount;
+
+    /**
+     * @param maxSize Max total byte count of all bitmaps in the pool
+     */
+    public BitmapPool(long maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("maxSize must be greater than or equal to 0: " + maxSize);
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the number of bytes that the given bitmap occupies in memory
+     */
+    @SuppressLint("NewApi")
+    public static int getByteCount(@NonNull Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return bitmap.getAllocationByteCount();
+        } else {
+            return bitmap.getRowBytes() * bitmap.getHeight();
+        }
+    }
+
+    /**
+     * Get the number of bytes required by a bitmap of the given size and config
+     */
+    public static int getByteCount(int width, int height, @Nullable Bitmap.Config config) {
+        return width * height * getBytesPerPixel(config);
+    }
+
+    private static int getBytesPerPixel(@Nullable Bitmap.Config config) {
+        if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        } else if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == Bitmap.Config.RGBA_F16) {
+            return 8;
+        } else {
+            return 4;
+        }
+    }
+
+    /**
+     * Put the bitmap into the pool, it must be mutable and not recycled.
+     *
+     * @return false if the bitmap cannot be reused or is larger than the max size, the caller should recycle it
+     */
+    public synchronized boolean put(@NonNull Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() == null || lru.containsKey(bitmap)) {
+            return false;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && bitmap.getConfig() == Bitmap.Config.HARDWARE) {
+            return false;
+        }
+        int byteCount = getByteCount(bitmap);
+        if (byteCount > maxSize) {
+            return false;
+        }
+
+        Key key = keyOf(bitmap);
+        LinkedList<Bitmap> group = groups.get(key);
+        if (group == null) {
+            group = new LinkedList<>();
+            groups.put(key, group);
+        }
+        group.addLast(bitmap);
+        lru.put(bitmap, key);
+        if (key.width == 0) {
+            changeSizeCount(key.config, key.byteCount, 1);
+        }
+        size += byteCount;
+        putCount++;
+
+        trimToSize(maxSize);
+        return true;
+    }
+
+    /**
+     * Get a reusable bitmap of the given size and config, it contains the pixels of its last use
+     *
+     * @return null if there is no reusable bitmap
+     */
+    @SuppressLint("NewApi")
+    @Nullable
+    public synchronized Bitmap getDirty(int width, int height, @NonNull Bitmap.Config config) {
+        Key key;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            int byteCount = getByteCount(width, height, config);
+            TreeMap<Integer, Integer> sizes = sizesByConfig.get(config);
+            Integer bestSize = sizes != null ? sizes.ceilingKey(byteCount) : null;
+            key = bestSize != null && bestSize <= (long) byteCount * MAX_SIZE_MULTIPLE ? new Key(config, bestSize) : null;
+        } else {
+            key = new Key(config, width, height);
+        }
+
+        LinkedList<Bitmap> group = key != null ? groups.get(key) : null;
+        if (group == null || group.isEmpty()) {
+            missCount++;
+            return null;
+        }
+
+        Bitmap bitmap = group.removeLast();
+        removeFromIndexes(bitmap, key, group);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                && (bitmap.getWidth() != width || bitmap.getHeight() != height || bitmap.getConfig() != config)) {
+            bitmap.reconfigure(width, height, config);
+        }
+        hitCount++;
+        return bitmap;
+    }
+
+    /**
+     * Get a reusable bitmap of the given size and config, its pixels are cleared to transparent
+     *
+     * @return null if there is no reusable bitmap
+     */
+    @Nullable
+    public Bitmap get(int width, int height, @NonNull Bitmap.Config config) {
+        Bitmap bitmap = getDirty(width, height, config);
+        if (bitmap != null) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Get a reusable bitmap of the given size and config, create a new one if there is no reusable bitmap.
+     * Its pixels are cleared to transparent
+     */
+    @NonNull
+    public Bitmap getOrCreate(int width, int height, @NonNull Bitmap.Config config) {
+        Bitmap bitmap = get(width, height, config);
+        return bitmap != null ? bitmap : Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Evict the least recently put bitmaps until the total byte count is not greater than [targetSize]
+     */
+    public synchronized void trimToSize(long targetSize) {
+        Iterator<Map.Entry<Bitmap, Key>> iterator = lru.entrySet().iterator();
+        while (size > targetSize && iterator.hasNext()) {
+            Map.Entry<Bitmap, Key> entry = iterator.next();
+            Bitmap bitmap = entry.getKey();
+            Key key = entry.getValue();
+            iterator.remove();
+
+            LinkedList<Bitmap> group = groups.get(key);
+            if (group != null) {
+                group.remove(bitmap);
+                if (group.isEmpty()) {
+                    groups.remove(key);
+                }
+            }
+            if (key.width == 0) {
+                changeSizeCount(key.config, key.byteCount, -1);
+            }
+            size -= getByteCount(bitmap);
+            evictionCount++;
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Evict and recycle all bitmaps
+     */
+    public void clear() {
+        trimToSize(0);
+    }
+
+    public synchronized void setMaxSize(long maxSize) {
+        if (maxSize < 0) throw new IllegalArgumentException("maxSize must be greater than or equal to 0: " + maxSize);
+        this.maxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    public synchronized long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get the total byte count of all bitmaps in the pool
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getPutCount() {
+        return putCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return "BitmapPool(size=" + size + ", maxSize=" + maxSize + ", hitCount=" + hitCount + ", missCount=" + missCount
+                + ", putCount=" + putCount + ", evictionCount=" + evictionCount + ")";
+    }
+
+    private void removeFromIndexes(@NonNull Bitmap bitmap, @NonNull Key key, @NonNull LinkedList<Bitmap> group) {
+        if (group.isEmpty()) {
+            groups.remove(key);
+        }
+        lru.remove(bitmap);
+        if (key.width == 0) {
+            changeSizeCount(key.config, key.byteCount, -1);
+        }
+        size -= getByteCount(bitmap);
+    }
+
+    private void changeSizeCount(@NonNull Bitmap.Config config, int byteCount, int delta) {
+        TreeMap<Integer, Integer> sizes = sizesByConfig.get(config);
+        if (sizes == null) {
+            sizes = new TreeMap<>();
+            sizesByConfig.put(config, sizes);
+        }
+        Integer count = sizes.get(byteCount);
+        int newCount = (count != null ? count : 0) + delta;
+        if (newCount > 0) {
+            sizes.put(byteCount, newCount);
+        } else {
+            sizes.remove(byteCount);
+        }
+    }
+
+    @NonNull
+    private static Key keyOf(@NonNull Bitmap bitmap) {
+        //noinspection ConstantConditions
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                ? new Key(bitmap.getConfig(), getByteCount(bitmap))
+                : new Key(bitmap.getConfig(), bitmap.getWidth(), bitmap.getHeight());
+    }
+
+    /**
+     * Android 4.4+ uses config and byte count, width is always 0. The lower versions use config, width and height, byte count is always 0
+     */
+    private static class Key {
+        @NonNull
+        final Bitmap.Config config;
+        final int byteCount;
+        final int width;
+        final int height;
+
+        Key(@NonNull Bitmap.Config config, int byteCount) {
+            this.config = config;
+            this.byteCount = byteCount;
+            this.width = 0;
+            this.height = 0;
+        }
+
+        Key(@NonNull Bitmap.Config config, int width, int height) {
+            this.config = config;
+            this.byteCount = 0;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return byteCount == key.byteCount && width == key.width && height == key.height && config == key.config;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = config.hashCode();
+            result = 31 * result + byteCount;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.widget.ImageView;
+
+import java.util.Locale;
+
+/**
+ * A chain of crop, rotate, resize, circular or rounded corners mask and color adjustment compiled into one {@link Matrix},
+ * one {@link BitmapShader} and one color filter, so the whole chain is drawn into the destination bitmap at once without intermediate bitmaps.
+ * <p>
+ * The steps are always applied in this order no matter in which order they are set: crop, rotate, resize, mask, color.
+ * Transforms are immutable, transforms with the same steps have the same {@link #getKey()}, for example:
+ * <pre>
+ * BitmapTransform transform = new BitmapTransform.Builder().resize(200, 200).circular().tint(Color.GRAY).build();
+ * Bitmap avatar = transform.apply(srcBitmap, bitmapPool);
+ * String cacheKey = ImageCache.createKey(sourceId, transform.getKey());
+ * </pre>
+ */
+@SuppressWarnings("WeakerAccess")
+public class BitmapTransform {
+
+    @NonNull
+    private final String key;
+    @Nullable
+    private final Rect cropRect;
+    private final int rotateDegrees;
+    private final int resizeWidth;
+    private final int resizeHeight;
+    @NonNull
+    private final ImageView.ScaleType scaleType;
+    private final boolean circular;
+    private final float cornerRadius;
+    @Nullable
+    private final ColorPipeline colorPipeline;
+    @NonNull
+    private final Bitmap.Config config;
+
+    private BitmapTransform(@NonNull Builder builder) {
+        this.cropRect = builder.cropRect != null ? new Rect(builder.cropRect) : null;
+        this.rotateDegrees = builder.rotateDegrees;
+        this.resizeWidth = builder.resizeWidth;
+        this.resizeHeight = builder.resizeHeight;
+        this.scaleType = builder.scaleType;
+        this.circular = builder.circular;
+        this.cornerRadius = builder.cornerRadius;
+        this.colorPipeline = builder.colorPipeline;
+        this.config = builder.config;
+        this.key = createKey();
+    }
+
+    @NonNull
+    private String createKey() {
+        StringBuilder builder = new StringBuilder("BitmapTransform(");
+        if (cropRect != null) {
+            builder.append("crop(").append(cropRect.left).append(',').append(cropRect.top)
+                    .append(',').append(cropRect.right).append(',').append(cropRect.bottom).append(")|");
+        }
+        if (rotateDegrees != 0) {
+            builder.append("rotate(").append(rotateDegrees).append(")|");
+        }
+        if (resizeWidth > 0) {
+            builder.append("resize(").append(resizeWidth).append('x').append(resizeHeight).append(',').append(scaleType.name()).append(")|");
+        }
+        if (circular) {
+            builder.append("circular|");
+        } else if (cornerRadius > 0) {
+            builder.append("roundedCorners(").append(String.format(Locale.US, "%.2f", cornerRadius)).append(")|");
+        }
+        if (colorPipeline != null) {
+            builder.append("color(").append(colorPipeline.getKey()).append(")|");
+        }
+        return builder.append(config.name()).append(')').toString();
+    }
+
+    /**
+     * Get the steps of the transform, it does not change between processes and can be used as a part of the cache key
+     */
+    @NonNull
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Calculate the size of the bitmap created by {@link #apply(Bitmap)} for a source bitmap of the given size
+     */
+    @NonNull
+    public Point getOutputSize(int srcWidth, int srcHeight) {
+        if (resizeWidth > 0) {
+            return new Point(resizeWidth, resizeHeight);
+        }
+        Rect crop = getCropRect(srcWidth, srcHeight);
+        boolean swap = rotateDegrees == 90 || rotateDegrees == 270;
+        int width = swap ? crop.height() : crop.width();
+        int height = swap ? crop.width() : crop.height();
+        if (circular) {
+            int size = Math.min(width, height);
+            return new Point(size, size);
+        }
+        return new Point(width, height);
+    }
+
+    @NonNull
+    private Rect getCropRect(int srcWidth, int srcHeight) {
+        Rect crop = new Rect(0, 0, srcWidth, srcHeight);
+        if (cropRect != null && !crop.intersect(cropRect)) {
+            throw new IllegalArgumentException("The crop rect " + cropRect.toShortString() + " is outside the bitmap: " + srcWidth + "x" + srcHeight);
+        }
+        return crop;
+    }
+
+    /**
+     * Draw [srcBitmap] into [dstBitmap] at once, the size of [dstBitmap] is used as the resize size. The pixels of [dstBitmap] outside the mask are not changed
+     *
+     * @return [dstBitmap]
+     */
+    @NonNull
+    public Bitmap applyTo(@NonNull Bitmap srcBitmap, @NonNull Bitmap dstBitmap) {
+        Rect crop = getCropRect(srcBitmap.getWidth(), srcBitmap.getHeight());
+
+        // Move the crop rect to the origin and rotate it, the rotated rect is moved back to the origin
+        Matrix matrix = new Matrix();
+        matrix.setTranslate(-crop.left, -crop.top);
+        RectF rotatedRect = new RectF(0, 0, crop.width(), crop.height());
+        if (rotateDegrees != 0) {
+            Matrix rotateMatrix = new Matrix();
+            rotateMatrix.setRotate(rotateDegrees);
+            rotateMatrix.mapRect(rotatedRect);
+            matrix.postRotate(rotateDegrees);
+            matrix.postTranslate(-rotatedRect.left, -rotatedRect.top);
+        }
+
+        // Map the part chosen by the scale type to the destination
+        int rotatedWidth = Math.round(rotatedRect.width());
+        int rotatedHeight = Math.round(rotatedRect.height());
+        Resizex.Result result = Resizex.calculator(rotatedWidth, rotatedHeight, dstBitmap.getWidth(), dstBitmap.getHeight(), scaleType, true);
+        RectF destRect = new RectF(result.destRect);
+        Matrix scaleMatrix = new Matrix();
+        scaleMatrix.setRectToRect(new RectF(result.srcRect), destRect, Matrix.ScaleToFit.FILL);
+        matrix.postConcat(scaleMatrix);
+
+        BitmapShader shader = new BitmapShader(srcBitmap, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+        shader.setLocalMatrix(matrix);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        paint.setShader(shader);
+        if (colorPipeline != null) {
+            paint.setColorFilter(colorPipeline.getColorFilter());
+        }
+
+        Canvas canvas = new Canvas(dstBitmap);
+        if (circular) {
+            float radius = Math.min(destRect.width(), destRect.height()) / 2;
+            canvas.drawCircle(destRect.centerX(), destRect.centerY(), radius, paint);
+        } else if (cornerRadius > 0) {
+            canvas.drawRoundRect(destRect, cornerRadius, cornerRadius, paint);
+        } else {
+            canvas.drawRect(destRect, paint);
+        }
+        return dstBitmap;
+    }
+
+    /**
+     * Draw [srcBitmap] into a new bitmap at once
+     */
+    @NonNull
+    public Bitmap apply(@NonNull Bitmap srcBitmap) {
+        Point size = getOutputSize(srcBitmap.getWidth(), srcBitmap.getHeight());
+        return applyTo(srcBitmap, Bitmap.createBitmap(size.x, size.y, config));
+    }
+
+    /**
+     * Draw [srcBitmap] into a new bitmap at once, the new bitmap is taken from [bitmapPool]
+     */
+    @NonNull
+    public Bitmap apply(@NonNull Bitmap srcBitmap, @NonNull BitmapPool bitmapPool) {
+        Point size = getOutputSize(srcBitmap.getWidth(), srcBitmap.getHeight());
+        return applyTo(srcBitmap, bitmapPool.getOrCreate(size.x, size.y, config));
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof BitmapTransform && key.equals(((BitmapTransform) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    public static class Builder {
+        @Nullable
+        private Rect cropRect;
+        private int rotateDegrees;
+        private int resizeWidth;
+        private int resizeHeight;
+        @NonNull
+        private ImageView.ScaleType scaleType = ImageView.ScaleType.CENTER_CROP;
+        private boolean circular;
+        private float cornerRadius;
+        @Nullable
+        private ColorPipeline colorPipeline;
+        @NonNull
+        private Bitmap.Config config = Bitmap.Config.ARGB_8888;
+
+        /**
+         * Only use the given area of the source bitmap, it is clipped to the bounds of the source bitmap
+         */
+        @NonNull
+        public Builder crop(@NonNull Rect rect) {
+            if (rect.isEmpty()) throw new IllegalArgumentException("rect is empty: " + rect.toShortString());
+            this.cropRect = new Rect(rect);
+            return this;
+        }
+
+        /**
+         * Rotate clockwise
+         *
+         * @param degrees A multiple of 90
+         */
+        @NonNull
+        public Builder rotate(int degrees) {
+            if (degrees % 90 != 0) throw new IllegalArgumentException("degrees must be a multiple of 90: " + degrees);
+            this.rotateDegrees = (degrees % 360 + 360) % 360;
+            return this;
+        }
+
+        /**
+         * Scale to the given size, the part of the image is chosen by [scaleType] like {@link Bitmapx#readBitmap(java.io.File, int, int, ImageView.ScaleType)}.
+         * Without resizing, the output is the size of the cropped and rotated image, or its inscribed square if it is circular
+         */
+        @NonNull
+        public Builder resize(int width, int height, @NonNull ImageView.ScaleType scaleType) {
+            if (width <= 0 || height <= 0) throw new IllegalArgumentException("Invalid size: " + width + "x" + height);
+            this.resizeWidth = width;
+            this.resizeHeight = height;
+            this.scaleType = scaleType;
+            return this;
+        }
+
+        /**
+         * Scale to the given size with {@link ImageView.ScaleType#CENTER_CROP}
+         */
+        @NonNull
+        public Builder resize(int width, int height) {
+            return resize(width, height, ImageView.ScaleType.CENTER_CROP);
+        }
+
+        /**
+         * Mask with the inscribed circle, replaces the rounded corners
+         */
+        @NonNull
+        public Builder circular() {
+            this.circular = true;
+            this.cornerRadius = 0;
+            return this;
+        }
+
+        /**
+         * Mask with a rounded rect, replaces the circle
+         */
+        @NonNull
+        public Builder roundedCorners(float radius) {
+            if (radius < 0) throw new IllegalArgumentException("radius must be greater than or equal to 0: " + radius);
+            this.cornerRadius = radius;
+            this.circular = false;
+            return this;
+        }
+
+        /**
+         * Replace the red, green and blue with the given color and keep the alpha, the same as {@link Bitmapx#tint(Bitmap, int)}, replaces the color pipeline
+         */
+        @NonNull
+        public Builder tint(@ColorInt int noAlphaRgbColor) {
+            this.colorPipeline = new ColorPipeline.Builder().tint(noAlphaRgbColor).build();
+            return this;
+        }
+
+        /**
+         * Adjust the colors with the given pipeline, replaces the tint
+         */
+        @NonNull
+        public Builder color(@NonNull ColorPipeline colorPipeline) {
+            this.colorPipeline = colorPipeline;
+            return this;
+        }
+
+        /**
+         * The config of the bitmaps created by {@link BitmapTransform#apply(Bitmap)}, the default is ARGB_8888
+         */
+        @NonNull
+        public Builder config(@NonNull Bitmap.Config config) {
+            this.config = config;
+            return this;
+        }
+
+        @NonNull
+        public BitmapTransform build() {
+            return new BitmapTransform(this);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package me.panpf.androidx.graphics;
 
+import android.annotation.SuppressLint;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
@@ -26,6 +27,7 @@ import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
+import android.os.Build;
 import android.support.annotation.ColorInt;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
@@ -33,7 +35,9 @@ import android.support.annotation.Nullable;
 import android.util.TypedValue;
 import android.widget.ImageView;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileDescriptor;
@@ -47,6 +51,11 @@ import me.panpf.javax.io.IOStreamx;
 @SuppressWarnings("WeakerAccess")
 public class Bitmapx {
 
+    /**
+     * The max number of bytes that may be read when decoding the bounds of an InputStream
+     */
+    private static final int MARK_LIMIT = 1024 * 1024;
+
     private Bitmapx() {
     }
 
@@ -119,6 +128,341 @@ public class Bitmapx {
         return BitmapFactory.decodeResourceStream(res, value, is, pad, options);
     }
 
+    @Nullable
+    public static Bitmap readBitmap(@NonNull final File file, @Nullable BitmapFactory.Options options, @NonNull BitmapPool bitmapPool) {
+        return decodeWithPool(new Decoder() {
+            @Nullable
+            @Override
+            Bitmap decode(@NonNull BitmapFactory.Options options) {
+                return BitmapFactory.decodeFile(file.getPath(), options);
+            }
+        }, options, bitmapPool);
+    }
+
+    /**
+     * The pool is used only when [inputStream] can be read again from the start, such as {@link ByteArrayInputStream},
+     * because a failed decoding into the reused bitmap may have read past the mark limit. Other streams are decoded without the pool
+     */
+    @Nullable
+    public static Bitmap readBitmap(@NonNull InputStream inputStream, @Nullable final Rect outPadding, @Nullable BitmapFactory.Options options, @NonNull BitmapPool bitmapPool) {
+        return decodeWithPool(new StreamDecoder(inputStream, outPadding), options, bitmapPool);
+    }
+
+    @Nullable
+    public static Bitmap readBitmap(@NonNull final byte[] data, final int offset, final int length, @Nullable BitmapFactory.Options options, @NonNull BitmapPool bitmapPool) {
+        return decodeWithPool(new Decoder() {
+            @Nullable
+            @Override
+            Bitmap decode(@NonNull BitmapFactory.Options options) {
+                return BitmapFactory.decodeByteArray(data, offset, length, options);
+            }
+        }, options, bitmapPool);
+    }
+
+    @Nullable
+    public static Bitmap readBitmap(@NonNull byte[] data, @Nullable BitmapFactory.Options options, @NonNull BitmapPool bitmapPool) {
+        return readBitmap(data, 0, data.length, options, bitmapPool);
+    }
+
+    @Nullable
+    public static Bitmap readBitmap(@NonNull final FileDescriptor fileDescriptor, @Nullable final Rect outPadding, @Nullable BitmapFactory.Options options, @NonNull BitmapPool bitmapPool) {
+        return decodeWithPool(new Decoder() {
+            @Nullable
+            @Override
+            Bitmap decode(@NonNull BitmapFactory.Options options) {
+                return BitmapFactory.decodeFileDescriptor(fileDescriptor, outPadding, options);
+            }
+        }, options, bitmapPool);
+    }
+
+    @Nullable
+    public static Bitmap readBitmap(@NonNull final Resources resources, @DrawableRes final int resId, @Nullable BitmapFactory.Options options, @NonNull BitmapPool bitmapPool) {
+        return decodeWithPool(new Decoder() {
+            @Nullable
+            @Override
+            Bitmap decode(@NonNull BitmapFactory.Options options) {
+                return BitmapFactory.decodeResource(resources, resId, options);
+            }
+        }, options, bitmapPool);
+    }
+
+    /**
+     * Decode the bounds first and take a reusable bitmap from [bitmapPool] as {@link BitmapFactory.Options#inBitmap},
+     * if the image can not be decoded into it, the bitmap is returned to the pool and the image is decoded again without it.
+     * The inBitmap, inMutable and inJustDecodeBounds of [options] are restored after decoding, so it can be reused by the caller
+     */
+    @Nullable
+    private static Bitmap decodeWithPool(@NonNull Decoder decoder, @Nullable BitmapFactory.Options options, @NonNull BitmapPool bitmapPool) {
+        BitmapFactory.Options decodeOptions = options != null ? options : new BitmapFactory.Options();
+        if (decodeOptions.inJustDecodeBounds || decodeOptions.inBitmap != null || !decoder.isRepeatable()) {
+            return decoder.decode(decodeOptions);
+        }
+
+        boolean oldMutable = decodeOptions.inMutable;
+        try {
+            // The decoded bitmap must be mutable so that it can be returned to the pool later
+            decodeOptions.inMutable = true;
+            decodeOptions.inJustDecodeBounds = true;
+            decoder.decode(decodeOptions);
+            decodeOptions.inJustDecodeBounds = false;
+            Bitmap inBitmap = findInBitmap(decodeOptions, bitmapPool);
+            if (inBitmap == null) {
+                return decoder.decode(decodeOptions);
+            }
+
+            decodeOptions.inBitmap = inBitmap;
+            try {
+                return decoder.decode(decodeOptions);
+            } catch (IllegalArgumentException e) {
+                decodeOptions.inBitmap = null;
+                recycleToPool(inBitmap, bitmapPool);
+                return decoder.decode(decodeOptions);
+            }
+        } finally {
+            // Otherwise the next decoding with the same options would overwrite the returned bitmap
+            decodeOptions.inBitmap = null;
+            decodeOptions.inMutable = oldMutable;
+            decodeOptions.inJustDecodeBounds = false;
+        }
+    }
+
+    /**
+     * Android 4.4+ can decode into any bitmap that is large enough, the lower versions require
+     * a JPEG or PNG image of the same size without sampling
+     */
+    @SuppressLint("NewApi")
+    @Nullable
+    private static Bitmap findInBitmap(@NonNull BitmapFactory.Options boundsOptions, @NonNull BitmapPool bitmapPool) {
+        if (boundsOptions.outWidth <= 0 || boundsOptions.outHeight <= 0) {
+            return null;
+        }
+        int inSampleSize = Math.max(boundsOptions.inSampleSize, 1);
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.KITKAT
+                && (inSampleSize != 1 || !("image/jpeg".equals(boundsOptions.outMimeType) || "image/png".equals(boundsOptions.outMimeType)))) {
+            return null;
+        }
+
+        Bitmap.Config config = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            config = boundsOptions.outConfig;
+        }
+        if (config == null) {
+            config = boundsOptions.inPreferredConfig != null ? boundsOptions.inPreferredConfig : Bitmap.Config.ARGB_8888;
+        }
+        int width = calculateSamplingSize(boundsOptions.outWidth, inSampleSize);
+        int height = calculateSamplingSize(boundsOptions.outHeight, inSampleSize);
+        return bitmapPool.getDirty(width, height, config);
+    }
+
+    @Nullable
+    public static Bitmap readBitmap(@NonNull final File file, int targetWidth, int targetHeight, @NonNull ImageView.ScaleType scaleType,
+                                    @Nullable Bitmap.Config config, boolean exactly) {
+        return decodeToSize(new Decoder() {
+            @Nullable
+            @Override
+            Bitmap decode(@NonNull BitmapFactory.Options options) {
+                return BitmapFactory.decodeFile(file.getPath(), options);
+            }
+        }, targetWidth, targetHeight, scaleType, config, exactly);
+    }
+
+    @Nullable
+    public static Bitmap readBitmap(@NonNull File file, int targetWidth, int targetHeight, @NonNull ImageView.ScaleType scaleType) {
+        return readBitmap(file, targetWidth, targetHeight, scaleType, null, false);
+    }
+
+    /**
+     * Only the bytes read while decoding the bounds are buffered, [inputStream] is wrapped with {@link BufferedInputStream}
+     *
+     * @throws IllegalStateException More than 1 MB was read while decoding the bounds and [inputStream] can not be read again
+     */
+    @Nullable
+    public static Bitmap readBitmap(@NonNull InputStream inputStream, int targetWidth, int targetHeight, @NonNull ImageView.ScaleType scaleType,
+                                    @Nullable Bitmap.Config config, boolean exactly) {
+        return decodeToSize(new StreamDecoder(inputStream, null), targetWidth, targetHeight, scaleType, config, exactly);
+    }
+
+    /**
+     * Only the bytes read while decoding the bounds are buffered, [inputStream] is wrapped with {@link BufferedInputStream}
+     *
+     * @throws IllegalStateException More than 1 MB was read while decoding the bounds and [inputStream] can not be read again
+     */
+    @Nullable
+    public static Bitmap readBitmap(@NonNull InputStream inputStream, int targetWidth, int targetHeight, @NonNull ImageView.ScaleType scaleType) {
+        return readBitmap(inputStream, targetWidth, targetHeight, scaleType, null, false);
+    }
+
+    @Nullable
+    public static Bitmap readBitmap(@NonNull final byte[] data, int targetWidth, int targetHeight, @NonNull ImageView.ScaleType scaleType,
+                                    @Nullable Bitmap.Config config, boolean exactly) {
+        return decodeToSize(new Decoder() {
+            @Nullable
+            @Override
+            Bitmap decode(@NonNull BitmapFactory.Options options) {
+                return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+            }
+        }, targetWidth, targetHeight, scaleType, config, exactly);
+    }
+
+    @Nullable
+    public static Bitmap readBitmap(@NonNull byte[] data, int targetWidth, int targetHeight, @NonNull ImageView.ScaleType scaleType) {
+        return readBitmap(data, targetWidth, targetHeight, scaleType, null, false);
+    }
+
+    @Nullable
+    public static Bitmap readBitmap(@NonNull final FileDescriptor fileDescriptor, int targetWidth, int targetHeight, @NonNull ImageView.ScaleType scaleType,
+                                    @Nullable Bitmap.Config config, boolean exactly) {
+        return decodeToSize(new Decoder() {
+            @Nullable
+            @Override
+            Bitmap decode(@NonNull BitmapFactory.Options options) {
+                return BitmapFactory.decodeFileDescriptor(fileDescriptor, null, options);
+            }
+        }, targetWidth, targetHeight, scaleType, config, exactly);
+    }
+
+    @Nullable
+    public static Bitmap readBitmap(@NonNull FileDescriptor fileDescriptor, int targetWidth, int targetHeight, @NonNull ImageView.ScaleType scaleType) {
+        return readBitmap(fileDescriptor, targetWidth, targetHeight, scaleType, null, false);
+    }
+
+    @Nullable
+    public static Bitmap readBitmap(@NonNull final Resources resources, @DrawableRes final int resId, int targetWidth, int targetHeight,
+                                    @NonNull ImageView.ScaleType scaleType, @Nullable Bitmap.Config config, boolean exactly) {
+        return decodeToSize(new Decoder() {
+            @Nullable
+            @Override
+            Bitmap decode(@NonNull BitmapFactory.Options options) {
+                return BitmapFactory.decodeResource(resources, resId, options);
+            }
+        }, targetWidth, targetHeight, scaleType, config, exactly);
+    }
+
+    @Nullable
+    public static Bitmap readBitmap(@NonNull Resources resources, @DrawableRes int resId, int targetWidth, int targetHeight, @NonNull ImageView.ScaleType scaleType) {
+        return readBitmap(resources, resId, targetWidth, targetHeight, scaleType, null, false);
+    }
+
+    /**
+     * Decode the bounds first, then decode with the largest power of two inSampleSize that keeps the region
+     * selected by {@link Resizex#calculator(int, int, int, int, ImageView.ScaleType, boolean)} not smaller than its new size.
+     *
+     * @param config  Preferred config, null means ARGB_8888
+     * @param exactly If true, the sampled bitmap is cropped and scaled to exactly [targetWidth] x [targetHeight] according to [scaleType],
+     *                otherwise the whole sampled image is returned, which may be up to twice the size
+     */
+    @Nullable
+    private static Bitmap decodeToSize(@NonNull Decoder decoder, int targetWidth, int targetHeight, @NonNull ImageView.ScaleType scaleType,
+                                       @Nullable Bitmap.Config config, boolean exactly) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            throw new IllegalArgumentException("Invalid target size: " + targetWidth + "x" + targetHeight);
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decoder.decode(options);
+        final int imageWidth = options.outWidth;
+        final int imageHeight = options.outHeight;
+        if (imageWidth <= 0 || imageHeight <= 0) {
+            return null;
+        }
+
+        Resizex.Result result = Resizex.calculator(imageWidth, imageHeight, targetWidth, targetHeight, scaleType, exactly);
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(result.srcRect.width(), result.srcRect.height(), result.imageWidth, result.imageHeight);
+        if (config != null) {
+            options.inPreferredConfig = config;
+        }
+        Bitmap sampledBitmap = decoder.decode(options);
+        if (sampledBitmap == null || !exactly) {
+            return sampledBitmap;
+        }
+
+        float scaleX = (float) sampledBitmap.getWidth() / imageWidth;
+        float scaleY = (float) sampledBitmap.getHeight() / imageHeight;
+        Rect srcRect = new Rect(Math.round(result.srcRect.left * scaleX), Math.round(result.srcRect.top * scaleY),
+                Math.round(result.srcRect.right * scaleX), Math.round(result.srcRect.bottom * scaleY));
+        if (srcRect.left == 0 && srcRect.top == 0 && srcRect.width() == sampledBitmap.getWidth() && srcRect.height() == sampledBitmap.getHeight()
+                && result.destRect.width() == sampledBitmap.getWidth() && result.destRect.height() == sampledBitmap.getHeight()) {
+            return sampledBitmap;
+        }
+
+        Bitmap.Config newConfig = sampledBitmap.getConfig() != null ? sampledBitmap.getConfig() : Bitmap.Config.ARGB_8888;
+        Bitmap newBitmap = Bitmap.createBitmap(result.destRect.width(), result.destRect.height(), newConfig);
+        Canvas canvas = new Canvas(newBitmap);
+        canvas.drawBitmap(sampledBitmap, srcRect, result.destRect, new Paint(Paint.FILTER_BITMAP_FLAG));
+        sampledBitmap.recycle();
+        return newBitmap;
+    }
+
+    private static abstract class Decoder {
+        @Nullable
+        abstract Bitmap decode(@NonNull BitmapFactory.Options options);
+
+        /**
+         * Returns false if the image may not be decoded again after a failed decoding
+         */
+        boolean isRepeatable() {
+            return true;
+        }
+    }
+
+    /**
+     * The stream is marked before the first decoding and reset before each subsequent decoding,
+     * so only the bytes read by the previous decoding are buffered
+     */
+    private static class StreamDecoder extends Decoder {
+        @NonNull
+        private final InputStream inputStream;
+        @Nullable
+        private final Rect outPadding;
+        private final boolean repeatable;
+        private boolean first = true;
+
+        StreamDecoder(@NonNull InputStream inputStream, @Nullable Rect outPadding) {
+            // ByteArrayInputStream ignores the mark limit, the others can not be reset after reading past MARK_LIMIT
+            this.repeatable = inputStream instanceof ByteArrayInputStream;
+            this.inputStream = repeatable ? inputStream : new MarkKeepingInputStream(inputStream);
+            this.outPadding = outPadding;
+        }
+
+        @Override
+        boolean isRepeatable() {
+            return repeatable;
+        }
+
+        @Nullable
+        @Override
+        Bitmap decode(@NonNull BitmapFactory.Options options) {
+            if (first) {
+                first = false;
+            } else {
+                try {
+                    inputStream.reset();
+                } catch (IOException e) {
+                    throw new IllegalStateException("The stream can not be read again after reading more than " + MARK_LIMIT + " bytes", e);
+                }
+            }
+            inputStream.mark(MARK_LIMIT);
+            return BitmapFactory.decodeStream(inputStream, outPadding, options);
+        }
+    }
+
+    /**
+     * BitmapFactory of Android 4.1 to 4.3 calls mark(1024) on the stream at the start of decoding,
+     * which replaces our mark and makes the reset fail once the decoding of the bounds reads past the buffer, so the mark limit can only grow
+     */
+    private static class MarkKeepingInputStream extends BufferedInputStream {
+        MarkKeepingInputStream(@NonNull InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            super.mark(Math.max(readLimit, marklimit));
+        }
+    }
+
 
     /* ************************************** create ******************************************  */
 
@@ -134,6 +478,15 @@ public class Bitmapx {
         return createByColor(width, height, color, Bitmap.Config.ARGB_8888);
     }
 
+    public static Bitmap createByColor(int width, int height, @ColorInt int color, @NonNull Bitmap.Config config, @NonNull BitmapPool bitmapPool) {
+        Bitmap bitmap = bitmapPool.getDirty(width, height, config);
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(width, height, config);
+        }
+        bitmap.eraseColor(color);
+        return bitmap;
+    }
+
 
     /* ************************************** save ******************************************  */
 
@@ -237,6 +590,14 @@ public class Bitmapx {
         return circular(srcBitmap, Bitmap.Config.ARGB_8888);
     }
 
+    /**
+     * The new bitmap is taken from [bitmapPool]
+     */
+    @NonNull
+    public static Bitmap circular(@NonNull Bitmap srcBitmap, int newSize, @NonNull Bitmap.Config config, @NonNull BitmapPool bitmapPool) {
+        return circularTo(srcBitmap, bitmapPool.getOrCreate(newSize, newSize, config));
+    }
+
 
     @NonNull
     public static Bitmap centerCropTo(@NonNull Bitmap srcBitmap, @NonNull Bitmap dstBitmap) {
@@ -260,6 +621,14 @@ public class Bitmapx {
         return centerCropTo(srcBitmap, Bitmap.createBitmap(newWidth, newHeight, Bitmap.Config.ARGB_8888));
     }
 
+    /**
+     * The new bitmap is taken from [bitmapPool]
+     */
+    @NonNull
+    public static Bitmap centerCrop(@NonNull Bitmap srcBitmap, int newWidth, int newHeight, @NonNull Bitmap.Config config, @NonNull BitmapPool bitmapPool) {
+        return centerCropTo(srcBitmap, bitmapPool.getOrCreate(newWidth, newHeight, config));
+    }
+
 
     @NonNull
     public static Bitmap tint(@NonNull Bitmap srcBitmap, @ColorInt int color) {
@@ -273,6 +642,73 @@ public class Bitmapx {
         return newBitmap;
     }
 
+    /**
+     * The new bitmap is taken from [bitmapPool]
+     */
+    @NonNull
+    public static Bitmap tint(@NonNull Bitmap srcBitmap, @ColorInt int color, @NonNull BitmapPool bitmapPool) {
+        Paint mPaint = new Paint();
+        mPaint.setColorFilter(Colorx.createMatrixColorFilter(color));
+
+        Bitmap.Config config = srcBitmap.getConfig() != null ? srcBitmap.getConfig() : Bitmap.Config.ARGB_8888;
+        Bitmap newBitmap = bitmapPool.getOrCreate(srcBitmap.getWidth(), srcBitmap.getHeight(), config);
+        Canvas canvas = new Canvas(newBitmap);
+        canvas.drawBitmap(srcBitmap, new Matrix(), mPaint);
+
+        return newBitmap;
+    }
+
+
+    /**
+     * Draw [srcBitmap] through all steps of [transform] into a new bitmap at once, see {@link BitmapTransform}
+     */
+    @NonNull
+    public static Bitmap transform(@NonNull Bitmap srcBitmap, @NonNull BitmapTransform transform) {
+        return transform.apply(srcBitmap);
+    }
+
+    /**
+     * Draw [srcBitmap] through all steps of [transform] into a new bitmap at once, the new bitmap is taken from [bitmapPool]
+     */
+    @NonNull
+    public static Bitmap transform(@NonNull Bitmap srcBitmap, @NonNull BitmapTransform transform, @NonNull BitmapPool bitmapPool) {
+        return transform.apply(srcBitmap, bitmapPool);
+    }
+
+
+    /**
+     * Approximate gaussian blur whose cost does not depend on [radius], see {@link BoxBlur}
+     *
+     * @param radius     Blur radius in pixels
+     * @param downsample Blur a copy shrunk by this factor and enlarge it back, 1 means not to shrink
+     * @return A new bitmap the same size as [srcBitmap]
+     */
+    @NonNull
+    public static Bitmap blur(@NonNull Bitmap srcBitmap, int radius, int downsample) {
+        return new BoxBlur().blur(srcBitmap, radius, downsample);
+    }
+
+    /**
+     * Approximate gaussian blur whose cost does not depend on [radius], see {@link BoxBlur}
+     *
+     * @param radius Blur radius in pixels
+     * @return A new bitmap the same size as [srcBitmap]
+     */
+    @NonNull
+    public static Bitmap blur(@NonNull Bitmap srcBitmap, int radius) {
+        return new BoxBlur().blur(srcBitmap, radius, 1);
+    }
+
+
+    /**
+     * Return the bitmap to [bitmapPool] for reuse, it is recycled if the pool does not accept it
+     */
+    public static void recycleToPool(@NonNull Bitmap bitmap, @NonNull BitmapPool bitmapPool) {
+        if (!bitmapPool.put(bitmap) && !bitmap.isRecycled()) {
+            bitmap.recycle();
+        }
+    }
+
 
     /* ************************************** other ******************************************  */
 
@@ -284,4 +720,19 @@ public class Bitmapx {
     public static int calculateSamplingSizeForRegion(int size, int inSampleSize) {
         return (int) Math.floor(size / (float) inSampleSize);
     }
+
+    /**
+     * Calculate the largest power of two inSampleSize that keeps the sampled size not smaller than the target size
+     */
+    public static int calculateInSampleSize(int imageWidth, int imageHeight, int targetWidth, int targetHeight) {
+        int inSampleSize = 1;
+        if (imageWidth <= 0 || imageHeight <= 0 || targetWidth <= 0 || targetHeight <= 0) {
+            return inSampleSize;
+        }
+        while (calculateSamplingSize(imageWidth, inSampleSize * 2) >= targetWidth
+                && calculateSamplingSize(imageHeight, inSampleSize * 2) >= targetHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
 }
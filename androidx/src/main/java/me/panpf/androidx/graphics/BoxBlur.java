@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+
+/**
+ * Approximate gaussian blur made of three separable box blurs. Each box blur slides a window over the rows and then the columns,
+ * so the cost per pixel does not depend on the radius.
+ * <p>
+ * The pixel buffers are reused between calls, so one instance can blur a frame every few frames without allocations.
+ * The instance is not thread-safe
+ */
+@SuppressWarnings("WeakerAccess")
+public class BoxBlur {
+
+    private static final int PASS_COUNT = 3;
+
+    @NonNull
+    private int[] pixels = new int[0];
+    @NonNull
+    private int[] scratch = new int[0];
+    @NonNull
+    private final int[] boxRadii = new int[PASS_COUNT];
+
+    /**
+     * Blur [pixels] in place
+     *
+     * @param pixels ARGB pixels, row by row without padding
+     * @param radius Blur radius in pixels, the sigma of the approximated gaussian is half of it
+     */
+    public void blur(@NonNull int[] pixels, int width, int height, int radius) {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Invalid size: " + width + "x" + height);
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("pixels length must be greater than or equal to width * height: " + pixels.length);
+        }
+        if (radius < 0) throw new IllegalArgumentException("radius must be greater than or equal to 0: " + radius);
+        if (radius == 0) return;
+
+        if (scratch.length < width * height) {
+            scratch = new int[width * height];
+        }
+        computeBoxRadii(radius, boxRadii);
+        for (int boxRadius : boxRadii) {
+            if (boxRadius > 0) {
+                blurHorizontal(pixels, scratch, width, height, boxRadius);
+                blurVertical(scratch, pixels, width, height, boxRadius);
+            }
+        }
+    }
+
+    /**
+     * Blur [bitmap] in place, it must be mutable
+     *
+     * @param radius Blur radius in pixels
+     */
+    public void blurInPlace(@NonNull Bitmap bitmap, int radius) {
+        if (!bitmap.isMutable()) throw new IllegalArgumentException("bitmap is immutable");
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        if (pixels.length < width * height) {
+            pixels = new int[width * height];
+        }
+        bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+        blur(pixels, width, height, radius);
+        bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+    }
+
+    /**
+     * Shrink [srcBitmap] by [downsample] times, blur it with the radius shrunk by the same times and then enlarge it back to the original size.
+     * The result is softer than blurring the original size, but the cost is reduced by the square of [downsample]
+     *
+     * @param radius     Blur radius in pixels of [srcBitmap]
+     * @param downsample Shrink factor, 1 means not to shrink
+     * @return A new bitmap the same size as [srcBitmap]
+     */
+    @NonNull
+    public Bitmap blur(@NonNull Bitmap srcBitmap, int radius, int downsample) {
+        if (downsample < 1) throw new IllegalArgumentException("downsample must be greater than 0: " + downsample);
+        int width = srcBitmap.getWidth();
+        int height = srcBitmap.getHeight();
+
+        if (downsample == 1) {
+            Bitmap newBitmap = srcBitmap.copy(Bitmap.Config.ARGB_8888, true);
+            blurInPlace(newBitmap, radius);
+            return newBitmap;
+        }
+
+        Bitmap smallBitmap = Bitmap.createScaledBitmap(srcBitmap, Math.max(width / downsample, 1), Math.max(height / downsample, 1), true);
+        if (smallBitmap == srcBitmap || !smallBitmap.isMutable() || smallBitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            Bitmap mutableBitmap = smallBitmap.copy(Bitmap.Config.ARGB_8888, true);
+            if (smallBitmap != srcBitmap) {
+                smallBitmap.recycle();
+            }
+            smallBitmap = mutableBitmap;
+        }
+        blurInPlace(smallBitmap, Math.max(Math.round((float) radius / downsample), radius > 0 ? 1 : 0));
+        Bitmap newBitmap = Bitmap.createScaledBitmap(smallBitmap, width, height, true);
+        if (newBitmap != smallBitmap) {
+            smallBitmap.recycle();
+        }
+        return newBitmap;
+    }
+
+    /**
+     * Release the reused pixel buffers
+     */
+    public void trimMemory() {
+        pixels = new int[0];
+        scratch = new int[0];
+    }
+
+    /**
+     * Split a gaussian of sigma radius / 2 into box blurs whose variances add up to it
+     */
+    static void computeBoxRadii(int radius, @NonNull int[] outRadii) {
+        int n = outRadii.length;
+        double sigma = radius / 2.0;
+        double idealWidth = Math.sqrt(12 * sigma * sigma / n + 1);
+        int lowerWidth = (int) Math.floor(idealWidth);
+        if (lowerWidth % 2 == 0) lowerWidth--;
+        int upperWidth = lowerWidth + 2;
+        double idealCount = (12 * sigma * sigma - n * lowerWidth * lowerWidth - 4 * n * lowerWidth - 3 * n) / (-4.0 * lowerWidth - 4);
+        int lowerCount = (int) Math.round(idealCount);
+        for (int i = 0; i < n; i++) {
+            outRadii[i] = ((i < lowerCount ? lowerWidth : upperWidth) - 1) / 2;
+        }
+        // Very small radii round down to zero-width boxes, keep at least one pass
+        if (outRadii[n - 1] == 0) {
+            outRadii[n - 1] = 1;
+        }
+    }
+
+    private static void blurHorizontal(@NonNull int[] src, @NonNull int[] dst, int width, int height, int radius) {
+        int div = radius * 2 + 1;
+        int lastX = width - 1;
+        for (int y = 0; y < height; y++) {
+            int rowOffset = y * width;
+            int sumA = 0, sumR = 0, sumG = 0, sumB = 0;
+            for (int i = -radius; i <= radius; i++) {
+                int color = src[rowOffset + (i < 0 ? 0 : (i > lastX ? lastX : i))];
+                sumA += color >>> 24;
+                sumR += (color >> 16) & 0xFF;
+                sumG += (color >> 8) & 0xFF;
+                sumB += color & 0xFF;
+            }
+            for (int x = 0; x < width; x++) {
+                dst[rowOffset + x] = ((sumA / div) << 24) | ((sumR / div) << 16) | ((sumG / div) << 8) | (sumB / div);
+
+                int addX = x + radius + 1;
+                int removeX = x - radius;
+                int addColor = src[rowOffset + (addX > lastX ? lastX : addX)];
+                int removeColor = src[rowOffset + (removeX < 0 ? 0 : removeX)];
+                sumA += (addColor >>> 24) - (removeColor >>> 24);
+                sumR += ((addColor >> 16) & 0xFF) - ((removeColor >> 16) & 0xFF);
+                sumG += ((addColor >> 8) & 0xFF) - ((removeColor >> 8) & 0xFF);
+                sumB += (addColor & 0xFF) - (removeColor & 0xFF);
+            }
+        }
+    }
+
+    private static void blurVertical(@NonNull int[] src, @NonNull int[] dst, int width, int height, int radius) {
+        int div = radius * 2 + 1;
+        int lastY = height - 1;
+        for (int x = 0; x < width; x++) {
+            int sumA = 0, sumR = 0, sumG = 0, sumB = 0;
+            for (int i = -radius; i <= radius; i++) {
+                int color = src[(i < 0 ? 0 : (i > lastY ? lastY : i)) * width + x];
+                sumA += color >>> 24;
+                sumR += (color >> 16) & 0xFF;
+                sumG += (color >> 8) & 0xFF;
+                sumB += color & 0xFF;
+            }
+            for (int y = 0; y < height; y++) {
+                dst[y * width + x] = ((sumA / div) << 24) | ((sumR / div) << 16) | ((sumG / div) << 8) | (sumB / div);
+
+                int addY = y + radius + 1;
+                int removeY = y - radius;
+                int addColor = src[(addY > lastY ? lastY : addY) * width + x];
+                int removeColor = src[(removeY < 0 ? 0 : removeY) * width + x];
+                sumA += (addColor >>> 24) - (removeColor >>> 24);
+                sumR += ((addColor >> 16) & 0xFF) - ((removeColor >> 16) & 0xFF);
+                sumG += ((addColor >> 8) & 0xFF) - ((removeColor >> 8) & 0xFF);
+                sumB += (addColor & 0xFF) - (removeColor & 0xFF);
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.animation.TypeEvaluator;
+import android.animation.ValueAnimator;
+import android.support.annotation.ColorInt;
+import android.support.annotation.FloatRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Color gradient of one or more color stops sampled into a lookup table once, getting the color of a fraction is a plain array index.
+ * <p>
+ * It is immutable, one instance can be shared by all views. It is also a {@link TypeEvaluator}, the start and end values are ignored:
+ * <pre>
+ * ValueAnimator animator = ValueAnimator.ofInt(0, 1);
+ * animator.setEvaluator(gradient);
+ * </pre>
+ */
+@SuppressWarnings("WeakerAccess")
+public class ColorGradient implements TypeEvaluator<Integer> {
+
+    public static final int DEFAULT_RESOLUTION = 256;
+
+    @NonNull
+    private final int[] colors;
+    @NonNull
+    private final float[] positions;
+    @NonNull
+    private final int[] lut;
+    private final boolean linearSpace;
+    private final int maxIndex;
+
+    /**
+     * @param colors      Color stops, at least one
+     * @param positions   The position (0...1) of each color stop in ascending order, null means evenly spaced
+     * @param resolution  Number of samples in the lookup table, at least 2
+     * @param linearSpace Interpolate red, green and blue in linear space instead of sRGB, which keeps the brightness of the middle colors like {@link android.animation.ArgbEvaluator} on Android 8.0+
+     */
+    public ColorGradient(@NonNull int[] colors, @Nullable float[] positions, int resolution, boolean linearSpace) {
+        if (colors.length == 0) throw new IllegalArgumentException("colors is empty");
+        if (positions != null && positions.length != colors.length) {
+            throw new IllegalArgumentException("positions length must be equal to colors length: " + positions.length + ", " + colors.length);
+        }
+        if (resolution < 2) throw new IllegalArgumentException("resolution must be greater than 1: " + resolution);
+
+        this.colors = colors.clone();
+        this.positions = positions != null ? positions.clone() : evenPositions(colors.length);
+        for (int i = 1; i < this.positions.length; i++) {
+            if (this.positions[i] < this.positions[i - 1]) {
+                throw new IllegalArgumentException("positions must be in ascending order: " + Arrays.toString(positions));
+            }
+        }
+        this.linearSpace = linearSpace;
+        this.maxIndex = resolution - 1;
+        this.lut = new int[resolution];
+        sample();
+    }
+
+    /**
+     * Evenly spaced color stops interpolated in sRGB space, the same as {@link Colorx#argbEvaluate(int, int, float)} before Android 8.0
+     *
+     * @param colors Color stops, at least one
+     */
+    public ColorGradient(@NonNull int... colors) {
+        this(colors, null, DEFAULT_RESOLUTION, false);
+    }
+
+    @NonNull
+    private static float[] evenPositions(int count) {
+        float[] positions = new float[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = count > 1 ? (float) i / (count - 1) : 0f;
+        }
+        return positions;
+    }
+
+    private void sample() {
+        int stop = 0;
+        for (int i = 0; i <= maxIndex; i++) {
+            float fraction = (float) i / maxIndex;
+            while (stop < positions.length - 1 && fraction > positions[stop + 1]) {
+                stop++;
+            }
+            if (fraction <= positions[0]) {
+                lut[i] = colors[0];
+            } else if (stop >= positions.length - 1) {
+                lut[i] = colors[colors.length - 1];
+            } else {
+                float length = positions[stop + 1] - positions[stop];
+                float segmentFraction = length > 0 ? (fraction - positions[stop]) / length : 1f;
+                lut[i] = interpolate(colors[stop], colors[stop + 1], segmentFraction, linearSpace);
+            }
+        }
+    }
+
+    @ColorInt
+    private static int interpolate(@ColorInt int startColor, @ColorInt int endColor, float fraction, boolean linearSpace) {
+        float startA = (startColor >>> 24) / 255f;
+        float endA = (endColor >>> 24) / 255f;
+        float a = startA + fraction * (endA - startA);
+        float r;
+        float g;
+        float b;
+        if (linearSpace) {
+            r = toSrgb(lerp(toLinear(((startColor >> 16) & 0xFF) / 255f), toLinear(((endColor >> 16) & 0xFF) / 255f), fraction));
+            g = toSrgb(lerp(toLinear(((startColor >> 8) & 0xFF) / 255f), toLinear(((endColor >> 8) & 0xFF) / 255f), fraction));
+            b = toSrgb(lerp(toLinear((startColor & 0xFF) / 255f), toLinear((endColor & 0xFF) / 255f), fraction));
+        } else {
+            r = lerp(((startColor >> 16) & 0xFF) / 255f, ((endColor >> 16) & 0xFF) / 255f, fraction);
+            g = lerp(((startColor >> 8) & 0xFF) / 255f, ((endColor >> 8) & 0xFF) / 255f, fraction);
+            b = lerp((startColor & 0xFF) / 255f, (endColor & 0xFF) / 255f, fraction);
+        }
+        return (Math.round(a * 255f) << 24) | (Math.round(r * 255f) << 16) | (Math.round(g * 255f) << 8) | Math.round(b * 255f);
+    }
+
+    private static float lerp(float start, float end, float fraction) {
+        return start + fraction * (end - start);
+    }
+
+    private static float toLinear(float srgb) {
+        return srgb <= 0.04045f ? srgb / 12.92f : (float) Math.pow((srgb + 0.055f) / 1.055f, 2.4);
+    }
+
+    private static float toSrgb(float linear) {
+        return linear <= 0.0031308f ? linear * 12.92f : (float) (1.055 * Math.pow(linear, 1 / 2.4) - 0.055);
+    }
+
+    /**
+     * Get the color at [fraction], values out of 0...1 are clamped
+     */
+    @ColorInt
+    public int getColor(@FloatRange(from = 0, to = 1) float fraction) {
+        if (fraction <= 0f) return lut[0];
+        if (fraction >= 1f) return lut[maxIndex];
+        return lut[(int) (fraction * maxIndex + 0.5f)];
+    }
+
+    /**
+     * Get the color of the current animated fraction of [animator]
+     */
+    @ColorInt
+    public int getColor(@NonNull ValueAnimator animator) {
+        return getColor(animator.getAnimatedFraction());
+    }
+
+    /**
+     * The [startValue] and [endValue] are ignored, the color is taken from the color stops
+     */
+    @NonNull
+    @Override
+    public Integer evaluate(float fraction, @Nullable Integer startValue, @Nullable Integer endValue) {
+        return getColor(fraction);
+    }
+
+    public int getResolution() {
+        return lut.length;
+    }
+
+    public boolean isLinearSpace() {
+        return linearSpace;
+    }
+
+    /**
+     * Get a copy of the color stops
+     */
+    @NonNull
+    public int[] getColors() {
+        return colors.clone();
+    }
+
+    /**
+     * Get a copy of the lookup table
+     */
+    @NonNull
+    public int[] getLut() {
+        return lut.clone();
+    }
+}
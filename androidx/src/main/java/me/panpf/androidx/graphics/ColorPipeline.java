@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
+import android.support.annotation.ColorInt;
+import android.support.annotation.FloatRange;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import java.util.Locale;
+
+/**
+ * A chain of color adjustments (saturation, luminance, hue, tint, alpha, invert) fused into one {@link ColorMatrix},
+ * so any number of adjustments costs one draw with a {@link ColorMatrixColorFilter} or one pass over the pixels.
+ * <p>
+ * Pipelines are immutable and built pipelines with the same steps are cached and shared, for example:
+ * <pre>
+ * ColorPipeline pipeline = new ColorPipeline.Builder().saturation(0f).luminance(1.2f).alpha(0.5f).build();
+ * imageView.setColorFilter(pipeline.getColorFilter());
+ * </pre>
+ */
+@SuppressWarnings("WeakerAccess")
+public class ColorPipeline {
+
+    private static final int CACHE_SIZE = 32;
+    /**
+     * The matrix is converted to fixed point numbers with 12 fractional bits for the pixel pass
+     */
+    private static final int FIXED_SHIFT = 12;
+    private static final float FIXED_ONE = 1 << FIXED_SHIFT;
+
+    @NonNull
+    private static final LruCache<String, ColorPipeline> CACHE = new LruCache<>(CACHE_SIZE);
+
+    @NonNull
+    private final String key;
+    @NonNull
+    private final float[] matrix;
+    @NonNull
+    private final int[] fixedMatrix;
+    @Nullable
+    private volatile ColorMatrixColorFilter colorFilter;
+
+    private ColorPipeline(@NonNull String key, @NonNull float[] matrix) {
+        this.key = key;
+        this.matrix = matrix;
+        this.fixedMatrix = new int[20];
+        for (int i = 0; i < 20; i++) {
+            // The offsets are in 0...255 like the channels, so all elements use the same scale
+            fixedMatrix[i] = Math.round(matrix[i] * FIXED_ONE);
+        }
+    }
+
+    /**
+     * Get the steps of the pipeline, pipelines with the same key are the same
+     */
+    @NonNull
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Get a copy of the fused matrix
+     */
+    @NonNull
+    public ColorMatrix getColorMatrix() {
+        return new ColorMatrix(matrix);
+    }
+
+    /**
+     * Get the color filter of the fused matrix, it is created only once and can be shared by multiple views and paints
+     */
+    @NonNull
+    public ColorMatrixColorFilter getColorFilter() {
+        ColorMatrixColorFilter filter = colorFilter;
+        if (filter == null) {
+            filter = new ColorMatrixColorFilter(matrix);
+            colorFilter = filter;
+        }
+        return filter;
+    }
+
+    /**
+     * Apply the pipeline to a single color
+     */
+    @ColorInt
+    public int apply(@ColorInt int color) {
+        int[] m = fixedMatrix;
+        int a = color >>> 24;
+        int r = (color >> 16) & 0xFF;
+        int g = (color >> 8) & 0xFF;
+        int b = color & 0xFF;
+        int newR = clamp((m[0] * r + m[1] * g + m[2] * b + m[3] * a + m[4]) >> FIXED_SHIFT);
+        int newG = clamp((m[5] * r + m[6] * g + m[7] * b + m[8] * a + m[9]) >> FIXED_SHIFT);
+        int newB = clamp((m[10] * r + m[11] * g + m[12] * b + m[13] * a + m[14]) >> FIXED_SHIFT);
+        int newA = clamp((m[15] * r + m[16] * g + m[17] * b + m[18] * a + m[19]) >> FIXED_SHIFT);
+        return (newA << 24) | (newR << 16) | (newG << 8) | newB;
+    }
+
+    /**
+     * Apply the pipeline to [length] unpremultiplied ARGB pixels starting at [offset] in place, in one pass
+     */
+    public void apply(@NonNull int[] pixels, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > pixels.length) {
+            throw new IllegalArgumentException("Invalid range: offset=" + offset + ", length=" + length + ", pixels.length=" + pixels.length);
+        }
+        int[] m = fixedMatrix;
+        int m0 = m[0], m1 = m[1], m2 = m[2], m3 = m[3], m4 = m[4];
+        int m5 = m[5], m6 = m[6], m7 = m[7], m8 = m[8], m9 = m[9];
+        int m10 = m[10], m11 = m[11], m12 = m[12], m13 = m[13], m14 = m[14];
+        int m15 = m[15], m16 = m[16], m17 = m[17], m18 = m[18], m19 = m[19];
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int color = pixels[i];
+            int a = color >>> 24;
+            int r = (color >> 16) & 0xFF;
+            int g = (color >> 8) & 0xFF;
+            int b = color & 0xFF;
+            int newR = clamp((m0 * r + m1 * g + m2 * b + m3 * a + m4) >> FIXED_SHIFT);
+            int newG = clamp((m5 * r + m6 * g + m7 * b + m8 * a + m9) >> FIXED_SHIFT);
+            int newB = clamp((m10 * r + m11 * g + m12 * b + m13 * a + m14) >> FIXED_SHIFT);
+            int newA = clamp((m15 * r + m16 * g + m17 * b + m18 * a + m19) >> FIXED_SHIFT);
+            pixels[i] = (newA << 24) | (newR << 16) | (newG << 8) | newB;
+        }
+    }
+
+    /**
+     * Apply the pipeline to all pixels in place, in one pass
+     */
+    public void apply(@NonNull int[] pixels) {
+        apply(pixels, 0, pixels.length);
+    }
+
+    /**
+     * Draw [srcBitmap] once with the fused color filter into [dstBitmap]
+     *
+     * @return [dstBitmap]
+     */
+    @NonNull
+    public Bitmap applyTo(@NonNull Bitmap srcBitmap, @NonNull Bitmap dstBitmap) {
+        Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        paint.setColorFilter(getColorFilter());
+        new Canvas(dstBitmap).drawBitmap(srcBitmap, 0, 0, paint);
+        return dstBitmap;
+    }
+
+    /**
+     * Draw [srcBitmap] once with the fused color filter into a new ARGB_8888 bitmap
+     */
+    @NonNull
+    public Bitmap apply(@NonNull Bitmap srcBitmap) {
+        return applyTo(srcBitmap, Bitmap.createBitmap(srcBitmap.getWidth(), srcBitmap.getHeight(), Bitmap.Config.ARGB_8888));
+    }
+
+    /**
+     * Draw [srcBitmap] once with the fused color filter into a new ARGB_8888 bitmap, the new bitmap is taken from [bitmapPool]
+     */
+    @NonNull
+    public Bitmap apply(@NonNull Bitmap srcBitmap, @NonNull BitmapPool bitmapPool) {
+        return applyTo(srcBitmap, bitmapPool.getOrCreate(srcBitmap.getWidth(), srcBitmap.getHeight(), Bitmap.Config.ARGB_8888));
+    }
+
+    /**
+     * Clear the cache of built pipelines
+     */
+    public static void clearCache() {
+        CACHE.evictAll();
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ColorPipeline(" + key + ")";
+    }
+
+    /**
+     * Steps are applied in the order they are added
+     */
+    public static class Builder {
+        @NonNull
+        private final ColorMatrix matrix = new ColorMatrix();
+        @NonNull
+        private final ColorMatrix step = new ColorMatrix();
+        @NonNull
+        private final StringBuilder key = new StringBuilder();
+
+        /**
+         * @param saturation 0 is gray, 1 is unchanged, greater than 1 is more saturated
+         */
+        @NonNull
+        public Builder saturation(@FloatRange(from = 0) float saturation) {
+            step.setSaturation(saturation);
+            return add("saturation", saturation);
+        }
+
+        /**
+         * Scale the red, green and blue
+         *
+         * @param scale 0 is black, 1 is unchanged, greater than 1 is brighter
+         */
+        @NonNull
+        public Builder luminance(@FloatRange(from = 0) float scale) {
+            step.setScale(scale, scale, scale, 1f);
+            return add("luminance", scale);
+        }
+
+        /**
+         * Rotate the hue around the gray axis, the luminance is kept
+         *
+         * @param degrees Rotation angle (-180...180)
+         */
+        @NonNull
+        public Builder hue(@FloatRange(from = -180, to = 180) float degrees) {
+            double radians = Math.toRadians(degrees);
+            float cos = (float) Math.cos(radians);
+            float sin = (float) Math.sin(radians);
+            float lumR = 0.213f;
+            float lumG = 0.715f;
+            float lumB = 0.072f;
+            step.set(new float[]{
+                    lumR + cos * (1 - lumR) + sin * -lumR, lumG + cos * -lumG + sin * -lumG, lumB + cos * -lumB + sin * (1 - lumB), 0, 0,
+                    lumR + cos * -lumR + sin * 0.143f, lumG + cos * (1 - lumG) + sin * 0.140f, lumB + cos * -lumB + sin * -0.283f, 0, 0,
+                    lumR + cos * -lumR + sin * -(1 - lumR), lumG + cos * -lumG + sin * lumG, lumB + cos * (1 - lumB) + sin * lumB, 0, 0,
+                    0, 0, 0, 1, 0});
+            return add("hue", degrees);
+        }
+
+        /**
+         * Replace the red, green and blue with the given color and keep the alpha, the same as {@link Colorx#createMatrixColorFilter(int)}
+         *
+         * @param noAlphaRgbColor RGB color value (alpha value is useless)
+         */
+        @NonNull
+        public Builder tint(@ColorInt int noAlphaRgbColor) {
+            step.set(new float[]{
+                    0, 0, 0, 0, Color.red(noAlphaRgbColor),
+                    0, 0, 0, 0, Color.green(noAlphaRgbColor),
+                    0, 0, 0, 0, Color.blue(noAlphaRgbColor),
+                    0, 0, 0, 1, 0});
+            matrix.postConcat(step);
+            appendKey("tint", String.format(Locale.US, "%06x", noAlphaRgbColor & 0xFFFFFF));
+            return this;
+        }
+
+        /**
+         * Scale the alpha
+         *
+         * @param scale 0 is transparent, 1 is unchanged
+         */
+        @NonNull
+        public Builder alpha(@FloatRange(from = 0, to = 1) float scale) {
+            step.setScale(1f, 1f, 1f, scale);
+            return add("alpha", scale);
+        }
+
+        /**
+         * Invert the red, green and blue like a photographic negative
+         */
+        @NonNull
+        public Builder invert() {
+            step.set(new float[]{
+                    -1, 0, 0, 0, 255,
+                    0, -1, 0, 0, 255,
+                    0, 0, -1, 0, 255,
+                    0, 0, 0, 1, 0});
+            matrix.postConcat(step);
+            appendKey("invert", null);
+            return this;
+        }
+
+        /**
+         * Get the pipeline, if a pipeline with the same steps has been built, it is returned
+         */
+        @NonNull
+        public ColorPipeline build() {
+            String pipelineKey = key.length() > 0 ? key.toString() : "identity";
+            ColorPipeline pipeline = CACHE.get(pipelineKey);
+            if (pipeline == null) {
+                pipeline = new ColorPipeline(pipelineKey, matrix.getArray().clone());
+                CACHE.put(pipelineKey, pipeline);
+            }
+            return pipeline;
+        }
+
+        @NonNull
+        private Builder add(@NonNull String name, float value) {
+            matrix.postConcat(step);
+            appendKey(name, String.format(Locale.US, "%.4f", value));
+            return this;
+        }
+
+        private void appendKey(@NonNull String name, @Nullable String value) {
+            if (key.length() > 0) key.append('|');
+            key.append(name);
+            if (value != null) key.append('(').append(value).append(')');
+        }
+    }
+}
@@ -23,6 +23,7 @@ import android.graphics.ColorMatrixColorFilter;
 import android.support.annotation.ColorInt;
 import android.support.annotation.FloatRange;
 import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
 
 @SuppressWarnings("WeakerAccess")
 public class Colorx {
@@ -373,6 +374,32 @@ public class Colorx {
     public static final int LOW_LIGHT = 0x33000000;
 
 
+    /**
+     * ArgbEvaluator is stateless, one instance is shared by all calls
+     */
+    private static final ArgbEvaluator ARGB_EVALUATOR = new ArgbEvaluator();
+
+    /**
+     * Reused by the single color methods on each thread instead of allocating a float[3] for every call
+     */
+    private static final ThreadLocal<float[]> HSV_SCRATCH = new ThreadLocal<float[]>() {
+        @Override
+        protected float[] initialValue() {
+            return new float[3];
+        }
+    };
+
+    /**
+     * Lookup table of the bulk methods whose result of a channel depends only on that channel, reused on each thread
+     */
+    private static final ThreadLocal<int[]> LUT_SCRATCH = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[256];
+        }
+    };
+
+
     private Colorx() {
     }
 
@@ -391,7 +418,7 @@ public class Colorx {
      */
     @ColorInt
     public static int setAlpha(@ColorInt int rgbColor, @IntRange(from = 0, to = 255) int newAlpha) {
-        float[] hsv = new float[3];
+        float[] hsv = HSV_SCRATCH.get();
         Color.colorToHSV(rgbColor, hsv);
         return Color.HSVToColor(newAlpha, hsv);
     }
@@ -403,7 +430,7 @@ public class Colorx {
      */
     @ColorInt
     public static int addAlpha(@ColorInt int rgbColor, @FloatRange(from = 0, to = 1) float addRate) {
-        float[] hsv = new float[3];
+        float[] hsv = HSV_SCRATCH.get();
         Color.colorToHSV(rgbColor, hsv);
         int newAlpha = (int) (Color.alpha(rgbColor) * addRate);
         return Color.HSVToColor(newAlpha, hsv);
@@ -414,7 +441,7 @@ public class Colorx {
      */
     @FloatRange(from = 0, to = 360)
     public static float getHSVHue(@ColorInt int rgbColor) {
-        float[] hsv = new float[3];
+        float[] hsv = HSV_SCRATCH.get();
         Color.colorToHSV(rgbColor, hsv);
         return hsv[0];
     }
@@ -426,7 +453,7 @@ public class Colorx {
      */
     @ColorInt
     public static int setHSVHue(@ColorInt int rgbColor, @FloatRange(from = 0, to = 360) float newHue) {
-        float[] hsv = new float[3];
+        float[] hsv = HSV_SCRATCH.get();
         Color.colorToHSV(rgbColor, hsv);
         hsv[0] = newHue;
         return Color.HSVToColor(hsv);
@@ -437,7 +464,7 @@ public class Colorx {
      */
     @FloatRange(from = 0, to = 1)
     public static float getHSVSaturation(@ColorInt int rgbColor) {
-        float[] hsv = new float[3];
+        float[] hsv = HSV_SCRATCH.get();
         Color.colorToHSV(rgbColor, hsv);
         return hsv[1];
     }
@@ -449,7 +476,7 @@ public class Colorx {
      */
     @ColorInt
     public static int setHSVSaturation(@ColorInt int rgbColor, @FloatRange(from = 0, to = 1) float newSaturation) {
-        float[] hsv = new float[3];
+        float[] hsv = HSV_SCRATCH.get();
         Color.colorToHSV(rgbColor, hsv);
         hsv[1] = newSaturation;
         return Color.HSVToColor(hsv);
@@ -462,7 +489,7 @@ public class Colorx {
      */
     @ColorInt
     public static int addHSVSaturation(@ColorInt int rgbColor, @FloatRange(from = 0, to = 1) float addRate) {
-        float[] hsv = new float[3];
+        float[] hsv = HSV_SCRATCH.get();
         Color.colorToHSV(rgbColor, hsv);
         hsv[1] *= addRate;
         return Color.HSVToColor(hsv);
@@ -473,7 +500,7 @@ public class Colorx {
      */
     @FloatRange(from = 0, to = 1)
     public static float getHSVValue(@ColorInt int rgbColor) {
-        float[] hsv = new float[3];
+        float[] hsv = HSV_SCRATCH.get();
         Color.colorToHSV(rgbColor, hsv);
         return hsv[2];
     }
@@ -485,7 +512,7 @@ public class Colorx {
      */
     @ColorInt
     public static int setHSVValue(@ColorInt int rgbColor, @FloatRange(from = 0, to = 1) float newValue) {
-        float[] hsv = new float[3];
+        float[] hsv = HSV_SCRATCH.get();
         Color.colorToHSV(rgbColor, hsv);
         hsv[2] = newValue;
         return Color.HSVToColor(hsv);
@@ -498,12 +525,213 @@ public class Colorx {
      */
     @ColorInt
     public static int addHSVValue(@ColorInt int rgbColor, @FloatRange(from = 0, to = 1) float addRate) {
-        float[] hsv = new float[3];
+        float[] hsv = HSV_SCRATCH.get();
         Color.colorToHSV(rgbColor, hsv);
         hsv[2] *= addRate;
         return Color.HSVToColor(hsv);
     }
 
+    /*
+     * Bulk variants, transform ARGB pixels in place without converting every pixel through float[] HSV.
+     * Buffers larger than 256x256 are split across all CPU cores
+     */
+
+    /**
+     * Modify the alpha value of all [pixels] in place
+     *
+     * @param newAlpha New alpha value (0...255)
+     */
+    public static void setAlpha(@NonNull final int[] pixels, @IntRange(from = 0, to = 255) int newAlpha) {
+        final int alphaBits = (newAlpha & 0xFF) << 24;
+        PixelWorkers.run(0, pixels.length, new PixelWorkers.RangeOp() {
+            @Override
+            public void apply(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    pixels[i] = (pixels[i] & 0x00FFFFFF) | alphaBits;
+                }
+            }
+        });
+    }
+
+    /**
+     * Multiply [addRate] based on the alpha value of all [pixels] in place
+     *
+     * @param addRate Add the ratio (0...1)
+     */
+    public static void addAlpha(@NonNull final int[] pixels, @FloatRange(from = 0, to = 1) float addRate) {
+        final int[] lut = LUT_SCRATCH.get();
+        for (int i = 0; i < 256; i++) {
+            lut[i] = Math.min((int) (i * addRate), 255);
+        }
+        PixelWorkers.run(0, pixels.length, new PixelWorkers.RangeOp() {
+            @Override
+            public void apply(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    int color = pixels[i];
+                    pixels[i] = (color & 0x00FFFFFF) | (lut[color >>> 24] << 24);
+                }
+            }
+        });
+    }
+
+    /**
+     * Modify the HSV hue value of all [pixels] in place, the saturation, value and alpha are kept
+     *
+     * @param newHue New HSV hue value (0...360)
+     */
+    public static void setHSVHue(@NonNull final int[] pixels, @FloatRange(from = 0, to = 360) float newHue) {
+        float h = (newHue % 360f + 360f) % 360f / 60f;
+        final int sector = Math.min((int) h, 5);
+        // The middle channel is min + chroma * factor, the others are max and min
+        float fraction = h - sector;
+        final float factor = (sector & 1) == 0 ? fraction : 1 - fraction;
+        PixelWorkers.run(0, pixels.length, new PixelWorkers.RangeOp() {
+            @Override
+            public void apply(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    int color = pixels[i];
+                    int r = (color >> 16) & 0xFF;
+                    int g = (color >> 8) & 0xFF;
+                    int b = color & 0xFF;
+                    int max = Math.max(r, Math.max(g, b));
+                    int min = Math.min(r, Math.min(g, b));
+                    int mid = min + (int) ((max - min) * factor + 0.5f);
+                    pixels[i] = (color & 0xFF000000) | hueToRgb(sector, max, mid, min);
+                }
+            }
+        });
+    }
+
+    /**
+     * Modify the HSV saturation value of all [pixels] in place, the hue, value and alpha are kept.
+     * Gray pixels have no hue, they are treated as red like {@link Color#colorToHSV(int, float[])}
+     *
+     * @param newSaturation New HSV saturation value (0...1)
+     */
+    public static void setHSVSaturation(@NonNull final int[] pixels, @FloatRange(from = 0, to = 1) final float newSaturation) {
+        PixelWorkers.run(0, pixels.length, new PixelWorkers.RangeOp() {
+            @Override
+            public void apply(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    int color = pixels[i];
+                    int r = (color >> 16) & 0xFF;
+                    int g = (color >> 8) & 0xFF;
+                    int b = color & 0xFF;
+                    int max = Math.max(r, Math.max(g, b));
+                    int min = Math.min(r, Math.min(g, b));
+                    if (max == 0) {
+                        continue;
+                    }
+                    if (max == min) {
+                        int newMin = (int) (max * (1 - newSaturation) + 0.5f);
+                        pixels[i] = (color & 0xFF000000) | (max << 16) | (newMin << 8) | newMin;
+                        continue;
+                    }
+                    // Each channel keeps its relative position between min and max, the distance to max is scaled
+                    float scale = newSaturation * max / (max - min);
+                    r = max - (int) ((max - r) * scale + 0.5f);
+                    g = max - (int) ((max - g) * scale + 0.5f);
+                    b = max - (int) ((max - b) * scale + 0.5f);
+                    pixels[i] = (color & 0xFF000000) | (r << 16) | (g << 8) | b;
+                }
+            }
+        });
+    }
+
+    /**
+     * Multiply [addRate] based on the HSV saturation value of all [pixels] in place
+     *
+     * @param addRate Add the ratio (0...1)
+     */
+    public static void addHSVSaturation(@NonNull final int[] pixels, @FloatRange(from = 0, to = 1) final float addRate) {
+        PixelWorkers.run(0, pixels.length, new PixelWorkers.RangeOp() {
+            @Override
+            public void apply(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    int color = pixels[i];
+                    int r = (color >> 16) & 0xFF;
+                    int g = (color >> 8) & 0xFF;
+                    int b = color & 0xFF;
+                    int max = Math.max(r, Math.max(g, b));
+                    r = max - (int) ((max - r) * addRate + 0.5f);
+                    g = max - (int) ((max - g) * addRate + 0.5f);
+                    b = max - (int) ((max - b) * addRate + 0.5f);
+                    pixels[i] = (color & 0xFF000000) | (r << 16) | (g << 8) | b;
+                }
+            }
+        });
+    }
+
+    /**
+     * Modify the HSV 'value' value of all [pixels] in place, the hue, saturation and alpha are kept
+     *
+     * @param newValue New HSV 'value' value (0...1)
+     */
+    public static void setHSVValue(@NonNull final int[] pixels, @FloatRange(from = 0, to = 1) float newValue) {
+        final float newMax = newValue * 255;
+        final int blackValue = (int) (newMax + 0.5f);
+        PixelWorkers.run(0, pixels.length, new PixelWorkers.RangeOp() {
+            @Override
+            public void apply(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    int color = pixels[i];
+                    int r = (color >> 16) & 0xFF;
+                    int g = (color >> 8) & 0xFF;
+                    int b = color & 0xFF;
+                    int max = Math.max(r, Math.max(g, b));
+                    if (max == 0) {
+                        pixels[i] = (color & 0xFF000000) | (blackValue << 16) | (blackValue << 8) | blackValue;
+                        continue;
+                    }
+                    float scale = newMax / max;
+                    r = Math.min((int) (r * scale + 0.5f), 255);
+                    g = Math.min((int) (g * scale + 0.5f), 255);
+                    b = Math.min((int) (b * scale + 0.5f), 255);
+                    pixels[i] = (color & 0xFF000000) | (r << 16) | (g << 8) | b;
+                }
+            }
+        });
+    }
+
+    /**
+     * Multiply [addRate] based on the HSV 'value' value of all [pixels] in place
+     *
+     * @param addRate Add the ratio (0...1)
+     */
+    public static void addHSVValue(@NonNull final int[] pixels, @FloatRange(from = 0, to = 1) float addRate) {
+        // Scaling the value scales the red, green and blue by the same ratio
+        final int[] lut = LUT_SCRATCH.get();
+        for (int i = 0; i < 256; i++) {
+            lut[i] = Math.min((int) (i * addRate + 0.5f), 255);
+        }
+        PixelWorkers.run(0, pixels.length, new PixelWorkers.RangeOp() {
+            @Override
+            public void apply(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    int color = pixels[i];
+                    pixels[i] = (color & 0xFF000000) | (lut[(color >> 16) & 0xFF] << 16) | (lut[(color >> 8) & 0xFF] << 8) | lut[color & 0xFF];
+                }
+            }
+        });
+    }
+
+    private static int hueToRgb(int sector, int max, int mid, int min) {
+        switch (sector) {
+            case 0:
+                return (max << 16) | (mid << 8) | min;
+            case 1:
+                return (mid << 16) | (max << 8) | min;
+            case 2:
+                return (min << 16) | (max << 8) | mid;
+            case 3:
+                return (min << 16) | (mid << 8) | max;
+            case 4:
+                return (mid << 16) | (min << 8) | max;
+            default:
+                return (max << 16) | (min << 8) | mid;
+        }
+    }
+
     /**
      * Returns true if the color is a bright color, used to prevent the background color from being close to the text color, causing the text to be invisible
      */
@@ -559,9 +787,11 @@ public class Colorx {
      * result, derived by separating the start and end values into separate
      * color channels and interpolating each one separately, recombining the
      * resulting values in the same way.
+     * <p>
+     * Use {@link ColorGradient} to get the colors of many fractions between the same colors
      */
     @ColorInt
     public static int argbEvaluate(@ColorInt int startValue, @ColorInt int endValue, @FloatRange(from = 0, to = 1) float fraction) {
-        return (int) new ArgbEvaluator().evaluate(fraction, startValue, endValue);
+        return (int) ARGB_EVALUATOR.evaluate(fraction, startValue, endValue);
     }
 }
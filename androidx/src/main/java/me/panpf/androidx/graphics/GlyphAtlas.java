@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseIntArray;
+
+/**
+ * Render a small set of characters (such as digits of counters and badges) once into one shared bitmap,
+ * labels made of them are then drawn by copying sub-rectangles of it instead of rasterizing the text again.
+ * <p>
+ * The layout is the same as {@link me.panpf.androidx.util.Textx#textToBitmap(String, int, float)}.
+ * Each character is drawn separately, so kerning is lost and glyphs that extend beyond their advance are clipped, it is meant for short labels such as digits
+ */
+@SuppressWarnings("WeakerAccess")
+public class GlyphAtlas {
+
+    /**
+     * Characters of counters, prices and percentages
+     */
+    public static final String DIGITS = "0123456789+-.,:%";
+
+    /**
+     * Transparent pixels around each cell, so filtering does not bleed the neighbouring glyphs in
+     */
+    private static final int PADDING = 1;
+    private static final int MAX_ATLAS_WIDTH = 2048;
+
+    @NonNull
+    private final Bitmap atlas;
+    @NonNull
+    private final SparseIntArray indexes = new SparseIntArray();
+    @NonNull
+    private final Rect[] cells;
+    @NonNull
+    private final float[] advances;
+    private final int textColor;
+    private final float textSize;
+    private final int lineHeight;
+    @NonNull
+    private final Paint drawPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    @NonNull
+    private final RectF dstRect = new RectF();
+
+    /**
+     * @param characters The characters in the atlas, duplicates are ignored
+     */
+    public GlyphAtlas(@NonNull String characters, @ColorInt int textColor, float textSize) {
+        if (characters.length() == 0) throw new IllegalArgumentException("characters is empty");
+        this.textColor = textColor;
+        this.textSize = textSize;
+
+        Paint paint = new Paint();
+        paint.setColor(textColor);
+        paint.setTextSize(textSize);
+        paint.setAntiAlias(true);
+        paint.setFilterBitmap(true);
+
+        TextMeasureCache measureCache = TextMeasureCache.getDefault();
+        float textHeight = measureCache.getTextHeight(textSize, null, paint.getFlags());
+        float textLeading = measureCache.getTextLeading(textSize, null, paint.getFlags());
+        this.lineHeight = (int) Math.ceil(textHeight);
+        float baseline = (lineHeight - textHeight) / 2 + textLeading;
+
+        // Lay the cells out in rows no wider than MAX_ATLAS_WIDTH
+        int count = 0;
+        char[] chars = new char[characters.length()];
+        for (int i = 0; i < characters.length(); i++) {
+            char c = characters.charAt(i);
+            if (indexes.indexOfKey(c) < 0) {
+                indexes.put(c, count);
+                chars[count++] = c;
+            }
+        }
+        this.cells = new Rect[count];
+        this.advances = new float[count];
+        int x = 0;
+        int y = 0;
+        int atlasWidth = 0;
+        for (int i = 0; i < count; i++) {
+            advances[i] = measureCache.getTextWidth(String.valueOf(chars[i]), paint);
+            int cellWidth = (int) Math.ceil(advances[i]) + PADDING * 2;
+            if (x > 0 && x + cellWidth > MAX_ATLAS_WIDTH) {
+                x = 0;
+                y += lineHeight + PADDING * 2;
+            }
+            cells[i] = new Rect(x + PADDING, y + PADDING, x + cellWidth - PADDING, y + PADDING + lineHeight);
+            x += cellWidth;
+            atlasWidth = Math.max(atlasWidth, x);
+        }
+
+        this.atlas = Bitmap.createBitmap(Math.max(atlasWidth, 1), Math.max(y + lineHeight + PADDING * 2, 1), Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(atlas);
+        char[] oneChar = new char[1];
+        for (int i = 0; i < count; i++) {
+            oneChar[0] = chars[i];
+            canvas.save();
+            canvas.clipRect(cells[i]);
+            canvas.drawText(oneChar, 0, 1, cells[i].left, cells[i].top + baseline, paint);
+            canvas.restore();
+        }
+    }
+
+    /**
+     * Create an atlas of {@link #DIGITS}
+     */
+    @NonNull
+    public static GlyphAtlas digits(@ColorInt int textColor, float textSize) {
+        return new GlyphAtlas(DIGITS, textColor, textSize);
+    }
+
+    /**
+     * Returns true if all characters of [text] are in the atlas
+     */
+    public boolean canDraw(@NonNull CharSequence text) {
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if (indexes.indexOfKey(text.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the width of [text] drawn by this atlas, the characters not in the atlas are skipped
+     */
+    public float measureText(@NonNull CharSequence text) {
+        float width = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            int index = indexes.get(text.charAt(i), -1);
+            if (index >= 0) {
+                width += advances[index];
+            }
+        }
+        return width;
+    }
+
+    /**
+     * Draw [text] by copying the cells of its characters, the characters not in the atlas are skipped. Not thread-safe, share an atlas only between views drawn on the same thread
+     *
+     * @param left The left of the text
+     * @param top  The top of the line, the text is vertically centered in {@link #getLineHeight()}
+     */
+    public void draw(@NonNull Canvas canvas, @NonNull CharSequence text, float left, float top) {
+        float x = left;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            int index = indexes.get(text.charAt(i), -1);
+            if (index < 0) {
+                continue;
+            }
+            Rect cell = cells[index];
+            dstRect.set(x, top, x + cell.width(), top + cell.height());
+            canvas.drawBitmap(atlas, cell, dstRect, drawPaint);
+            x += advances[index];
+        }
+    }
+
+    /**
+     * Draw [text] into a new bitmap, about the same size as {@link me.panpf.androidx.util.Textx#textToBitmap(String, int, float)}
+     *
+     * @param bitmapPool The new bitmap is taken from it if not null
+     */
+    @NonNull
+    public Bitmap toBitmap(@NonNull CharSequence text, @Nullable BitmapPool bitmapPool) {
+        int width = Math.max((int) Math.ceil(measureText(text)), 1);
+        Bitmap bitmap = bitmapPool != null
+                ? bitmapPool.getOrCreate(width, lineHeight, Bitmap.Config.ARGB_8888)
+                : Bitmap.createBitmap(width, lineHeight, Bitmap.Config.ARGB_8888);
+        draw(new Canvas(bitmap), text, 0, 0);
+        return bitmap;
+    }
+
+    /**
+     * Draw [text] into a new bitmap, about the same size as {@link me.panpf.androidx.util.Textx#textToBitmap(String, int, float)}
+     */
+    @NonNull
+    public Bitmap toBitmap(@NonNull CharSequence text) {
+        return toBitmap(text, null);
+    }
+
+    /**
+     * Get the shared bitmap of all glyphs, it must not be modified or recycled while the atlas is in use
+     */
+    @NonNull
+    public Bitmap getAtlasBitmap() {
+        return atlas;
+    }
+
+    public int getLineHeight() {
+        return lineHeight;
+    }
+
+    public int getTextColor() {
+        return textColor;
+    }
+
+    public float getTextSize() {
+        return textSize;
+    }
+
+    /**
+     * Release the atlas bitmap, the atlas can not be used after that
+     */
+    public void recycle() {
+        atlas.recycle();
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.LruCache;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import me.panpf.androidx.Androidx;
+
+/**
+ * Two-level cache of transformed bitmaps, such as avatars made by {@link Bitmapx#circular(Bitmap, int)} or thumbnails made by {@link Bitmapx#centerCrop(Bitmap, int, int)}.
+ * <p>
+ * The memory tier is a LRU bounded by the byte count of bitmaps, the disk tier is a journaled LRU of the bitmaps encoded by {@link Bitmapx#writeToFile(Bitmap, File, Bitmap.CompressFormat, int)}.
+ * The disk and the loader are accessed on worker threads, concurrent requests of the same key share one load
+ */
+@SuppressWarnings("WeakerAccess")
+public class ImageCache {
+
+    public static final int FROM_MEMORY = 1;
+    public static final int FROM_DISK = 2;
+    public static final int FROM_LOADER = 3;
+
+    @NonNull
+    private final LruCache<String, Bitmap> memoryCache;
+    @Nullable
+    private final ImageDiskCache diskCache;
+    @NonNull
+    private final ExecutorService executor;
+    @NonNull
+    private final Map<String, Request> requests = new HashMap<>();
+    @NonNull
+    private volatile Bitmap.CompressFormat compressFormat = Bitmap.CompressFormat.PNG;
+    private volatile int quality = 100;
+
+    private final AtomicLong memoryHitCount = new AtomicLong();
+    private final AtomicLong diskHitCount = new AtomicLong();
+    private final AtomicLong loadCount = new AtomicLong();
+
+    /**
+     * @param memoryMaxBytes Max total byte count of the bitmaps in memory
+     * @param diskDir        The directory of the disk tier, null means memory only
+     * @param diskMaxBytes   Max total length of the files in [diskDir]
+     * @param threadCount    Max number of keys loaded at the same time
+     */
+    public ImageCache(long memoryMaxBytes, @Nullable File diskDir, long diskMaxBytes, int threadCount) {
+        if (memoryMaxBytes <= 0 || memoryMaxBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("memoryMaxBytes must be in (0, Integer.MAX_VALUE]: " + memoryMaxBytes);
+        }
+        if (diskDir != null && diskMaxBytes <= 0) throw new IllegalArgumentException("diskMaxBytes must be greater than 0: " + diskMaxBytes);
+        if (threadCount <= 0) throw new IllegalArgumentException("threadCount must be greater than 0: " + threadCount);
+
+        this.memoryCache = new LruCache<String, Bitmap>((int) memoryMaxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return BitmapPool.getByteCount(value);
+            }
+        };
+        this.diskCache = diskDir != null ? new ImageDiskCache(diskDir, diskMaxBytes) : null;
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "ImageCache-" + threadNumber.incrementAndGet());
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        });
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.executor = threadPoolExecutor;
+    }
+
+    /**
+     * Use 2 worker threads
+     *
+     * @param memoryMaxBytes Max total byte count of the bitmaps in memory
+     * @param diskDir        The directory of the disk tier, null means memory only
+     * @param diskMaxBytes   Max total length of the files in [diskDir]
+     */
+    public ImageCache(long memoryMaxBytes, @Nullable File diskDir, long diskMaxBytes) {
+        this(memoryMaxBytes, diskDir, diskMaxBytes, 2);
+    }
+
+    /**
+     * Create a key from the identity of the source image and the transforms applied to it in order, for example
+     * createKey("/sdcard/avatar.jpg@1530000000000", "centerCrop(200x200)", "circular")
+     */
+    @NonNull
+    public static String createKey(@NonNull String sourceId, @NonNull String... transforms) {
+        StringBuilder builder = new StringBuilder(sourceId);
+        for (String transform : transforms) {
+            builder.append('|').append(transform);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Set the format used to encode bitmaps into the disk tier, the default is PNG, which keeps the transparency of circular avatars
+     */
+    @NonNull
+    public ImageCache setCompressFormat(@NonNull Bitmap.CompressFormat compressFormat, int quality) {
+        this.compressFormat = compressFormat;
+        this.quality = quality;
+        return this;
+    }
+
+    /**
+     * Get the bitmap from the memory tier only, it is safe to call on the main thread
+     */
+    @Nullable
+    public Bitmap getFromMemory(@NonNull String key) {
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null && bitmap.isRecycled()) {
+            memoryCache.remove(key);
+            return null;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Get the bitmap of [key], the memory tier is checked on the calling thread, the disk tier and [loader] are called on a worker thread.
+     * If the same key is being loaded, [callback] waits for that load instead of starting another one
+     *
+     * @param loader   Create the transformed bitmap when it is not cached
+     * @param callback Called on the main thread, or immediately on the calling thread if the bitmap is in memory
+     */
+    public void get(@NonNull String key, @NonNull Loader loader, @NonNull Callback callback) {
+        Bitmap bitmap = getFromMemory(key);
+        if (bitmap != null) {
+            memoryHitCount.incrementAndGet();
+            callback.onResult(key, bitmap, FROM_MEMORY);
+            return;
+        }
+
+        Request request;
+        synchronized (requests) {
+            request = requests.get(key);
+            if (request != null) {
+                request.callbacks.add(callback);
+                return;
+            }
+            request = new Request(key, loader);
+            request.callbacks.add(callback);
+            requests.put(key, request);
+        }
+        final Request newRequest = request;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                newRequest.run();
+            }
+        });
+    }
+
+    /**
+     * Get the bitmap of [key] on the calling thread, if the same key is being loaded, wait for that load instead of starting another one
+     *
+     * @param loader Create the transformed bitmap when it is not cached
+     */
+    @WorkerThread
+    @Nullable
+    public Bitmap getSync(@NonNull String key, @NonNull Loader loader) {
+        Bitmap bitmap = getFromMemory(key);
+        if (bitmap != null) {
+            memoryHitCount.incrementAndGet();
+            return bitmap;
+        }
+
+        Request request;
+        boolean owner = false;
+        synchronized (requests) {
+            request = requests.get(key);
+            if (request == null) {
+                request = new Request(key, loader);
+                requests.put(key, request);
+                owner = true;
+            }
+        }
+        if (owner) {
+            request.run();
+        } else {
+            try {
+                request.done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return request.result;
+    }
+
+    /**
+     * Remove [key] from both tiers, the bitmap is not recycled
+     */
+    @WorkerThread
+    public void remove(@NonNull String key) {
+        memoryCache.remove(key);
+        if (diskCache != null) {
+            diskCache.remove(key);
+        }
+    }
+
+    /**
+     * Clear the memory tier, the bitmaps are not recycled because they may still be displayed
+     */
+    public void clearMemory() {
+        memoryCache.evictAll();
+    }
+
+    /**
+     * Clear both tiers
+     */
+    @WorkerThread
+    public void clear() {
+        memoryCache.evictAll();
+        if (diskCache != null) {
+            diskCache.clear();
+        }
+    }
+
+    /**
+     * Release the journal of the disk tier, the cache can still be used and the journal is reopened when needed
+     */
+    @WorkerThread
+    public void close() {
+        if (diskCache != null) {
+            diskCache.close();
+        }
+    }
+
+    public long getMemorySize() {
+        return memoryCache.size();
+    }
+
+    @WorkerThread
+    public long getDiskSize() {
+        return diskCache != null ? diskCache.getSize() : 0;
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHitCount.get();
+    }
+
+    public long getDiskHitCount() {
+        return diskHitCount.get();
+    }
+
+    /**
+     * Get the number of times that the loader is called, that is, the number of misses of both tiers
+     */
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    /**
+     * Get the ratio of the requests hit in memory or on disk, the requests waiting for the same load are not counted
+     */
+    public float getHitRate() {
+        long hitCount = memoryHitCount.get() + diskHitCount.get();
+        long requestCount = hitCount + loadCount.get();
+        return requestCount > 0 ? (float) hitCount / requestCount : 0f;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ImageCache(memoryHitCount=" + memoryHitCount.get() + ", diskHitCount=" + diskHitCount.get()
+                + ", loadCount=" + loadCount.get() + ", hitRate=" + getHitRate() + ")";
+    }
+
+    /**
+     * @return One of {@link #FROM_MEMORY}, {@link #FROM_DISK} and {@link #FROM_LOADER}, 0 if failed
+     */
+    private int load(@NonNull Request request) {
+        String key = request.key;
+        // Loaded by a previous request that just finished
+        Bitmap bitmap = getFromMemory(key);
+        if (bitmap != null) {
+            memoryHitCount.incrementAndGet();
+            request.result = bitmap;
+            return FROM_MEMORY;
+        }
+
+        if (diskCache != null) {
+            File file = diskCache.get(key);
+            bitmap = file != null ? Bitmapx.readBitmap(file) : null;
+            if (bitmap != null) {
+                diskHitCount.incrementAndGet();
+                memoryCache.put(key, bitmap);
+                request.result = bitmap;
+                return FROM_DISK;
+            } else if (file != null) {
+                // Unable to decode, the file is broken
+                diskCache.remove(key);
+            }
+        }
+
+        loadCount.incrementAndGet();
+        try {
+            bitmap = request.loader.load();
+        } catch (Exception e) {
+            e.printStackTrace();
+            bitmap = null;
+        }
+        if (bitmap != null) {
+            memoryCache.put(key, bitmap);
+            if (diskCache != null) {
+                diskCache.put(key, bitmap, compressFormat, quality);
+            }
+        }
+        request.result = bitmap;
+        return bitmap != null ? FROM_LOADER : 0;
+    }
+
+    public interface Loader {
+        /**
+         * Create the transformed bitmap, called on a worker thread
+         *
+         * @return null if it can not be created
+         */
+        @WorkerThread
+        @Nullable
+        Bitmap load() throws Exception;
+    }
+
+    public interface Callback {
+        /**
+         * @param bitmap null if it is not cached and the loader failed
+         * @param from   One of {@link #FROM_MEMORY}, {@link #FROM_DISK} and {@link #FROM_LOADER}, 0 if the bitmap is null
+         */
+        void onResult(@NonNull String key, @Nullable Bitmap bitmap, int from);
+    }
+
+    private class Request {
+        @NonNull
+        final String key;
+        @NonNull
+        final Loader loader;
+        @NonNull
+        final List<Callback> callbacks = new LinkedList<>();
+        @NonNull
+        final CountDownLatch done = new CountDownLatch(1);
+        @Nullable
+        volatile Bitmap result;
+
+        Request(@NonNull String key, @NonNull Loader loader) {
+            this.key = key;
+            this.loader = loader;
+        }
+
+        void run() {
+            final int from = load(this);
+
+            final List<Callback> callbacks;
+            synchronized (requests) {
+                requests.remove(key);
+                callbacks = new LinkedList<>(this.callbacks);
+            }
+            done.countDown();
+
+            if (!callbacks.isEmpty()) {
+                final Bitmap finalBitmap = result;
+                Androidx.getMainHandler().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (Callback callback : callbacks) {
+                            callback.onResult(key, finalBitmap, from);
+                        }
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import me.panpf.javax.io.Filex;
+import me.panpf.javax.io.IOStreamx;
+import me.panpf.javax.io.UnableCreateDirException;
+
+/**
+ * Disk LRU cache of encoded bitmaps. The file name is the MD5 of the key, the access order is recorded in a journal file
+ * ('CLEAN name length', 'READ name', 'REMOVE name'), which is replayed when opening and compacted when there are too many redundant lines
+ */
+class ImageDiskCache {
+
+    private static final String JOURNAL_FILE_NAME = "journal";
+    private static final String JOURNAL_TEMP_FILE_NAME = "journal.tmp";
+    private static final String MAGIC = "me.panpf.androidx.graphics.ImageDiskCache";
+    private static final String VERSION = "1";
+    private static final int REDUNDANT_OP_COMPACT_THRESHOLD = 2000;
+
+    @NonNull
+    private final File dir;
+    private final long maxBytes;
+    /**
+     * File name to length in access order
+     */
+    @NonNull
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private int redundantOpCount;
+    @Nullable
+    private Writer journalWriter;
+    private boolean opened;
+
+    ImageDiskCache(@NonNull File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the file of the given key, null if it is not cached
+     */
+    @Nullable
+    synchronized File get(@NonNull String key) {
+        if (!open()) return null;
+        String name = fileName(key);
+        if (entries.get(name) == null) return null;
+
+        File file = new File(dir, name);
+        if (!file.exists()) {
+            removeEntry(name);
+            return null;
+        }
+        appendJournal("READ " + name);
+        redundantOpCount++;
+        compactJournalIfNeeded();
+        return file;
+    }
+
+    /**
+     * Encode the bitmap into the cache, the encoding is performed outside the lock
+     */
+    boolean put(@NonNull String key, @NonNull Bitmap bitmap, @NonNull Bitmap.CompressFormat format, int quality) {
+        synchronized (this) {
+            if (!open()) return false;
+        }
+        String name = fileName(key);
+        File tempFile = new File(dir, name + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            Bitmapx.writeToFile(bitmap, tempFile, format, quality);
+        } catch (IOException e) {
+            e.printStackTrace();
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+            return false;
+        }
+
+        synchronized (this) {
+            File file = new File(dir, name);
+            if (!tempFile.renameTo(file)) {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+                return false;
+            }
+            long length = file.length();
+            Long oldLength = entries.put(name, length);
+            if (oldLength != null) {
+                size -= oldLength;
+                redundantOpCount++;
+            }
+            size += length;
+            appendJournal("CLEAN " + name + " " + length);
+            trimToSize(maxBytes);
+            compactJournalIfNeeded();
+            return true;
+        }
+    }
+
+    synchronized void remove(@NonNull String key) {
+        if (!open()) return;
+        String name = fileName(key);
+        if (entries.containsKey(name)) {
+            removeEntry(name);
+            compactJournalIfNeeded();
+        }
+    }
+
+    synchronized void clear() {
+        IOStreamx.safeClose(journalWriter);
+        journalWriter = null;
+        entries.clear();
+        size = 0;
+        redundantOpCount = 0;
+        opened = false;
+        Filex.cleanRecursively(dir);
+    }
+
+    synchronized long getSize() {
+        return open() ? size : 0;
+    }
+
+    synchronized void close() {
+        IOStreamx.safeClose(journalWriter);
+        journalWriter = null;
+        opened = false;
+    }
+
+    private void trimToSize(long targetSize) {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (size > targetSize && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            iterator.remove();
+            size -= entry.getValue();
+            //noinspection ResultOfMethodCallIgnored
+            new File(dir, entry.getKey()).delete();
+            appendJournal("REMOVE " + entry.getKey());
+            redundantOpCount += 2;
+        }
+    }
+
+    private void removeEntry(@NonNull String name) {
+        Long length = entries.remove(name);
+        if (length != null) {
+            size -= length;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        new File(dir, name).delete();
+        appendJournal("REMOVE " + name);
+        redundantOpCount += 2;
+    }
+
+    /**
+     * Open the cache on first use, replay the journal and delete the files not in it
+     */
+    private boolean open() {
+        if (opened) return true;
+        try {
+            Filex.mkdirsOrThrow(dir);
+        } catch (UnableCreateDirException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        File journalFile = new File(dir, JOURNAL_FILE_NAME);
+        if (!readJournal(journalFile)) {
+            entries.clear();
+            size = 0;
+            redundantOpCount = 0;
+        }
+
+        Set<String> keepNames = new HashSet<>(entries.keySet());
+        keepNames.add(JOURNAL_FILE_NAME);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!keepNames.contains(file.getName())) {
+                    Filex.deleteRecursively(file);
+                }
+            }
+        }
+        // Entries whose file has been deleted by others
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (!new File(dir, entry.getKey()).exists()) {
+                iterator.remove();
+                size -= entry.getValue();
+            }
+        }
+
+        if (!rebuildJournal()) {
+            return false;
+        }
+        trimToSize(maxBytes);
+        opened = true;
+        return true;
+    }
+
+    private boolean readJournal(@NonNull File journalFile) {
+        if (!journalFile.exists()) return false;
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), "UTF-8"));
+            if (!MAGIC.equals(reader.readLine()) || !VERSION.equals(reader.readLine())) {
+                return false;
+            }
+            String line;
+            int lineCount = 0;
+            while ((line = reader.readLine()) != null) {
+                lineCount++;
+                String[] items = line.split(" ");
+                if (items.length == 3 && "CLEAN".equals(items[0])) {
+                    Long oldLength = entries.put(items[1], Long.parseLong(items[2]));
+                    size += Long.parseLong(items[2]) - (oldLength != null ? oldLength : 0);
+                } else if (items.length == 2 && "READ".equals(items[0])) {
+                    entries.get(items[1]);
+                } else if (items.length == 2 && "REMOVE".equals(items[0])) {
+                    Long oldLength = entries.remove(items[1]);
+                    size -= oldLength != null ? oldLength : 0;
+                }
+                // A truncated last line is ignored
+            }
+            redundantOpCount = lineCount - entries.size();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } catch (NumberFormatException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            IOStreamx.safeClose(reader);
+        }
+    }
+
+    /**
+     * Write the current entries to a new journal in access order
+     */
+    private boolean rebuildJournal() {
+        IOStreamx.safeClose(journalWriter);
+        journalWriter = null;
+
+        File journalFile = new File(dir, JOURNAL_FILE_NAME);
+        File tempFile = new File(dir, JOURNAL_TEMP_FILE_NAME);
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), "UTF-8"));
+            writer.write(MAGIC + "\n" + VERSION + "\n");
+            for (Map.Entry<String, Long> entry : entries.entrySet()) {
+                writer.write("CLEAN " + entry.getKey() + " " + entry.getValue() + "\n");
+            }
+            writer.close();
+            writer = null;
+            if (!tempFile.renameTo(journalFile)) {
+                throw new IOException("Unable rename " + tempFile.getPath() + " to " + journalFile.getPath());
+            }
+            journalWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journalFile, true), "UTF-8"));
+            redundantOpCount = 0;
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            IOStreamx.safeClose(writer);
+            return false;
+        }
+    }
+
+    private void compactJournalIfNeeded() {
+        if (redundantOpCount >= REDUNDANT_OP_COMPACT_THRESHOLD && redundantOpCount >= entries.size()) {
+            rebuildJournal();
+        }
+    }
+
+    private void appendJournal(@NonNull String line) {
+        Writer writer = journalWriter;
+        if (writer == null) return;
+        try {
+            writer.write(line);
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @NonNull
+    static String fileName(@NonNull String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF-8"));
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                builder.append(Character.forDigit((b >> 4) & 0x0F, 16)).append(Character.forDigit(b & 0x0F, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,510 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Identify JPEG, PNG, GIF, WebP, BMP and HEIF by their headers and read the size and EXIF orientation without decoding.
+ * Only the bytes before the size are read, for JPEG it is the segments before SOF, for HEIF it is the boxes before 'meta'
+ */
+class ImageHeaderParser {
+
+    /**
+     * Give up when the size is not found in so many bytes
+     */
+    static final int MAX_HEADER_BYTES = 1024 * 1024;
+
+    private static final int ORIENTATION_TAG = 0x0112;
+
+    private ImageHeaderParser() {
+    }
+
+    /**
+     * @return null if the format is unknown, the width and height are -1 if the size is not found
+     */
+    @Nullable
+    static ImageInfo parse(@NonNull InputStream inputStream) throws IOException {
+        Reader reader = new Reader(inputStream);
+        byte[] head = new byte[12];
+        int headLength = reader.read(head, 12);
+        if (headLength < 4) {
+            return null;
+        }
+
+        if (startsWith(head, 0xFF, 0xD8, 0xFF)) {
+            reader.unread(head, 2, headLength - 2);
+            return parseJpeg(reader, head);
+        } else if (headLength >= 8 && startsWith(head, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            // The length of the IHDR chunk has been read
+            byte[] ihdr = new byte[12];
+            boolean found = reader.read(ihdr, 12) == 12 && ihdr[0] == 'I' && ihdr[1] == 'H' && ihdr[2] == 'D' && ihdr[3] == 'R';
+            return new ImageInfo("image/png", found ? int32BE(ihdr, 4) : -1, found ? int32BE(ihdr, 8) : -1, ImageInfo.ORIENTATION_UNDEFINED);
+        } else if (headLength >= 10 && startsWith(head, 'G', 'I', 'F', '8') && (head[4] == '7' || head[4] == '9') && head[5] == 'a') {
+            return new ImageInfo("image/gif", uint16LE(head, 6), uint16LE(head, 8), ImageInfo.ORIENTATION_UNDEFINED);
+        } else if (headLength >= 12 && startsWith(head, 'R', 'I', 'F', 'F') && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return parseWebP(reader);
+        } else if (startsWith(head, 'B', 'M')) {
+            return parseBmp(reader, head, headLength);
+        } else if (headLength >= 12 && head[4] == 'f' && head[5] == 't' && head[6] == 'y' && head[7] == 'p') {
+            return parseHeif(reader, head);
+        }
+        return null;
+    }
+
+    /* ************************************** JPEG ******************************************  */
+
+    @NonNull
+    private static ImageInfo parseJpeg(@NonNull Reader reader, @NonNull byte[] buffer) throws IOException {
+        int orientation = ImageInfo.ORIENTATION_UNDEFINED;
+        while (reader.position < MAX_HEADER_BYTES) {
+            // Markers may be preceded by any number of fill bytes
+            int marker = reader.readUInt8();
+            if (marker != 0xFF) break;
+            do {
+                marker = reader.readUInt8();
+            } while (marker == 0xFF);
+
+            if (marker == 0xD8 || marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                // End of image or start of scan before SOF
+                break;
+            }
+
+            int length = reader.readUInt16BE() - 2;
+            if (length < 0) break;
+            boolean sof = marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+            if (sof) {
+                if (reader.read(buffer, 5) != 5) break;
+                return new ImageInfo("image/jpeg", uint16BE(buffer, 3), uint16BE(buffer, 1), orientation);
+            } else if (marker == 0xE1 && orientation == ImageInfo.ORIENTATION_UNDEFINED) {
+                byte[] segment = new byte[length];
+                if (reader.read(segment, length) != length) break;
+                orientation = parseExifOrientation(segment);
+            } else {
+                reader.skip(length);
+            }
+        }
+        return new ImageInfo("image/jpeg", -1, -1, orientation);
+    }
+
+    private static int parseExifOrientation(@NonNull byte[] segment) {
+        if (segment.length < 14 || !startsWith(segment, 'E', 'x', 'i', 'f', 0, 0)) {
+            return ImageInfo.ORIENTATION_UNDEFINED;
+        }
+        final int tiff = 6;
+        boolean littleEndian;
+        if (segment[tiff] == 'I' && segment[tiff + 1] == 'I') {
+            littleEndian = true;
+        } else if (segment[tiff] == 'M' && segment[tiff + 1] == 'M') {
+            littleEndian = false;
+        } else {
+            return ImageInfo.ORIENTATION_UNDEFINED;
+        }
+
+        // Check the offset before casting, an offset of 2^31 or more would be negative
+        long ifdOffset = uint32(segment, tiff + 4, littleEndian);
+        if (ifdOffset < 8 || ifdOffset > segment.length - tiff - 2) {
+            return ImageInfo.ORIENTATION_UNDEFINED;
+        }
+        int ifd = tiff + (int) ifdOffset;
+        int entryCount = uint16(segment, ifd, littleEndian);
+        for (int i = 0; i < entryCount; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > segment.length) break;
+            if (uint16(segment, entry, littleEndian) == ORIENTATION_TAG) {
+                // SHORT value is stored in the first two bytes of the value field
+                int orientation = uint16(segment, entry + 8, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : ImageInfo.ORIENTATION_UNDEFINED;
+            }
+        }
+        return ImageInfo.ORIENTATION_UNDEFINED;
+    }
+
+    /* ************************************** WebP ******************************************  */
+
+    @NonNull
+    private static ImageInfo parseWebP(@NonNull Reader reader) throws IOException {
+        byte[] chunk = new byte[18];
+        int length = reader.read(chunk, 18);
+        int width = -1;
+        int height = -1;
+        if (length >= 18 && startsWith(chunk, 'V', 'P', '8', ' ')) {
+            // Lossy: 3 bytes frame tag, 3 bytes start code, then 14 bits width and height
+            if ((chunk[11] & 0xFF) == 0x9D && (chunk[12] & 0xFF) == 0x01 && (chunk[13] & 0xFF) == 0x2A) {
+                width = uint16LE(chunk, 14) & 0x3FFF;
+                height = uint16LE(chunk, 16) & 0x3FFF;
+            }
+        } else if (length >= 13 && startsWith(chunk, 'V', 'P', '8', 'L')) {
+            // Lossless: 1 byte signature, then 14 bits width - 1 and 14 bits height - 1
+            if ((chunk[8] & 0xFF) == 0x2F) {
+                int b0 = chunk[9] & 0xFF;
+                int b1 = chunk[10] & 0xFF;
+                int b2 = chunk[11] & 0xFF;
+                int b3 = chunk[12] & 0xFF;
+                width = 1 + (((b1 & 0x3F) << 8) | b0);
+                height = 1 + (((b3 & 0x0F) << 10) | (b2 << 2) | ((b1 & 0xC0) >> 6));
+            }
+        } else if (length >= 18 && startsWith(chunk, 'V', 'P', '8', 'X')) {
+            // Extended: 4 bytes flags, then 24 bits canvas width - 1 and height - 1
+            width = 1 + uint24LE(chunk, 12);
+            height = 1 + uint24LE(chunk, 15);
+        }
+        return new ImageInfo("image/webp", width, height, ImageInfo.ORIENTATION_UNDEFINED);
+    }
+
+    /* ************************************** BMP ******************************************  */
+
+    @NonNull
+    private static ImageInfo parseBmp(@NonNull Reader reader, @NonNull byte[] head, int headLength) throws IOException {
+        byte[] header = new byte[26];
+        System.arraycopy(head, 0, header, 0, headLength);
+        int length = headLength + reader.read(header, headLength, 26 - headLength);
+        if (length < 22) {
+            return new ImageInfo("image/bmp", -1, -1, ImageInfo.ORIENTATION_UNDEFINED);
+        }
+        long dibHeaderSize = uint32(header, 14, true);
+        if (dibHeaderSize == 12) {
+            return new ImageInfo("image/bmp", uint16LE(header, 18), uint16LE(header, 20), ImageInfo.ORIENTATION_UNDEFINED);
+        } else if (length >= 26) {
+            // The height is negative for top-down bitmaps
+            return new ImageInfo("image/bmp", Math.abs(int32LE(header, 18)), Math.abs(int32LE(header, 22)), ImageInfo.ORIENTATION_UNDEFINED);
+        }
+        return new ImageInfo("image/bmp", -1, -1, ImageInfo.ORIENTATION_UNDEFINED);
+    }
+
+    /* ************************************** HEIF ******************************************  */
+
+    @Nullable
+    private static ImageInfo parseHeif(@NonNull Reader reader, @NonNull byte[] head) throws IOException {
+        long ftypSize = uint32(head, 0, false);
+        if (ftypSize < 16 || ftypSize > 4096) {
+            return null;
+        }
+        byte[] brands = new byte[(int) ftypSize - 8];
+        System.arraycopy(head, 8, brands, 0, 4);
+        if (reader.read(brands, 4, brands.length - 4) != brands.length - 4 || !isHeifBrands(brands)) {
+            return null;
+        }
+
+        // Top level boxes until 'meta'
+        while (reader.position < MAX_HEADER_BYTES) {
+            byte[] boxHeader = new byte[8];
+            if (reader.read(boxHeader, 8) != 8) break;
+            long size = uint32(boxHeader, 0, false);
+            int headerSize = 8;
+            if (size == 1) {
+                byte[] largeSize = new byte[8];
+                if (reader.read(largeSize, 8) != 8) break;
+                size = (uint32(largeSize, 0, false) << 32) | uint32(largeSize, 4, false);
+                headerSize = 16;
+            }
+            if (boxHeader[4] == 'm' && boxHeader[5] == 'e' && boxHeader[6] == 't' && boxHeader[7] == 'a') {
+                long contentSize = size - headerSize;
+                if (size == 0 || contentSize <= 4 || contentSize > MAX_HEADER_BYTES) break;
+                byte[] meta = new byte[(int) contentSize];
+                if (reader.read(meta, meta.length) != meta.length) break;
+                return parseHeifMeta(meta);
+            }
+            if (size < headerSize) break;
+            reader.skip(size - headerSize);
+        }
+        return new ImageInfo("image/heif", -1, -1, ImageInfo.ORIENTATION_UNDEFINED);
+    }
+
+    private static boolean isHeifBrands(@NonNull byte[] brands) {
+        // Major brand, minor version and compatible brands, AVIF shares the container but is a different format
+        for (int i = 0; i + 4 <= brands.length; i += 4) {
+            if (i == 4) continue;
+            if (regionMatches(brands, i, 'a', 'v', 'i', 'f') || regionMatches(brands, i, 'a', 'v', 'i', 's')) {
+                return false;
+            }
+        }
+        String[] heifBrands = {"heic", "heix", "hevc", "hevx", "heim", "heis", "hevm", "hevs", "mif1", "msf1"};
+        for (int i = 0; i + 4 <= brands.length; i += 4) {
+            if (i == 4) continue;
+            for (String heifBrand : heifBrands) {
+                if (regionMatches(brands, i, heifBrand.charAt(0), heifBrand.charAt(1), heifBrand.charAt(2), heifBrand.charAt(3))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find the 'ispe' and 'irot' properties associated with the primary item.
+     * Every field is checked against the end of its box, a malformed box ends the parsing instead of reading out of it
+     */
+    @NonNull
+    private static ImageInfo parseHeifMeta(@NonNull byte[] meta) {
+        long primaryItemId = -1;
+        int ipco = -1;
+        int ipcoEnd = -1;
+        int ipma = -1;
+        int ipmaEnd = -1;
+
+        // The content of 'meta' starts with 4 bytes version and flags
+        int offset = 4;
+        int size;
+        while ((size = boxSize(meta, offset, meta.length)) != -1) {
+            int boxEnd = offset + size;
+            if (regionMatches(meta, offset + 4, 'p', 'i', 't', 'm')) {
+                // Header, version and flags, then 16 bits item id in version 0 or 32 bits in the others
+                if (size >= 12) {
+                    int version = meta[offset + 8] & 0xFF;
+                    if (version == 0 && size >= 14) {
+                        primaryItemId = uint16BE(meta, offset + 12);
+                    } else if (version != 0 && size >= 16) {
+                        primaryItemId = uint32(meta, offset + 12, false);
+                    }
+                }
+            } else if (regionMatches(meta, offset + 4, 'i', 'p', 'r', 'p')) {
+                int child = offset + 8;
+                int childSize;
+                while ((childSize = boxSize(meta, child, boxEnd)) != -1) {
+                    if (regionMatches(meta, child + 4, 'i', 'p', 'c', 'o')) {
+                        ipco = child + 8;
+                        ipcoEnd = child + childSize;
+                    } else if (regionMatches(meta, child + 4, 'i', 'p', 'm', 'a') && ipma == -1) {
+                        ipma = child + 8;
+                        ipmaEnd = child + childSize;
+                    }
+                    child += childSize;
+                }
+            }
+            offset = boxEnd;
+        }
+        if (ipco == -1) {
+            return new ImageInfo("image/heif", -1, -1, ImageInfo.ORIENTATION_UNDEFINED);
+        }
+
+        // Property offsets in 'ipco', indexes in 'ipma' start from 1
+        List<Integer> properties = new ArrayList<>();
+        List<Integer> propertyEnds = new ArrayList<>();
+        int property = ipco;
+        int propertySize;
+        while ((propertySize = boxSize(meta, property, ipcoEnd)) != -1) {
+            properties.add(property);
+            propertyEnds.add(property + propertySize);
+            property += propertySize;
+        }
+
+        List<Integer> associated = new ArrayList<>();
+        if (ipma != -1 && primaryItemId != -1 && ipma + 8 <= ipmaEnd) {
+            int version = meta[ipma] & 0xFF;
+            boolean largeIndex = (meta[ipma + 3] & 0x01) != 0;
+            int itemIdBytes = version < 1 ? 2 : 4;
+            int indexBytes = largeIndex ? 2 : 1;
+            long entryCount = uint32(meta, ipma + 4, false);
+            int position = ipma + 8;
+            // Item id and association count
+            for (long i = 0; i < entryCount && position + itemIdBytes + 1 <= ipmaEnd; i++) {
+                long itemId = itemIdBytes == 2 ? uint16BE(meta, position) : uint32(meta, position, false);
+                position += itemIdBytes;
+                int associationCount = meta[position++] & 0xFF;
+                for (int j = 0; j < associationCount && position + indexBytes <= ipmaEnd; j++) {
+                    int index = largeIndex ? uint16BE(meta, position) & 0x7FFF : meta[position] & 0x7F;
+                    position += indexBytes;
+                    if (itemId == primaryItemId) {
+                        associated.add(index);
+                    }
+                }
+                if (itemId == primaryItemId) break;
+            }
+        }
+
+        int width = -1;
+        int height = -1;
+        int orientation = ImageInfo.ORIENTATION_UNDEFINED;
+        for (int i = 0; i < properties.size(); i++) {
+            // Without the associations, use the first 'ispe'
+            if (!associated.isEmpty() && !associated.contains(i + 1)) continue;
+            int start = properties.get(i);
+            int end = propertyEnds.get(i);
+            if (regionMatches(meta, start + 4, 'i', 's', 'p', 'e') && width == -1 && start + 20 <= end) {
+                // Header, version and flags, then 32 bits width and height
+                long ispeWidth = uint32(meta, start + 12, false);
+                long ispeHeight = uint32(meta, start + 16, false);
+                if (ispeWidth <= Integer.MAX_VALUE && ispeHeight <= Integer.MAX_VALUE) {
+                    width = (int) ispeWidth;
+                    height = (int) ispeHeight;
+                }
+            } else if (regionMatches(meta, start + 4, 'i', 'r', 'o', 't') && start + 9 <= end) {
+                // Counter-clockwise rotation in units of 90 degrees
+                int angle = meta[start + 8] & 0x03;
+                orientation = angle == 1 ? 8 : angle == 2 ? 3 : angle == 3 ? 6 : 1;
+            }
+        }
+        return new ImageInfo("image/heif", width, height, orientation);
+    }
+
+    /**
+     * Get the size of the box at [offset], the box must be completely in [end]
+     *
+     * @return -1 if there is no complete box, the box uses a large size or the size extends to the end of the file
+     */
+    private static int boxSize(@NonNull byte[] bytes, int offset, int end) {
+        if (offset < 0 || end > bytes.length || (long) offset + 8 > end) {
+            return -1;
+        }
+        long size = uint32(bytes, offset, false);
+        return size >= 8 && size <= end - offset ? (int) size : -1;
+    }
+
+    /* ************************************** bytes ******************************************  */
+
+    private static boolean startsWith(@NonNull byte[] bytes, int... prefix) {
+        return regionMatches(bytes, 0, prefix);
+    }
+
+    private static boolean regionMatches(@NonNull byte[] bytes, int offset, int... prefix) {
+        if (offset < 0 || offset + prefix.length > bytes.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if ((bytes[offset + i] & 0xFF) != (prefix[i] & 0xFF)) return false;
+        }
+        return true;
+    }
+
+    private static int uint16BE(@NonNull byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    private static int uint16LE(@NonNull byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8);
+    }
+
+    private static int uint16(@NonNull byte[] bytes, int offset, boolean littleEndian) {
+        return littleEndian ? uint16LE(bytes, offset) : uint16BE(bytes, offset);
+    }
+
+    private static int uint24LE(@NonNull byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8) | ((bytes[offset + 2] & 0xFF) << 16);
+    }
+
+    private static int int32BE(@NonNull byte[] bytes, int offset) {
+        return (int) uint32(bytes, offset, false);
+    }
+
+    private static int int32LE(@NonNull byte[] bytes, int offset) {
+        return (int) uint32(bytes, offset, true);
+    }
+
+    private static long uint32(@NonNull byte[] bytes, int offset, boolean littleEndian) {
+        long b0 = bytes[offset] & 0xFF;
+        long b1 = bytes[offset + 1] & 0xFF;
+        long b2 = bytes[offset + 2] & 0xFF;
+        long b3 = bytes[offset + 3] & 0xFF;
+        return littleEndian ? (b3 << 24) | (b2 << 16) | (b1 << 8) | b0 : (b0 << 24) | (b1 << 16) | (b2 << 8) | b3;
+    }
+
+    /**
+     * Sequential reader that counts the position, the bytes read ahead can be pushed back once
+     */
+    private static class Reader {
+        @NonNull
+        private final InputStream inputStream;
+        long position;
+        @Nullable
+        private byte[] pushback;
+        private int pushbackOffset;
+        private int pushbackEnd;
+
+        Reader(@NonNull InputStream inputStream) {
+            this.inputStream = inputStream;
+        }
+
+        void unread(@NonNull byte[] buffer, int offset, int length) {
+            pushback = buffer.clone();
+            pushbackOffset = offset;
+            pushbackEnd = offset + length;
+            position -= length;
+        }
+
+        private int readFromStream(@NonNull byte[] buffer, int offset, int length) throws IOException {
+            if (pushback != null && pushbackOffset < pushbackEnd) {
+                int count = Math.min(length, pushbackEnd - pushbackOffset);
+                System.arraycopy(pushback, pushbackOffset, buffer, offset, count);
+                pushbackOffset += count;
+                return count;
+            }
+            return inputStream.read(buffer, offset, length);
+        }
+
+        int read(@NonNull byte[] buffer, int length) throws IOException {
+            return read(buffer, 0, length);
+        }
+
+        /**
+         * Read until [length] bytes are read or the end of the stream is reached
+         */
+        int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+            int total = 0;
+            while (total < length) {
+                int count = readFromStream(buffer, offset + total, length - total);
+                if (count == -1) break;
+                total += count;
+            }
+            position += total;
+            return total;
+        }
+
+        int readUInt8() throws IOException {
+            int value;
+            if (pushback != null && pushbackOffset < pushbackEnd) {
+                value = pushback[pushbackOffset++] & 0xFF;
+            } else {
+                value = inputStream.read();
+                if (value == -1) throw new EOFException();
+            }
+            position++;
+            return value;
+        }
+
+        int readUInt16BE() throws IOException {
+            return (readUInt8() << 8) | readUInt8();
+        }
+
+        void skip(long count) throws IOException {
+            long remaining = count;
+            if (pushback != null && pushbackOffset < pushbackEnd) {
+                int skipped = (int) Math.min(remaining, pushbackEnd - pushbackOffset);
+                pushbackOffset += skipped;
+                remaining -= skipped;
+            }
+            while (remaining > 0) {
+                long skipped = inputStream.skip(remaining);
+                if (skipped <= 0) {
+                    // Some streams return 0 before the end, read one byte to tell
+                    if (inputStream.read() == -1) throw new EOFException();
+                    skipped = 1;
+                }
+                remaining -= skipped;
+            }
+            position += count;
+        }
+    }
+}
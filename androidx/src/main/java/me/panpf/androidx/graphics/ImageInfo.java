@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * The format, size and EXIF orientation of an image, obtained by {@link Imagex#probe(java.io.File)}
+ */
+@SuppressWarnings("WeakerAccess")
+public class ImageInfo {
+
+    /**
+     * The orientation is unknown or the format does not carry it, same as {@link android.media.ExifInterface#ORIENTATION_UNDEFINED}
+     */
+    public static final int ORIENTATION_UNDEFINED = 0;
+
+    @Nullable
+    private final String mimeType;
+    private final int width;
+    private final int height;
+    private final int exifOrientation;
+
+    ImageInfo(@Nullable String mimeType, int width, int height, int exifOrientation) {
+        this.mimeType = mimeType;
+        this.width = width;
+        this.height = height;
+        this.exifOrientation = exifOrientation;
+    }
+
+    /**
+     * Get the MimeType of the image, for example 'image/jpeg', null if the format is unknown
+     */
+    @Nullable
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * Get the width stored in the image, the EXIF orientation is not applied. -1 if unknown
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height stored in the image, the EXIF orientation is not applied. -1 if unknown
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the EXIF orientation, one of the ORIENTATION_ constants of {@link android.media.ExifInterface}, {@link #ORIENTATION_UNDEFINED} if unknown
+     */
+    public int getExifOrientation() {
+        return exifOrientation;
+    }
+
+    /**
+     * Return true if the width and height are swapped when the EXIF orientation is applied
+     */
+    public boolean isSwapWidthHeight() {
+        // ORIENTATION_TRANSPOSE, ORIENTATION_ROTATE_90, ORIENTATION_TRANSVERSE, ORIENTATION_ROTATE_270
+        return exifOrientation >= 5 && exifOrientation <= 8;
+    }
+
+    boolean hasSize() {
+        return width > 0 && height > 0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ImageInfo(mimeType=" + mimeType + ", width=" + width + ", height=" + height + ", exifOrientation=" + exifOrientation + ")";
+    }
+}
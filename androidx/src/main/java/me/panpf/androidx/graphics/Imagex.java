@@ -20,12 +20,27 @@ import android.content.res.Resources;
 import android.graphics.BitmapFactory;
 import android.graphics.Rect;
 import android.support.annotation.DrawableRes;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
 import android.util.TypedValue;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.panpf.javax.io.IOStreamx;
 
 @SuppressWarnings("WeakerAccess")
 public class Imagex {
@@ -40,11 +55,8 @@ public class Imagex {
      */
     @Nullable
     public static String getMimeType(@Nullable File file) {
-        if (file == null) return null;
-        BitmapFactory.Options options = new BitmapFactory.Options();
-        options.inJustDecodeBounds = true;
-        BitmapFactory.decodeFile(file.getPath(), options);
-        return options.outMimeType;
+        ImageInfo imageInfo = probe(file);
+        return imageInfo != null ? imageInfo.getMimeType() : null;
     }
 
     /**
@@ -52,11 +64,8 @@ public class Imagex {
      */
     @Nullable
     public static String getMimeType(@Nullable InputStream inputStream) {
-        if (inputStream == null) return null;
-        BitmapFactory.Options options = new BitmapFactory.Options();
-        options.inJustDecodeBounds = true;
-        BitmapFactory.decodeStream(inputStream, null, options);
-        return options.outMimeType;
+        ImageInfo imageInfo = probe(inputStream);
+        return imageInfo != null ? imageInfo.getMimeType() : null;
     }
 
     /**
@@ -64,11 +73,8 @@ public class Imagex {
      */
     @Nullable
     public static String getMimeType(@Nullable byte[] data, int offset, int length) {
-        if (data == null) return null;
-        BitmapFactory.Options options = new BitmapFactory.Options();
-        options.inJustDecodeBounds = true;
-        BitmapFactory.decodeByteArray(data, offset, length, options);
-        return options.outMimeType;
+        ImageInfo imageInfo = probe(data, offset, length);
+        return imageInfo != null ? imageInfo.getMimeType() : null;
     }
 
     /**
@@ -223,4 +229,191 @@ public class Imagex {
         }
         return null;
     }
+
+
+    /* ************************************** probe ******************************************  */
+
+    /**
+     * Identify the format and read the size and EXIF orientation from the header of the image without decoding,
+     * BitmapFactory is used only when the format is unknown or the size is not found in the header
+     *
+     * @return null if it is not an image
+     */
+    @Nullable
+    public static ImageInfo probe(@Nullable File file) {
+        if (file == null) return null;
+        ImageInfo imageInfo = null;
+        InputStream inputStream = null;
+        try {
+            inputStream = new BufferedInputStream(new FileInputStream(file), 8 * 1024);
+            imageInfo = parseHeader(inputStream);
+        } catch (IOException e) {
+            // Not found, let BitmapFactory decide
+        } finally {
+            IOStreamx.safeClose(inputStream);
+        }
+        if (imageInfo != null && imageInfo.hasSize()) {
+            return imageInfo;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        return merge(imageInfo, options);
+    }
+
+    /**
+     * Identify the format and read the size and EXIF orientation from the header of the image without decoding,
+     * BitmapFactory is used only when the format is unknown or the size is not found in the header.
+     * <p>
+     * If [inputStream] supports mark, it is reset to the current position after probing, otherwise it is consumed
+     *
+     * @return null if it is not an image
+     */
+    @Nullable
+    public static ImageInfo probe(@Nullable InputStream inputStream) {
+        if (inputStream == null) return null;
+        InputStream markableInputStream = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream);
+        // The 'meta' box of HEIF may follow MAX_HEADER_BYTES of other boxes
+        markableInputStream.mark(ImageHeaderParser.MAX_HEADER_BYTES * 2 + 64);
+        ImageInfo imageInfo = parseHeader(markableInputStream);
+        boolean reset;
+        try {
+            markableInputStream.reset();
+            reset = true;
+        } catch (IOException e) {
+            reset = false;
+        }
+        if ((imageInfo != null && imageInfo.hasSize()) || !reset) {
+            return imageInfo;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeStream(markableInputStream, null, options);
+        if (markableInputStream == inputStream) {
+            try {
+                inputStream.reset();
+            } catch (IOException e) {
+                // BitmapFactory has read more than the mark limit
+            }
+        }
+        return merge(imageInfo, options);
+    }
+
+    /**
+     * Identify the format and read the size and EXIF orientation from the header of the image without decoding,
+     * BitmapFactory is used only when the format is unknown or the size is not found in the header
+     *
+     * @return null if it is not an image
+     */
+    @Nullable
+    public static ImageInfo probe(@Nullable byte[] data, int offset, int length) {
+        if (data == null) return null;
+        ImageInfo imageInfo = parseHeader(new ByteArrayInputStream(data, offset, length));
+        if (imageInfo != null && imageInfo.hasSize()) {
+            return imageInfo;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, offset, length, options);
+        return merge(imageInfo, options);
+    }
+
+    /**
+     * Identify the format and read the size and EXIF orientation from the header of the image without decoding,
+     * BitmapFactory is used only when the format is unknown or the size is not found in the header
+     *
+     * @return null if it is not an image
+     */
+    @Nullable
+    public static ImageInfo probe(@Nullable byte[] data) {
+        if (data == null) return null;
+        return probe(data, 0, data.length);
+    }
+
+    /**
+     * Probe the given files in parallel
+     *
+     * @param threadCount Max number of files probed at the same time
+     * @return The results in the same order as [files], null for the files that are not images
+     */
+    @WorkerThread
+    @NonNull
+    public static ImageInfo[] probeAll(@NonNull final List<File> files, int threadCount) {
+        if (threadCount <= 0) throw new IllegalArgumentException("threadCount must be greater than 0: " + threadCount);
+        final ImageInfo[] imageInfos = new ImageInfo[files.size()];
+        int workerCount = Math.min(threadCount, files.size());
+        if (workerCount <= 1) {
+            for (int i = 0; i < imageInfos.length; i++) {
+                imageInfos[i] = probe(files.get(i));
+            }
+            return imageInfos;
+        }
+
+        final AtomicInteger nextIndex = new AtomicInteger();
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int index;
+                while ((index = nextIndex.getAndIncrement()) < imageInfos.length && !Thread.currentThread().isInterrupted()) {
+                    imageInfos[index] = probe(files.get(index));
+                }
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        List<Future<?>> futures = new ArrayList<>(workerCount);
+        try {
+            for (int i = 0; i < workerCount; i++) {
+                futures.add(executor.submit(worker));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        } finally {
+            executor.shutdownNow();
+        }
+        return imageInfos;
+    }
+
+    /**
+     * Probe the given files in parallel with up to 4 threads
+     *
+     * @return The results in the same order as [files], null for the files that are not images
+     */
+    @WorkerThread
+    @NonNull
+    public static ImageInfo[] probeAll(@NonNull List<File> files) {
+        return probeAll(files, Math.max(Math.min(Runtime.getRuntime().availableProcessors(), 4), 1));
+    }
+
+    /**
+     * Parse the header, a truncated or malformed header returns null and is left to BitmapFactory
+     */
+    @Nullable
+    private static ImageInfo parseHeader(@NonNull InputStream inputStream) {
+        try {
+            return ImageHeaderParser.parse(inputStream);
+        } catch (IOException e) {
+            return null;
+        } catch (RuntimeException e) {
+            // A corrupt image must not crash the caller, such as a gallery scan
+            return null;
+        }
+    }
+
+    @Nullable
+    private static ImageInfo merge(@Nullable ImageInfo headerInfo, @NonNull BitmapFactory.Options boundsOptions) {
+        if (boundsOptions.outWidth > 0 && boundsOptions.outHeight > 0) {
+            String mimeType = boundsOptions.outMimeType != null ? boundsOptions.outMimeType : (headerInfo != null ? headerInfo.getMimeType() : null);
+            int orientation = headerInfo != null ? headerInfo.getExifOrientation() : ImageInfo.ORIENTATION_UNDEFINED;
+            return new ImageInfo(mimeType, boundsOptions.outWidth, boundsOptions.outHeight, orientation);
+        }
+        return headerInfo;
+    }
 }
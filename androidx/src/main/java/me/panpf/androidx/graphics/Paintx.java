@@ -18,9 +18,10 @@ package me.panpf.androidx.graphics;
 
 import android.graphics.Paint;
 import android.graphics.Paint.FontMetrics;
-import android.graphics.Rect;
 import android.support.annotation.NonNull;
 
+import java.util.List;
+
 @SuppressWarnings("WeakerAccess")
 public class Paintx {
 
@@ -35,9 +36,7 @@ public class Paintx {
      * @return 给定文字的宽度
      */
     public static float getTextWidth(@NonNull String text, float textSize) {
-        Paint paint = new Paint();
-        paint.setTextSize(textSize);
-        return paint.measureText(text);
+        return TextMeasureCache.getDefault().getTextWidth(text, textSize);
     }
 
     /**
@@ -58,10 +57,7 @@ public class Paintx {
      * @return 文字的高度
      */
     public static float getTextHeight(float textSize) {
-        Paint paint = new Paint();
-        paint.setTextSize(textSize);
-        FontMetrics fm = paint.getFontMetrics();
-        return fm.descent - fm.ascent;
+        return TextMeasureCache.getDefault().getTextHeight(textSize);
     }
 
     /**
@@ -83,11 +79,7 @@ public class Paintx {
      * @return 文字的宽度
      */
     public static int getTextWidthByBounds(@NonNull String text, float textSize) {
-        Paint paint = new Paint();
-        Rect bounds = new Rect();
-        paint.setTextSize(textSize);
-        paint.getTextBounds(text, 0, text.length(), bounds);
-        return bounds.width();
+        return TextMeasureCache.getDefault().getTextWidthByBounds(text, textSize, null, TextMeasureCache.DEFAULT_FLAGS);
     }
 
     /**
@@ -98,11 +90,19 @@ public class Paintx {
      * @return 文字的高度
      */
     public static int getTextHeightByBounds(@NonNull String text, float textSize) {
-        Paint paint = new Paint();
-        Rect bounds = new Rect();
-        paint.setTextSize(textSize);
-        paint.getTextBounds(text, 0, text.length(), bounds);
-        return bounds.height();
+        return TextMeasureCache.getDefault().getTextHeightByBounds(text, textSize, null, TextMeasureCache.DEFAULT_FLAGS);
+    }
+
+    /**
+     * 一次获取多个文字的宽度
+     *
+     * @param texts    要计算的文字
+     * @param textSize 文字大小
+     * @return 每个文字的宽度
+     */
+    @NonNull
+    public static float[] getTextWidths(@NonNull List<String> texts, float textSize) {
+        return TextMeasureCache.getDefault().getTextWidths(texts, textSize);
     }
 
     /**
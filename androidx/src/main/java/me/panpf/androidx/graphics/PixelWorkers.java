@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared worker pool that splits a large pixel buffer into ranges processed on all CPU cores,
+ * used by {@link Colorx} and {@link BitmapFilter}
+ */
+class PixelWorkers {
+
+    /**
+     * Buffers smaller than this are processed on the calling thread, splitting them costs more than it saves
+     */
+    static final int PARALLEL_THRESHOLD = 256 * 256;
+
+    @Nullable
+    private static volatile ThreadPoolExecutor executor;
+
+    private PixelWorkers() {
+    }
+
+    @NonNull
+    private static ThreadPoolExecutor getExecutor() {
+        ThreadPoolExecutor currentExecutor = executor;
+        if (currentExecutor == null) {
+            synchronized (PixelWorkers.class) {
+                currentExecutor = executor;
+                if (currentExecutor == null) {
+                    // The calling thread processes one range itself
+                    int workerCount = Math.max(Runtime.getRuntime().availableProcessors() - 1, 1);
+                    final AtomicInteger threadNumber = new AtomicInteger();
+                    currentExecutor = new ThreadPoolExecutor(workerCount, workerCount, 30, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(@NonNull Runnable runnable) {
+                            Thread thread = new Thread(runnable, "PixelWorker-" + threadNumber.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                    currentExecutor.allowCoreThreadTimeOut(true);
+                    executor = currentExecutor;
+                }
+            }
+        }
+        return currentExecutor;
+    }
+
+    /**
+     * Run [op] over [offset, offset + length), split into one range per CPU core if the range is large enough.
+     * The first range runs on the calling thread, returns after all ranges are done
+     */
+    static void run(int offset, int length, @NonNull RangeOp op) {
+        int cpuCount = Runtime.getRuntime().availableProcessors();
+        if (length < PARALLEL_THRESHOLD || cpuCount <= 1) {
+            op.apply(offset, offset + length);
+        } else {
+            run(offset, offset + length, cpuCount, PARALLEL_THRESHOLD / 4, op);
+        }
+    }
+
+    /**
+     * Run [op] over [start, end), split into at most [maxRangeCount] ranges of at least [minRangeLength].
+     * The first range runs on the calling thread and the others on the shared workers, returns after all ranges are done
+     */
+    static void run(int start, int end, int maxRangeCount, int minRangeLength, @NonNull final RangeOp op) {
+        int length = end - start;
+        int rangeCount = Math.max(Math.min(maxRangeCount, length / Math.max(minRangeLength, 1)), 1);
+        if (rangeCount == 1) {
+            op.apply(start, end);
+            return;
+        }
+
+        int rangeLength = (length + rangeCount - 1) / rangeCount;
+        ThreadPoolExecutor workers = getExecutor();
+        List<Future<?>> futures = new ArrayList<>(rangeCount - 1);
+        for (int rangeStart = start + rangeLength; rangeStart < end; rangeStart += rangeLength) {
+            final int finalRangeStart = rangeStart;
+            final int rangeEnd = Math.min(rangeStart + rangeLength, end);
+            futures.add(workers.submit(new Runnable() {
+                @Override
+                public void run() {
+                    op.apply(finalRangeStart, rangeEnd);
+                }
+            }));
+        }
+        op.apply(start, Math.min(start + rangeLength, end));
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                for (Future<?> otherFuture : futures) {
+                    otherFuture.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while processing pixels", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Processing pixels failed", e.getCause());
+            }
+        }
+    }
+
+    interface RangeOp {
+        /**
+         * Process the pixels in [start, end)
+         */
+        void apply(int start, int end);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.graphics.Bitmap;
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import me.panpf.androidx.util.Textx;
+
+/**
+ * LRU cache of the bitmaps rendered by {@link Textx#textToBitmap(String, int, float)}, keyed by text, color and size and bounded by the byte count of the bitmaps.
+ * <p>
+ * The cached bitmaps are shared by all callers, they must not be modified or recycled. Evicted bitmaps are not recycled either, because they may still be displayed
+ */
+@SuppressWarnings("WeakerAccess")
+public class TextBitmapCache {
+
+    @NonNull
+    private final LruCache<Key, Bitmap> cache;
+
+    /**
+     * @param maxBytes Max total byte count of the cached bitmaps
+     */
+    public TextBitmapCache(int maxBytes) {
+        if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes must be greater than 0: " + maxBytes);
+        this.cache = new LruCache<Key, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return BitmapPool.getByteCount(value);
+            }
+        };
+    }
+
+    /**
+     * Get the bitmap of [text], it is rendered by {@link Textx#textToBitmap(String, int, float)} only on the first call
+     */
+    @NonNull
+    public Bitmap get(@NonNull String text, @ColorInt int textColor, float textSize) {
+        Key key = new Key(text, textColor, textSize);
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null || bitmap.isRecycled()) {
+            bitmap = Textx.textToBitmap(text, textColor, textSize);
+            cache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Get the bitmap of [text] only if it has been rendered
+     */
+    @Nullable
+    public Bitmap getIfPresent(@NonNull String text, @ColorInt int textColor, float textSize) {
+        Bitmap bitmap = cache.get(new Key(text, textColor, textSize));
+        return bitmap != null && !bitmap.isRecycled() ? bitmap : null;
+    }
+
+    public void remove(@NonNull String text, @ColorInt int textColor, float textSize) {
+        cache.remove(new Key(text, textColor, textSize));
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+
+    /**
+     * Get the total byte count of the cached bitmaps
+     */
+    public int getSize() {
+        return cache.size();
+    }
+
+    public int getMaxSize() {
+        return cache.maxSize();
+    }
+
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    public int getMissCount() {
+        return cache.missCount();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "TextBitmapCache(size=" + cache.size() + ", maxSize=" + cache.maxSize()
+                + ", hitCount=" + cache.hitCount() + ", missCount=" + cache.missCount() + ")";
+    }
+
+    private static class Key {
+        @NonNull
+        final String text;
+        final int textColor;
+        final float textSize;
+
+        Key(@NonNull String text, int textColor, float textSize) {
+            this.text = text;
+            this.textColor = textColor;
+            this.textSize = textSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return textColor == key.textColor && Float.compare(key.textSize, textSize) == 0 && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = text.hashCode();
+            result = 31 * result + textColor;
+            result = 31 * result + Float.floatToIntBits(textSize);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+
+import java.util.List;
+
+/**
+ * Thread-safe LRU cache of text measurements keyed by text, text size, typeface and paint flags.
+ * <p>
+ * Misses are measured with a {@link Paint} reused by each thread, so neither hits nor misses allocate a Paint or a Rect
+ */
+@SuppressWarnings("WeakerAccess")
+public class TextMeasureCache {
+
+    private static final int DEFAULT_MAX_SIZE = 512;
+
+    /**
+     * The flags of a Paint created by {@code new Paint()}, they differ between Android versions
+     */
+    public static final int DEFAULT_FLAGS = new Paint().getFlags();
+
+    private static final ThreadLocal<Paint> PAINT = new ThreadLocal<Paint>() {
+        @Override
+        protected Paint initialValue() {
+            return new Paint();
+        }
+    };
+    private static final ThreadLocal<Rect> BOUNDS = new ThreadLocal<Rect>() {
+        @Override
+        protected Rect initialValue() {
+            return new Rect();
+        }
+    };
+
+    @Nullable
+    private static volatile TextMeasureCache defaultInstance;
+
+    /**
+     * Text measurements and font metrics share one LRU, font metrics use a null text
+     */
+    @NonNull
+    private final LruCache<Key, Entry> cache;
+
+    /**
+     * @param maxSize Max number of cached measurements
+     */
+    public TextMeasureCache(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be greater than 0: " + maxSize);
+        this.cache = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Get the shared instance that caches 512 measurements, it is used by {@link Paintx}
+     */
+    @NonNull
+    public static TextMeasureCache getDefault() {
+        TextMeasureCache measureCache = defaultInstance;
+        if (measureCache == null) {
+            synchronized (TextMeasureCache.class) {
+                measureCache = defaultInstance;
+                if (measureCache == null) {
+                    measureCache = new TextMeasureCache(DEFAULT_MAX_SIZE);
+                    defaultInstance = measureCache;
+                }
+            }
+        }
+        return measureCache;
+    }
+
+    /**
+     * Get the width of [text] measured by {@link Paint#measureText(String)}
+     *
+     * @param typeface null means the default typeface
+     * @param flags    Paint flags, such as {@link #DEFAULT_FLAGS} or {@link Paint#getFlags()}
+     */
+    public float getTextWidth(@NonNull String text, float textSize, @Nullable Typeface typeface, int flags) {
+        return getEntry(text, textSize, typeface, flags).width;
+    }
+
+    /**
+     * Get the width of [text] measured by {@link Paint#measureText(String)} with the default typeface and flags
+     */
+    public float getTextWidth(@NonNull String text, float textSize) {
+        return getTextWidth(text, textSize, null, DEFAULT_FLAGS);
+    }
+
+    /**
+     * Get the width of [text] measured by {@link Paint#measureText(String)} with the text size, typeface and flags of [paint]
+     */
+    public float getTextWidth(@NonNull String text, @NonNull Paint paint) {
+        return getTextWidth(text, paint.getTextSize(), paint.getTypeface(), paint.getFlags());
+    }
+
+    /**
+     * Measure the width of all [texts] at once, the pooled Paint is set up only once for all misses
+     *
+     * @param outWidths Receives the widths, its length must be greater than or equal to the size of [texts], null means to create a new array
+     * @return [outWidths] or the new array
+     */
+    @NonNull
+    public float[] getTextWidths(@NonNull List<String> texts, float textSize, @Nullable Typeface typeface, int flags, @Nullable float[] outWidths) {
+        int size = texts.size();
+        if (outWidths != null && outWidths.length < size) {
+            throw new IllegalArgumentException("outWidths length must be greater than or equal to texts size: " + outWidths.length);
+        }
+        float[] widths = outWidths != null ? outWidths : new float[size];
+        Paint paint = null;
+        for (int i = 0; i < size; i++) {
+            String text = texts.get(i);
+            Key key = new Key(text, textSize, typeface, flags);
+            Entry entry = cache.get(key);
+            if (entry == null) {
+                if (paint == null) {
+                    paint = preparePaint(textSize, typeface, flags);
+                }
+                entry = new Entry(paint.measureText(text));
+                cache.put(key, entry);
+            }
+            widths[i] = entry.width;
+        }
+        return widths;
+    }
+
+    /**
+     * Measure the width of all [texts] at once with the default typeface and flags
+     */
+    @NonNull
+    public float[] getTextWidths(@NonNull List<String> texts, float textSize) {
+        return getTextWidths(texts, textSize, null, DEFAULT_FLAGS, null);
+    }
+
+    /**
+     * Get the width of the bounds of [text] measured by {@link Paint#getTextBounds(String, int, int, Rect)}
+     */
+    public int getTextWidthByBounds(@NonNull String text, float textSize, @Nullable Typeface typeface, int flags) {
+        return getBoundsEntry(text, textSize, typeface, flags).boundsWidth;
+    }
+
+    /**
+     * Get the height of the bounds of [text] measured by {@link Paint#getTextBounds(String, int, int, Rect)}
+     */
+    public int getTextHeightByBounds(@NonNull String text, float textSize, @Nullable Typeface typeface, int flags) {
+        return getBoundsEntry(text, textSize, typeface, flags).boundsHeight;
+    }
+
+    /**
+     * Get descent - ascent of the font metrics
+     */
+    public float getTextHeight(float textSize, @Nullable Typeface typeface, int flags) {
+        return getMetricsEntry(textSize, typeface, flags).width;
+    }
+
+    /**
+     * Get descent - ascent of the font metrics with the default typeface and flags
+     */
+    public float getTextHeight(float textSize) {
+        return getTextHeight(textSize, null, DEFAULT_FLAGS);
+    }
+
+    /**
+     * Get leading - ascent of the font metrics, that is the distance from the top to the baseline
+     */
+    public float getTextLeading(float textSize, @Nullable Typeface typeface, int flags) {
+        return getMetricsEntry(textSize, typeface, flags).leading;
+    }
+
+    public void clear() {
+        cache.evictAll();
+    }
+
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    public int getMissCount() {
+        return cache.missCount();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "TextMeasureCache(size=" + cache.size() + ", maxSize=" + cache.maxSize()
+                + ", hitCount=" + cache.hitCount() + ", missCount=" + cache.missCount() + ")";
+    }
+
+    @NonNull
+    private Entry getEntry(@NonNull String text, float textSize, @Nullable Typeface typeface, int flags) {
+        Key key = new Key(text, textSize, typeface, flags);
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            entry = new Entry(preparePaint(textSize, typeface, flags).measureText(text));
+            cache.put(key, entry);
+        }
+        return entry;
+    }
+
+    @NonNull
+    private Entry getBoundsEntry(@NonNull String text, float textSize, @Nullable Typeface typeface, int flags) {
+        Entry entry = getEntry(text, textSize, typeface, flags);
+        if (entry.boundsWidth < 0) {
+            // Measured at most a few times if multiple threads miss at the same time, the result is the same
+            Rect bounds = BOUNDS.get();
+            preparePaint(textSize, typeface, flags).getTextBounds(text, 0, text.length(), bounds);
+            entry.boundsHeight = bounds.height();
+            entry.boundsWidth = bounds.width();
+        }
+        return entry;
+    }
+
+    @NonNull
+    private Entry getMetricsEntry(float textSize, @Nullable Typeface typeface, int flags) {
+        Key key = new Key(null, textSize, typeface, flags);
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            Paint.FontMetrics fm = preparePaint(textSize, typeface, flags).getFontMetrics();
+            entry = new Entry(fm.descent - fm.ascent);
+            entry.leading = fm.leading - fm.ascent;
+            cache.put(key, entry);
+        }
+        return entry;
+    }
+
+    @NonNull
+    private static Paint preparePaint(float textSize, @Nullable Typeface typeface, int flags) {
+        Paint paint = PAINT.get();
+        paint.setFlags(flags);
+        paint.setTextSize(textSize);
+        paint.setTypeface(typeface);
+        return paint;
+    }
+
+    private static class Key {
+        @Nullable
+        final String text;
+        final float textSize;
+        @Nullable
+        final Typeface typeface;
+        final int flags;
+
+        Key(@Nullable String text, float textSize, @Nullable Typeface typeface, int flags) {
+            this.text = text;
+            this.textSize = textSize;
+            this.typeface = typeface;
+            this.flags = flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Float.compare(key.textSize, textSize) == 0 && flags == key.flags
+                    && (text != null ? text.equals(key.text) : key.text == null)
+                    && (typeface != null ? typeface.equals(key.typeface) : key.typeface == null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = text != null ? text.hashCode() : 0;
+            result = 31 * result + Float.floatToIntBits(textSize);
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            result = 31 * result + flags;
+            return result;
+        }
+    }
+
+    /**
+     * For font metrics [width] is the text height
+     */
+    private static class Entry {
+        final float width;
+        volatile int boundsWidth = -1;
+        volatile int boundsHeight = -1;
+        float leading;
+
+        Entry(float width) {
+            this.width = width;
+        }
+    }
+}
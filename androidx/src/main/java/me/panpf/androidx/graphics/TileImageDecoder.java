@@ -0,0 +1,508 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import me.panpf.androidx.Androidx;
+
+/**
+ * Decode very large images by tiles with {@link BitmapRegionDecoder}.
+ * <p>
+ * The image is split into square tiles for each zoom level, the zoom level is the power of two inSampleSize chosen by the display scale.
+ * Only the tiles that intersect the visible rect are decoded on a bounded worker pool, each worker uses its own {@link BitmapRegionDecoder}.
+ * Decoded tiles are kept in a LRU cache with a byte budget, evicted tile bitmaps are returned to the {@link BitmapPool} and reused by later tiles.
+ * Pending tiles that leave the visible rect are canceled.
+ * <p>
+ * Except for the constructor, all methods must be called on the main thread
+ */
+@SuppressWarnings("WeakerAccess")
+public class TileImageDecoder {
+
+    private static final int DEFAULT_TILE_SIZE = 256;
+
+    @NonNull
+    private final DecoderFactory decoderFactory;
+    @NonNull
+    private final BitmapPool bitmapPool;
+    @NonNull
+    private final ThreadPoolExecutor executor;
+    @NonNull
+    private final LinkedList<BitmapRegionDecoder> idleDecoders = new LinkedList<>();
+    /**
+     * Accessed only on the main thread, so a tile bitmap is never returned to the pool while it is being drawn
+     */
+    @NonNull
+    private final LinkedHashMap<TileKey, Tile> tileCache = new LinkedHashMap<>(16, 0.75f, true);
+    @NonNull
+    private final Map<TileKey, DecodeTask> pendingTiles = new HashMap<>();
+    private final int imageWidth;
+    private final int imageHeight;
+    private final int tileSize;
+    private final long maxCacheBytes;
+    private long cacheBytes;
+
+    @Nullable
+    private Bitmap.Config config;
+    @Nullable
+    private Listener listener;
+    @NonNull
+    private final Set<TileKey> visibleTileKeys = new HashSet<>();
+    private volatile boolean recycled;
+
+    /**
+     * @param decoderFactory Create a {@link BitmapRegionDecoder} of the same image for each worker
+     * @param bitmapPool     Tile bitmaps are taken from and returned to it
+     * @param maxCacheBytes  Max total byte count of the cached tiles, it should be able to hold all visible tiles
+     * @param tileSize       The width and height of a tile in the sampled image
+     * @param threadCount    Max number of tiles decoded at the same time
+     * @throws IOException The first decoder can not be created
+     */
+    public TileImageDecoder(@NonNull DecoderFactory decoderFactory, @NonNull BitmapPool bitmapPool, long maxCacheBytes, int tileSize, int threadCount) throws IOException {
+        if (maxCacheBytes <= 0) throw new IllegalArgumentException("maxCacheBytes must be greater than 0: " + maxCacheBytes);
+        if (tileSize <= 0) throw new IllegalArgumentException("tileSize must be greater than 0: " + tileSize);
+        if (threadCount <= 0) throw new IllegalArgumentException("threadCount must be greater than 0: " + threadCount);
+        this.decoderFactory = decoderFactory;
+        this.bitmapPool = bitmapPool;
+        this.maxCacheBytes = maxCacheBytes;
+        this.tileSize = tileSize;
+
+        BitmapRegionDecoder firstDecoder = decoderFactory.create();
+        this.imageWidth = firstDecoder.getWidth();
+        this.imageHeight = firstDecoder.getHeight();
+        idleDecoders.add(firstDecoder);
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "TileImageDecoder-" + threadNumber.incrementAndGet());
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        });
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.executor = threadPoolExecutor;
+    }
+
+    /**
+     * Use a 256 pixels tile and 2 worker threads
+     *
+     * @param file          Image file
+     * @param bitmapPool    Tile bitmaps are taken from and returned to it
+     * @param maxCacheBytes Max total byte count of the cached tiles, it should be able to hold all visible tiles
+     * @throws IOException The image can not be decoded by {@link BitmapRegionDecoder}
+     */
+    public TileImageDecoder(@NonNull final File file, @NonNull BitmapPool bitmapPool, long maxCacheBytes) throws IOException {
+        this(new DecoderFactory() {
+            @NonNull
+            @Override
+            public BitmapRegionDecoder create() throws IOException {
+                return BitmapRegionDecoder.newInstance(file.getPath(), false);
+            }
+        }, bitmapPool, maxCacheBytes, DEFAULT_TILE_SIZE, 2);
+    }
+
+    /**
+     * Calculate the zoom level of the given display scale, it is the largest power of two inSampleSize not greater than 1 / [scale]
+     *
+     * @param scale The ratio of the displayed size to the original size of the image
+     */
+    public static int calculateInSampleSize(float scale) {
+        int inSampleSize = 1;
+        if (scale <= 0) {
+            return inSampleSize;
+        }
+        while (inSampleSize * 2 * scale <= 1f) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    public int getImageWidth() {
+        return imageWidth;
+    }
+
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Set the preferred config of tile bitmaps, null means ARGB_8888
+     */
+    @MainThread
+    public void setConfig(@Nullable Bitmap.Config config) {
+        this.config = config;
+    }
+
+    /**
+     * @param listener Called on the main thread when a tile is decoded
+     */
+    @MainThread
+    public void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Decode the tiles that intersect [visibleRect] at the zoom level of [scale] and are not cached,
+     * pending tiles that no longer intersect it are canceled
+     *
+     * @param visibleRect The visible region in the coordinates of the original image
+     * @param scale       The ratio of the displayed size to the original size of the image
+     */
+    @MainThread
+    public void update(@NonNull Rect visibleRect, float scale) {
+        if (recycled) return;
+
+        visibleTileKeys.clear();
+        Rect imageRect = new Rect(0, 0, imageWidth, imageHeight);
+        Rect rect = new Rect(visibleRect);
+        if (rect.intersect(imageRect)) {
+            int inSampleSize = calculateInSampleSize(scale);
+            int tileImageSize = tileSize * inSampleSize;
+            int firstColumn = rect.left / tileImageSize;
+            int lastColumn = (rect.right - 1) / tileImageSize;
+            int firstRow = rect.top / tileImageSize;
+            int lastRow = (rect.bottom - 1) / tileImageSize;
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    visibleTileKeys.add(new TileKey(inSampleSize, column, row));
+                }
+            }
+        }
+
+        Iterator<Map.Entry<TileKey, DecodeTask>> iterator = pendingTiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<TileKey, DecodeTask> entry = iterator.next();
+            if (!visibleTileKeys.contains(entry.getKey())) {
+                cancel(entry.getValue());
+                iterator.remove();
+            }
+        }
+
+        for (TileKey tileKey : visibleTileKeys) {
+            if (tileCache.get(tileKey) == null && !pendingTiles.containsKey(tileKey)) {
+                DecodeTask task = new DecodeTask(tileKey, tileRect(tileKey), config);
+                pendingTiles.put(tileKey, task);
+                executor.execute(task);
+            }
+        }
+    }
+
+    /**
+     * Get the decoded tiles that intersect the visible rect of the last {@link #update(Rect, float)}
+     */
+    @MainThread
+    @NonNull
+    public List<Tile> getVisibleTiles() {
+        List<Tile> tiles = new ArrayList<>(visibleTileKeys.size());
+        for (TileKey tileKey : visibleTileKeys) {
+            Tile tile = tileCache.get(tileKey);
+            if (tile != null) {
+                tiles.add(tile);
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Get the total byte count of the cached tiles
+     */
+    @MainThread
+    public long getCacheBytes() {
+        return cacheBytes;
+    }
+
+    /**
+     * Cancel all pending tiles and return all cached tile bitmaps to the pool, the cache is refilled by the next {@link #update(Rect, float)}
+     */
+    @MainThread
+    public void clean() {
+        for (DecodeTask task : pendingTiles.values()) {
+            cancel(task);
+        }
+        pendingTiles.clear();
+        trimCache(0);
+    }
+
+    /**
+     * Release all resources, this decoder can no longer be used
+     */
+    @MainThread
+    public void recycle() {
+        if (recycled) return;
+        recycled = true;
+        clean();
+        visibleTileKeys.clear();
+        executor.shutdown();
+        synchronized (idleDecoders) {
+            for (BitmapRegionDecoder decoder : idleDecoders) {
+                decoder.recycle();
+            }
+            idleDecoders.clear();
+        }
+    }
+
+    public boolean isRecycled() {
+        return recycled;
+    }
+
+    @NonNull
+    private Rect tileRect(@NonNull TileKey tileKey) {
+        int tileImageSize = tileSize * tileKey.inSampleSize;
+        int left = tileKey.column * tileImageSize;
+        int top = tileKey.row * tileImageSize;
+        return new Rect(left, top, Math.min(left + tileImageSize, imageWidth), Math.min(top + tileImageSize, imageHeight));
+    }
+
+    private void cancel(@NonNull DecodeTask task) {
+        task.canceled = true;
+        // Not started yet, remove it from the queue so that it does not occupy a worker
+        executor.remove(task);
+    }
+
+    /**
+     * A tile canceled while decoding is still cached, it may be visible again soon
+     */
+    private void onTileDecoded(@NonNull DecodeTask task, @Nullable Tile tile) {
+        TileKey tileKey = task.tileKey;
+        if (pendingTiles.get(tileKey) == task) {
+            pendingTiles.remove(tileKey);
+        }
+        if (tile == null) return;
+        if (recycled) {
+            Bitmapx.recycleToPool(tile.bitmap, bitmapPool);
+            return;
+        }
+
+        Tile oldTile = tileCache.put(tileKey, tile);
+        if (oldTile != null) {
+            cacheBytes -= BitmapPool.getByteCount(oldTile.bitmap);
+            Bitmapx.recycleToPool(oldTile.bitmap, bitmapPool);
+        }
+        cacheBytes += BitmapPool.getByteCount(tile.bitmap);
+        trimCache(maxCacheBytes);
+
+        Listener listener = this.listener;
+        if (listener != null && tileCache.containsKey(tileKey)) {
+            listener.onTileDecoded(tile);
+        }
+    }
+
+    private void trimCache(long targetBytes) {
+        Iterator<Map.Entry<TileKey, Tile>> iterator = tileCache.entrySet().iterator();
+        while (cacheBytes > targetBytes && iterator.hasNext()) {
+            Tile tile = iterator.next().getValue();
+            iterator.remove();
+            cacheBytes -= BitmapPool.getByteCount(tile.bitmap);
+            Bitmapx.recycleToPool(tile.bitmap, bitmapPool);
+        }
+    }
+
+    @Nullable
+    private BitmapRegionDecoder obtainDecoder() {
+        synchronized (idleDecoders) {
+            if (!idleDecoders.isEmpty()) {
+                return idleDecoders.removeFirst();
+            }
+        }
+        try {
+            return decoderFactory.create();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void releaseDecoder(@NonNull BitmapRegionDecoder decoder) {
+        synchronized (idleDecoders) {
+            if (!recycled) {
+                idleDecoders.add(decoder);
+                return;
+            }
+        }
+        decoder.recycle();
+    }
+
+    @Nullable
+    private Bitmap decodeRegion(@NonNull BitmapRegionDecoder decoder, @NonNull Rect rect, int inSampleSize, @Nullable Bitmap.Config config) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = inSampleSize;
+        options.inMutable = true;
+        if (config != null) {
+            options.inPreferredConfig = config;
+        }
+        Bitmap inBitmap = bitmapPool.getDirty(Bitmapx.calculateSamplingSizeForRegion(rect.width(), inSampleSize),
+                Bitmapx.calculateSamplingSizeForRegion(rect.height(), inSampleSize), config != null ? config : Bitmap.Config.ARGB_8888);
+        options.inBitmap = inBitmap;
+        try {
+            return decoder.decodeRegion(rect, options);
+        } catch (IllegalArgumentException e) {
+            if (inBitmap == null) throw e;
+            // The region can not be decoded into the reusable bitmap
+            Bitmapx.recycleToPool(inBitmap, bitmapPool);
+            options.inBitmap = null;
+            return decoder.decodeRegion(rect, options);
+        }
+    }
+
+    private class DecodeTask implements Runnable {
+        @NonNull
+        final TileKey tileKey;
+        @NonNull
+        private final Rect rect;
+        @Nullable
+        private final Bitmap.Config config;
+        volatile boolean canceled;
+
+        DecodeTask(@NonNull TileKey tileKey, @NonNull Rect rect, @Nullable Bitmap.Config config) {
+            this.tileKey = tileKey;
+            this.rect = rect;
+            this.config = config;
+        }
+
+        @Override
+        public void run() {
+            Bitmap bitmap = null;
+            if (!recycled && !canceled) {
+                BitmapRegionDecoder decoder = obtainDecoder();
+                if (decoder != null) {
+                    try {
+                        bitmap = decodeRegion(decoder, rect, tileKey.inSampleSize, config);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    } finally {
+                        releaseDecoder(decoder);
+                    }
+                }
+            }
+
+            final Tile tile = bitmap != null ? new Tile(rect, tileKey.inSampleSize, bitmap) : null;
+            Androidx.getMainHandler().post(new Runnable() {
+                @Override
+                public void run() {
+                    onTileDecoded(DecodeTask.this, tile);
+                }
+            });
+        }
+    }
+
+    /**
+     * Create a new {@link BitmapRegionDecoder} of the image
+     */
+    public interface DecoderFactory {
+        @NonNull
+        BitmapRegionDecoder create() throws IOException;
+    }
+
+    public interface Listener {
+        /**
+         * Called on the main thread when a visible tile is decoded, the view should be redrawn
+         */
+        void onTileDecoded(@NonNull Tile tile);
+    }
+
+    /**
+     * A decoded tile, the bitmap belongs to the decoder and must not be recycled by the caller
+     */
+    public static class Tile {
+        @NonNull
+        private final Rect srcRect;
+        private final int inSampleSize;
+        @NonNull
+        private final Bitmap bitmap;
+
+        Tile(@NonNull Rect srcRect, int inSampleSize, @NonNull Bitmap bitmap) {
+            this.srcRect = srcRect;
+            this.inSampleSize = inSampleSize;
+            this.bitmap = bitmap;
+        }
+
+        /**
+         * The region of the tile in the coordinates of the original image
+         */
+        @NonNull
+        public Rect getSrcRect() {
+            return srcRect;
+        }
+
+        public int getInSampleSize() {
+            return inSampleSize;
+        }
+
+        @NonNull
+        public Bitmap getBitmap() {
+            return bitmap;
+        }
+    }
+
+    private static class TileKey {
+        final int inSampleSize;
+        final int column;
+        final int row;
+
+        TileKey(int inSampleSize, int column, int row) {
+            this.inSampleSize = inSampleSize;
+            this.column = column;
+            this.row = row;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TileKey)) return false;
+            TileKey tileKey = (TileKey) o;
+            return inSampleSize == tileKey.inSampleSize && column == tileKey.column && row == tileKey.row;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = inSampleSize;
+            result = 31 * result + column;
+            result = 31 * result + row;
+            return result;
+        }
+    }
+}
@@ -26,6 +26,7 @@ import android.support.annotation.DrawableRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import me.panpf.androidx.graphics.BitmapPool;
 import me.panpf.androidx.graphics.Colorx;
 import me.panpf.javax.util.LazyValue;
 import me.panpf.javax.util.Premisex;
@@ -79,7 +80,7 @@ public class Drawablex {
      */
     @NonNull
     public static Bitmap toBitmapWithIntrinsicSize(@NonNull Drawable drawable, @Nullable Bitmap.Config config) {
-        return toBitmapWithIntrinsicSize(drawable, config, null);
+        return toBitmapWithIntrinsicSize(drawable, config, (Bitmap) null);
     }
 
     /**
@@ -100,7 +101,23 @@ public class Drawablex {
      */
     @NonNull
     public static Bitmap toBitmapWithIntrinsicSize(@NonNull Drawable drawable) {
-        return toBitmapWithIntrinsicSize(drawable, null, null);
+        return toBitmapWithIntrinsicSize(drawable, null, (Bitmap) null);
+    }
+
+    /**
+     * Convert Drawable to bitmap, use intrinsic size as the size of the new bitmap
+     *
+     * @param drawable   Source Drawable
+     * @param config     Bitmap configuration, default value Bitmap.Config.ARGB_8888
+     * @param bitmapPool The new bitmap is taken from it
+     */
+    @NonNull
+    public static Bitmap toBitmapWithIntrinsicSize(@NonNull Drawable drawable, @Nullable Bitmap.Config config, @NonNull BitmapPool bitmapPool) {
+        final int intrinsicWidth = drawable.getIntrinsicWidth();
+        final int intrinsicHeight = drawable.getIntrinsicHeight();
+        Bitmap reuseBitmap = intrinsicWidth > 0 && intrinsicHeight > 0
+                ? bitmapPool.getOrCreate(intrinsicWidth, intrinsicHeight, config != null ? config : Bitmap.Config.ARGB_8888) : null;
+        return toBitmapWithIntrinsicSize(drawable, config, reuseBitmap);
     }
 
 
@@ -141,7 +158,7 @@ public class Drawablex {
      */
     @NonNull
     public static Bitmap toBitmapWithBoundsSize(@NonNull Drawable drawable, @Nullable Bitmap.Config config) {
-        return toBitmapWithBoundsSize(drawable, config, null);
+        return toBitmapWithBoundsSize(drawable, config, (Bitmap) null);
     }
 
     /**
@@ -162,7 +179,21 @@ public class Drawablex {
      */
     @NonNull
     public static Bitmap toBitmapWithBoundsSize(@NonNull Drawable drawable) {
-        return toBitmapWithBoundsSize(drawable, null, null);
+        return toBitmapWithBoundsSize(drawable, null, (Bitmap) null);
+    }
+
+    /**
+     * Convert Drawable to bitmap, use bounds size as the size of the new bitmap
+     *
+     * @param drawable   Source Drawable
+     * @param config     Bitmap configuration, default value Bitmap.Config.ARGB_8888
+     * @param bitmapPool The new bitmap is taken from it
+     */
+    @NonNull
+    public static Bitmap toBitmapWithBoundsSize(@NonNull Drawable drawable, @Nullable Bitmap.Config config, @NonNull BitmapPool bitmapPool) {
+        Rect bounds = drawable.getBounds();
+        if (bounds.isEmpty()) throw new IllegalStateException("drawable bounds is empty");
+        return toBitmapWithBoundsSize(drawable, config, bitmapPool.getOrCreate(bounds.width(), bounds.height(), config != null ? config : Bitmap.Config.ARGB_8888));
     }
 
 
@@ -0,0 +1,410 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.os.storage;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count the length of multiple directories in parallel. Each root directory is counted on its own thread,
+ * subdirectories are split into separate tasks while there are idle threads, and the counting can be canceled at any time.
+ * <p>
+ * The ForkJoinPool is only available on Android 5.0+, so a fixed thread pool that tasks resubmit their subdirectories to is used instead
+ */
+@SuppressWarnings("WeakerAccess")
+public class DirLengthCounter {
+
+    @NonNull
+    private final File[] roots;
+    private final int threadCount;
+    private volatile boolean canceled;
+
+    /**
+     * @param roots       Root directory list, null elements are ignored
+     * @param threadCount Number of worker threads
+     */
+    public DirLengthCounter(@NonNull File[] roots, int threadCount) {
+        if (threadCount <= 0) throw new IllegalArgumentException("threadCount must be greater than 0: " + threadCount);
+        this.roots = roots;
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * @param roots Root directory list, null elements are ignored
+     */
+    public DirLengthCounter(@NonNull File[] roots) {
+        this(roots, Math.max(Math.min(Math.max(roots.length, Runtime.getRuntime().availableProcessors()), 8), 1));
+    }
+
+    /**
+     * Cancel counting, {@link #count(Listener)} will return the results counted so far as soon as possible
+     */
+    public void cancel() {
+        canceled = true;
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * Start counting and block until all directories are counted or canceled.
+     * Interrupting the calling thread has the same effect as {@link #cancel()}
+     *
+     * @param listener All methods are called on the worker thread
+     */
+    @WorkerThread
+    @NonNull
+    public Result count(@Nullable Listener listener) {
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount, new CounterThreadFactory());
+        final Counting counting = new Counting(executor, listener);
+
+        Map<File, RootCounting> rootCountings = new LinkedHashMap<>(roots.length);
+        for (File root : roots) {
+            if (root != null && !rootCountings.containsKey(root)) {
+                rootCountings.put(root, new RootCounting(counting, root));
+            }
+        }
+
+        CountDownLatch latch = new CountDownLatch(rootCountings.size());
+        for (RootCounting rootCounting : rootCountings.values()) {
+            rootCounting.start(latch);
+        }
+
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Map<File, Long> rootLengths = new LinkedHashMap<>(rootCountings.size());
+        Map<File, Map<File, Long>> childLengths = new LinkedHashMap<>(rootCountings.size());
+        for (RootCounting rootCounting : rootCountings.values()) {
+            rootLengths.put(rootCounting.root, rootCounting.length.get());
+            childLengths.put(rootCounting.root, rootCounting.getChildLengths());
+        }
+        return new Result(rootLengths, childLengths, counting.files.get(), canceled);
+    }
+
+    /**
+     * Start counting without listener
+     */
+    @WorkerThread
+    @NonNull
+    public Result count() {
+        return count(null);
+    }
+
+    public interface Listener {
+        /**
+         * Called every time a file has been counted
+         *
+         * @param countedLength Total length of all files counted so far
+         * @param countedFiles  Number of all files counted so far
+         */
+        void onProgress(long countedLength, long countedFiles);
+
+        /**
+         * Called when a top-level child of the root directory has been counted
+         */
+        void onChildCounted(@NonNull File root, @NonNull File child, long length);
+
+        /**
+         * Called when a root directory has been counted
+         */
+        void onRootCounted(@NonNull File root, long length);
+    }
+
+    public static class Result {
+        @NonNull
+        private final Map<File, Long> rootLengths;
+        @NonNull
+        private final Map<File, Map<File, Long>> childLengths;
+        private final long fileCount;
+        private final boolean canceled;
+
+        Result(@NonNull Map<File, Long> rootLengths, @NonNull Map<File, Map<File, Long>> childLengths, long fileCount, boolean canceled) {
+            this.rootLengths = Collections.unmodifiableMap(rootLengths);
+            this.childLengths = Collections.unmodifiableMap(childLengths);
+            this.fileCount = fileCount;
+            this.canceled = canceled;
+        }
+
+        /**
+         * Get the total length of all root directories
+         */
+        public long getLength() {
+            long sum = 0;
+            for (Long length : rootLengths.values()) {
+                sum += length;
+            }
+            return sum;
+        }
+
+        /**
+         * Get the length of each root directory
+         */
+        @NonNull
+        public Map<File, Long> getRootLengths() {
+            return rootLengths;
+        }
+
+        /**
+         * Get the length of each top-level child of the given root directory
+         */
+        @NonNull
+        public Map<File, Long> getChildLengths(@NonNull File root) {
+            Map<File, Long> lengths = childLengths.get(root);
+            return lengths != null ? lengths : Collections.<File, Long>emptyMap();
+        }
+
+        public long getFileCount() {
+            return fileCount;
+        }
+
+        /**
+         * Returns true if the counting was canceled and the result is incomplete
+         */
+        public boolean isCanceled() {
+            return canceled;
+        }
+    }
+
+    private static class CounterThreadFactory implements ThreadFactory {
+        private final AtomicInteger number = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "DirLengthCounter-" + number.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+
+    private class Counting {
+        @NonNull
+        final ExecutorService executor;
+        @Nullable
+        final Listener listener;
+        final AtomicLong length = new AtomicLong();
+        final AtomicLong files = new AtomicLong();
+        final AtomicInteger queued = new AtomicInteger();
+
+        Counting(@NonNull ExecutorService executor, @Nullable Listener listener) {
+            this.executor = executor;
+            this.listener = listener;
+        }
+
+        void addFile(long fileLength) {
+            long countedLength = length.addAndGet(fileLength);
+            long countedFiles = files.incrementAndGet();
+            if (listener != null) {
+                listener.onProgress(countedLength, countedFiles);
+            }
+        }
+
+        /**
+         * Split only while the queue is short, otherwise the current thread is faster to walk the directory itself
+         */
+        boolean shouldSplit() {
+            return queued.get() < threadCount;
+        }
+
+        boolean submit(@NonNull final Runnable runnable) {
+            queued.incrementAndGet();
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        queued.decrementAndGet();
+                        runnable.run();
+                    }
+                });
+                return true;
+            } catch (RejectedExecutionException e) {
+                queued.decrementAndGet();
+                return false;
+            }
+        }
+    }
+
+    private class RootCounting {
+        @NonNull
+        final Counting counting;
+        @NonNull
+        final File root;
+        final AtomicLong length = new AtomicLong();
+        final Map<File, AtomicLong> childLengths = new LinkedHashMap<>();
+        private final AtomicInteger pendingChildren = new AtomicInteger(1);
+        private CountDownLatch latch;
+
+        RootCounting(@NonNull Counting counting, @NonNull File root) {
+            this.counting = counting;
+            this.root = root;
+        }
+
+        void start(@NonNull CountDownLatch latch) {
+            this.latch = latch;
+            boolean submitted = counting.submit(new Runnable() {
+                @Override
+                public void run() {
+                    countRoot();
+                }
+            });
+            if (!submitted) {
+                finishChild();
+            }
+        }
+
+        private void countRoot() {
+            try {
+                File[] children = !canceled ? root.listFiles() : null;
+                if (children == null) {
+                    if (root.isFile()) {
+                        length.addAndGet(root.length());
+                        counting.addFile(root.length());
+                    }
+                    return;
+                }
+
+                for (File child : children) {
+                    if (canceled) break;
+                    if (child.isDirectory()) {
+                        ChildCounting childCounting = new ChildCounting(this, child);
+                        synchronized (childLengths) {
+                            childLengths.put(child, childCounting.length);
+                        }
+                        pendingChildren.incrementAndGet();
+                        childCounting.start();
+                    } else {
+                        long fileLength = child.length();
+                        synchronized (childLengths) {
+                            childLengths.put(child, new AtomicLong(fileLength));
+                        }
+                        length.addAndGet(fileLength);
+                        counting.addFile(fileLength);
+                    }
+                }
+            } finally {
+                finishChild();
+            }
+        }
+
+        void finishChild() {
+            if (pendingChildren.decrementAndGet() == 0) {
+                if (counting.listener != null && !canceled) {
+                    counting.listener.onRootCounted(root, length.get());
+                }
+                latch.countDown();
+            }
+        }
+
+        @NonNull
+        Map<File, Long> getChildLengths() {
+            synchronized (childLengths) {
+                Map<File, Long> lengths = new LinkedHashMap<>(childLengths.size());
+                for (Map.Entry<File, AtomicLong> entry : childLengths.entrySet()) {
+                    lengths.put(entry.getKey(), entry.getValue().get());
+                }
+                return Collections.unmodifiableMap(lengths);
+            }
+        }
+    }
+
+    private class ChildCounting {
+        @NonNull
+        final RootCounting rootCounting;
+        @NonNull
+        final File child;
+        final AtomicLong length = new AtomicLong();
+        private final AtomicInteger pendingTasks = new AtomicInteger();
+
+        ChildCounting(@NonNull RootCounting rootCounting, @NonNull File child) {
+            this.rootCounting = rootCounting;
+            this.child = child;
+        }
+
+        void start() {
+            walk(child);
+        }
+
+        private void walk(@NonNull final File dir) {
+            pendingTasks.incrementAndGet();
+            boolean submitted = rootCounting.counting.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        walkInline(dir);
+                    } finally {
+                        finishTask();
+                    }
+                }
+            });
+            if (!submitted) {
+                finishTask();
+            }
+        }
+
+        private void walkInline(@NonNull File dir) {
+            if (canceled) return;
+            File[] files = dir.listFiles();
+            if (files == null) return;
+
+            for (File file : files) {
+                if (canceled) return;
+                if (file.isDirectory()) {
+                    if (rootCounting.counting.shouldSplit()) {
+                        walk(file);
+                    } else {
+                        walkInline(file);
+                    }
+                } else {
+                    long fileLength = file.length();
+                    length.addAndGet(fileLength);
+                    rootCounting.length.addAndGet(fileLength);
+                    rootCounting.counting.addFile(fileLength);
+                }
+            }
+        }
+
+        private void finishTask() {
+            if (pendingTasks.decrementAndGet() == 0) {
+                Listener listener = rootCounting.counting.listener;
+                if (listener != null && !canceled) {
+                    listener.onChildCounted(rootCounting.root, child, length.get());
+                }
+                rootCounting.finishChild();
+            }
+        }
+    }
+}
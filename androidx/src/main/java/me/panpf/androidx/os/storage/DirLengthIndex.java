@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.os.storage;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import me.panpf.javax.io.Filex;
+
+/**
+ * Persistent directory length index. The direct files length and the last modified time of each directory are recorded on disk,
+ * the next count only lists the directories whose last modified time has changed, the rest only costs one stat call per directory.
+ * <p>
+ * The last modified time of the directory changes only when its direct children are added, deleted or renamed,
+ * so the length of a file that is rewritten in place will not be updated until its parent directory changes or {@link #invalidate(File)} is called
+ */
+@SuppressWarnings("WeakerAccess")
+public class DirLengthIndex {
+
+    private static final int VERSION = 1;
+    private static final String DIR_NAME = "dir_length_index";
+
+    /**
+     * The file system's modified time granularity is up to 2 seconds (FAT), directories modified within this range are listed again next time
+     */
+    private static final long MTIME_GRANULARITY = 2000;
+
+    @Nullable
+    private static volatile DirLengthIndex instance;
+
+    @NonNull
+    private final File indexDir;
+    @NonNull
+    private final Map<String, Map<String, Entry>> indexes = new HashMap<>();
+
+    /**
+     * @param indexDir The directory where the index files are saved, it must not be in the directories to be counted
+     */
+    public DirLengthIndex(@NonNull File indexDir) {
+        this.indexDir = indexDir;
+    }
+
+    /**
+     * Get the shared instance, the index files are saved in the app's private 'app_dir_length_index' directory
+     */
+    @NonNull
+    public static DirLengthIndex get(@NonNull Context context) {
+        DirLengthIndex index = instance;
+        if (index == null) {
+            synchronized (DirLengthIndex.class) {
+                index = instance;
+                if (index == null) {
+                    index = new DirLengthIndex(context.getApplicationContext().getDir(DIR_NAME, Context.MODE_PRIVATE));
+                    instance = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Count the length of the given directory, only directories that have changed since the last count are listed again.
+     * Returns 0 if the directory does not exist, for example, the volume it is on has been unmounted, and its index is retained
+     */
+    @WorkerThread
+    public synchronized long length(@NonNull File root) {
+        if (!root.isDirectory()) {
+            return root.isFile() ? root.length() : 0;
+        }
+
+        String rootPath = root.getPath();
+        Map<String, Entry> oldIndex = indexes.get(rootPath);
+        if (oldIndex == null) {
+            oldIndex = readIndex(root);
+        }
+
+        Map<String, Entry> newIndex = new HashMap<>(Math.max(oldIndex.size(), 16));
+        boolean[] changed = new boolean[]{oldIndex.isEmpty()};
+        long length = measure(root, "", oldIndex, newIndex, System.currentTimeMillis(), changed);
+        if (newIndex.size() != oldIndex.size()) {
+            changed[0] = true;
+        }
+
+        // The volume may be unmounted during counting, the incomplete index cannot be saved
+        if (!root.isDirectory()) {
+            return length;
+        }
+
+        indexes.put(rootPath, newIndex);
+        if (changed[0]) {
+            writeIndex(root, newIndex);
+        }
+        return length;
+    }
+
+    /**
+     * Count the total length of the given directories, null elements are ignored
+     */
+    @WorkerThread
+    public long length(@NonNull File[] roots) {
+        long sum = 0;
+        for (File root : roots) {
+            if (root != null) {
+                sum += length(root);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Discard the index of the given directory, the next count will list all of its children again
+     */
+    public synchronized void invalidate(@NonNull File root) {
+        indexes.remove(root.getPath());
+        //noinspection ResultOfMethodCallIgnored
+        getIndexFile(root).delete();
+    }
+
+    /**
+     * Discard all indexes
+     */
+    public synchronized void clear() {
+        indexes.clear();
+        Filex.cleanRecursively(indexDir);
+    }
+
+    private long measure(@NonNull File dir, @NonNull String relativePath, @NonNull Map<String, Entry> oldIndex,
+                         @NonNull Map<String, Entry> newIndex, long now, @NonNull boolean[] changed) {
+        long lastModified = dir.lastModified();
+        Entry entry = oldIndex.get(relativePath);
+        if (entry == null || entry.lastModified != lastModified || lastModified == 0) {
+            File[] children = dir.listFiles();
+            if (children == null) {
+                return 0;
+            }
+
+            long filesLength = 0;
+            int dirCount = 0;
+            String[] dirNames = new String[children.length];
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    dirNames[dirCount++] = child.getName();
+                } else {
+                    filesLength += child.length();
+                }
+            }
+            String[] finalDirNames = new String[dirCount];
+            System.arraycopy(dirNames, 0, finalDirNames, 0, dirCount);
+
+            // If the directory is modified again within the time granularity, the modified time will not change, so it must be listed next time
+            long recordLastModified = Math.abs(now - lastModified) < MTIME_GRANULARITY ? -1 : lastModified;
+            entry = new Entry(recordLastModified, filesLength, finalDirNames);
+            changed[0] = true;
+        }
+        newIndex.put(relativePath, entry);
+
+        long length = entry.filesLength;
+        for (String dirName : entry.dirNames) {
+            String childRelativePath = relativePath.isEmpty() ? dirName : relativePath + "/" + dirName;
+            length += measure(new File(dir, dirName), childRelativePath, oldIndex, newIndex, now, changed);
+        }
+        return length;
+    }
+
+    @NonNull
+    private File getIndexFile(@NonNull File root) {
+        return new File(indexDir, Integer.toHexString(root.getPath().hashCode()) + ".index");
+    }
+
+    @NonNull
+    private Map<String, Entry> readIndex(@NonNull File root) {
+        File indexFile = getIndexFile(root);
+        Map<String, Entry> index = new HashMap<>();
+        if (!indexFile.exists()) {
+            return index;
+        }
+
+        DataInputStream inputStream = null;
+        try {
+            inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            if (inputStream.readInt() != VERSION || !root.getPath().equals(inputStream.readUTF())) {
+                return index;
+            }
+            int size = inputStream.readInt();
+            for (int i = 0; i < size; i++) {
+                String relativePath = inputStream.readUTF();
+                long lastModified = inputStream.readLong();
+                long filesLength = inputStream.readLong();
+                String[] dirNames = new String[inputStream.readInt()];
+                for (int w = 0; w < dirNames.length; w++) {
+                    dirNames[w] = inputStream.readUTF();
+                }
+                index.put(relativePath, new Entry(lastModified, filesLength, dirNames));
+            }
+            return index;
+        } catch (IOException e) {
+            e.printStackTrace();
+            index.clear();
+            return index;
+        } finally {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void writeIndex(@NonNull File root, @NonNull Map<String, Entry> index) {
+        if (!indexDir.exists() && !indexDir.mkdirs()) {
+            return;
+        }
+        File indexFile = getIndexFile(root);
+        File tempFile = new File(indexDir, indexFile.getName() + ".tmp");
+        DataOutputStream outputStream = null;
+        try {
+            outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            outputStream.writeInt(VERSION);
+            outputStream.writeUTF(root.getPath());
+            outputStream.writeInt(index.size());
+            for (Map.Entry<String, Entry> mapEntry : index.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                outputStream.writeUTF(mapEntry.getKey());
+                outputStream.writeLong(entry.lastModified);
+                outputStream.writeLong(entry.filesLength);
+                outputStream.writeInt(entry.dirNames.length);
+                for (String dirName : entry.dirNames) {
+                    outputStream.writeUTF(dirName);
+                }
+            }
+            outputStream.close();
+            outputStream = null;
+            if (!tempFile.renameTo(indexFile)) {
+                //noinspection ResultOfMethodCallIgnored
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            //noinspection ResultOfMethodCallIgnored
+            tempFile.delete();
+        } finally {
+            if (outputStream != null) {
+                try {
+                    outputStream.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private static class Entry {
+        final long lastModified;
+        final long filesLength;
+        @NonNull
+        final String[] dirNames;
+
+        Entry(long lastModified, long filesLength, @NonNull String[] dirNames) {
+            this.lastModified = lastModified;
+            this.filesLength = filesLength;
+            this.dirNames = dirNames;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.os.storage;
+
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Delete the least recently used files in multiple directories until their total length is not greater than the target length.
+ * The last access time is used on Android 5.0+ (the later of it and the last modified time, because the volume may be mounted with noatime),
+ * the last modified time is used on the lower versions
+ */
+@SuppressWarnings("WeakerAccess")
+public class DirTrimmer {
+
+    private static final int DEFAULT_BATCH_SIZE = 32;
+
+    @NonNull
+    private final File[] dirs;
+    private final long targetLength;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean useAccessTime = true;
+    private volatile boolean canceled;
+
+    /**
+     * @param dirs         Directory list, null elements are ignored
+     * @param targetLength The total length of all directories after trimming
+     */
+    public DirTrimmer(@NonNull File[] dirs, long targetLength) {
+        if (targetLength < 0) throw new IllegalArgumentException("targetLength must be greater than or equal to 0: " + targetLength);
+        this.dirs = dirs;
+        this.targetLength = targetLength;
+    }
+
+    /**
+     * Set the number of files deleted between two progress callbacks and cancellation checks, the default is 32
+     */
+    @NonNull
+    public DirTrimmer setBatchSize(int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be greater than 0: " + batchSize);
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Set whether to use the last access time on Android 5.0+, the default is true. If false, only the last modified time is used
+     */
+    @NonNull
+    public DirTrimmer setUseAccessTime(boolean useAccessTime) {
+        this.useAccessTime = useAccessTime;
+        return this;
+    }
+
+    /**
+     * Cancel trimming, {@link #trim(Listener)} returns after the current file while collecting files, or after the current batch while deleting
+     */
+    public void cancel() {
+        canceled = true;
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * Start trimming and block until the total length is not greater than the target length or canceled.
+     * Interrupting the calling thread has the same effect as {@link #cancel()}
+     *
+     * @param listener Called on the calling thread after each batch
+     */
+    @WorkerThread
+    @NonNull
+    public Result trim(@Nullable Listener listener) {
+        List<TrimFile> files = new ArrayList<>();
+        Set<String> rootPaths = new HashSet<>();
+        long totalLength = 0;
+        for (File dir : dirs) {
+            if (isCanceledOrInterrupted()) {
+                break;
+            }
+            if (dir != null && rootPaths.add(dir.getPath())) {
+                totalLength += collect(dir, files);
+            }
+        }
+
+        if (totalLength <= targetLength || isCanceledOrInterrupted()) {
+            return new Result(0, 0, totalLength, canceled);
+        }
+
+        Collections.sort(files, new Comparator<TrimFile>() {
+            @Override
+            public int compare(TrimFile o1, TrimFile o2) {
+                return o1.lastUsedTime < o2.lastUsedTime ? -1 : (o1.lastUsedTime == o2.lastUsedTime ? 0 : 1);
+            }
+        });
+
+        long deletedLength = 0;
+        int deletedCount = 0;
+        int index = 0;
+        while (index < files.size() && totalLength - deletedLength > targetLength) {
+            int batchEnd = Math.min(index + batchSize, files.size());
+            for (; index < batchEnd && totalLength - deletedLength > targetLength; index++) {
+                TrimFile trimFile = files.get(index);
+                if (trimFile.file.delete()) {
+                    deletedLength += trimFile.length;
+                    deletedCount++;
+                    deleteEmptyParents(trimFile.file, rootPaths);
+                }
+            }
+
+            if (listener != null) {
+                listener.onProgress(deletedLength, deletedCount, totalLength - deletedLength);
+            }
+            if (isCanceledOrInterrupted()) {
+                break;
+            }
+        }
+        return new Result(deletedLength, deletedCount, totalLength - deletedLength, canceled);
+    }
+
+    /**
+     * Start trimming without listener
+     */
+    @WorkerThread
+    @NonNull
+    public Result trim() {
+        return trim(null);
+    }
+
+    private boolean isCanceledOrInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            canceled = true;
+        }
+        return canceled;
+    }
+
+    private long collect(@NonNull File dir, @NonNull List<TrimFile> files) {
+        File[] children = dir.listFiles();
+        if (children == null) return 0;
+
+        long length = 0;
+        for (File child : children) {
+            if (isCanceledOrInterrupted()) {
+                break;
+            }
+            if (child.isDirectory()) {
+                length += collect(child, files);
+            } else {
+                TrimFile trimFile = new TrimFile(child, child.length(), getLastUsedTime(child));
+                files.add(trimFile);
+                length += trimFile.length;
+            }
+        }
+        return length;
+    }
+
+    private long getLastUsedTime(@NonNull File file) {
+        long lastModified = file.lastModified();
+        if (useAccessTime && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return Math.max(FileStats.getAccessTime(file, lastModified), lastModified);
+        }
+        return lastModified;
+    }
+
+    private static void deleteEmptyParents(@NonNull File file, @NonNull Set<String> rootPaths) {
+        File parent = file.getParentFile();
+        // File.delete() fails on a non-empty directory, so only empty directories are deleted
+        while (parent != null && !rootPaths.contains(parent.getPath()) && parent.delete()) {
+            parent = parent.getParentFile();
+        }
+    }
+
+    public interface Listener {
+        /**
+         * @param deletedLength   Total length of all files deleted so far
+         * @param deletedCount    Number of all files deleted so far
+         * @param remainingLength Total length of all directories now
+         */
+        void onProgress(long deletedLength, int deletedCount, long remainingLength);
+    }
+
+    public static class Result {
+        private final long deletedLength;
+        private final int deletedCount;
+        private final long remainingLength;
+        private final boolean canceled;
+
+        Result(long deletedLength, int deletedCount, long remainingLength, boolean canceled) {
+            this.deletedLength = deletedLength;
+            this.deletedCount = deletedCount;
+            this.remainingLength = remainingLength;
+            this.canceled = canceled;
+        }
+
+        public long getDeletedLength() {
+            return deletedLength;
+        }
+
+        public int getDeletedCount() {
+            return deletedCount;
+        }
+
+        /**
+         * Get the total length of all directories after trimming, if canceled while collecting files it is the length counted before canceling
+         */
+        public long getRemainingLength() {
+            return remainingLength;
+        }
+
+        /**
+         * Returns true if the trimming was canceled before reaching the target length
+         */
+        public boolean isCanceled() {
+            return canceled;
+        }
+    }
+
+    private static class TrimFile {
+        @NonNull
+        final File file;
+        final long length;
+        final long lastUsedTime;
+
+        TrimFile(@NonNull File file, long length, long lastUsedTime) {
+            this.file = file;
+            this.length = length;
+            this.lastUsedTime = lastUsedTime;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.os.storage;
+
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.RequiresApi;
+import android.system.ErrnoException;
+import android.system.Os;
+
+import java.io.File;
+
+/**
+ * {@link Os#stat(String)} wrappers of this package. ErrnoException only exists since Android 5.0,
+ * so it is caught only in this class to keep the callers verifiable on the lower versions
+ */
+@RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+class FileStats {
+
+    private FileStats() {
+    }
+
+    /**
+     * Get the last access time of [file] in milliseconds, [defaultValue] if it can not be read
+     */
+    static long getAccessTime(@NonNull File file, long defaultValue) {
+        try {
+            return Os.stat(file.getPath()).st_atime * 1000;
+        } catch (ErrnoException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Get the id of the device that contains [file], null if it can not be read
+     */
+    @Nullable
+    static Long getDeviceId(@NonNull File file) {
+        try {
+            return Os.stat(file.getPath()).st_dev;
+        } catch (ErrnoException e) {
+            return null;
+        }
+    }
+}
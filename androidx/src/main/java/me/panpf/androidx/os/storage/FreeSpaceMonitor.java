@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.os.storage;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Monitor the available bytes of all mounted volumes and call back when they cross the given watermarks.
+ * <p>
+ * Each volume is sampled with its own interval, which is proportional to the distance between its available bytes and the nearest watermark:
+ * when the distance is greater than or equal to the watermark itself, the max interval is used, the closer it is, the shorter the interval, down to the min interval
+ */
+@SuppressWarnings("WeakerAccess")
+public class FreeSpaceMonitor {
+
+    private static final long DEFAULT_MIN_INTERVAL = 1000;
+    private static final long DEFAULT_MAX_INTERVAL = 60 * 1000;
+
+    @NonNull
+    private final Context appContext;
+    @NonNull
+    private final long[] watermarks;
+    @NonNull
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    @NonNull
+    private final Map<String, VolumeState> volumeStates = new HashMap<>();
+    private long minInterval = DEFAULT_MIN_INTERVAL;
+    private long maxInterval = DEFAULT_MAX_INTERVAL;
+
+    @Nullable
+    private HandlerThread thread;
+    @Nullable
+    private Handler handler;
+
+    /**
+     * @param watermarks Available bytes thresholds, callbacks are fired when the available bytes of a volume falls below or rises back to them
+     */
+    public FreeSpaceMonitor(@NonNull Context context, @NonNull long... watermarks) {
+        if (watermarks.length == 0) throw new IllegalArgumentException("watermarks is empty");
+        for (long watermark : watermarks) {
+            if (watermark <= 0) throw new IllegalArgumentException("watermark must be greater than 0: " + watermark);
+        }
+        this.appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        this.watermarks = watermarks.clone();
+        Arrays.sort(this.watermarks);
+    }
+
+    /**
+     * Set the interval range of sampling a volume, the default is 1 second to 60 seconds
+     */
+    @NonNull
+    public synchronized FreeSpaceMonitor setInterval(long minInterval, long maxInterval) {
+        if (minInterval <= 0 || maxInterval < minInterval) {
+            throw new IllegalArgumentException("Invalid interval: " + minInterval + ", " + maxInterval);
+        }
+        this.minInterval = minInterval;
+        this.maxInterval = maxInterval;
+        return this;
+    }
+
+    /**
+     * @param listener Called on the monitor's worker thread
+     */
+    public void addListener(@NonNull Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized boolean isStarted() {
+        return thread != null;
+    }
+
+    /**
+     * Start sampling on a dedicated worker thread, the first sampling of each volume is performed immediately
+     */
+    public synchronized void start() {
+        if (thread != null) return;
+        HandlerThread newThread = new HandlerThread("FreeSpaceMonitor", android.os.Process.THREAD_PRIORITY_BACKGROUND);
+        newThread.start();
+        thread = newThread;
+        handler = new Handler(newThread.getLooper());
+        handler.post(sampleRunnable);
+    }
+
+    public synchronized void stop() {
+        if (thread == null) return;
+        if (handler != null) {
+            handler.removeCallbacksAndMessages(null);
+        }
+        thread.quit();
+        thread = null;
+        handler = null;
+        volumeStates.clear();
+    }
+
+    /**
+     * Sample all volumes immediately, for example, after a large file is written
+     */
+    public synchronized void sampleNow() {
+        if (handler != null) {
+            handler.removeCallbacks(sampleRunnable);
+            for (VolumeState volumeState : volumeStates.values()) {
+                volumeState.nextSampleTime = 0;
+            }
+            handler.post(sampleRunnable);
+        }
+    }
+
+    /**
+     * Get the available bytes of the given volume path obtained by the last sampling, -1 if it has not been sampled
+     */
+    public synchronized long getLastAvailableBytes(@NonNull String volumePath) {
+        VolumeState volumeState = volumeStates.get(volumePath);
+        return volumeState != null ? volumeState.availableBytes : -1;
+    }
+
+    private final Runnable sampleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            sample();
+        }
+    };
+
+    private void sample() {
+        // Only the handler that posted this pass may post the next one, so stop() and start() or sampleNow() during a pass do not double the sampling
+        Handler sampleHandler;
+        synchronized (this) {
+            sampleHandler = handler;
+            if (sampleHandler == null) return;
+        }
+
+        String[] volumePaths = StorageManagerCompat.getSnapshot(appContext).getMountedVolumePaths();
+        long now = SystemClock.elapsedRealtime();
+
+        for (String volumePath : volumePaths) {
+            boolean due;
+            synchronized (this) {
+                if (handler != sampleHandler) return;
+                VolumeState volumeState = volumeStates.get(volumePath);
+                due = volumeState == null || volumeState.nextSampleTime <= now;
+            }
+            if (!due) continue;
+
+            long availableBytes = Storagex.getAvailableBytes(new File(volumePath), -1);
+            int oldLevel;
+            int newLevel;
+            synchronized (this) {
+                if (handler != sampleHandler) return;
+                VolumeState volumeState = volumeStates.get(volumePath);
+                if (volumeState == null) {
+                    volumeState = new VolumeState();
+                    volumeStates.put(volumePath, volumeState);
+                }
+                oldLevel = volumeState.level;
+                if (availableBytes >= 0) {
+                    newLevel = level(availableBytes);
+                    volumeState.availableBytes = availableBytes;
+                    volumeState.level = newLevel;
+                    volumeState.nextSampleTime = now + interval(availableBytes, minInterval, maxInterval);
+                } else {
+                    newLevel = oldLevel;
+                    volumeState.nextSampleTime = now + maxInterval;
+                }
+            }
+            notifyCrossed(volumePath, oldLevel, newLevel, availableBytes);
+        }
+
+        synchronized (this) {
+            if (handler != sampleHandler) return;
+            // Read the states again, sampleNow() may have reset them during this pass
+            long nextSampleTime = Long.MAX_VALUE;
+            for (String volumePath : volumePaths) {
+                VolumeState volumeState = volumeStates.get(volumePath);
+                if (volumeState != null) {
+                    nextSampleTime = Math.min(nextSampleTime, volumeState.nextSampleTime);
+                }
+            }
+            long delay = nextSampleTime != Long.MAX_VALUE ? Math.max(nextSampleTime - now, 0) : maxInterval;
+            sampleHandler.removeCallbacks(sampleRunnable);
+            sampleHandler.postDelayed(sampleRunnable, delay);
+        }
+    }
+
+    /**
+     * Returns the number of watermarks that the available bytes are below
+     */
+    private int level(long availableBytes) {
+        int level = 0;
+        for (int i = watermarks.length - 1; i >= 0 && availableBytes < watermarks[i]; i--) {
+            level++;
+        }
+        return level;
+    }
+
+    private long interval(long availableBytes, long minInterval, long maxInterval) {
+        long nearestWatermark = watermarks[0];
+        long nearestDistance = Long.MAX_VALUE;
+        for (long watermark : watermarks) {
+            long distance = Math.abs(availableBytes - watermark);
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearestWatermark = watermark;
+            }
+        }
+        double ratio = Math.min((double) nearestDistance / nearestWatermark, 1d);
+        return Math.max(minInterval, (long) (maxInterval * ratio));
+    }
+
+    private void notifyCrossed(@NonNull String volumePath, int oldLevel, int newLevel, long availableBytes) {
+        // Level n means the available bytes are below the highest n watermarks
+        if (newLevel > oldLevel) {
+            for (int level = oldLevel + 1; level <= newLevel; level++) {
+                long watermark = watermarks[watermarks.length - level];
+                for (Listener listener : listeners) {
+                    listener.onWatermarkCrossed(volumePath, watermark, availableBytes, true);
+                }
+            }
+        } else if (newLevel < oldLevel) {
+            for (int level = oldLevel; level > newLevel; level--) {
+                long watermark = watermarks[watermarks.length - level];
+                for (Listener listener : listeners) {
+                    listener.onWatermarkCrossed(volumePath, watermark, availableBytes, false);
+                }
+            }
+        }
+    }
+
+    public interface Listener {
+        /**
+         * @param volumePath     The path of the volume
+         * @param watermark      The watermark that has been crossed
+         * @param availableBytes The available bytes of the volume now
+         * @param below          True if the available bytes fell below the watermark, false if they rose back to it
+         */
+        void onWatermarkCrossed(@NonNull String volumePath, long watermark, long availableBytes, boolean below);
+    }
+
+    /**
+     * Guarded by the monitor
+     */
+    private static class VolumeState {
+        long nextSampleTime;
+        long availableBytes = -1;
+        int level;
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.os.storage;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Environment;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import me.panpf.javax.io.Filex;
+import me.panpf.javax.io.UnableCreateDirException;
+
+/**
+ * Thread-safe disk space allocator. Reserved but not yet released space is recorded per volume and subtracted from the available bytes,
+ * so concurrent writers will not all choose the same volume and then fail with ENOSPC halfway through.
+ * <p>
+ * The bytes already written by a writer are counted twice before the reservation is released, which makes the allocation conservative
+ */
+@SuppressWarnings("WeakerAccess")
+public class SpaceAllocator {
+
+    private static final long DEFAULT_STAT_FS_TTL = 2000;
+
+    @Nullable
+    private static volatile SpaceAllocator defaultInstance;
+
+    @NonNull
+    private final Context appContext;
+    private final long statFsTtlMillis;
+    @NonNull
+    private final Map<String, Volume> volumes = new HashMap<>();
+    @NonNull
+    private final Map<String, String> volumeKeys = new HashMap<>();
+
+    /**
+     * @param statFsTtlMillis How long the result of statfs is cached, 0 means no cache
+     */
+    public SpaceAllocator(@NonNull Context context, long statFsTtlMillis) {
+        if (statFsTtlMillis < 0) throw new IllegalArgumentException("statFsTtlMillis must be greater than or equal to 0: " + statFsTtlMillis);
+        this.appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        this.statFsTtlMillis = statFsTtlMillis;
+    }
+
+    public SpaceAllocator(@NonNull Context context) {
+        this(context, DEFAULT_STAT_FS_TTL);
+    }
+
+    /**
+     * Get the shared instance, all writers in the process should use the same instance to see each other's reservations
+     */
+    @NonNull
+    public static SpaceAllocator getDefault(@NonNull Context context) {
+        SpaceAllocator allocator = defaultInstance;
+        if (allocator == null) {
+            synchronized (SpaceAllocator.class) {
+                allocator = defaultInstance;
+                if (allocator == null) {
+                    allocator = new SpaceAllocator(context);
+                    defaultInstance = allocator;
+                }
+            }
+        }
+        return allocator;
+    }
+
+    /**
+     * Choose the directory with the most available bytes after subtracting the reserved bytes, and reserve [bytes] on its volume
+     *
+     * @param dirs         Directory list
+     * @param fileName     file name
+     * @param bytes        The number of bytes to reserve
+     * @param cleanOldFile Whether to delete old files before judging the space
+     * @return null if no directory has enough space
+     */
+    @Nullable
+    public Reservation reserve(@Nullable File[] dirs, @NonNull String fileName, long bytes, boolean cleanOldFile) {
+        if (bytes < 0) throw new IllegalArgumentException("bytes must be greater than or equal to 0: " + bytes);
+        if (dirs == null || dirs.length == 0) return null;
+
+        for (File dir : dirs) {
+            if (dir == null || dir.exists() && dir.isFile()) {
+                continue;
+            }
+            try {
+                Filex.mkdirsOrThrow(dir);
+            } catch (UnableCreateDirException e) {
+                e.printStackTrace();
+            }
+            if (cleanOldFile) {
+                //noinspection ResultOfMethodCallIgnored
+                new File(dir, fileName).delete();
+            }
+        }
+
+        synchronized (volumes) {
+            File bestDir = null;
+            Volume bestVolume = null;
+            long bestHeadroom = -1;
+            for (File dir : dirs) {
+                if (dir == null || !dir.isDirectory()) {
+                    continue;
+                }
+                Volume volume = getVolume(dir);
+                if (volume == null) {
+                    continue;
+                }
+                long headroom = volume.getAvailableBytes(dir) - volume.reservedBytes;
+                if (headroom >= bytes && headroom > bestHeadroom) {
+                    bestDir = dir;
+                    bestVolume = volume;
+                    bestHeadroom = headroom;
+                }
+            }
+
+            if (bestDir == null) {
+                return null;
+            }
+            bestVolume.reservedBytes += bytes;
+            return new Reservation(this, bestVolume, new File(bestDir, fileName), bytes);
+        }
+    }
+
+    /**
+     * Choose the directory with the most available bytes after subtracting the reserved bytes, and reserve [bytes] on its volume
+     *
+     * @param dirs     Directory list
+     * @param fileName file name
+     * @param bytes    The number of bytes to reserve
+     * @return null if no directory has enough space
+     */
+    @Nullable
+    public Reservation reserve(@Nullable File[] dirs, @NonNull String fileName, long bytes) {
+        return reserve(dirs, fileName, bytes, false);
+    }
+
+    /**
+     * Get the available bytes of the volume where the given directory is located minus the reserved bytes
+     */
+    public long getAvailableBytes(@NonNull File dir) {
+        synchronized (volumes) {
+            Volume volume = getVolume(dir);
+            return volume != null ? Math.max(volume.getAvailableBytes(dir) - volume.reservedBytes, 0) : 0;
+        }
+    }
+
+    /**
+     * Get the reserved but not released bytes of the volume where the given directory is located
+     */
+    public long getReservedBytes(@NonNull File dir) {
+        synchronized (volumes) {
+            Volume volume = getVolume(dir);
+            return volume != null ? volume.reservedBytes : 0;
+        }
+    }
+
+    private void release(@NonNull Volume volume, long bytes, boolean committed) {
+        synchronized (volumes) {
+            volume.reservedBytes -= bytes;
+            if (committed) {
+                // The committed bytes are now in the result of statfs
+                volume.statFsTime = 0;
+            }
+        }
+    }
+
+    @Nullable
+    private Volume getVolume(@NonNull File dir) {
+        String volumeKey = volumeKeys.get(dir.getPath());
+        if (volumeKey == null) {
+            volumeKey = getVolumeKey(dir);
+            if (volumeKey == null) {
+                return null;
+            }
+            volumeKeys.put(dir.getPath(), volumeKey);
+        }
+        Volume volume = volumes.get(volumeKey);
+        if (volume == null) {
+            volume = new Volume(statFsTtlMillis);
+            volumes.put(volumeKey, volume);
+        }
+        return volume;
+    }
+
+    /**
+     * The device id is used to identify the volume on Android 5.0+. The lower versions use the mount root of the storage volume
+     * in {@link StorageManagerCompat#getSnapshot(Context)}, because statfs can not tell apart two volumes of the same size
+     */
+    @Nullable
+    private String getVolumeKey(@NonNull File dir) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            Long deviceId = FileStats.getDeviceId(dir);
+            return deviceId != null ? "dev:" + deviceId : null;
+        }
+
+        StorageVolumeCompat storageVolume = StorageManagerCompat.getSnapshot(appContext).getVolume(dir);
+        String volumePath = storageVolume != null ? storageVolume.getPath() : null;
+        if (volumePath != null) {
+            return "root:" + volumePath;
+        }
+
+        String path = canonicalPath(dir);
+        if (path == null) {
+            return null;
+        }
+        // The internal storage is not a storage volume
+        String dataPath = canonicalPath(Environment.getDataDirectory());
+        if (dataPath != null && (path.equals(dataPath) || path.startsWith(dataPath + "/"))) {
+            return "root:" + dataPath;
+        }
+        // Unknown mount root, the directory has its own ledger so that it is never merged with another volume
+        return "dir:" + path;
+    }
+
+    @Nullable
+    private static String canonicalPath(@NonNull File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static class Volume {
+        private final long statFsTtlMillis;
+        long reservedBytes;
+        long statFsTime;
+        long availableBytes;
+
+        Volume(long statFsTtlMillis) {
+            this.statFsTtlMillis = statFsTtlMillis;
+        }
+
+        long getAvailableBytes(@NonNull File dir) {
+            long now = SystemClock.elapsedRealtime();
+            if (statFsTime == 0 || now - statFsTime >= statFsTtlMillis) {
+                availableBytes = Storagex.getAvailableBytes(dir, 0);
+                statFsTime = now;
+            }
+            return availableBytes;
+        }
+    }
+
+    /**
+     * The space reserved for a file, it must be released by {@link #commit()} or {@link #abandon()} after writing
+     */
+    public static class Reservation {
+        @NonNull
+        private final SpaceAllocator allocator;
+        @NonNull
+        private final Volume volume;
+        @NonNull
+        private final File file;
+        private final long bytes;
+        private boolean released;
+
+        Reservation(@NonNull SpaceAllocator allocator, @NonNull Volume volume, @NonNull File file, long bytes) {
+            this.allocator = allocator;
+            this.volume = volume;
+            this.file = file;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Get the file to write to (not created)
+         */
+        @NonNull
+        public File getFile() {
+            return file;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public synchronized boolean isReleased() {
+            return released;
+        }
+
+        /**
+         * The file has been written, release the reservation and refresh the available bytes of the volume on the next allocation
+         */
+        public void commit() {
+            release(true);
+        }
+
+        /**
+         * The writing has been abandoned, release the reservation. The file is not deleted
+         */
+        public void abandon() {
+            release(false);
+        }
+
+        private void release(boolean committed) {
+            synchronized (this) {
+                if (released) return;
+                released = true;
+            }
+            allocator.release(volume, bytes, committed);
+        }
+    }
+}
@@ -17,7 +17,10 @@
 package me.panpf.androidx.os.storage;
 
 import android.annotation.SuppressLint;
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.os.Build;
 import android.os.Environment;
 import android.os.storage.StorageManager;
@@ -30,6 +33,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import me.panpf.androidx.content.Contextx;
 import me.panpf.javax.lang.Classx;
@@ -40,6 +44,12 @@ import me.panpf.javax.util.Transformer;
 @SuppressWarnings({"WeakerAccess"})
 public class StorageManagerCompat {
 
+    @Nullable
+    private static volatile StorageVolumeSnapshot snapshot;
+    @Nullable
+    private static BroadcastReceiver mediaReceiver;
+    private static final AtomicInteger snapshotGeneration = new AtomicInteger();
+
     @NonNull
     private StorageManager manager;
 
@@ -51,6 +61,74 @@ public class StorageManagerCompat {
         this(Contextx.storageManager(context));
     }
 
+    /**
+     * Get the cached snapshot of all volumes. It is created on the first call and rebuilt only after
+     * the mount state of a volume changes (ACTION_MEDIA_MOUNTED, ACTION_MEDIA_UNMOUNTED, ACTION_MEDIA_EJECT, ACTION_MEDIA_REMOVED, etc.)
+     */
+    @NonNull
+    public static StorageVolumeSnapshot getSnapshot(@NonNull Context context) {
+        StorageVolumeSnapshot currentSnapshot = snapshot;
+        if (currentSnapshot != null) {
+            return currentSnapshot;
+        }
+
+        Context appContext = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+        synchronized (StorageManagerCompat.class) {
+            currentSnapshot = snapshot;
+            if (currentSnapshot == null) {
+                // Register first, so that the mount state change during the creation of the snapshot will not be lost
+                registerMediaReceiver(appContext);
+                int generation = snapshotGeneration.get();
+                currentSnapshot = new StorageVolumeSnapshot(appContext, new StorageManagerCompat(appContext).getVolumeList());
+                // The snapshot may be out of date if it is invalidated during the creation, it is returned but not cached
+                snapshot = currentSnapshot;
+                if (generation != snapshotGeneration.get()) {
+                    snapshot = null;
+                }
+            }
+            return currentSnapshot;
+        }
+    }
+
+    /**
+     * Discard the cached snapshot, the next {@link #getSnapshot(Context)} will create a new one
+     */
+    public static void invalidateSnapshot() {
+        snapshotGeneration.incrementAndGet();
+        snapshot = null;
+    }
+
+    private static void registerMediaReceiver(@NonNull Context appContext) {
+        if (mediaReceiver != null) return;
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_MEDIA_MOUNTED);
+        filter.addAction(Intent.ACTION_MEDIA_UNMOUNTED);
+        filter.addAction(Intent.ACTION_MEDIA_EJECT);
+        filter.addAction(Intent.ACTION_MEDIA_REMOVED);
+        filter.addAction(Intent.ACTION_MEDIA_BAD_REMOVAL);
+        filter.addAction(Intent.ACTION_MEDIA_CHECKING);
+        filter.addAction(Intent.ACTION_MEDIA_NOFS);
+        filter.addAction(Intent.ACTION_MEDIA_SHARED);
+        filter.addAction(Intent.ACTION_MEDIA_UNMOUNTABLE);
+        // Media broadcasts carry the mount point as file:// data, they will not be received without the scheme
+        filter.addDataScheme("file");
+
+        BroadcastReceiver receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidateSnapshot();
+            }
+        };
+        try {
+            appContext.registerReceiver(receiver, filter);
+            mediaReceiver = receiver;
+        } catch (Exception e) {
+            // Can not register from a BroadcastReceiver context, the snapshot is still usable but will not be invalidated automatically
+            e.printStackTrace();
+        }
+    }
+
     @NonNull
     public List<StorageVolumeCompat> getVolumeList() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
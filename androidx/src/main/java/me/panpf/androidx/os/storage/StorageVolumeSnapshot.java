@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.os.storage;
+
+import android.content.Context;
+import android.os.Environment;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of all volumes, the path, state and attributes of each volume are read only once when the snapshot is created.
+ * Use {@link StorageManagerCompat#getSnapshot(Context)} to get the cached snapshot, it is rebuilt only after the mount state of a volume changes
+ */
+@SuppressWarnings("WeakerAccess")
+public class StorageVolumeSnapshot {
+
+    @NonNull
+    private final StorageVolumeCompat[] volumes;
+    @NonNull
+    private final String[] paths;
+    @NonNull
+    private final String[] states;
+    @NonNull
+    private final boolean[] primaries;
+    @NonNull
+    private final boolean[] removables;
+    @NonNull
+    private final boolean[] emulateds;
+    @NonNull
+    private final Map<StorageVolumeCompat, Integer> volumeIndexes;
+    /**
+     * Canonical mount path to volume index, a path is matched by looking up it and its parents from the longest to the shortest
+     */
+    @NonNull
+    private final Map<String, Integer> pathIndexes;
+    @NonNull
+    private final StorageVolumeCompat[] mountedVolumes;
+
+    StorageVolumeSnapshot(@NonNull Context context, @NonNull List<StorageVolumeCompat> volumeList) {
+        int size = volumeList.size();
+        this.volumes = volumeList.toArray(new StorageVolumeCompat[size]);
+        this.paths = new String[size];
+        this.states = new String[size];
+        this.primaries = new boolean[size];
+        this.removables = new boolean[size];
+        this.emulateds = new boolean[size];
+        this.volumeIndexes = new IdentityHashMap<>(size);
+        this.pathIndexes = new HashMap<>(size);
+
+        List<StorageVolumeCompat> mountedVolumeList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StorageVolumeCompat volume = volumes[i];
+            paths[i] = volume.getPath();
+            states[i] = volume.getState(context);
+            primaries[i] = volume.isPrimary();
+            removables[i] = volume.isRemovable();
+            emulateds[i] = volume.isEmulated();
+            volumeIndexes.put(volume, i);
+            if (Environment.MEDIA_MOUNTED.equals(states[i])) {
+                mountedVolumeList.add(volume);
+            }
+
+            File pathFile = volume.getPathFile();
+            String canonicalPath = pathFile != null ? canonicalPath(pathFile) : null;
+            // On Android 4.1 the external SD card is mounted under the primary volume, such as /mnt/sdcard/external_sd,
+            // the longest path matching makes the files in it belong to the external SD card
+            if (canonicalPath != null) {
+                pathIndexes.put(canonicalPath, i);
+            }
+        }
+        this.mountedVolumes = mountedVolumeList.toArray(new StorageVolumeCompat[0]);
+    }
+
+    @Nullable
+    private static String canonicalPath(@NonNull File file) {
+        try {
+            String path = file.getCanonicalPath();
+            return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private int indexOf(@NonNull File file) {
+        String path = canonicalPath(file);
+        while (path != null) {
+            Integer index = pathIndexes.get(path);
+            if (index != null) {
+                return index;
+            }
+            int lastSlash = path.lastIndexOf('/');
+            path = lastSlash > 0 ? path.substring(0, lastSlash) : (lastSlash == 0 && path.length() > 1 ? "/" : null);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns array of StorageVolume for all volumes.
+     */
+    @NonNull
+    public StorageVolumeCompat[] getVolumes() {
+        return volumes.clone();
+    }
+
+    /**
+     * Returns list of StorageVolume for all volumes.
+     */
+    @NonNull
+    public List<StorageVolumeCompat> getVolumeList() {
+        return Collections.unmodifiableList(Arrays.asList(volumes));
+    }
+
+    /**
+     * Returns array of StorageVolume for all mounted volumes.
+     */
+    @NonNull
+    public StorageVolumeCompat[] getMountedVolumes() {
+        return mountedVolumes.clone();
+    }
+
+    /**
+     * Returns list of StorageVolume for all mounted volumes.
+     */
+    @NonNull
+    public List<StorageVolumeCompat> getMountedVolumeList() {
+        return Collections.unmodifiableList(Arrays.asList(mountedVolumes));
+    }
+
+    /**
+     * Returns list of path for all volumes.
+     */
+    @NonNull
+    public String[] getVolumePaths() {
+        List<String> volumePaths = new ArrayList<>(paths.length);
+        for (String path : paths) {
+            if (path != null) {
+                volumePaths.add(path);
+            }
+        }
+        return volumePaths.toArray(new String[0]);
+    }
+
+    /**
+     * Returns list of path for all mounted volumes.
+     */
+    @NonNull
+    public String[] getMountedVolumePaths() {
+        List<String> volumePaths = new ArrayList<>(paths.length);
+        for (int i = 0; i < paths.length; i++) {
+            if (paths[i] != null && Environment.MEDIA_MOUNTED.equals(states[i])) {
+                volumePaths.add(paths[i]);
+            }
+        }
+        return volumePaths.toArray(new String[0]);
+    }
+
+    /**
+     * Returns StorageVolume for path.
+     */
+    @Nullable
+    public StorageVolumeCompat getVolume(@NonNull File path) {
+        int index = indexOf(path);
+        return index != -1 ? volumes[index] : null;
+    }
+
+    /**
+     * Returns the state of the given volume when the snapshot was created, 'unknown' if the volume does not belong to this snapshot
+     */
+    @NonNull
+    public String getState(@NonNull StorageVolumeCompat volume) {
+        Integer index = volumeIndexes.get(volume);
+        return index != null ? states[index] : "unknown";
+    }
+
+    /**
+     * Returns volume state for given path
+     */
+    @NonNull
+    public String getVolumeState(@NonNull File path) {
+        int index = indexOf(path);
+        return index != -1 ? states[index] : "unknown";
+    }
+
+    /**
+     * Returns true if the state of the volume at which the given path is mounted
+     */
+    public boolean isVolumeMounted(@NonNull File path) {
+        return Environment.MEDIA_MOUNTED.equals(getVolumeState(path));
+    }
+
+    /**
+     * Return true if the volume of the given path is the primary volume
+     */
+    public boolean isPrimaryVolume(@NonNull File path) {
+        int index = indexOf(path);
+        return index != -1 && primaries[index];
+    }
+
+    /**
+     * Return true if the volume of the given path is the removable volume
+     */
+    public boolean isVolumeRemovable(@NonNull File path) {
+        int index = indexOf(path);
+        return index != -1 && removables[index];
+    }
+
+    /**
+     * Return true if the volume of the given path is the emulated volume
+     */
+    public boolean isVolumeEmulated(@NonNull File path) {
+        int index = indexOf(path);
+        return index != -1 && emulateds[index];
+    }
+}
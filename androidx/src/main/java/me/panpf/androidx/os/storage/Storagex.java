@@ -29,7 +29,6 @@ import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
-import me.panpf.androidx.content.Contextx;
 import me.panpf.androidx.os.StatFsx;
 import me.panpf.javax.io.Filex;
 import me.panpf.javax.io.UnableCreateDirException;
@@ -140,13 +139,16 @@ public class Storagex {
 
     /* ******************************************* Volume *******************************************/
 
+    /*
+     * The following methods all read the cached StorageVolumeSnapshot, it is rebuilt only after the mount state of a volume changes
+     */
+
     /**
      * Returns volume state for given path
      */
     @NonNull
     public static String getVolumeState(@NonNull Context context, @NonNull File path) {
-        StorageVolumeCompat volumeCompat = getVolume(context, path);
-        return volumeCompat != null ? volumeCompat.getState(context) : "unknown";
+        return StorageManagerCompat.getSnapshot(context).getVolumeState(path);
     }
 
     /**
@@ -161,24 +163,21 @@ public class Storagex {
      * Return true if the volume of the given path is the primary volume
      */
     public static boolean isPrimaryVolume(@NonNull Context context, @NonNull File path) {
-        StorageVolumeCompat volumeCompat = getVolume(context, path);
-        return volumeCompat != null && volumeCompat.isPrimary();
+        return StorageManagerCompat.getSnapshot(context).isPrimaryVolume(path);
     }
 
     /**
      * Return true if the volume of the given path is the emulated volume
      */
     public static boolean isVolumeEmulated(@NonNull Context context, @NonNull File path) {
-        StorageVolumeCompat volumeCompat = getVolume(context, path);
-        return volumeCompat != null && volumeCompat.isEmulated();
+        return StorageManagerCompat.getSnapshot(context).isVolumeEmulated(path);
     }
 
     /**
      * Return true if the volume of the given path is the removable volume
      */
     public static boolean isVolumeRemovable(@NonNull Context context, @NonNull File path) {
-        StorageVolumeCompat volumeCompat = getVolume(context, path);
-        return volumeCompat != null && volumeCompat.isRemovable();
+        return StorageManagerCompat.getSnapshot(context).isVolumeRemovable(path);
     }
 
 
@@ -187,20 +186,15 @@ public class Storagex {
      */
     @NonNull
     public static String[] getVolumePaths(@NonNull Context context) {
-        return Contextx.storageManagerCompat(context).getVolumePaths();
+        return StorageManagerCompat.getSnapshot(context).getVolumePaths();
     }
 
     /**
      * Returns list of path for all mounted volumes.
      */
     @NonNull
-    public static String[] getMountedVolumePaths(@NonNull final Context context) {
-        return Arrayx.filter(getVolumePaths(context), new Predicate<String>() {
-            @Override
-            public boolean accept(@NonNull String path) {
-                return isVolumeMounted(context, new File(path));
-            }
-        }).toArray(new String[0]);
+    public static String[] getMountedVolumePaths(@NonNull Context context) {
+        return StorageManagerCompat.getSnapshot(context).getMountedVolumePaths();
     }
 
 
@@ -237,20 +231,15 @@ public class Storagex {
      */
     @NonNull
     public static List<StorageVolumeCompat> getVolumeList(@NonNull Context context) {
-        return Contextx.storageManagerCompat(context).getVolumeList();
+        return StorageManagerCompat.getSnapshot(context).getVolumeList();
     }
 
     /**
      * Returns list of StorageVolume for all mounted volumes.
      */
     @NonNull
-    public static List<StorageVolumeCompat> getMountedVolumeList(@NonNull final Context context) {
-        return Collectionx.filter(getVolumeList(context), new Predicate<StorageVolumeCompat>() {
-            @Override
-            public boolean accept(@NonNull StorageVolumeCompat storageVolumeCompat) {
-                return Environment.MEDIA_MOUNTED.equals(storageVolumeCompat.getState(context));
-            }
-        });
+    public static List<StorageVolumeCompat> getMountedVolumeList(@NonNull Context context) {
+        return StorageManagerCompat.getSnapshot(context).getMountedVolumeList();
     }
 
     /**
@@ -258,20 +247,15 @@ public class Storagex {
      */
     @NonNull
     public static StorageVolumeCompat[] getVolumes(@NonNull Context context) {
-        return Contextx.storageManagerCompat(context).getVolumes();
+        return StorageManagerCompat.getSnapshot(context).getVolumes();
     }
 
     /**
      * Returns array of StorageVolume for all mounted volumes.
      */
     @NonNull
-    public static StorageVolumeCompat[] getMountedVolumes(@NonNull final Context context) {
-        return Arrayx.filter(getVolumes(context), new Predicate<StorageVolumeCompat>() {
-            @Override
-            public boolean accept(@NonNull StorageVolumeCompat storageVolumeCompat) {
-                return Environment.MEDIA_MOUNTED.equals(storageVolumeCompat.getState(context));
-            }
-        }).toArray(new StorageVolumeCompat[0]);
+    public static StorageVolumeCompat[] getMountedVolumes(@NonNull Context context) {
+        return StorageManagerCompat.getSnapshot(context).getMountedVolumes();
     }
 
 
@@ -280,7 +264,7 @@ public class Storagex {
      */
     @Nullable
     public static StorageVolumeCompat getVolume(@NonNull Context context, @NonNull File path) {
-        return Contextx.storageManagerCompat(context).getVolume(path);
+        return StorageManagerCompat.getSnapshot(context).getVolume(path);
     }
 
 
@@ -350,8 +334,7 @@ public class Storagex {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             return Environment.isExternalStorageEmulated(path);
         } else {
-            StorageVolumeCompat storageVolume = Contextx.storageManagerCompat(context).getVolume(path);
-            return storageVolume != null && storageVolume.isEmulated();
+            return isVolumeEmulated(context, path);
         }
     }
 
@@ -369,8 +352,7 @@ public class Storagex {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             return Environment.isExternalStorageRemovable(path);
         } else {
-            StorageVolumeCompat storageVolume = Contextx.storageManagerCompat(context).getVolume(path);
-            return storageVolume != null && storageVolume.isRemovable();
+            return isVolumeRemovable(context, path);
         }
     }
 
@@ -674,6 +656,27 @@ public class Storagex {
         return sum;
     }
 
+    /**
+     * Count the size of all APP cache directories in parallel, each volume is counted on its own thread.
+     * Interrupting the calling thread cancels the counting and returns the results counted so far
+     *
+     * @param listener Receive progress, the size of each top-level child and the size of each volume, all methods are called on the worker thread
+     */
+    @WorkerThread
+    @NonNull
+    public static DirLengthCounter.Result lengthAppCacheDirsParallel(@NonNull Context context, @Nullable DirLengthCounter.Listener listener) {
+        return new DirLengthCounter(getAppCacheDirs(context)).count(listener);
+    }
+
+    /**
+     * Count the size of all APP cache directories with the persistent {@link DirLengthIndex},
+     * only the directories that have changed since the last count are listed again
+     */
+    @WorkerThread
+    public static long lengthAppCacheDirsIndexed(@NonNull Context context) {
+        return DirLengthIndex.get(context).length(getAppCacheDirs(context));
+    }
+
     /**
      * Clean up all app cache directories
      */
@@ -696,6 +699,30 @@ public class Storagex {
         }
     }
 
+    /**
+     * Delete the least recently used files in all app cache directories until their total size is not greater than [targetBytes].
+     * Interrupting the calling thread stops trimming after the current batch
+     *
+     * @param targetBytes The total size of all app cache directories after trimming
+     * @param listener    Called on the calling thread after each batch of deletions
+     */
+    @WorkerThread
+    @NonNull
+    public static DirTrimmer.Result trimAppCacheDirsTo(@NonNull Context context, long targetBytes, @Nullable DirTrimmer.Listener listener) {
+        return new DirTrimmer(getAppCacheDirs(context), targetBytes).trim(listener);
+    }
+
+    /**
+     * Delete the least recently used files in all app cache directories until their total size is not greater than [targetBytes]
+     *
+     * @param targetBytes The total size of all app cache directories after trimming
+     */
+    @WorkerThread
+    @NonNull
+    public static DirTrimmer.Result trimAppCacheDirsTo(@NonNull Context context, long targetBytes) {
+        return trimAppCacheDirsTo(context, targetBytes, null);
+    }
+
 
     /* ******************************************* App Files Dir *******************************************/
 
@@ -843,6 +870,27 @@ public class Storagex {
         return sum;
     }
 
+    /**
+     * Count the size of all APP files directories in parallel, each volume is counted on its own thread.
+     * Interrupting the calling thread cancels the counting and returns the results counted so far
+     *
+     * @param listener Receive progress, the size of each top-level child and the size of each volume, all methods are called on the worker thread
+     */
+    @WorkerThread
+    @NonNull
+    public static DirLengthCounter.Result lengthAppFilesDirsParallel(@NonNull Context context, @Nullable DirLengthCounter.Listener listener) {
+        return new DirLengthCounter(getAppFilesDirs(context)).count(listener);
+    }
+
+    /**
+     * Count the size of all APP files directories with the persistent {@link DirLengthIndex},
+     * only the directories that have changed since the last count are listed again
+     */
+    @WorkerThread
+    public static long lengthAppFilesDirsIndexed(@NonNull Context context) {
+        return DirLengthIndex.get(context).length(getAppFilesDirs(context));
+    }
+
     /**
      * Clean up all app files directories
      */
@@ -966,6 +1014,27 @@ public class Storagex {
         return sum;
     }
 
+    /**
+     * Count the size of all APP obb directories in parallel, each volume is counted on its own thread.
+     * Interrupting the calling thread cancels the counting and returns the results counted so far
+     *
+     * @param listener Receive progress, the size of each top-level child and the size of each volume, all methods are called on the worker thread
+     */
+    @WorkerThread
+    @NonNull
+    public static DirLengthCounter.Result lengthAppObbDirsParallel(@NonNull Context context, @Nullable DirLengthCounter.Listener listener) {
+        return new DirLengthCounter(getAppObbDirs(context)).count(listener);
+    }
+
+    /**
+     * Count the size of all APP obb directories with the persistent {@link DirLengthIndex},
+     * only the directories that have changed since the last count are listed again
+     */
+    @WorkerThread
+    public static long lengthAppObbDirsIndexed(@NonNull Context context) {
+        return DirLengthIndex.get(context).length(getAppObbDirs(context));
+    }
+
     /**
      * Clean up all app obb directories
      */
@@ -1057,4 +1126,33 @@ public class Storagex {
     public static File getFileIn(@Nullable File[] dirs, @NonNull String fileName, long minBytes) {
         return getFileIn(dirs, fileName, minBytes, false);
     }
+
+    /**
+     * Traverse the specified directory list, choose the directory with the most available bytes after subtracting the bytes reserved by other writers,
+     * and reserve [minBytes] for the file (not created) with {@link SpaceAllocator#getDefault(Context)}.
+     * The reservation must be released by {@link SpaceAllocator.Reservation#commit()} or {@link SpaceAllocator.Reservation#abandon()} after writing
+     *
+     * @param fileName     file name
+     * @param minBytes     The number of bytes to reserve
+     * @param cleanOldFile Whether to delete old files before judging the space
+     * @param dirs         Directory list
+     */
+    @Nullable
+    public static SpaceAllocator.Reservation reserveFileIn(@NonNull Context context, @Nullable File[] dirs, @NonNull String fileName, long minBytes, boolean cleanOldFile) {
+        return SpaceAllocator.getDefault(context).reserve(dirs, fileName, minBytes, cleanOldFile);
+    }
+
+    /**
+     * Traverse the specified directory list, choose the directory with the most available bytes after subtracting the bytes reserved by other writers,
+     * and reserve [minBytes] for the file (not created) with {@link SpaceAllocator#getDefault(Context)}.
+     * The reservation must be released by {@link SpaceAllocator.Reservation#commit()} or {@link SpaceAllocator.Reservation#abandon()} after writing
+     *
+     * @param fileName file name
+     * @param minBytes The number of bytes to reserve
+     * @param dirs     Directory list
+     */
+    @Nullable
+    public static SpaceAllocator.Reservation reserveFileIn(@NonNull Context context, @Nullable File[] dirs, @NonNull String fileName, long minBytes) {
+        return reserveFileIn(context, dirs, fileName, minBytes, false);
+    }
 }
\ No newline at end of file
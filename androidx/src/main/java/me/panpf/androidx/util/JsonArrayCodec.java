@@ -0,0 +1,611 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import org.json.JSONException;
+
+import java.util.Locale;
+
+/**
+ * Write and parse json arrays of primitives directly, without {@link org.json.JSONArray} and boxing. Used by {@link Jsonx}
+ */
+final class JsonArrayCodec {
+
+    /**
+     * Powers of ten that are exactly representable as double
+     */
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private JsonArrayCodec() {
+    }
+
+
+    /* ************************************** write ******************************************  */
+
+
+    @NonNull
+    static StringBuilder append(@NonNull StringBuilder builder, @Nullable int[] values) {
+        builder.append('[');
+        if (values != null) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) builder.append(',');
+                builder.append(values[i]);
+            }
+        }
+        return builder.append(']');
+    }
+
+    @NonNull
+    static StringBuilder append(@NonNull StringBuilder builder, @Nullable long[] values) {
+        builder.append('[');
+        if (values != null) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) builder.append(',');
+                builder.append(values[i]);
+            }
+        }
+        return builder.append(']');
+    }
+
+    /**
+     * Integral values are written without the fraction like {@link org.json.JSONArray}
+     *
+     * @throws IllegalArgumentException A value is NaN or infinite
+     */
+    @NonNull
+    static StringBuilder append(@NonNull StringBuilder builder, @Nullable double[] values) {
+        builder.append('[');
+        if (values != null) {
+            for (int i = 0; i < values.length; i++) {
+                double value = values[i];
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    throw new IllegalArgumentException("Forbidden numeric value: " + value);
+                }
+                if (i > 0) builder.append(',');
+                if (value == (long) value && (value != 0 || 1 / value > 0)) {
+                    builder.append((long) value);
+                } else {
+                    builder.append(value);
+                }
+            }
+        }
+        return builder.append(']');
+    }
+
+    @NonNull
+    static StringBuilder append(@NonNull StringBuilder builder, @Nullable boolean[] values) {
+        builder.append('[');
+        if (values != null) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) builder.append(',');
+                builder.append(values[i] ? "true" : "false");
+            }
+        }
+        return builder.append(']');
+    }
+
+    /**
+     * Null elements are written as json null
+     */
+    @NonNull
+    static StringBuilder append(@NonNull StringBuilder builder, @Nullable String[] values) {
+        builder.append('[');
+        if (values != null) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) builder.append(',');
+                String value = values[i];
+                if (value != null) {
+                    appendString(builder, value);
+                } else {
+                    builder.append("null");
+                }
+            }
+        }
+        return builder.append(']');
+    }
+
+    static void appendString(@NonNull StringBuilder builder, @NonNull String string) {
+        builder.append('"');
+        int last = 0;
+        for (int i = 0, length = string.length(); i < length; i++) {
+            String escaped = escape(string.charAt(i));
+            if (escaped != null) {
+                builder.append(string, last, i).append(escaped);
+                last = i + 1;
+            }
+        }
+        builder.append(string, last, string.length()).append('"');
+    }
+
+    /**
+     * Get the escape sequence of [c] in a json string, the quote, backslash, control characters, U+2028 and U+2029 are escaped
+     *
+     * @return null if [c] does not need to be escaped
+     */
+    @Nullable
+    static String escape(char c) {
+        if (c == '"') {
+            return "\\\"";
+        } else if (c == '\\') {
+            return "\\\\";
+        } else if (c >= 0x20 && c != '\u2028' && c != '\u2029') {
+            return null;
+        } else if (c == '\n') {
+            return "\\n";
+        } else if (c == '\r') {
+            return "\\r";
+        } else if (c == '\t') {
+            return "\\t";
+        } else if (c == '\b') {
+            return "\\b";
+        } else if (c == '\f') {
+            return "\\f";
+        } else {
+            return String.format(Locale.US, "\\u%04x", (int) c);
+        }
+    }
+
+
+    /* ************************************** parse ******************************************  */
+
+
+    /**
+     * Numbers in strings are accepted and fractions are truncated like {@link org.json.JSONArray#getInt(int)},
+     * so a fraction, exponent or string out of the int range saturates and an integer out of the int range keeps its low 32 bits
+     */
+    @NonNull
+    static int[] parseIntArray(@Nullable CharSequence json) throws JSONException {
+        Scanner scanner = new Scanner(json);
+        int[] values = new int[scanner.begin()];
+        for (int i = 0; i < values.length; i++) {
+            scanner.nextElement(i);
+            values[i] = scanner.readInt();
+        }
+        scanner.end();
+        return values;
+    }
+
+    /**
+     * Numbers in strings are accepted and fractions are truncated like {@link org.json.JSONArray#getLong(int)}
+     */
+    @NonNull
+    static long[] parseLongArray(@Nullable CharSequence json) throws JSONException {
+        Scanner scanner = new Scanner(json);
+        long[] values = new long[scanner.begin()];
+        for (int i = 0; i < values.length; i++) {
+            scanner.nextElement(i);
+            values[i] = scanner.readLong();
+        }
+        scanner.end();
+        return values;
+    }
+
+    /**
+     * Numbers in strings are accepted like {@link org.json.JSONArray#getDouble(int)}
+     */
+    @NonNull
+    static double[] parseDoubleArray(@Nullable CharSequence json) throws JSONException {
+        Scanner scanner = new Scanner(json);
+        double[] values = new double[scanner.begin()];
+        for (int i = 0; i < values.length; i++) {
+            scanner.nextElement(i);
+            values[i] = scanner.readDouble();
+        }
+        scanner.end();
+        return values;
+    }
+
+    /**
+     * The strings "true" and "false" are accepted ignoring case like {@link org.json.JSONArray#getBoolean(int)}
+     */
+    @NonNull
+    static boolean[] parseBooleanArray(@Nullable CharSequence json) throws JSONException {
+        Scanner scanner = new Scanner(json);
+        boolean[] values = new boolean[scanner.begin()];
+        for (int i = 0; i < values.length; i++) {
+            scanner.nextElement(i);
+            values[i] = scanner.readBoolean();
+        }
+        scanner.end();
+        return values;
+    }
+
+    /**
+     * Numbers, booleans and null are returned as their text like {@link org.json.JSONArray#getString(int)}
+     */
+    @NonNull
+    static String[] parseStringArray(@Nullable CharSequence json) throws JSONException {
+        Scanner scanner = new Scanner(json);
+        String[] values = new String[scanner.begin()];
+        for (int i = 0; i < values.length; i++) {
+            scanner.nextElement(i);
+            values[i] = scanner.readString();
+        }
+        scanner.end();
+        return values;
+    }
+
+    /**
+     * Reads a flat json array in two passes, the first pass counts the elements so that the result array is allocated once
+     */
+    private static class Scanner {
+        @NonNull
+        private final CharSequence json;
+        private final int length;
+        private int position;
+
+        Scanner(@Nullable CharSequence json) {
+            this.json = json != null ? json : "";
+            this.length = this.json.length();
+        }
+
+        /**
+         * Read the '[' and count the elements. Blank, "null" and "{}" are treated as an empty array like {@link Jsonx#isEmpty(String)}
+         */
+        int begin() throws JSONException {
+            skipWhitespace();
+            if (position == length) {
+                return 0;
+            }
+            char c = json.charAt(position);
+            if (c == '{' || c == 'n' || c == 'N') {
+                int end = c == '{' ? skipWhitespace(position + 1) : position + 4;
+                if ((c == '{' ? end < length && json.charAt(end) == '}' : regionMatches(position, "null", true))
+                        && skipWhitespace(c == '{' ? end + 1 : end) == length) {
+                    position = length;
+                    return 0;
+                }
+            }
+            if (c != '[') throw syntaxError("Expected '['");
+            position++;
+            return countElements();
+        }
+
+        private int countElements() throws JSONException {
+            int commas = 0;
+            boolean hasElement = false;
+            boolean inString = false;
+            for (int i = position; i < length; i++) {
+                char c = json.charAt(i);
+                if (inString) {
+                    if (c == '\\') {
+                        i++;
+                    } else if (c == '"') {
+                        inString = false;
+                    }
+                } else if (c == '"') {
+                    inString = true;
+                    hasElement = true;
+                } else if (c == ',') {
+                    commas++;
+                } else if (c == ']') {
+                    return hasElement || commas > 0 ? commas + 1 : 0;
+                } else if (!isWhitespace(c)) {
+                    hasElement = true;
+                }
+            }
+            throw syntaxError("Unterminated array");
+        }
+
+        /**
+         * Move to the start of the element at [index]
+         */
+        void nextElement(int index) throws JSONException {
+            skipWhitespace();
+            if (index > 0) {
+                if (position == length || json.charAt(position) != ',') throw syntaxError("Expected ','");
+                position++;
+                skipWhitespace();
+            }
+            if (position == length || json.charAt(position) == ']' || json.charAt(position) == ',') throw syntaxError("Expected a value");
+        }
+
+        /**
+         * Read the ']' of a non-empty array, only whitespace may follow it
+         */
+        void end() throws JSONException {
+            if (position == length) return;
+            skipWhitespace();
+            if (position == length || json.charAt(position) != ']') throw syntaxError("Expected ']'");
+            position++;
+            if (skipWhitespace(position) != length) throw syntaxError("Unexpected characters after the array");
+        }
+
+        int readInt() throws JSONException {
+            return (int) readInteger(true);
+        }
+
+        long readLong() throws JSONException {
+            return readInteger(false);
+        }
+
+        /**
+         * @param asInt Convert like {@link org.json.JSONArray#getInt(int)}: strings and non-integers are converted through double,
+         *              which saturates at the int range, plain integers are converted through long, which keeps the low 32 bits
+         */
+        private long readInteger(boolean asInt) throws JSONException {
+            boolean quoted = openQuote();
+            long value;
+            int start = position;
+            boolean negative = consume('-');
+            long result = 0;
+            int digits = 0;
+            boolean overflow = false;
+            while (position < length) {
+                char c = json.charAt(position);
+                if (c < '0' || c > '9') break;
+                if (result < (Long.MIN_VALUE + (c - '0')) / 10) {
+                    overflow = true;
+                }
+                // Accumulate negatively, the range of negative long is larger
+                result = result * 10 - (c - '0');
+                digits++;
+                position++;
+            }
+            if (digits == 0) throw syntaxError("Expected a number");
+            if (overflow || !negative && result == Long.MIN_VALUE || isFractionOrExponent()) {
+                double doubleValue = parseDoubleSlow(start);
+                value = asInt ? (int) doubleValue : (long) doubleValue;
+            } else {
+                value = negative ? result : -result;
+                if (asInt && quoted) {
+                    value = (int) (double) value;
+                }
+            }
+            closeQuote(quoted);
+            return value;
+        }
+
+        double readDouble() throws JSONException {
+            boolean quoted = openQuote();
+            int start = position;
+            boolean negative = consume('-');
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = 0;
+            boolean exact = true;
+            while (position < length) {
+                char c = json.charAt(position);
+                if (c >= '0' && c <= '9') {
+                    if (mantissa < MAX_EXACT_MANTISSA / 10) {
+                        mantissa = mantissa * 10 + (c - '0');
+                    } else {
+                        exact = false;
+                    }
+                    digits++;
+                    if (fractionDigits > 0) fractionDigits++;
+                } else if (c == '.' && fractionDigits == 0) {
+                    fractionDigits = 1;
+                } else {
+                    break;
+                }
+                position++;
+            }
+            if (digits == 0) throw syntaxError("Expected a number");
+            double value;
+            // A mantissa and a power of ten that are both exactly representable give the correctly rounded result by one division
+            if (exact && fractionDigits - 1 < POW10.length && !isExponent()) {
+                value = fractionDigits > 1 ? mantissa / POW10[fractionDigits - 1] : mantissa;
+                if (negative) value = -value;
+            } else {
+                position = start;
+                value = parseDoubleSlow(start);
+            }
+            closeQuote(quoted);
+            return value;
+        }
+
+        boolean readBoolean() throws JSONException {
+            boolean quoted = openQuote();
+            boolean value;
+            if (regionMatches(position, "true", quoted)) {
+                position += 4;
+                value = true;
+            } else if (regionMatches(position, "false", quoted)) {
+                position += 5;
+                value = false;
+            } else {
+                throw syntaxError("Expected a boolean");
+            }
+            closeQuote(quoted);
+            return value;
+        }
+
+        @NonNull
+        String readString() throws JSONException {
+            if (json.charAt(position) != '"') {
+                // A number, boolean or null, returned as it is. Other unquoted text is not valid json
+                int start = position;
+                while (position < length) {
+                    char c = json.charAt(position);
+                    if (c == ',' || c == ']' || isWhitespace(c)) break;
+                    position++;
+                }
+                String literal = json.subSequence(start, position).toString();
+                if (!literal.equals("true") && !literal.equals("false") && !literal.equals("null") && !isNumber(literal)) {
+                    position = start;
+                    throw syntaxError("Expected a string");
+                }
+                return literal;
+            }
+
+            position++;
+            StringBuilder builder = null;
+            int start = position;
+            while (position < length) {
+                char c = json.charAt(position);
+                if (c == '"') {
+                    String value = builder != null
+                            ? builder.append(json, start, position).toString()
+                            : json.subSequence(start, position).toString();
+                    position++;
+                    return value;
+                } else if (c == '\\') {
+                    if (builder == null) builder = new StringBuilder();
+                    builder.append(json, start, position);
+                    position++;
+                    if (position == length) break;
+                    builder.append(readEscaped());
+                    start = position;
+                } else {
+                    position++;
+                }
+            }
+            throw syntaxError("Unterminated string");
+        }
+
+        private char readEscaped() throws JSONException {
+            char c = json.charAt(position++);
+            switch (c) {
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 't':
+                    return '\t';
+                case 'b':
+                    return '\b';
+                case 'f':
+                    return '\f';
+                case 'u':
+                    if (position + 4 > length) throw syntaxError("Unterminated escape sequence");
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(json.charAt(position++), 16);
+                        if (digit == -1) throw syntaxError("Invalid escape sequence");
+                        code = (code << 4) | digit;
+                    }
+                    return (char) code;
+                default:
+                    // '"', '\\', '/' and the others are themselves
+                    return c;
+            }
+        }
+
+        private double parseDoubleSlow(int start) throws JSONException {
+            position = start;
+            consume('-');
+            while (position < length) {
+                char c = json.charAt(position);
+                if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                    position++;
+                } else {
+                    break;
+                }
+            }
+            try {
+                return Double.parseDouble(json.subSequence(start, position).toString());
+            } catch (NumberFormatException e) {
+                throw syntaxError("Invalid number");
+            }
+        }
+
+        /**
+         * Check that [text] is a json number: an optional minus, digits, an optional fraction and an optional exponent
+         */
+        private static boolean isNumber(@NonNull String text) {
+            int i = text.startsWith("-") ? 1 : 0;
+            int digitsStart = i;
+            i = skipDigits(text, i);
+            if (i == digitsStart) return false;
+            if (i < text.length() && text.charAt(i) == '.') {
+                int fractionStart = ++i;
+                i = skipDigits(text, i);
+                if (i == fractionStart) return false;
+            }
+            if (i < text.length() && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+                i++;
+                if (i < text.length() && (text.charAt(i) == '+' || text.charAt(i) == '-')) i++;
+                int exponentStart = i;
+                i = skipDigits(text, i);
+                if (i == exponentStart) return false;
+            }
+            return i == text.length();
+        }
+
+        private static int skipDigits(@NonNull String text, int from) {
+            int i = from;
+            while (i < text.length() && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                i++;
+            }
+            return i;
+        }
+
+        private boolean isFractionOrExponent() {
+            return position < length && (json.charAt(position) == '.' || isExponent());
+        }
+
+        private boolean isExponent() {
+            return position < length && (json.charAt(position) == 'e' || json.charAt(position) == 'E');
+        }
+
+        private boolean openQuote() {
+            return consume('"');
+        }
+
+        private void closeQuote(boolean quoted) throws JSONException {
+            if (quoted && !consume('"')) throw syntaxError("Expected '\"'");
+        }
+
+        private boolean consume(char c) {
+            if (position < length && json.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * @param text Lower case text
+         */
+        private boolean regionMatches(int start, @NonNull String text, boolean ignoreCase) {
+            if (start + text.length() > length) return false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = json.charAt(start + i);
+                if ((ignoreCase ? Character.toLowerCase(c) : c) != text.charAt(i)) return false;
+            }
+            return true;
+        }
+
+        private void skipWhitespace() {
+            position = skipWhitespace(position);
+        }
+
+        private int skipWhitespace(int from) {
+            int i = from;
+            while (i < length && isWhitespace(json.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+
+        private static boolean isWhitespace(char c) {
+            return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+        }
+
+        @NonNull
+        private JSONException syntaxError(@NonNull String message) {
+            return new JSONException(message + " at character " + position);
+        }
+    }
+}
@@ -0,0 +1,531 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.util;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.SparseArray;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extract the values of a set of paths from a json stream without parsing it into {@link org.json.JSONObject}.
+ * The paths are compiled into a tree once, the objects and arrays that no path goes into are skipped without being materialized,
+ * and reading stops as soon as all paths without wildcards have been found, for example:
+ * <pre>
+ * JsonPathQuery query = JsonPathQuery.compile("meta.version", "data.items[*].id");
+ * JsonPathQuery.Result result = query.extract(reader);
+ * int version = result.getInt("meta.version", 0);
+ * long[] ids = result.getLongs("data.items[*].id");
+ * </pre>
+ * A path is made of names separated by '.' and indexes in '[]', '*' matches any name and '[*]' matches any index.
+ * Only the primitive values (string, number, boolean and null) are extracted, the objects and arrays at the end of a path are skipped.
+ * The query is immutable and can be shared across threads
+ */
+@SuppressWarnings("WeakerAccess")
+public class JsonPathQuery {
+
+    private static final String ANY = "*";
+
+    @NonNull
+    private final String[] paths;
+    @NonNull
+    private final Map<String, Integer> pathIndexes;
+    @NonNull
+    private final Node root = new Node();
+    /**
+     * The number of paths without wildcards, they match at most one value
+     */
+    private final int singlePathCount;
+    private final boolean hasWildcard;
+
+    private JsonPathQuery(@NonNull String[] paths) {
+        if (paths.length == 0) throw new IllegalArgumentException("paths is empty");
+        this.pathIndexes = new HashMap<>(paths.length);
+        List<String> distinctPaths = new ArrayList<>(paths.length);
+        int singleCount = 0;
+        boolean wildcard = false;
+        for (String path : paths) {
+            if (pathIndexes.containsKey(path)) continue;
+            int pathIndex = distinctPaths.size();
+            pathIndexes.put(path, pathIndex);
+            distinctPaths.add(path);
+            if (addPath(path, pathIndex)) {
+                wildcard = true;
+            } else {
+                singleCount++;
+            }
+        }
+        this.paths = distinctPaths.toArray(new String[distinctPaths.size()]);
+        this.singlePathCount = singleCount;
+        this.hasWildcard = wildcard;
+    }
+
+    /**
+     * Compile the paths, such as "meta.version", "data.items[*].id", "[0].name"
+     *
+     * @throws IllegalArgumentException A path is invalid
+     */
+    @NonNull
+    public static JsonPathQuery compile(@NonNull String... paths) {
+        return new JsonPathQuery(paths);
+    }
+
+    /**
+     * Add the path to the tree
+     *
+     * @return true if the path has a wildcard
+     */
+    private boolean addPath(@NonNull String path, int pathIndex) {
+        Node node = root;
+        boolean wildcard = false;
+        int i = 0;
+        int length = path.length();
+        if (length == 0) throw new IllegalArgumentException("Invalid path: " + path);
+        while (i < length) {
+            char c = path.charAt(i);
+            if (c == '[') {
+                int end = path.indexOf(']', i);
+                if (end == -1) throw new IllegalArgumentException("Invalid path, ']' is missing: " + path);
+                String index = path.substring(i + 1, end);
+                if (ANY.equals(index)) {
+                    if (node.anyIndex == null) node.anyIndex = new Node();
+                    node = node.anyIndex;
+                    wildcard = true;
+                } else {
+                    int indexValue;
+                    try {
+                        indexValue = Integer.parseInt(index);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid path, bad index '" + index + "': " + path);
+                    }
+                    if (indexValue < 0) throw new IllegalArgumentException("Invalid path, bad index '" + index + "': " + path);
+                    if (node.indexes == null) node.indexes = new SparseArray<>();
+                    Node child = node.indexes.get(indexValue);
+                    if (child == null) {
+                        child = new Node();
+                        node.indexes.put(indexValue, child);
+                    }
+                    node = child;
+                }
+                i = end + 1;
+                if (i < length && path.charAt(i) == '.') {
+                    i++;
+                    if (i == length) throw new IllegalArgumentException("Invalid path, ends with '.': " + path);
+                }
+            } else {
+                int end = i;
+                while (end < length && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    end++;
+                }
+                if (end == i) throw new IllegalArgumentException("Invalid path, empty name: " + path);
+                String name = path.substring(i, end);
+                if (ANY.equals(name)) {
+                    if (node.anyName == null) node.anyName = new Node();
+                    node = node.anyName;
+                    wildcard = true;
+                } else {
+                    if (node.names == null) node.names = new HashMap<>();
+                    Node child = node.names.get(name);
+                    if (child == null) {
+                        child = new Node();
+                        node.names.put(name, child);
+                    }
+                    node = child;
+                }
+                i = end;
+                if (i < length && path.charAt(i) == '.') {
+                    i++;
+                    if (i == length) throw new IllegalArgumentException("Invalid path, ends with '.': " + path);
+                }
+            }
+        }
+        node.pathIndex = pathIndex;
+        return wildcard;
+    }
+
+    /**
+     * Get the compiled paths, duplicates are removed
+     */
+    @NonNull
+    public String[] getPaths() {
+        return paths.clone();
+    }
+
+    /**
+     * Read the json from [reader] and extract the values of all paths. [reader] is not closed and may not be read to the end
+     *
+     * @throws IOException Failed to read, or the json is invalid ({@link android.util.MalformedJsonException})
+     */
+    @NonNull
+    public Result extract(@NonNull Reader reader) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.setLenient(true);
+        Extraction extraction = new Extraction();
+        List<Node> rootNodes = extraction.nodesAt(0);
+        rootNodes.add(root);
+        extraction.readValue(jsonReader, rootNodes, 0);
+        return extraction.result;
+    }
+
+    /**
+     * Read the UTF-8 json from [inputStream] and extract the values of all paths. [inputStream] is not closed and may not be read to the end
+     */
+    @NonNull
+    public Result extract(@NonNull InputStream inputStream) throws IOException {
+        return extract(new InputStreamReader(inputStream, "UTF-8"));
+    }
+
+    /**
+     * Extract the values of all paths from [json]
+     *
+     * @throws IllegalArgumentException The json is invalid
+     */
+    @NonNull
+    public Result extract(@NonNull String json) {
+        try {
+            return extract(new StringReader(json));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid json: " + e.getMessage(), e);
+        }
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "JsonPathQuery(" + pathIndexes.keySet() + ")";
+    }
+
+    private static class Node {
+        @Nullable
+        Map<String, Node> names;
+        @Nullable
+        Node anyName;
+        @Nullable
+        SparseArray<Node> indexes;
+        @Nullable
+        Node anyIndex;
+        int pathIndex = -1;
+    }
+
+    /**
+     * The state of one extraction
+     */
+    private class Extraction {
+        @NonNull
+        final Result result = new Result(JsonPathQuery.this);
+        /**
+         * The nodes matching the current value of each depth, reused
+         */
+        @NonNull
+        final List<List<Node>> nodesByDepth = new ArrayList<>();
+        int foundSinglePathCount;
+
+        @NonNull
+        List<Node> nodesAt(int depth) {
+            while (nodesByDepth.size() <= depth) {
+                nodesByDepth.add(new ArrayList<Node>(2));
+            }
+            List<Node> nodes = nodesByDepth.get(depth);
+            nodes.clear();
+            return nodes;
+        }
+
+        /**
+         * @return false if all paths have been found and the reading should stop
+         */
+        boolean readValue(@NonNull JsonReader jsonReader, @NonNull List<Node> nodes, int depth) throws IOException {
+            JsonToken token = jsonReader.peek();
+            if (token == JsonToken.BEGIN_OBJECT) {
+                if (!hasNameChildren(nodes)) {
+                    jsonReader.skipValue();
+                    return true;
+                }
+                jsonReader.beginObject();
+                while (jsonReader.hasNext()) {
+                    String name = jsonReader.nextName();
+                    List<Node> childNodes = nodesAt(depth + 1);
+                    for (int i = 0, size = nodes.size(); i < size; i++) {
+                        Node node = nodes.get(i);
+                        Node child = node.names != null ? node.names.get(name) : null;
+                        if (child != null) childNodes.add(child);
+                        if (node.anyName != null) childNodes.add(node.anyName);
+                    }
+                    if (childNodes.isEmpty()) {
+                        jsonReader.skipValue();
+                    } else if (!readValue(jsonReader, childNodes, depth + 1)) {
+                        return false;
+                    }
+                }
+                jsonReader.endObject();
+            } else if (token == JsonToken.BEGIN_ARRAY) {
+                if (!hasIndexChildren(nodes)) {
+                    jsonReader.skipValue();
+                    return true;
+                }
+                jsonReader.beginArray();
+                int index = 0;
+                while (jsonReader.hasNext()) {
+                    List<Node> childNodes = nodesAt(depth + 1);
+                    for (int i = 0, size = nodes.size(); i < size; i++) {
+                        Node node = nodes.get(i);
+                        Node child = node.indexes != null ? node.indexes.get(index) : null;
+                        if (child != null) childNodes.add(child);
+                        if (node.anyIndex != null) childNodes.add(node.anyIndex);
+                    }
+                    if (childNodes.isEmpty()) {
+                        jsonReader.skipValue();
+                    } else if (!readValue(jsonReader, childNodes, depth + 1)) {
+                        return false;
+                    }
+                    index++;
+                }
+                jsonReader.endArray();
+            } else {
+                String value;
+                if (token == JsonToken.NULL) {
+                    jsonReader.nextNull();
+                    value = null;
+                } else if (token == JsonToken.BOOLEAN) {
+                    value = jsonReader.nextBoolean() ? "true" : "false";
+                } else {
+                    // Numbers are kept as they are in the json and converted when they are got
+                    value = jsonReader.nextString();
+                }
+                for (int i = 0, size = nodes.size(); i < size; i++) {
+                    Node node = nodes.get(i);
+                    if (node.pathIndex != -1) {
+                        boolean first = result.add(node.pathIndex, value);
+                        if (first && !hasWildcard && ++foundSinglePathCount == singlePathCount) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        private boolean hasNameChildren(@NonNull List<Node> nodes) {
+            for (int i = 0, size = nodes.size(); i < size; i++) {
+                Node node = nodes.get(i);
+                if (node.names != null || node.anyName != null) return true;
+            }
+            return false;
+        }
+
+        private boolean hasIndexChildren(@NonNull List<Node> nodes) {
+            for (int i = 0, size = nodes.size(); i < size; i++) {
+                Node node = nodes.get(i);
+                if (node.indexes != null || node.anyIndex != null) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The values extracted by a query, numbers are converted to the requested type when they are got
+     */
+    public static class Result {
+        @NonNull
+        private final JsonPathQuery query;
+        @NonNull
+        private final List<String>[] values;
+
+        @SuppressWarnings("unchecked")
+        Result(@NonNull JsonPathQuery query) {
+            this.query = query;
+            this.values = new List[query.paths.length];
+        }
+
+        /**
+         * @return true if it is the first value of the path
+         */
+        boolean add(int pathIndex, @Nullable String value) {
+            List<String> pathValues = values[pathIndex];
+            if (pathValues == null) {
+                pathValues = new ArrayList<>(1);
+                values[pathIndex] = pathValues;
+            }
+            pathValues.add(value);
+            return pathValues.size() == 1;
+        }
+
+        @Nullable
+        private List<String> valuesOf(@NonNull String path) {
+            Integer pathIndex = query.pathIndexes.get(path);
+            if (pathIndex == null) throw new IllegalArgumentException("The path is not in the query: " + path);
+            return values[pathIndex];
+        }
+
+        /**
+         * Get the number of values found for [path], json null is counted
+         */
+        public int getCount(@NonNull String path) {
+            List<String> pathValues = valuesOf(path);
+            return pathValues != null ? pathValues.size() : 0;
+        }
+
+        /**
+         * Return true if a value (including json null) is found for [path]
+         */
+        public boolean has(@NonNull String path) {
+            return getCount(path) > 0;
+        }
+
+        /**
+         * Get all values of [path] as strings, json null is null
+         */
+        @NonNull
+        public List<String> getStrings(@NonNull String path) {
+            List<String> pathValues = valuesOf(path);
+            return pathValues != null ? Collections.unmodifiableList(pathValues) : Collections.<String>emptyList();
+        }
+
+        /**
+         * Get the first value of [path] as a string, numbers are as they are in the json
+         */
+        @Nullable
+        public String getString(@NonNull String path, @Nullable String defaultValue) {
+            List<String> pathValues = valuesOf(path);
+            String value = pathValues != null ? pathValues.get(0) : null;
+            return value != null ? value : defaultValue;
+        }
+
+        @Nullable
+        public String getString(@NonNull String path) {
+            return getString(path, null);
+        }
+
+        /**
+         * Get the first value of [path] as an int, the same as {@link Jsonx#optInt(org.json.JSONObject, String[], int)} strings are converted too
+         */
+        public int getInt(@NonNull String path, int defaultValue) {
+            return (int) getLong(path, defaultValue);
+        }
+
+        public long getLong(@NonNull String path, long defaultValue) {
+            List<String> pathValues = valuesOf(path);
+            return pathValues != null ? toLong(pathValues.get(0), defaultValue) : defaultValue;
+        }
+
+        public double getDouble(@NonNull String path, double defaultValue) {
+            List<String> pathValues = valuesOf(path);
+            return pathValues != null ? toDouble(pathValues.get(0), defaultValue) : defaultValue;
+        }
+
+        /**
+         * Get the first value of [path] as a boolean, the string "true" and "false" are converted too, ignoring case
+         */
+        public boolean getBoolean(@NonNull String path, boolean defaultValue) {
+            List<String> pathValues = valuesOf(path);
+            String value = pathValues != null ? pathValues.get(0) : null;
+            if ("true".equalsIgnoreCase(value)) {
+                return true;
+            } else if ("false".equalsIgnoreCase(value)) {
+                return false;
+            } else {
+                return defaultValue;
+            }
+        }
+
+        /**
+         * Get all values of [path] as ints, the values that are not numbers are 0
+         */
+        @NonNull
+        public int[] getInts(@NonNull String path) {
+            List<String> pathValues = valuesOf(path);
+            int[] ints = new int[pathValues != null ? pathValues.size() : 0];
+            for (int i = 0; i < ints.length; i++) {
+                //noinspection ConstantConditions
+                ints[i] = (int) toLong(pathValues.get(i), 0);
+            }
+            return ints;
+        }
+
+        /**
+         * Get all values of [path] as longs, the values that are not numbers are 0
+         */
+        @NonNull
+        public long[] getLongs(@NonNull String path) {
+            List<String> pathValues = valuesOf(path);
+            long[] longs = new long[pathValues != null ? pathValues.size() : 0];
+            for (int i = 0; i < longs.length; i++) {
+                //noinspection ConstantConditions
+                longs[i] = toLong(pathValues.get(i), 0);
+            }
+            return longs;
+        }
+
+        /**
+         * Get all values of [path] as doubles, the values that are not numbers are 0
+         */
+        @NonNull
+        public double[] getDoubles(@NonNull String path) {
+            List<String> pathValues = valuesOf(path);
+            double[] doubles = new double[pathValues != null ? pathValues.size() : 0];
+            for (int i = 0; i < doubles.length; i++) {
+                //noinspection ConstantConditions
+                doubles[i] = toDouble(pathValues.get(i), 0);
+            }
+            return doubles;
+        }
+
+        private static long toLong(@Nullable String value, long defaultValue) {
+            if (value == null) return defaultValue;
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException ignored) {
+            }
+            try {
+                return (long) Double.parseDouble(value);
+            } catch (NumberFormatException ignored) {
+                return defaultValue;
+            }
+        }
+
+        private static double toDouble(@Nullable String value, double defaultValue) {
+            if (value == null) return defaultValue;
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException ignored) {
+                return defaultValue;
+            }
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("Result(");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) builder.append(", ");
+                builder.append(query.paths[i]).append('=').append(values[i]);
+            }
+            return builder.append(')').toString();
+        }
+    }
+}
@@ -18,11 +18,19 @@ package me.panpf.androidx.util;
 
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.MalformedJsonException;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -76,7 +84,82 @@ public class Jsonx {
 
     @NonNull
     public static String toJson(@Nullable int[] ints) {
-        return toJsonArray(ints).toString();
+        return appendJson(new StringBuilder(ints != null ? ints.length * 6 + 2 : 2), ints).toString();
+    }
+
+    @NonNull
+    public static String toJson(@Nullable long[] longs) {
+        return appendJson(new StringBuilder(longs != null ? longs.length * 12 + 2 : 2), longs).toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException A value is NaN or infinite
+     */
+    @NonNull
+    public static String toJson(@Nullable double[] doubles) {
+        return appendJson(new StringBuilder(doubles != null ? doubles.length * 12 + 2 : 2), doubles).toString();
+    }
+
+    @NonNull
+    public static String toJson(@Nullable boolean[] booleans) {
+        return appendJson(new StringBuilder(booleans != null ? booleans.length * 6 + 2 : 2), booleans).toString();
+    }
+
+    @NonNull
+    public static String toJson(@Nullable String[] strings) {
+        return appendJson(new StringBuilder(), strings).toString();
+    }
+
+
+    /**
+     * Append [ints] to [builder] as a json array without boxing, [builder] can be reused for many arrays by {@code setLength(0)}
+     *
+     * @return [builder]
+     */
+    @NonNull
+    public static StringBuilder appendJson(@NonNull StringBuilder builder, @Nullable int[] ints) {
+        return JsonArrayCodec.append(builder, ints);
+    }
+
+    /**
+     * Append [longs] to [builder] as a json array without boxing
+     *
+     * @return [builder]
+     */
+    @NonNull
+    public static StringBuilder appendJson(@NonNull StringBuilder builder, @Nullable long[] longs) {
+        return JsonArrayCodec.append(builder, longs);
+    }
+
+    /**
+     * Append [doubles] to [builder] as a json array without boxing, integral values are written without the fraction
+     *
+     * @return [builder]
+     * @throws IllegalArgumentException A value is NaN or infinite
+     */
+    @NonNull
+    public static StringBuilder appendJson(@NonNull StringBuilder builder, @Nullable double[] doubles) {
+        return JsonArrayCodec.append(builder, doubles);
+    }
+
+    /**
+     * Append [booleans] to [builder] as a json array without boxing
+     *
+     * @return [builder]
+     */
+    @NonNull
+    public static StringBuilder appendJson(@NonNull StringBuilder builder, @Nullable boolean[] booleans) {
+        return JsonArrayCodec.append(builder, booleans);
+    }
+
+    /**
+     * Append [strings] to [builder] as a json array, the strings are escaped and null elements are written as json null
+     *
+     * @return [builder]
+     */
+    @NonNull
+    public static StringBuilder appendJson(@NonNull StringBuilder builder, @Nullable String[] strings) {
+        return JsonArrayCodec.append(builder, strings);
     }
 
 
@@ -119,6 +202,17 @@ public class Jsonx {
         return !isEmpty(json) ? toStringArray(new JSONArray(json)) : new String[0];
     }
 
+    /**
+     * Parse the json array straight from [json] without {@link JSONArray}, numbers, booleans and null are returned as their text.
+     * Blank, "null" and "{}" are parsed to an empty array.
+     * <p>
+     * Unlike {@link #toStringArray(String)} the json must be strict: single quoted or unquoted strings and nested arrays or objects are rejected
+     */
+    @NonNull
+    public static String[] toStringArray(@Nullable CharSequence json) throws JSONException {
+        return JsonArrayCodec.parseStringArray(json);
+    }
+
 
     @NonNull
     public static int[] toIntArray(@Nullable JSONArray jsonArray) throws JSONException {
@@ -139,6 +233,47 @@ public class Jsonx {
         return !isEmpty(json) ? toIntArray(new JSONArray(json)) : new int[0];
     }
 
+    /**
+     * Parse the json array straight from [json] without {@link JSONArray} and boxing, numbers in strings are accepted and fractions are truncated.
+     * Blank, "null" and "{}" are parsed to an empty array.
+     * <p>
+     * Unlike {@link #toIntArray(String)} the json must be strict: single quoted or unquoted strings are rejected
+     */
+    @NonNull
+    public static int[] toIntArray(@Nullable CharSequence json) throws JSONException {
+        return JsonArrayCodec.parseIntArray(json);
+    }
+
+
+    /**
+     * Parse the json array straight from [json] without {@link JSONArray} and boxing, numbers in strings are accepted and fractions are truncated.
+     * Blank, "null" and "{}" are parsed to an empty array
+     */
+    @NonNull
+    public static long[] toLongArray(@Nullable CharSequence json) throws JSONException {
+        return JsonArrayCodec.parseLongArray(json);
+    }
+
+
+    /**
+     * Parse the json array straight from [json] without {@link JSONArray} and boxing, numbers in strings are accepted.
+     * Blank, "null" and "{}" are parsed to an empty array
+     */
+    @NonNull
+    public static double[] toDoubleArray(@Nullable CharSequence json) throws JSONException {
+        return JsonArrayCodec.parseDoubleArray(json);
+    }
+
+
+    /**
+     * Parse the json array straight from [json] without {@link JSONArray} and boxing, the strings "true" and "false" are accepted ignoring case.
+     * Blank, "null" and "{}" are parsed to an empty array
+     */
+    @NonNull
+    public static boolean[] toBooleanArray(@Nullable CharSequence json) throws JSONException {
+        return JsonArrayCodec.parseBooleanArray(json);
+    }
+
 
     @NonNull
     public static <Bean> ArrayList<Bean> toBeanList(@Nullable JSONArray jsonArray, @NonNull BeanParser<Bean> parser) throws JSONException {
@@ -160,10 +295,165 @@ public class Jsonx {
         return commentList;
     }
 
+    /**
+     * Parse the items of the json array one by one, only the current item is converted to a {@link JSONObject}, see {@link #readBeans(Reader, BeanParser, int, BeanCallback)}
+     */
     @NonNull
     public static <Bean> ArrayList<Bean> toBeanList(@Nullable String jsonArrayString, @NonNull BeanParser<Bean> parser) throws JSONException {
         if (isEmpty(jsonArrayString)) return new ArrayList<>(0);
-        return toBeanList(new JSONArray(jsonArrayString), parser);
+        try {
+            //noinspection ConstantConditions
+            return toBeanList(new StringReader(jsonArrayString), parser, Integer.MAX_VALUE);
+        } catch (IOException e) {
+            throw new JSONException(e.getMessage());
+        }
+    }
+
+    /**
+     * Read the json array from [reader] and parse at most [maxCount] items one by one, see {@link #readBeans(Reader, BeanParser, int, BeanCallback)}
+     */
+    @NonNull
+    public static <Bean> ArrayList<Bean> toBeanList(@NonNull Reader reader, @NonNull BeanParser<Bean> parser, int maxCount) throws IOException, JSONException {
+        final ArrayList<Bean> beanList = new ArrayList<>();
+        readBeans(reader, parser, maxCount, new BeanCallback<Bean>() {
+            @Override
+            public boolean onBean(@NonNull Bean bean, int index) {
+                beanList.add(bean);
+                return true;
+            }
+        });
+        return beanList;
+    }
+
+    /**
+     * Read the json array from [reader] and parse its items one by one, see {@link #readBeans(Reader, BeanParser, int, BeanCallback)}
+     */
+    @NonNull
+    public static <Bean> ArrayList<Bean> toBeanList(@NonNull Reader reader, @NonNull BeanParser<Bean> parser) throws IOException, JSONException {
+        return toBeanList(reader, parser, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Read the UTF-8 json array from [inputStream] and parse at most [maxCount] items one by one, see {@link #readBeans(Reader, BeanParser, int, BeanCallback)}
+     */
+    @NonNull
+    public static <Bean> ArrayList<Bean> toBeanList(@NonNull InputStream inputStream, @NonNull BeanParser<Bean> parser, int maxCount) throws IOException, JSONException {
+        return toBeanList(new InputStreamReader(inputStream, "UTF-8"), parser, maxCount);
+    }
+
+    /**
+     * Read the UTF-8 json array from [inputStream] and parse its items one by one, see {@link #readBeans(Reader, BeanParser, int, BeanCallback)}
+     */
+    @NonNull
+    public static <Bean> ArrayList<Bean> toBeanList(@NonNull InputStream inputStream, @NonNull BeanParser<Bean> parser) throws IOException, JSONException {
+        return toBeanList(inputStream, parser, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Read the json array from [reader] with {@link JsonReader} and deliver its items to [callback] one by one as soon as each item is read.
+     * Only the current item is converted to a {@link JSONObject}, so the memory used does not depend on the number of items.
+     * <p>
+     * The items that are not objects or parsed to null are skipped. Reading stops after [maxCount] beans or when [callback] returns false,
+     * the rest of the json is not read. The relaxed syntax accepted by {@link JSONArray} is accepted too. [reader] is not closed
+     *
+     * @param maxCount The max number of beans to deliver
+     * @return The number of beans delivered
+     * @throws IOException   Failed to read, or the json is invalid ({@link MalformedJsonException})
+     * @throws JSONException The json is not an array or thrown by [parser]
+     */
+    public static <Bean> int readBeans(@NonNull Reader reader, @NonNull BeanParser<Bean> parser, int maxCount,
+                                       @NonNull BeanCallback<Bean> callback) throws IOException, JSONException {
+        if (maxCount < 0) throw new IllegalArgumentException("maxCount must be greater than or equal to 0: " + maxCount);
+
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.setLenient(true);
+        JsonToken token = jsonReader.peek();
+        if (token == JsonToken.NULL) {
+            return 0;
+        } else if (token != JsonToken.BEGIN_ARRAY) {
+            throw new JSONException("Expected a json array but was " + token);
+        }
+
+        int count = 0;
+        jsonReader.beginArray();
+        while (count < maxCount && jsonReader.hasNext()) {
+            if (jsonReader.peek() != JsonToken.BEGIN_OBJECT) {
+                jsonReader.skipValue();
+                continue;
+            }
+            Bean bean = parser.parse(readJsonObject(jsonReader));
+            if (bean != null) {
+                if (!callback.onBean(bean, count++)) {
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    @NonNull
+    private static JSONObject readJsonObject(@NonNull JsonReader jsonReader) throws IOException, JSONException {
+        JSONObject jsonObject = new JSONObject();
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            jsonObject.put(name, readJsonValue(jsonReader));
+        }
+        jsonReader.endObject();
+        return jsonObject;
+    }
+
+    @NonNull
+    private static JSONArray readJsonArray(@NonNull JsonReader jsonReader) throws IOException, JSONException {
+        JSONArray jsonArray = new JSONArray();
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            jsonArray.put(readJsonValue(jsonReader));
+        }
+        jsonReader.endArray();
+        return jsonArray;
+    }
+
+    /**
+     * Read the next value as the same type as {@link JSONObject} parses it
+     */
+    @NonNull
+    private static Object readJsonValue(@NonNull JsonReader jsonReader) throws IOException, JSONException {
+        switch (jsonReader.peek()) {
+            case BEGIN_OBJECT:
+                return readJsonObject(jsonReader);
+            case BEGIN_ARRAY:
+                return readJsonArray(jsonReader);
+            case BOOLEAN:
+                return jsonReader.nextBoolean();
+            case NULL:
+                jsonReader.nextNull();
+                return JSONObject.NULL;
+            case NUMBER:
+                return toNumber(jsonReader.nextString());
+            default:
+                return jsonReader.nextString();
+        }
+    }
+
+    @NonNull
+    private static Object toNumber(@NonNull String number) {
+        if (number.indexOf('.') == -1 && number.indexOf('e') == -1 && number.indexOf('E') == -1) {
+            try {
+                long longValue = Long.parseLong(number);
+                if (longValue >= Integer.MIN_VALUE && longValue <= Integer.MAX_VALUE) {
+                    return (int) longValue;
+                } else {
+                    return longValue;
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        try {
+            return Double.valueOf(number);
+        } catch (NumberFormatException e) {
+            return number;
+        }
     }
 
 
@@ -266,13 +556,41 @@ public class Jsonx {
     @NonNull
     public static String format(@Nullable JSONObject jsonObject) {
         if (jsonObject == null) return "{}";
-        return appendJsonObject(new StringBuilder(), jsonObject, 0).toString();
+        StringBuilder builder = new StringBuilder();
+        try {
+            format(jsonObject, builder);
+        } catch (IOException e) {
+            // StringBuilder does not throw IOException
+            throw new IllegalStateException(e);
+        }
+        return builder.toString();
     }
 
     @NonNull
     public static String format(@Nullable JSONArray jsonArray) {
         if (jsonArray == null || jsonArray.length() <= 0) return "[]";
-        return appendJsonArray(new StringBuilder(), jsonArray, 0).toString();
+        StringBuilder builder = new StringBuilder();
+        try {
+            format(jsonArray, builder);
+        } catch (IOException e) {
+            // StringBuilder does not throw IOException
+            throw new IllegalStateException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Format [jsonObject] and write it to [out] directly, without converting it to a string first
+     */
+    public static void format(@NonNull JSONObject jsonObject, @NonNull Appendable out) throws IOException {
+        appendJsonObject(out, jsonObject, 0);
+    }
+
+    /**
+     * Format [jsonArray] and write it to [out] directly, without converting it to a string first
+     */
+    public static void format(@NonNull JSONArray jsonArray, @NonNull Appendable out) throws IOException {
+        appendJsonArray(out, jsonArray, 0);
     }
 
     @NonNull
@@ -281,102 +599,199 @@ public class Jsonx {
             return "{}";
         }
 
+        //noinspection ConstantConditions
+        StringBuilder builder = new StringBuilder(json.length() + (json.length() >> 1));
         try {
-            return format(new JSONObject(json));
-        } catch (JSONException e) {
-            e.printStackTrace();
+            format(new StringReader(json), builder);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid json: " + json, e);
         }
-
-        try {
-            return format(new JSONArray(json));
-        } catch (JSONException e) {
-            e.printStackTrace();
+        return builder.toString();
+    }
+
+    /**
+     * Format the json object or array read from [reader] token by token and write it to [out] as soon as each token is read,
+     * the memory used does not depend on the length of the json. The order of the keys is kept and the strings are escaped again.
+     * <p>
+     * The json is read leniently like {@link JSONObject#JSONObject(String)}, so unquoted or single quoted names and strings are accepted,
+     * but the top level must be a json object or array.
+     * <p>
+     * Wrap [out] with a {@link java.io.BufferedWriter} if it writes to a file
+     *
+     * @throws IOException Failed to read or write, or the json is invalid ({@link MalformedJsonException}), the part before the error has been written
+     */
+    public static void format(@NonNull Reader reader, @NonNull Appendable out) throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.setLenient(true);
+        JsonToken firstToken = jsonReader.peek();
+        if (firstToken != JsonToken.BEGIN_OBJECT && firstToken != JsonToken.BEGIN_ARRAY) {
+            throw new MalformedJsonException("Expected a json object or array but was " + firstToken);
         }
-
-        throw new IllegalArgumentException("Invalid json: " + json);
-    }
-
-    private static StringBuilder appendJsonObject(StringBuilder builder, JSONObject jsonObject, int indentationCount) {
-        builder.append("{");
-
-        int newIndentationCount = indentationCount + 1;
-        boolean hasData = false;
-
-        Iterator keyIterator = jsonObject.keys();
-        while (keyIterator.hasNext()) {
-            hasData = true;
-            String key = (String) keyIterator.next();
-            Object value = jsonObject.opt(key);
-
-            builder.append("\n");
-            appendIndentation(builder, newIndentationCount);
-
-            builder.append("\"").append(key).append("\"").append(":");
-
-            if (value instanceof JSONArray) {
-                appendJsonArray(builder, (JSONArray) value, newIndentationCount);
-            } else if (value instanceof JSONObject) {
-                appendJsonObject(builder, (JSONObject) value, newIndentationCount);
-            } else if (value instanceof String) {
-                builder.append("\"").append(value.toString()).append("\"");
-            } else if (value != null) {
-                builder.append(value.toString());
+        int depth = 0;
+        // No item has been written in the current object or array
+        boolean empty = true;
+        // The value follows the name written just now on the same line
+        boolean afterName = false;
+        do {
+            JsonToken token = jsonReader.peek();
+            if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) {
+                if (token == JsonToken.END_OBJECT) {
+                    jsonReader.endObject();
+                } else {
+                    jsonReader.endArray();
+                }
+                depth--;
+                if (!empty) {
+                    out.append('\n');
+                    appendIndentation(out, depth);
+                }
+                out.append(token == JsonToken.END_OBJECT ? '}' : ']');
+                empty = false;
+                continue;
             }
 
-            if (keyIterator.hasNext()) {
-                builder.append(",");
+            if (depth > 0 && !afterName) {
+                if (!empty) {
+                    out.append(',');
+                }
+                out.append('\n');
+                appendIndentation(out, depth);
             }
-        }
+            afterName = false;
+            empty = false;
+
+            switch (token) {
+                case BEGIN_OBJECT:
+                    jsonReader.beginObject();
+                    out.append('{');
+                    depth++;
+                    empty = true;
+                    break;
+                case BEGIN_ARRAY:
+                    jsonReader.beginArray();
+                    out.append('[');
+                    depth++;
+                    empty = true;
+                    break;
+                case NAME:
+                    appendString(out, jsonReader.nextName());
+                    out.append(':');
+                    afterName = true;
+                    break;
+                case STRING:
+                    appendString(out, jsonReader.nextString());
+                    break;
+                case NUMBER:
+                    // The number is written as it is in the json
+                    out.append(jsonReader.nextString());
+                    break;
+                case BOOLEAN:
+                    out.append(jsonReader.nextBoolean() ? "true" : "false");
+                    break;
+                case NULL:
+                    jsonReader.nextNull();
+                    out.append("null");
+                    break;
+                default:
+                    throw new MalformedJsonException("Unexpected " + token);
+            }
+        } while (depth > 0);
 
-        if (hasData) {
-            builder.append("\n");
+        if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+            throw new MalformedJsonException("Expected the end of the json");
         }
-        appendIndentation(builder, indentationCount);
-        builder.append("}");
-
-        return builder;
     }
 
-    private static StringBuilder appendJsonArray(StringBuilder builder, JSONArray jsonArray, int indentationCount) {
-        builder.append("[");
-
-        int newIndentationCount = indentationCount + 1;
-        boolean hasData = false;
-
-        for (int w = 0, size = jsonArray.length(); w < size; w++) {
-            hasData = true;
-            Object item = jsonArray.opt(w);
-
-            builder.append("\n");
-            appendIndentation(builder, newIndentationCount);
+    /**
+     * Format the json object or array of [json] and write it to [out] token by token, see {@link #format(Reader, Appendable)}
+     */
+    public static void format(@NonNull String json, @NonNull Appendable out) throws IOException {
+        format(new StringReader(json), out);
+    }
 
-            if (item instanceof JSONArray) {
-                appendJsonArray(builder, (JSONArray) item, newIndentationCount);
-            } else if (item instanceof JSONObject) {
-                appendJsonObject(builder, (JSONObject) item, newIndentationCount);
-            } else if (item instanceof String) {
-                builder.append("\"").append(item.toString()).append("\"");
-            } else if (item != null) {
-                builder.append(item.toString());
+    private static void appendJsonObject(@NonNull Appendable out, @NonNull JSONObject jsonObject, int depth) throws IOException {
+        out.append('{');
+        boolean empty = true;
+        Iterator<String> keys = jsonObject.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!empty) {
+                out.append(',');
             }
+            out.append('\n');
+            appendIndentation(out, depth + 1);
+            appendString(out, key);
+            out.append(':');
+            appendJsonValue(out, jsonObject.opt(key), depth + 1);
+            empty = false;
+        }
+        if (!empty) {
+            out.append('\n');
+            appendIndentation(out, depth);
+        }
+        out.append('}');
+    }
 
-            if (w < size - 1) {
-                builder.append(",");
+    private static void appendJsonArray(@NonNull Appendable out, @NonNull JSONArray jsonArray, int depth) throws IOException {
+        out.append('[');
+        int length = jsonArray.length();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                out.append(',');
             }
+            out.append('\n');
+            appendIndentation(out, depth + 1);
+            appendJsonValue(out, jsonArray.opt(i), depth + 1);
         }
-
-        if (hasData) {
-            builder.append("\n");
+        if (length > 0) {
+            out.append('\n');
+            appendIndentation(out, depth);
+        }
+        out.append(']');
+    }
+
+    /**
+     * Write [value] the same way as {@link JSONObject#toString()}
+     */
+    private static void appendJsonValue(@NonNull Appendable out, @Nullable Object value, int depth) throws IOException {
+        if (value instanceof JSONObject) {
+            appendJsonObject(out, (JSONObject) value, depth);
+        } else if (value instanceof JSONArray) {
+            appendJsonArray(out, (JSONArray) value, depth);
+        } else if (value == null || value == JSONObject.NULL) {
+            out.append("null");
+        } else if (value instanceof Boolean) {
+            out.append(value.toString());
+        } else if (value instanceof Number) {
+            try {
+                out.append(JSONObject.numberToString((Number) value));
+            } catch (JSONException e) {
+                throw new IllegalArgumentException("Invalid number: " + value, e);
+            }
+        } else {
+            appendString(out, value.toString());
         }
-        appendIndentation(builder, indentationCount);
-        builder.append("]");
+    }
 
-        return builder;
+    /**
+     * Write [string] with quotes, see {@link JsonArrayCodec#escape(char)}
+     */
+    private static void appendString(@NonNull Appendable out, @NonNull String string) throws IOException {
+        out.append('"');
+        int last = 0;
+        for (int i = 0, length = string.length(); i < length; i++) {
+            String escaped = JsonArrayCodec.escape(string.charAt(i));
+            if (escaped != null) {
+                out.append(string, last, i).append(escaped);
+                last = i + 1;
+            }
+        }
+        out.append(string, last, string.length()).append('"');
     }
 
-    private static void appendIndentation(StringBuilder builder, int indentationCount) {
+    private static void appendIndentation(@NonNull Appendable out, int indentationCount) throws IOException {
         for (int w = 0; w < indentationCount; w++) {
-            builder.append(INDENTATION);
+            out.append(INDENTATION);
         }
     }
 
@@ -384,4 +799,12 @@ public class Jsonx {
         @Nullable
         T parse(@NonNull JSONObject itemJsonObject) throws JSONException;
     }
+
+    public interface BeanCallback<T> {
+        /**
+         * @param index The index of [bean] in the delivered beans
+         * @return false to stop reading
+         */
+        boolean onBean(@NonNull T bean, int index) throws JSONException;
+    }
 }
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2018 Peng fei Pan <panpfpanpf@outlook.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.panpf.androidx.util;
+
+import android.support.annotation.ColorInt;
+import android.support.annotation.NonNull;
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.style.ForegroundColorSpan;
+import android.util.SparseIntArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Highlight all keywords of a set in one pass. The keywords are compiled into an Aho-Corasick automaton once,
+ * the instance is immutable and can be reused across texts and threads.
+ * <p>
+ * Matches do not overlap, at each position the longest keyword wins, the same as calling indexOf repeatedly from the end of the last match
+ */
+@SuppressWarnings("WeakerAccess")
+public class KeywordHighlighter {
+
+    private static final int ROOT = 0;
+
+    private final boolean ignoreCase;
+    private final int keywordCount;
+    /**
+     * Transitions of each node, char to the child node
+     */
+    @NonNull
+    private final SparseIntArray[] children;
+    @NonNull
+    private final int[] fails;
+    /**
+     * Length of the keyword that ends at each node, 0 if none
+     */
+    @NonNull
+    private final int[] lengths;
+    /**
+     * The nearest node in the fail chain of each node that a keyword ends at, -1 if none
+     */
+    @NonNull
+    private final int[] outputs;
+
+    /**
+     * @param keywords   Keywords, empty and duplicate keywords are ignored
+     * @param ignoreCase Whether to compare the characters after converting them to lower case
+     */
+    public KeywordHighlighter(@NonNull Collection<String> keywords, boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+
+        // Build the trie
+        List<SparseIntArray> childList = new ArrayList<>();
+        List<Integer> lengthList = new ArrayList<>();
+        childList.add(new SparseIntArray());
+        lengthList.add(0);
+        int count = 0;
+        for (String keyword : keywords) {
+            if (keyword == null || keyword.length() == 0) continue;
+            int node = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = fold(keyword.charAt(i));
+                int child = childList.get(node).get(c, -1);
+                if (child == -1) {
+                    child = childList.size();
+                    childList.add(new SparseIntArray(2));
+                    lengthList.add(0);
+                    childList.get(node).put(c, child);
+                }
+                node = child;
+            }
+            if (lengthList.get(node) == 0) {
+                lengthList.set(node, keyword.length());
+                count++;
+            }
+        }
+
+        int size = childList.size();
+        this.keywordCount = count;
+        this.children = childList.toArray(new SparseIntArray[size]);
+        this.lengths = new int[size];
+        for (int i = 0; i < size; i++) {
+            lengths[i] = lengthList.get(i);
+        }
+        this.fails = new int[size];
+        this.outputs = new int[size];
+        Arrays.fill(outputs, -1);
+
+        // Link the fail and output of each node in breadth first order, so the links of the shorter prefixes are ready
+        LinkedList<Integer> queue = new LinkedList<>();
+        SparseIntArray rootChildren = children[ROOT];
+        for (int i = 0; i < rootChildren.size(); i++) {
+            int child = rootChildren.valueAt(i);
+            fails[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.removeFirst();
+            SparseIntArray nodeChildren = children[node];
+            for (int i = 0; i < nodeChildren.size(); i++) {
+                char c = (char) nodeChildren.keyAt(i);
+                int child = nodeChildren.valueAt(i);
+                int fail = fails[node];
+                int next;
+                while ((next = children[fail].get(c, -1)) == -1 && fail != ROOT) {
+                    fail = fails[fail];
+                }
+                fails[child] = next != -1 ? next : ROOT;
+                outputs[child] = lengths[fails[child]] > 0 ? fails[child] : outputs[fails[child]];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * @param keywords   Keywords, empty and duplicate keywords are ignored
+     * @param ignoreCase Whether to compare the characters after converting them to lower case
+     */
+    public KeywordHighlighter(@NonNull String[] keywords, boolean ignoreCase) {
+        this(Arrays.asList(keywords), ignoreCase);
+    }
+
+    public KeywordHighlighter(@NonNull String... keywords) {
+        this(Arrays.asList(keywords), false);
+    }
+
+    private char fold(char c) {
+        return ignoreCase ? Character.toLowerCase(c) : c;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * Get the number of distinct keywords
+     */
+    public int getKeywordCount() {
+        return keywordCount;
+    }
+
+    /**
+     * Find all matches of the keywords in [text]
+     *
+     * @return The start and end index of each match in turn, such as [start0, end0, start1, end1]
+     */
+    @NonNull
+    public int[] find(@NonNull CharSequence text) {
+        int length = text.length();
+        if (keywordCount == 0 || length == 0) return new int[0];
+
+        // The longest keyword that starts at each index
+        int[] longest = new int[length];
+        int matchCount = 0;
+        int node = ROOT;
+        for (int i = 0; i < length; i++) {
+            char c = fold(text.charAt(i));
+            int next;
+            while ((next = children[node].get(c, -1)) == -1 && node != ROOT) {
+                node = fails[node];
+            }
+            node = next != -1 ? next : ROOT;
+            for (int out = lengths[node] > 0 ? node : outputs[node]; out != -1; out = outputs[out]) {
+                int start = i - lengths[out] + 1;
+                if (longest[start] == 0) matchCount++;
+                if (lengths[out] > longest[start]) longest[start] = lengths[out];
+            }
+        }
+        if (matchCount == 0) return new int[0];
+
+        int[] matches = new int[matchCount * 2];
+        int index = 0;
+        int start = 0;
+        while (start < length) {
+            if (longest[start] > 0) {
+                matches[index++] = start;
+                matches[index++] = start + longest[start];
+                start += longest[start];
+            } else {
+                start++;
+            }
+        }
+        return index == matches.length ? matches : Arrays.copyOf(matches, index);
+    }
+
+    /**
+     * Return true if [text] contains any keyword
+     */
+    public boolean containsAny(@NonNull CharSequence text) {
+        if (keywordCount == 0) return false;
+        int node = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = fold(text.charAt(i));
+            int next;
+            while ((next = children[node].get(c, -1)) == -1 && node != ROOT) {
+                node = fails[node];
+            }
+            node = next != -1 ? next : ROOT;
+            if (lengths[node] > 0 || outputs[node] != -1) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Mark all keywords in [text] with the span created by [spanFactory]
+     */
+    @NonNull
+    public SpannableStringBuilder toSpannable(@NonNull CharSequence text, @NonNull SpanFactory spanFactory) {
+        SpannableStringBuilder builder = new SpannableStringBuilder(text);
+        int[] matches = find(text);
+        for (int i = 0; i < matches.length; i += 2) {
+            builder.setSpan(spanFactory.createSpan(text, matches[i], matches[i + 1]), matches[i], matches[i + 1], Spannable.SPAN_EXCLUSIVE_INCLUSIVE);
+        }
+        return builder;
+    }
+
+    /**
+     * Mark all keywords in [text] with the given color
+     */
+    @NonNull
+    public SpannableStringBuilder toSpannable(@NonNull CharSequence text, @ColorInt final int color) {
+        return toSpannable(text, new SpanFactory() {
+            @NonNull
+            @Override
+            public Object createSpan(@NonNull CharSequence text, int start, int end) {
+                return new ForegroundColorSpan(color);
+            }
+        });
+    }
+
+    /**
+     * Wrap all keywords in [text] with the font tag of the given color and append the result to [out], [text] is not escaped
+     */
+    @NonNull
+    public StringBuilder appendHtml(@NonNull StringBuilder out, @NonNull String text, @NonNull String color) {
+        int[] matches = find(text);
+        out.ensureCapacity(out.length() + text.length() + (matches.length / 2) * (22 + color.length()));
+        int last = 0;
+        for (int i = 0; i < matches.length; i += 2) {
+            out.append(text, last, matches[i])
+                    .append("<font color=\"").append(color).append("\">")
+                    .append(text, matches[i], matches[i + 1])
+                    .append("</font>");
+            last = matches[i + 1];
+        }
+        return out.append(text, last, text.length());
+    }
+
+    /**
+     * Wrap all keywords in [text] with the font tag of the given color, [text] is not escaped
+     */
+    @NonNull
+    public String toHtml(@NonNull String text, @NonNull String color) {
+        return appendHtml(new StringBuilder(), text, color).toString();
+    }
+
+    public interface SpanFactory {
+        /**
+         * Create the span of the keyword between [start] and [end] of [text], a new span is required for each keyword
+         */
+        @NonNull
+        Object createSpan(@NonNull CharSequence text, int start, int end);
+    }
+}
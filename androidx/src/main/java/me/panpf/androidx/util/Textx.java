@@ -26,7 +26,7 @@ import android.text.Spannable;
 import android.text.SpannableStringBuilder;
 import android.text.style.ForegroundColorSpan;
 
-import me.panpf.androidx.graphics.Paintx;
+import me.panpf.androidx.graphics.TextMeasureCache;
 
 @SuppressWarnings("WeakerAccess")
 public class Textx {
@@ -50,8 +50,10 @@ public class Textx {
         paint.setAntiAlias(true);
         paint.setFilterBitmap(true);
 
-        float textWidth = Paintx.getTextWidth(text, paint);
-        float textHeight = Paintx.getTextHeight(paint);
+        TextMeasureCache measureCache = TextMeasureCache.getDefault();
+        float textWidth = measureCache.getTextWidth(text, paint);
+        float textHeight = measureCache.getTextHeight(textSize, null, paint.getFlags());
+        float textLeading = measureCache.getTextLeading(textSize, null, paint.getFlags());
 
         int newBitmapWidth = textWidth % 1 == 0 ? (int) textWidth : (int) textWidth + 1;
         int newBitmapHeight = textHeight % 1 == 0 ? (int) textHeight : (int) textHeight + 1;
@@ -65,9 +67,9 @@ public class Textx {
         Canvas canvas = new Canvas(bitmap);
         if (leftBitmap != null) {
             canvas.drawBitmap(leftBitmap, 0, (newBitmapHeight - leftBitmap.getHeight()) / 2, paint);
-            canvas.drawText(text, leftBitmap.getWidth(), (newBitmapHeight - textHeight) / 2 + Paintx.getTextLeading(paint), paint);
+            canvas.drawText(text, leftBitmap.getWidth(), (newBitmapHeight - textHeight) / 2 + textLeading, paint);
         } else {
-            canvas.drawText(text, 0, (newBitmapHeight - textHeight) / 2 + Paintx.getTextLeading(paint), paint);
+            canvas.drawText(text, 0, (newBitmapHeight - textHeight) / 2 + textLeading, paint);
         }
         canvas.save();
 
@@ -122,6 +124,17 @@ public class Textx {
         return keywordMadeColorByHtml(sourceString, keyword, "red");
     }
 
+    /**
+     * 使用 Html 的方式将字符串中所有关键字标记颜色，多个关键字只扫描一遍字符串。需要重复使用同一组关键字时请直接使用 {@link KeywordHighlighter}
+     *
+     * @param sourceString 字符串
+     * @param keywords     关键字
+     * @param color        html 支持的颜色
+     */
+    public static String keywordsMadeColorByHtml(@NonNull String sourceString, @NonNull String[] keywords, @NonNull String color) {
+        return new KeywordHighlighter(keywords, false).toHtml(sourceString, color);
+    }
+
     /**
      * 使用 Spannable 的方式将字符串中所有的关键字标记颜色
      *
@@ -156,4 +169,15 @@ public class Textx {
     public static SpannableStringBuilder keywordMadeRedBySpannable(@NonNull String sourceString, @NonNull String keyword) {
         return keywordMadeColorBySpannable(sourceString, keyword, Color.RED);
     }
+
+    /**
+     * 使用 Spannable 的方式将字符串中所有的关键字标记颜色，多个关键字只扫描一遍字符串。需要重复使用同一组关键字时请直接使用 {@link KeywordHighlighter}
+     *
+     * @param sourceString 字符串
+     * @param keywords     关键字
+     * @param color        颜色
+     */
+    public static SpannableStringBuilder keywordsMadeColorBySpannable(@NonNull String sourceString, @NonNull String[] keywords, int color) {
+        return new KeywordHighlighter(keywords, false).toSpannable(sourceString, color);
+    }
 }